@@ -141,7 +141,8 @@ public class AgentHTTPClientController extends AgentController {
                 new AgentWorkContext(agentIdentifier, client, manipulator, getAgentRuntimeInfo(), scmExtension, taskExtension, artifactExtension, pluginRequestProcessorRegistry)
             );
             LOG.debug("[Agent Loop] Successfully executed work.");
-            return WorkAttempt.fromWork(work);
+            WorkAttempt attempt = WorkAttempt.fromWork(work);
+            return attempt == WorkAttempt.NOTHING_TO_DO && client.serverWaitedForLastWork() ? WorkAttempt.NOTHING_TO_DO_AFTER_WAITING : attempt;
         } catch (UnregisteredAgentException e) {
             LOG.warn("[Agent Loop] Agent is not registered. [{}] Registering with server on next iteration.", e.getMessage());
             sslInfrastructureService.createSslInfrastructure();
@@ -20,14 +20,22 @@ import com.thoughtworks.go.config.AgentRegistry;
 import com.thoughtworks.go.domain.FetchHandler;
 import com.thoughtworks.go.remote.work.artifact.WorkDownloader;
 import com.thoughtworks.go.util.PerfTimer;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
 import org.apache.http.entity.mime.content.ByteArrayBody;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.entity.mime.content.FileBody;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,7 +43,12 @@ import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.thoughtworks.go.remote.StandardHeaders.*;
 
@@ -74,11 +87,104 @@ public class HttpService implements WorkDownloader {
         }
     }
 
+    /**
+     * Uploads an artifact that leaves out the files the server already has. Those are listed in {@code blobs} instead,
+     * by path and hash, for the server to link into place.
+     *
+     * @param artifactFile the zip of the remaining files, or null if the server has all of them
+     */
+    public int upload(String url, long size, File artifactFile, Properties artifactChecksums, Properties blobs) throws IOException {
+        LOGGER.info("Uploading [{}] to url [{}], leaving out {} file(s) the server already has", artifactFile, url, blobs.size());
+
+        HttpPost filePost = createHttpPostForUpload(url, size);
+        filePost.setEntity(httpMethodFactory.createMultipartRequestEntity(artifactFile, artifactChecksums, blobs));
+        try (CloseableHttpResponse response = execute(filePost)) {
+            return response.getStatusLine().getStatusCode();
+        } catch (IOException e) {
+            LOGGER.error("Error while uploading [{}]", artifactFile, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Asks the server which of the given SHA-256 hashes it already has the content for. A server that does not keep
+     * artifacts by content, or that cannot answer, is taken to have none of them.
+     */
+    public Set<String> knownBlobs(String url, Collection<String> hashes) throws IOException {
+        HttpPost queryPost = httpMethodFactory.createPost(url);
+        queryPost.setHeader(REQUEST_CONFIRM_MODIFICATION, "true");
+        queryPost.setHeader(REQUEST_ARTIFACT_BLOB_QUERY, "true");
+        queryPost.setEntity(new StringEntity(String.join("\n", hashes), ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8)));
+        try (CloseableHttpResponse response = execute(queryPost)) {
+            if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_OK || response.getEntity() == null) {
+                return Set.of();
+            }
+            String known = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            return known.lines().filter(hashes::contains).collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Uploads an artifact whose content is produced while the request is being sent. The request is chunked, and the
+     * checksums are only asked for once the artifact has been written, so they can be computed along the way.
+     */
+    public int upload(String url, long size, ContentBody artifact, Supplier<Properties> artifactChecksums) throws IOException {
+        LOGGER.info("Streaming [{}] to url [{}]", artifact.getFilename(), url);
+
+        HttpPost filePost = createHttpPostForUpload(url, size);
+        filePost.setEntity(httpMethodFactory.createMultipartRequestEntity(artifact, artifactChecksums));
+        try (CloseableHttpResponse response = execute(filePost)) {
+            return response.getStatusLine().getStatusCode();
+        } catch (IOException e) {
+            LOGGER.error("Error while streaming [{}]", artifact.getFilename(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Sends one chunk of an artifact zip that is uploaded in chunks.
+     *
+     * @return the status, along with how much of the upload the server has acknowledged, which is where to resume from
+     */
+    public ChunkResponse uploadChunk(String url, long size, String uploadId, long offset, byte[] chunk, int length) throws IOException {
+        HttpPost chunkPost = createHttpPostForUpload(url, size);
+        chunkPost.setHeader(REQUEST_ARTIFACT_UPLOAD_ID, uploadId);
+        chunkPost.setHeader(REQUEST_ARTIFACT_CHUNK_OFFSET, String.valueOf(offset));
+        chunkPost.setHeader(REQUEST_ARTIFACT_CHUNK_MD5, DigestUtils.md5Hex(new ByteArrayInputStream(chunk, 0, length)));
+        chunkPost.setEntity(new ByteArrayEntity(chunk, 0, length, ContentType.APPLICATION_OCTET_STREAM));
+        return executeChunkedUpload(chunkPost, offset);
+    }
+
+    public ChunkResponse completeChunkedUpload(String url, long size, String uploadId, long uploadedBytes, Properties artifactChecksums) throws IOException {
+        HttpPost completePost = createHttpPostForUpload(url, size);
+        completePost.setHeader(REQUEST_ARTIFACT_UPLOAD_ID, uploadId);
+        completePost.setHeader(REQUEST_ARTIFACT_UPLOAD_COMPLETE_SIZE, String.valueOf(uploadedBytes));
+        ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+        artifactChecksums.store(checksums, "");
+        completePost.setEntity(new ByteArrayEntity(checksums.toByteArray(), ContentType.APPLICATION_OCTET_STREAM));
+        return executeChunkedUpload(completePost, uploadedBytes);
+    }
+
+    private ChunkResponse executeChunkedUpload(HttpPost post, long offset) throws IOException {
+        try (CloseableHttpResponse response = execute(post)) {
+            Header acknowledged = response.getFirstHeader(RESPONSE_ARTIFACT_UPLOAD_OFFSET);
+            return new ChunkResponse(response.getStatusLine().getStatusCode(), acknowledged == null ? offset : Long.parseLong(acknowledged.getValue()));
+        }
+    }
+
+    public record ChunkResponse(int statusCode, long acknowledgedOffset) {
+    }
+
     private HttpPost createHttpPostForUpload(String url, long size, File artifactFile, Properties artifactChecksums) throws IOException {
+        HttpPost filePost = createHttpPostForUpload(url, size);
+        filePost.setEntity(httpMethodFactory.createMultipartRequestEntity(artifactFile, artifactChecksums));
+        return filePost;
+    }
+
+    private HttpPost createHttpPostForUpload(String url, long size) {
         HttpPost filePost = httpMethodFactory.createPost(url);
         setSizeHeader(filePost, size);
         filePost.setHeader(REQUEST_CONFIRM_MODIFICATION, "true");
-        filePost.setEntity(httpMethodFactory.createMultipartRequestEntity(artifactFile, artifactChecksums));
         return filePost;
     }
 
@@ -144,5 +250,55 @@ public class HttpService implements WorkDownloader {
             }
             return entityBuilder.build();
         }
+
+        public HttpEntity createMultipartRequestEntity(File artifact, Properties artifactChecksums, Properties blobs) throws IOException {
+            MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
+            if (artifact != null) {
+                entityBuilder.addPart(Multipart.ZIP_FILENAME, new FileBody(artifact));
+            }
+            ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+            artifactChecksums.store(checksums, "");
+            entityBuilder.addPart(Multipart.CHECKSUM_FILENAME, new ByteArrayBody(checksums.toByteArray(), "checksum_file"));
+            ByteArrayOutputStream blobsList = new ByteArrayOutputStream();
+            blobs.store(blobsList, "");
+            entityBuilder.addPart(Multipart.BLOBS_FILENAME, new ByteArrayBody(blobsList.toByteArray(), "blobs_file"));
+            return entityBuilder.build();
+        }
+
+        public HttpEntity createMultipartRequestEntity(ContentBody artifact, Supplier<Properties> artifactChecksums) {
+            MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
+            entityBuilder.addPart(Multipart.ZIP_FILENAME, artifact);
+            entityBuilder.addPart(Multipart.CHECKSUM_FILENAME, new ChecksumBody(artifactChecksums));
+            return entityBuilder.build();
+        }
+    }
+
+    private static class ChecksumBody extends AbstractContentBody {
+        private final Supplier<Properties> artifactChecksums;
+
+        ChecksumBody(Supplier<Properties> artifactChecksums) {
+            super(ContentType.DEFAULT_BINARY);
+            this.artifactChecksums = artifactChecksums;
+        }
+
+        @Override
+        public String getFilename() {
+            return "checksum_file";
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            artifactChecksums.get().store(out, "");
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return "binary";
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
     }
 }
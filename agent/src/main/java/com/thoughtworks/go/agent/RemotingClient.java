@@ -40,15 +40,18 @@ import org.apache.http.entity.StringEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static com.thoughtworks.go.agent.ResponseHelpers.readBodyAsString;
 import static com.thoughtworks.go.agent.ResponseHelpers.readBodyAsStringOrElse;
 import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_AUTH;
 import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_UUID;
+import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_WORK_WAIT_MILLIS;
 import static java.lang.String.format;
 
 @Component
@@ -58,12 +61,16 @@ public class RemotingClient implements BuildRepositoryRemote {
     private final GoAgentServerHttpClient client;
     private final DefaultAgentRegistry agent;
     private final URLService urls;
+    private final long workLongPollMillis;
+    private volatile boolean serverWaitedForLastWork;
 
     @Autowired
-    public RemotingClient(GoAgentServerHttpClient client, DefaultAgentRegistry agent, URLService urls) {
+    public RemotingClient(GoAgentServerHttpClient client, DefaultAgentRegistry agent, URLService urls,
+                          @Value("${agent.get.work.longPollMillis}") long workLongPollMillis) {
         this.client = client;
         this.agent = agent;
         this.urls = urls;
+        this.workLongPollMillis = workLongPollMillis;
     }
 
     @Override
@@ -73,7 +80,22 @@ public class RemotingClient implements BuildRepositoryRemote {
 
     @Override
     public Work getWork(AgentRuntimeInfo info) {
-        return Serialization.fromJson(post("get_work", new GetWorkRequest(info)), Work.class);
+        HttpRequestBase request = postRequestFor("get_work", new GetWorkRequest(info));
+        if (workLongPollMillis > 0) {
+            request.setHeader(REQUEST_WORK_WAIT_MILLIS, String.valueOf(workLongPollMillis));
+        }
+        serverWaitedForLastWork = false;
+        String work = execute("get_work", request, response -> serverWaitedForLastWork = response.containsHeader(REQUEST_WORK_WAIT_MILLIS));
+        return Serialization.fromJson(work, Work.class);
+    }
+
+    /**
+     * @return whether the server held on to the last work request until it had work or its long poll timed out, in
+     * which case there is no need to back off before asking for work again. Servers that do not support long polling
+     * always answer right away.
+     */
+    public boolean serverWaitedForLastWork() {
+        return serverWaitedForLastWork;
     }
 
     @Override
@@ -103,12 +125,14 @@ public class RemotingClient implements BuildRepositoryRemote {
     }
 
     private String post(final String action, final AgentRequest payload) {
+        return execute(action, postRequestFor(action, payload), response -> {});
+    }
+
+    private String execute(final String action, final HttpRequestBase request, final Consumer<HttpResponse> onSuccess) {
         try {
-            try (CloseableHttpResponse response = client.execute(
-                    injectCredentials(
-                            postRequestFor(action, payload)
-                    ))) {
+            try (CloseableHttpResponse response = client.execute(injectCredentials(request))) {
                 validateResponse(response, action);
+                onSuccess.accept(response);
                 return readBodyAsString(response);
             }
         } catch (IOException e) {
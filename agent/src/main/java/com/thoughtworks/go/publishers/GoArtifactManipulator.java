@@ -25,6 +25,7 @@ import com.thoughtworks.go.remote.work.ConsoleOutputTransmitter;
 import com.thoughtworks.go.remote.work.RemoteConsoleAppender;
 import com.thoughtworks.go.util.ArtifactUtil;
 import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.SystemTimeClock;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.work.DefaultGoPublisher;
@@ -41,10 +42,10 @@ import org.springframework.stereotype.Component;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
 import java.nio.charset.Charset;
-import java.util.Collection;
-import java.util.Properties;
+import java.util.*;
 import java.util.zip.Deflater;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
@@ -56,16 +57,19 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 public class GoArtifactManipulator implements ArtifactManipulator {
     private static final Logger LOGGER = LoggerFactory.getLogger(GoArtifactManipulator.class);
     private static final int PUBLISH_MAX_RETRIES = 3;
+    private static final int CHUNK_MAX_RETRIES = 5;
 
     private final HttpService httpService;
     private final URLService urlService;
     private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
 
     @Autowired
-    public GoArtifactManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil) {
+    public GoArtifactManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
         this.httpService = httpService;
         this.urlService = urlService;
         this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
     }
 
     @Override
@@ -78,51 +82,163 @@ public class GoArtifactManipulator implements ArtifactManipulator {
 
         int publishingAttempts = 0;
         Throwable lastException = null;
-        while (publishingAttempts < PUBLISH_MAX_RETRIES) {
-            File tmpDir = null;
-            try {
-                publishingAttempts++;
-
-                tmpDir = FileUtil.createTempFolder();
-                File dataToUpload = new File(tmpDir, source.getName() + ".zip");
-                zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
-
-                long size;
-                if (source.isDirectory()) {
-                    size = FileUtils.sizeOfDirectory(source);
-                } else {
-                    size = source.length();
-                }
+        // the same id on every attempt, so that a chunked upload carries on from what the server already has
+        String uploadId = UUID.randomUUID().toString();
+        File chunkedZip = null;
+        try {
+            while (publishingAttempts < PUBLISH_MAX_RETRIES) {
+                File tmpDir = null;
+                try {
+                    publishingAttempts++;
 
-                goPublisher.taggedConsumeLineWithPrefix(PUBLISH, "Uploading artifacts from " + source.getAbsolutePath() + " to " + getDestPath(destPath));
+                    boolean chunked = systemEnvironment.get(SystemEnvironment.AGENT_CHUNKED_ARTIFACT_UPLOAD);
+                    boolean streaming = !chunked && systemEnvironment.get(SystemEnvironment.AGENT_STREAMING_ARTIFACT_UPLOAD);
+                    boolean deduplicated = !chunked && !streaming && systemEnvironment.get(SystemEnvironment.AGENT_DEDUPLICATED_ARTIFACT_UPLOAD);
+                    String normalizedDestPath = FilenameUtils.separatorsToUnix(destPath);
+                    String url = urlService.getUploadUrlOfAgent(jobIdentifier, normalizedDestPath, publishingAttempts);
 
-                String normalizedDestPath = FilenameUtils.separatorsToUnix(destPath);
-                String url = urlService.getUploadUrlOfAgent(jobIdentifier, normalizedDestPath, publishingAttempts);
+                    File dataToUpload = null;
+                    Properties blobs = new Properties();
+                    if (chunked && chunkedZip != null) {
+                        dataToUpload = chunkedZip;
+                    } else if (!streaming) {
+                        tmpDir = FileUtil.createTempFolder();
+                        dataToUpload = new File(tmpDir, source.getName() + ".zip");
+                        if (deduplicated) {
+                            Map<File, String> knownFiles = filesKnownToServer(url, source);
+                            knownFiles.forEach((file, hash) -> blobs.setProperty(checksumKey(source, file, ""), hash));
+                            if (source.isFile() && knownFiles.containsKey(source)) {
+                                dataToUpload = null;
+                            } else {
+                                zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED, file -> !knownFiles.containsKey(file));
+                            }
+                        } else {
+                            zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
+                        }
+                        if (chunked) {
+                            // kept for later attempts, which resume the same upload rather than starting over
+                            chunkedZip = dataToUpload;
+                            tmpDir = null;
+                        }
+                    }
 
-                int statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                    long size;
+                    if (source.isDirectory()) {
+                        size = FileUtils.sizeOfDirectory(source);
+                    } else {
+                        size = source.length();
+                    }
 
-                if (statusCode == HttpURLConnection.HTTP_ENTITY_TOO_LARGE) {
-                    String message = String.format("Artifact upload for file %s (Size: %s) was denied by the server. This usually happens when server runs out of disk space.",
-                            source.getAbsolutePath(), size);
+                    goPublisher.taggedConsumeLineWithPrefix(PUBLISH, "Uploading artifacts from " + source.getAbsolutePath() + " to " + getDestPath(destPath));
+
+                    int statusCode;
+                    if (streaming) {
+                        Properties checksums = new Properties();
+                        ZipStreamBody zipStream = new ZipStreamBody(source, zipUtil, (file, md5) -> checksums.setProperty(checksumKey(source, file, normalizedDestPath), md5));
+                        statusCode = httpService.upload(url, size, zipStream, () -> checksums);
+                    } else if (deduplicated) {
+                        statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath), blobs);
+                    } else if (chunked) {
+                        statusCode = uploadInChunks(url, size, uploadId, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                    } else {
+                        statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                    }
+
+                    if (statusCode == HttpURLConnection.HTTP_ENTITY_TOO_LARGE) {
+                        String message = String.format("Artifact upload for file %s (Size: %s) was denied by the server. This usually happens when server runs out of disk space.",
+                                source.getAbsolutePath(), size);
+                        goPublisher.taggedConsumeLineWithPrefix(PUBLISH_ERR, message);
+                        LOGGER.error("[Artifact Upload] Artifact upload was denied by the server. This usually happens when server runs out of disk space.");
+                        publishingAttempts = PUBLISH_MAX_RETRIES;
+                        bomb(message + ".  HTTP return code is " + statusCode);
+                    }
+                    if (statusCode < HttpURLConnection.HTTP_OK || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                        bomb("Failed to upload " + source.getAbsolutePath() + ".  HTTP return code is " + statusCode);
+                    }
+                    return;
+                } catch (Throwable e) {
+                    String message = "Failed to upload " + source.getAbsolutePath();
+                    LOGGER.error(message, e);
                     goPublisher.taggedConsumeLineWithPrefix(PUBLISH_ERR, message);
-                    LOGGER.error("[Artifact Upload] Artifact upload was denied by the server. This usually happens when server runs out of disk space.");
-                    publishingAttempts = PUBLISH_MAX_RETRIES;
-                    bomb(message + ".  HTTP return code is " + statusCode);
+                    lastException = e;
+                } finally {
+                    FileUtils.deleteQuietly(tmpDir);
+                }
+            }
+            throw lastException instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(lastException);
+        } finally {
+            if (chunkedZip != null) {
+                FileUtils.deleteQuietly(chunkedZip.getParentFile());
+            }
+        }
+    }
+
+    /**
+     * Sends the zip a chunk at a time. When a chunk fails, it is sent again from the offset the server last acknowledged,
+     * rather than starting the whole upload over.
+     */
+    private int uploadInChunks(String url, long size, String uploadId, File zip, Properties checksums) throws IOException {
+        byte[] chunk = new byte[systemEnvironment.get(SystemEnvironment.AGENT_ARTIFACT_UPLOAD_CHUNK_SIZE_BYTES)];
+        long zipLength = zip.length();
+        long offset = 0;
+        int consecutiveFailures = 0;
+        try (RandomAccessFile in = new RandomAccessFile(zip, "r")) {
+            while (true) {
+                HttpService.ChunkResponse response;
+                try {
+                    if (offset < zipLength) {
+                        int length = (int) Math.min(chunk.length, zipLength - offset);
+                        in.seek(offset);
+                        in.readFully(chunk, 0, length);
+                        response = httpService.uploadChunk(url, size, uploadId, offset, chunk, length);
+                    } else {
+                        response = httpService.completeChunkedUpload(url, size, uploadId, zipLength, checksums);
+                    }
+                } catch (IOException e) {
+                    if (++consecutiveFailures >= CHUNK_MAX_RETRIES) {
+                        throw e;
+                    }
+                    LOGGER.warn("[Artifact Upload] Failed to send the chunk at offset {} of {}, resuming", offset, zip, e);
+                    continue;
                 }
-                if (statusCode < HttpURLConnection.HTTP_OK || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
-                    bomb("Failed to upload " + source.getAbsolutePath() + ".  HTTP return code is " + statusCode);
+
+                int statusCode = response.statusCode();
+                if (statusCode == HttpURLConnection.HTTP_OK) {
+                    offset = response.acknowledgedOffset();
+                    consecutiveFailures = 0;
+                } else if (statusCode == HttpURLConnection.HTTP_CONFLICT || statusCode == HttpURLConnection.HTTP_PRECON_FAILED) {
+                    if (++consecutiveFailures >= CHUNK_MAX_RETRIES) {
+                        return statusCode;
+                    }
+                    offset = response.acknowledgedOffset();
+                } else {
+                    return statusCode;
                 }
-                return;
-            } catch (Throwable e) {
-                String message = "Failed to upload " + source.getAbsolutePath();
-                LOGGER.error(message, e);
-                goPublisher.taggedConsumeLineWithPrefix(PUBLISH_ERR, message);
-                lastException = e;
-            } finally {
-                FileUtils.deleteQuietly(tmpDir);
             }
         }
-        throw lastException instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(lastException);
+    }
+
+    /**
+     * Finds the files of the artifact whose content the server already has, so that they can be left out of the upload.
+     */
+    private Map<File, String> filesKnownToServer(String url, File source) throws IOException {
+        Collection<File> files = source.isDirectory() ? FileUtils.listFiles(source, null, true) : List.of(source);
+        Map<File, String> hashes = new HashMap<>();
+        for (File file : files) {
+            try (FileInputStream inputStream = new FileInputStream(file)) {
+                hashes.put(file, DigestUtils.sha256Hex(inputStream));
+            }
+        }
+
+        Set<String> known;
+        try {
+            known = httpService.knownBlobs(url, new HashSet<>(hashes.values()));
+        } catch (IOException e) {
+            LOGGER.warn("[Artifact Upload] Could not find out which files of {} the server already has, uploading all of them", source, e);
+            return Map.of();
+        }
+        hashes.values().retainAll(known);
+        return hashes;
     }
 
     private Properties artifactChecksums(File source, String destPath) throws IOException {
@@ -141,14 +257,21 @@ public class GoArtifactManipulator implements ArtifactManipulator {
         Collection<File> fileStructure = FileUtils.listFiles(directory, null, true);
         Properties checksumProperties = new Properties();
         for (File file : fileStructure) {
-            String filePath = Strings.CS.removeStart(file.getAbsolutePath(), directory.getParentFile().getAbsolutePath());
             try (FileInputStream inputStream = new FileInputStream(file)) {
-                checksumProperties.setProperty(getEffectiveFileName(destPath, FilenameUtils.separatorsToUnix(filePath)), DigestUtils.md5Hex(inputStream));
+                checksumProperties.setProperty(checksumKey(directory, file, destPath), DigestUtils.md5Hex(inputStream));
             }
         }
         return checksumProperties;
     }
 
+    private String checksumKey(File source, File file, String destPath) {
+        if (!source.isDirectory()) {
+            return getEffectiveFileName(destPath, source.getName());
+        }
+        String filePath = Strings.CS.removeStart(file.getAbsolutePath(), source.getParentFile().getAbsolutePath());
+        return getEffectiveFileName(destPath, FilenameUtils.separatorsToUnix(filePath));
+    }
+
     private Properties computeChecksumForFile(String sourceName, String md5, String destPath) {
         String effectiveFileName = getEffectiveFileName(destPath, sourceName);
         Properties properties = new Properties();
@@ -193,6 +316,6 @@ public class GoArtifactManipulator implements ArtifactManipulator {
     public ConsoleOutputTransmitter createConsoleOutputTransmitter(JobIdentifier jobIdentifier,
                                                                    AgentIdentifier agentIdentifier, Charset consoleLogCharset) {
         String consoleUrl = urlService.getUploadUrlOfAgent(jobIdentifier, ArtifactUtil.CONSOLE_LOG_FILE_RELATIVE_PATH);
-        return new ConsoleOutputTransmitter(new RemoteConsoleAppender(consoleUrl, httpService, consoleLogCharset));
+        return new ConsoleOutputTransmitter(new RemoteConsoleAppender(consoleUrl, httpService, consoleLogCharset, systemEnvironment.get(SystemEnvironment.AGENT_CONSOLE_COMPRESSION)));
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.publishers;
+
+import com.thoughtworks.go.util.ZipUtil;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Zips the source straight into the request body, so an artifact never has to be written to a temporary zip file
+ * before being uploaded. Checksums of the zipped files are handed out along the way.
+ */
+class ZipStreamBody extends AbstractContentBody {
+    private final File source;
+    private final ZipUtil zipUtil;
+    private final ZipUtil.ZippedFileChecksumHandler checksumHandler;
+
+    ZipStreamBody(File source, ZipUtil zipUtil, ZipUtil.ZippedFileChecksumHandler checksumHandler) {
+        super(ContentType.DEFAULT_BINARY);
+        this.source = source;
+        this.zipUtil = zipUtil;
+        this.checksumHandler = checksumHandler;
+    }
+
+    @Override
+    public String getFilename() {
+        return source.getName() + ".zip";
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        zipUtil.zip(source, CloseShieldOutputStream.wrap(out), Deflater.BEST_SPEED, checksumHandler);
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return "binary";
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+}
@@ -16,14 +16,22 @@
 package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.agent.HttpService;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
 
 public class RemoteConsoleAppender implements ConsoleAppender {
 
@@ -32,24 +40,47 @@ public class RemoteConsoleAppender implements ConsoleAppender {
     private final String consoleUri;
     private final HttpService httpService;
     private final Charset charset;
+    private final boolean compressed;
 
     public RemoteConsoleAppender(String consoleUri, HttpService httpService, Charset charset) {
+        this(consoleUri, httpService, charset, false);
+    }
+
+    /**
+     * @param compressed whether to gzip the console output before sending it, which the server inflates as it appends
+     *                   to the console log
+     */
+    public RemoteConsoleAppender(String consoleUri, HttpService httpService, Charset charset, boolean compressed) {
         this.consoleUri = consoleUri;
         this.httpService = httpService;
         this.charset = charset;
+        this.compressed = compressed;
     }
 
     @Override
     public void append(String content) throws IOException {
         LOGGER.debug("Appending console to URL -> {}", consoleUri);
         HttpPut putMethod = new HttpPut(consoleUri);
-        StringEntity entity = new StringEntity(content, charset);
+        HttpEntity entity = compressed ? gzipped(content) : new StringEntity(content, charset);
         putMethod.setEntity(entity);
+        if (compressed) {
+            putMethod.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
         HttpService.setSizeHeader(putMethod, entity.getContentLength());
         try (CloseableHttpResponse response = httpService.execute(putMethod)) {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Got {}", response.getStatusLine().getStatusCode());
             }
+            // a fully read response lets the connection go back to the pool, instead of being closed
+            EntityUtils.consume(response.getEntity());
+        }
+    }
+
+    private HttpEntity gzipped(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), charset)) {
+            writer.write(content);
         }
+        return new ByteArrayEntity(bytes.toByteArray());
     }
 }
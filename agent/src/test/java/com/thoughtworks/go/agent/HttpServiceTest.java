@@ -18,24 +18,32 @@ package com.thoughtworks.go.agent;
 import com.thoughtworks.go.agent.common.GoAgentServerHttpClient;
 import com.thoughtworks.go.config.AgentRegistry;
 import com.thoughtworks.go.domain.FetchHandler;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpVersion;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.mime.content.ByteArrayBody;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicStatusLine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 
 import static com.thoughtworks.go.remote.StandardHeaders.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.*;
 
@@ -85,6 +93,24 @@ public class HttpServiceTest {
         verify(httpClient).execute(mockPostMethod);
     }
 
+    @Test
+    public void shouldSendAChunkWithItsOffsetAndChecksumAndReturnTheAcknowledgedOffset() throws IOException {
+        HttpPost mockPostMethod = mock(HttpPost.class);
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+        when(response.getFirstHeader(RESPONSE_ARTIFACT_UPLOAD_OFFSET)).thenReturn(new BasicHeader(RESPONSE_ARTIFACT_UPLOAD_OFFSET, "13"));
+        when(httpClient.execute(mockPostMethod)).thenReturn(response);
+        when(httpMethodFactory.createPost("http://url")).thenReturn(mockPostMethod);
+
+        HttpService.ChunkResponse chunkResponse = service.uploadChunk("http://url", 100L, "upload-1", 10L, "abc-ignored".getBytes(UTF_8), 3);
+
+        verify(mockPostMethod).setHeader(REQUEST_ARTIFACT_UPLOAD_ID, "upload-1");
+        verify(mockPostMethod).setHeader(REQUEST_ARTIFACT_CHUNK_OFFSET, "10");
+        verify(mockPostMethod).setHeader(REQUEST_ARTIFACT_CHUNK_MD5, DigestUtils.md5Hex("abc"));
+        verify(mockPostMethod).setHeader(REQUEST_CONFIRM_MODIFICATION, "true");
+        assertThat(chunkResponse).isEqualTo(new HttpService.ChunkResponse(200, 13L));
+    }
+
     @Test
     public void shouldDownloadArtifact() throws IOException, URISyntaxException {
         String url = "http://blah";
@@ -135,4 +161,24 @@ public class HttpServiceTest {
         }
 
     }
+
+    @Test
+    public void shouldSendStreamedArtifactsChunkedWithChecksumsComputedAfterTheArtifactIsWritten() throws IOException {
+        HttpService.HttpMethodFactory factory = new HttpService.HttpMethodFactory(null);
+        java.util.Properties artifactChecksums = new java.util.Properties();
+
+        HttpEntity entity = factory.createMultipartRequestEntity(new ByteArrayBody("zipped".getBytes(UTF_8), "artifact.zip") {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                super.writeTo(out);
+                artifactChecksums.setProperty("foo.txt", "323233333");
+            }
+        }, () -> artifactChecksums);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        entity.writeTo(body);
+
+        assertThat(entity.isChunked()).isTrue();
+        assertThat(body.toString(UTF_8)).contains("zipped").contains("foo.txt=323233333");
+    }
 }
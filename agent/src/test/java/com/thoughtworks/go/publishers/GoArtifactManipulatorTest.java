@@ -16,26 +16,39 @@
 package com.thoughtworks.go.publishers;
 
 import com.thoughtworks.go.agent.HttpService;
+import com.thoughtworks.go.agent.URLService;
 import com.thoughtworks.go.domain.AgentRuntimeStatus;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.BuildRepositoryRemoteStub;
 import com.thoughtworks.go.remote.work.GoArtifactManipulatorStub;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TempDirUtils;
+import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.work.DefaultGoPublisher;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -66,13 +79,13 @@ public class GoArtifactManipulatorTest {
 
     @Test
     public void shouldBombWithErrorWhenStatusCodeReturnedIsRequestEntityTooLarge() throws IOException {
-        when(httpService.upload(any(), eq(tempFile.toFile().length()), any(), any())).thenReturn(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+        when(httpService.upload(any(), eq(tempFile.toFile().length()), any(File.class), any())).thenReturn(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
 
         String expectedMessage = "Artifact upload for file " + tempFile.toAbsolutePath() + " (Size: " + tempFile.toFile().length() + ") was denied by the server. This usually happens when server runs out of disk space.";
         assertThatThrownBy(() -> goArtifactsManipulatorStub.publish(goPublisher, "some_dest", tempFile.toFile(), jobIdentifier))
             .isExactlyInstanceOf(RuntimeException.class)
             .hasMessage(expectedMessage + ".  HTTP return code is 413");
-        verify(httpService).upload(any(), eq(tempFile.toFile().length()), any(), any());
+        verify(httpService).upload(any(), eq(tempFile.toFile().length()), any(File.class), any());
 
         goPublisher.close();
         assertThat(goArtifactsManipulatorStub.consoleOut()).contains(expectedMessage);
@@ -120,6 +133,158 @@ public class GoArtifactManipulatorTest {
         goArtifactsManipulatorStub.publish(goPublisher, "dest", artifactFolder.toFile(), jobIdentifier);
     }
 
+    @Test
+    public void shouldStreamTheZipAndComputeChecksumsWhileUploadingWhenStreamingIsEnabled() throws IOException {
+        String data = "Some text whose checksum can be asserted";
+        String secondData = "some more";
+        Files.writeString(tempFile, data, UTF_8);
+        Path anotherFile = artifactFolder.resolve("bond/james_bond/another_file");
+        Files.createDirectories(anotherFile.getParent());
+        Files.writeString(anotherFile, secondData, UTF_8);
+
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_CHUNKED_ARTIFACT_UPLOAD)).thenReturn(false);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_STREAMING_ARTIFACT_UPLOAD)).thenReturn(true);
+        GoArtifactManipulatorStub streamingManipulator = new GoArtifactManipulatorStub(httpService, new URLService(), new ZipUtil(), systemEnvironment);
+
+        ByteArrayOutputStream uploadedZip = new ByteArrayOutputStream();
+        List<Properties> uploadedChecksums = new ArrayList<>();
+        when(httpService.upload(any(), eq(FileUtils.sizeOfDirectory(artifactFolder.toFile())), any(ContentBody.class), any())).thenAnswer(invocation -> {
+            invocation.getArgument(2, ContentBody.class).writeTo(uploadedZip);
+            Supplier<Properties> checksums = invocation.getArgument(3);
+            uploadedChecksums.add(checksums.get());
+            return HttpURLConnection.HTTP_OK;
+        });
+
+        streamingManipulator.publish(goPublisher, "dest", artifactFolder.toFile(), jobIdentifier);
+
+        verify(httpService, never()).upload(any(), anyLong(), any(File.class), any());
+        assertThat(uploadedChecksums).containsExactly(expectedProperties(data, secondData));
+        assertThat(new ZipUtil().getFileContentInsideZip(new ZipInputStream(new ByteArrayInputStream(uploadedZip.toByteArray())), "another_file")).isEqualTo(secondData);
+    }
+
+    @Test
+    public void shouldResumeAChunkedUploadFromTheOffsetTheServerAcknowledged() throws IOException {
+        String data = "Some text whose checksum can be asserted ".repeat(20);
+        Files.writeString(tempFile, data, UTF_8);
+
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_CHUNKED_ARTIFACT_UPLOAD)).thenReturn(true);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_ARTIFACT_UPLOAD_CHUNK_SIZE_BYTES)).thenReturn(64);
+        GoArtifactManipulatorStub chunkedManipulator = new GoArtifactManipulatorStub(httpService, new URLService(), new ZipUtil(), systemEnvironment);
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        AtomicBoolean responseLost = new AtomicBoolean();
+        when(httpService.uploadChunk(any(), anyLong(), any(), anyLong(), any(), anyInt())).thenAnswer(invocation -> {
+            long offset = invocation.getArgument(3);
+            if (offset != received.size()) {
+                return new HttpService.ChunkResponse(HttpURLConnection.HTTP_CONFLICT, received.size());
+            }
+            received.write(invocation.getArgument(4, byte[].class), 0, invocation.getArgument(5, Integer.class));
+            if (offset > 0 && responseLost.compareAndSet(false, true)) {
+                throw new IOException("Connection reset");
+            }
+            return new HttpService.ChunkResponse(HttpURLConnection.HTTP_OK, received.size());
+        });
+        List<Properties> uploadedChecksums = new ArrayList<>();
+        when(httpService.completeChunkedUpload(any(), anyLong(), any(), anyLong(), any())).thenAnswer(invocation -> {
+            uploadedChecksums.add(invocation.getArgument(4));
+            return new HttpService.ChunkResponse(HttpURLConnection.HTTP_CREATED, invocation.getArgument(3, Long.class));
+        });
+
+        chunkedManipulator.publish(goPublisher, "dest", tempFile.toFile(), jobIdentifier);
+
+        assertThat(responseLost).isTrue();
+        verify(httpService).completeChunkedUpload(any(), eq(tempFile.toFile().length()), any(), eq((long) received.size()), any());
+        assertThat(uploadedChecksums).containsExactly(expectedChecksum("dest/file.txt", data));
+        assertThat(new ZipUtil().getFileContentInsideZip(new ZipInputStream(new ByteArrayInputStream(received.toByteArray())), "file.txt")).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldCarryOnWithTheSameChunkedUploadWhenTheWholeUploadIsRetried() throws IOException {
+        String data = "Some text whose checksum can be asserted ".repeat(20);
+        Files.writeString(tempFile, data, UTF_8);
+
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_CHUNKED_ARTIFACT_UPLOAD)).thenReturn(true);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_ARTIFACT_UPLOAD_CHUNK_SIZE_BYTES)).thenReturn(64);
+        GoArtifactManipulatorStub chunkedManipulator = new GoArtifactManipulatorStub(httpService, new URLService(), new ZipUtil(), systemEnvironment);
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        List<String> uploadIds = new ArrayList<>();
+        AtomicBoolean refused = new AtomicBoolean();
+        when(httpService.uploadChunk(any(), anyLong(), any(), anyLong(), any(), anyInt())).thenAnswer(invocation -> {
+            uploadIds.add(invocation.getArgument(2));
+            long offset = invocation.getArgument(3);
+            if (offset != received.size()) {
+                return new HttpService.ChunkResponse(HttpURLConnection.HTTP_CONFLICT, received.size());
+            }
+            if (offset > 0 && refused.compareAndSet(false, true)) {
+                return new HttpService.ChunkResponse(HttpURLConnection.HTTP_INTERNAL_ERROR, received.size());
+            }
+            received.write(invocation.getArgument(4, byte[].class), 0, invocation.getArgument(5, Integer.class));
+            return new HttpService.ChunkResponse(HttpURLConnection.HTTP_OK, received.size());
+        });
+        when(httpService.completeChunkedUpload(any(), anyLong(), any(), anyLong(), any())).thenAnswer(invocation ->
+            new HttpService.ChunkResponse(HttpURLConnection.HTTP_CREATED, invocation.getArgument(3, Long.class)));
+
+        chunkedManipulator.publish(goPublisher, "dest", tempFile.toFile(), jobIdentifier);
+
+        assertThat(refused).isTrue();
+        assertThat(Set.copyOf(uploadIds)).hasSize(1);
+        assertThat(new ZipUtil().getFileContentInsideZip(new ZipInputStream(new ByteArrayInputStream(received.toByteArray())), "file.txt")).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldGiveUpOnAChunkedUploadWhenTheServerRefusesIt() throws IOException {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_CHUNKED_ARTIFACT_UPLOAD)).thenReturn(true);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_ARTIFACT_UPLOAD_CHUNK_SIZE_BYTES)).thenReturn(64);
+        GoArtifactManipulatorStub chunkedManipulator = new GoArtifactManipulatorStub(httpService, new URLService(), new ZipUtil(), systemEnvironment);
+        when(httpService.uploadChunk(any(), anyLong(), any(), anyLong(), any(), anyInt())).thenReturn(new HttpService.ChunkResponse(HttpURLConnection.HTTP_INTERNAL_ERROR, 0));
+
+        assertThatThrownBy(() -> chunkedManipulator.publish(goPublisher, "dest", tempFile.toFile(), jobIdentifier))
+            .hasMessageContaining("HTTP return code is 500");
+        verify(httpService, never()).completeChunkedUpload(any(), anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    public void shouldLeaveFilesTheServerAlreadyHasOutOfTheUpload() throws IOException {
+        String data = "Some text whose checksum can be asserted";
+        String secondData = "the same dependency bundle as last time";
+        Files.writeString(tempFile, data, UTF_8);
+        Path anotherFile = artifactFolder.resolve("bond/james_bond/another_file");
+        Files.createDirectories(anotherFile.getParent());
+        Files.writeString(anotherFile, secondData, UTF_8);
+
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_CHUNKED_ARTIFACT_UPLOAD)).thenReturn(false);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_STREAMING_ARTIFACT_UPLOAD)).thenReturn(false);
+        when(systemEnvironment.get(SystemEnvironment.AGENT_DEDUPLICATED_ARTIFACT_UPLOAD)).thenReturn(true);
+        GoArtifactManipulatorStub deduplicatingManipulator = new GoArtifactManipulatorStub(httpService, new URLService(), new ZipUtil(), systemEnvironment);
+        when(httpService.knownBlobs(any(), any())).thenReturn(Set.of(DigestUtils.sha256Hex(secondData)));
+
+        List<byte[]> uploadedZips = new ArrayList<>();
+        when(httpService.upload(any(), anyLong(), any(File.class), eq(expectedProperties(data, secondData)), any(Properties.class))).thenAnswer(invocation -> {
+            uploadedZips.add(Files.readAllBytes(invocation.getArgument(2, File.class).toPath()));
+            return HttpURLConnection.HTTP_CREATED;
+        });
+
+        deduplicatingManipulator.publish(goPublisher, "dest", artifactFolder.toFile(), jobIdentifier);
+
+        Properties blobs = new Properties();
+        blobs.setProperty("artifact_folder/bond/james_bond/another_file", DigestUtils.sha256Hex(secondData));
+        verify(httpService).upload(any(), anyLong(), any(File.class), any(Properties.class), eq(blobs));
+        assertThat(new ZipUtil().getFileContentInsideZip(new ZipInputStream(new ByteArrayInputStream(uploadedZips.get(0))), "file.txt")).isEqualTo(data);
+        assertThat(new ZipUtil().getFileContentInsideZip(new ZipInputStream(new ByteArrayInputStream(uploadedZips.get(0))), "another_file")).isNull();
+    }
+
+    private Properties expectedChecksum(String path, String data) {
+        Properties properties = new Properties();
+        properties.setProperty(path, DigestUtils.md5Hex(data));
+        return properties;
+    }
+
     private Properties expectedProperties(String data, String secondData) {
         Properties properties = new Properties();
         properties.setProperty("dest/artifact_folder/file.txt", DigestUtils.md5Hex(data));
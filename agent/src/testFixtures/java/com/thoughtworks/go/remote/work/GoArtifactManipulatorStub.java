@@ -24,6 +24,7 @@ import com.thoughtworks.go.domain.builder.FetchArtifactBuilder;
 import com.thoughtworks.go.matchers.UploadEntry;
 import com.thoughtworks.go.publishers.GoArtifactManipulator;
 import com.thoughtworks.go.remote.AgentIdentifier;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.work.GoPublisher;
 
@@ -46,7 +47,11 @@ public class GoArtifactManipulatorStub extends GoArtifactManipulator {
     }
 
     public GoArtifactManipulatorStub(HttpService service, URLService urlService, ZipUtil zipUtil) {
-        super(service, urlService, zipUtil);
+        this(service, urlService, zipUtil, new SystemEnvironment());
+    }
+
+    public GoArtifactManipulatorStub(HttpService service, URLService urlService, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
+        super(service, urlService, zipUtil, systemEnvironment);
     }
 
     @Override
@@ -17,6 +17,7 @@ package com.thoughtworks.go.apiv4.dashboard;
 
 import com.thoughtworks.go.api.ApiController;
 import com.thoughtworks.go.api.ApiVersion;
+import com.thoughtworks.go.api.base.JsonOutputWriter;
 import com.thoughtworks.go.api.spring.ApiAuthorizationHelper;
 import com.thoughtworks.go.api.util.MessageJson;
 import com.thoughtworks.go.apiv4.dashboard.representers.DashboardFor;
@@ -30,6 +31,7 @@ import com.thoughtworks.go.server.service.GoDashboardService;
 import com.thoughtworks.go.server.service.PipelineSelectionsService;
 import com.thoughtworks.go.server.service.support.toggle.Toggles;
 import com.thoughtworks.go.spark.GlobalExceptionMapper;
+import com.thoughtworks.go.spark.RequestContext;
 import com.thoughtworks.go.spark.Routes;
 import com.thoughtworks.go.spark.spring.SparkSpringController;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -60,13 +62,16 @@ public class DashboardControllerV4 extends ApiController implements SparkSpringC
     private final PipelineSelectionsService pipelineSelectionsService;
     private final GoDashboardService goDashboardService;
     private final ApiAuthorizationHelper apiAuthorizationHelper;
+    private final DashboardPipelineJsonRenderer pipelineJsonRenderer;
 
     @Autowired
-    public DashboardControllerV4(ApiAuthorizationHelper apiAuthorizationHelper, PipelineSelectionsService pipelineSelectionsService, GoDashboardService goDashboardService) {
+    public DashboardControllerV4(ApiAuthorizationHelper apiAuthorizationHelper, PipelineSelectionsService pipelineSelectionsService, GoDashboardService goDashboardService,
+                                 DashboardPipelineJsonRenderer pipelineJsonRenderer) {
         super(ApiVersion.v4);
         this.apiAuthorizationHelper = apiAuthorizationHelper;
         this.pipelineSelectionsService = pipelineSelectionsService;
         this.goDashboardService = goDashboardService;
+        this.pipelineJsonRenderer = pipelineJsonRenderer;
     }
 
     @Override
@@ -111,12 +116,16 @@ public class DashboardControllerV4 extends ApiController implements SparkSpringC
 
         setEtagHeader(response, etag);
 
-        return writerForTopLevelObject(request, response, outputWriter ->
+        // Polled by everyone with a dashboard open, so it is written compactly, with the cached JSON of each pipeline
+        final RequestContext requestContext = RequestContext.requestContext(request);
+        new JsonOutputWriter(response.raw().getWriter(), requestContext, false).forTopLevelObject(outputWriter ->
             DashboardRepresenter.toJSON(
                 outputWriter,
-                new DashboardFor(pipelineGroups, environments, userName, personalization.etag())
+                new DashboardFor(pipelineGroups, environments, userName, personalization.etag()),
+                pipeline -> pipelineJsonRenderer.render(pipeline, userName, requestContext)
             )
         );
+        return NOTHING;
     }
 
     private String calcEtag(Username username, List<GoDashboardPipelineGroup> pipelineGroups, List<GoDashboardEnvironment> environments) {
@@ -0,0 +1,61 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.apiv4.dashboard;
+
+import com.thoughtworks.go.api.base.JsonOutputWriter;
+import com.thoughtworks.go.apiv4.dashboard.representers.PipelineRepresenter;
+import com.thoughtworks.go.server.dashboard.DashboardPipelineRenderer;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.service.GoDashboardService;
+import com.thoughtworks.go.spark.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.StringWriter;
+import java.net.URI;
+
+import static org.apache.commons.lang3.StringUtils.joinWith;
+
+/**
+ * Renders the compact JSON of a pipeline on the dashboard, for both the dashboard API and the dashboard WebSocket. The
+ * JSON is cached until the pipeline changes, to be shared by all users with the same permissions on it.
+ */
+@Component
+public class DashboardPipelineJsonRenderer implements DashboardPipelineRenderer {
+    private static final String SEP_CHAR = "/";
+
+    private final GoDashboardService goDashboardService;
+
+    @Autowired
+    public DashboardPipelineJsonRenderer(GoDashboardService goDashboardService) {
+        this.goDashboardService = goDashboardService;
+    }
+
+    @Override
+    public String render(GoDashboardPipeline pipeline, Username username, URI rootUrl) {
+        return render(pipeline, username, new RequestContext(rootUrl.getScheme(), rootUrl.getHost(), rootUrl.getPort(), rootUrl.getPath()));
+    }
+
+    public String render(GoDashboardPipeline pipeline, Username username, RequestContext requestContext) {
+        String variant = joinWith(SEP_CHAR, requestContext.urlFor(""), PipelineRepresenter.permissionsKey(pipeline, username));
+        return goDashboardService.pipelineFragment(pipeline, variant, () -> {
+            StringWriter writer = new StringWriter(1024);
+            new JsonOutputWriter(writer, requestContext, false).forTopLevelObject(outputWriter -> PipelineRepresenter.toJSON(outputWriter, pipeline, username));
+            return writer.toString();
+        });
+    }
+}
@@ -16,11 +16,22 @@
 package com.thoughtworks.go.apiv4.dashboard.representers;
 
 import com.thoughtworks.go.api.base.OutputWriter;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
 import com.thoughtworks.go.spark.Routes;
 
+import java.util.function.Function;
+
 public class DashboardRepresenter {
 
     public static void toJSON(OutputWriter jsonOutputWriter, DashboardFor dashboardFor) {
+        toJSON(jsonOutputWriter, dashboardFor, null);
+    }
+
+    /**
+     * @param pipelineJson gives the serialized JSON of each pipeline, so that it can be spliced in as is rather than
+     *                     be rendered again. When null, every pipeline is rendered.
+     */
+    public static void toJSON(OutputWriter jsonOutputWriter, DashboardFor dashboardFor, Function<GoDashboardPipeline, String> pipelineJson) {
         jsonOutputWriter
             .addLinks(linksWriter -> linksWriter.addLink("self", Routes.Dashboard.SELF)
                 .addAbsoluteLink("doc", Routes.Dashboard.DOC))
@@ -28,7 +39,12 @@ public class DashboardRepresenter {
             .addChild("_embedded", childWriter -> childWriter
                 .addChildList("pipeline_groups", listWriter -> dashboardFor.pipelineGroups().forEach(group -> listWriter.addChild(childItemWriter -> DashboardGroupRepresenter.toJSON(childItemWriter, group, dashboardFor.username()))))
                 .addChildList("environments", listWriter -> dashboardFor.environments().forEach(group -> listWriter.addChild(childItemWriter -> DashboardGroupRepresenter.toJSON(childItemWriter, group, dashboardFor.username()))))
-                .addChildList("pipelines", listWriter -> dashboardFor.pipelines()
-                    .forEach(pipeline -> listWriter.addChild(childItemWriter -> PipelineRepresenter.toJSON(childItemWriter, pipeline, dashboardFor.username())))));
+                .addChildList("pipelines", listWriter -> dashboardFor.pipelines().forEach(pipeline -> {
+                    if (pipelineJson == null) {
+                        listWriter.addChild(childItemWriter -> PipelineRepresenter.toJSON(childItemWriter, pipeline, dashboardFor.username()));
+                    } else {
+                        listWriter.addRaw(pipelineJson.apply(pipeline));
+                    }
+                })));
     }
 }
@@ -22,6 +22,7 @@ import com.thoughtworks.go.config.TrackingTool;
 import com.thoughtworks.go.config.remote.RepoConfigOrigin;
 import com.thoughtworks.go.domain.PipelinePauseInfo;
 import com.thoughtworks.go.presentation.pipelinehistory.EmptyPipelineInstanceModel;
+import com.thoughtworks.go.presentation.pipelinehistory.StageInstanceModel;
 import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
 import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.spark.Routes;
@@ -67,6 +68,30 @@ public class PipelineRepresenter {
         jsonOutputWriter.addChild("_embedded", childWriter -> childWriter.addChildList("instances", writeInstances(model, username)));
     }
 
+    /**
+     * @return a key for everything about the JSON of the pipeline that depends on the user, which is the same for all
+     * users with the same permissions on the pipeline and its stages
+     */
+    public static String permissionsKey(GoDashboardPipeline model, Username username) {
+        String usernameString = username.getUsername().toString();
+        StringBuilder key = new StringBuilder()
+                .append(flag(model.isPipelineOperator(usernameString)))
+                .append(flag(model.canBeAdministeredBy(usernameString)))
+                .append(flag(model.canBeOperatedBy(usernameString)));
+        model.model().getActivePipelineInstances().stream()
+                .filter(instanceModel -> !(instanceModel instanceof EmptyPipelineInstanceModel))
+                .forEach(instanceModel -> instanceModel.getStageHistory().forEach(stage -> {
+                    for (StageInstanceModel current = stage; current != null; current = current.getPreviousStage()) {
+                        key.append(flag(model.isStageOperator(current.getName(), usernameString)));
+                    }
+                }));
+        return key.toString();
+    }
+
+    private static char flag(boolean value) {
+        return value ? '1' : '0';
+    }
+
     private static Consumer<OutputListWriter> writeInstances(GoDashboardPipeline model, Username username) {
         return listWriter -> model.model().getActivePipelineInstances().stream()
                 .filter(instanceModel -> !(instanceModel instanceof EmptyPipelineInstanceModel))
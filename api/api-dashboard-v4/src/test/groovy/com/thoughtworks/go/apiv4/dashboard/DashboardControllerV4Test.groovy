@@ -23,6 +23,7 @@ import com.thoughtworks.go.config.security.Permissions
 import com.thoughtworks.go.config.security.permissions.PipelinePermission
 import com.thoughtworks.go.config.security.users.Users
 import com.thoughtworks.go.server.dashboard.GoDashboardEnvironment
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline
 import com.thoughtworks.go.server.dashboard.GoDashboardPipelineGroup
 import com.thoughtworks.go.server.domain.user.Filters
 import com.thoughtworks.go.server.domain.user.PipelineSelections
@@ -42,6 +43,9 @@ import org.mockito.Mock
 import org.mockito.junit.jupiter.MockitoSettings
 import org.mockito.quality.Strictness
 
+import java.util.function.Supplier
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson
 import static org.mockito.ArgumentMatchers.*
 import static org.mockito.Mockito.*
 
@@ -60,6 +64,7 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
   void setup() {
     Toggles.initializeWith(featureToggleService)
     when(featureToggleService.isToggleOn(Toggles.ALLOW_EMPTY_PIPELINE_GROUPS_DASHBOARD)).thenReturn(false)
+    when(goDashboardService.pipelineFragment(any(GoDashboardPipeline), anyString(), any(Supplier))).thenAnswer({ invocation -> invocation.getArgument(2, Supplier).get() })
   }
 
   @AfterEach
@@ -69,7 +74,7 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
 
   @Override
   DashboardControllerV4 createControllerInstance() {
-    new DashboardControllerV4(new ApiAuthorizationHelper(securityService, goConfigService), pipelineSelectionsService, goDashboardService)
+    new DashboardControllerV4(new ApiAuthorizationHelper(securityService, goConfigService), pipelineSelectionsService, goDashboardService, new DashboardPipelineJsonRenderer(goDashboardService))
   }
 
   @Nested
@@ -112,6 +117,25 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
           .hasBodyWithJsonObject(DashboardRepresenter, new DashboardFor([group], [env], currentUsername(), PipelineSelections.ALL.etag()))
       }
 
+      @Test
+      void 'should splice in cached json of pipelines'() {
+        loginAsUser()
+
+        def group = pipelineGroup('group1')
+
+        when(pipelineSelectionsService.load((String) isNull(), any(Long.class))).thenReturn(PipelineSelections.ALL)
+        when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(true)
+        when(goDashboardService.allPipelineGroupsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn([group])
+        when(goDashboardService.allEnvironmentsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn([])
+        when(goDashboardService.pipelineFragment(any(GoDashboardPipeline), anyString(), any(Supplier))).thenReturn('{"name":"cached"}')
+
+        getWithApiHeader(controller.controllerPath())
+
+        assertThatResponse().isOk()
+        assertThatJson(response.getContentAsString()).node("_embedded.pipelines").isEqualTo('[{"name":"cached"},{"name":"cached"}]')
+        verify(goDashboardService, times(2)).pipelineFragment(any(GoDashboardPipeline), startsWith('http://'), any(Supplier))
+      }
+
       @Test
       void 'should render 304 if content matches'() {
         loginAsUser()
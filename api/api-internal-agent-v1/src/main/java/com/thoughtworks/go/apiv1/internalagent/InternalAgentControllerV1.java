@@ -28,6 +28,7 @@ import com.thoughtworks.go.spark.GlobalExceptionMapper;
 import com.thoughtworks.go.spark.Routes;
 import com.thoughtworks.go.spark.spring.SparkSpringController;
 import org.apache.commons.lang3.Strings;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import spark.Request;
@@ -130,7 +131,14 @@ public class InternalAgentControllerV1 extends ApiController implements SparkSpr
         GetWorkRequest workRequest = GetWorkRequestRepresenter.fromJSON(request.body());
         ensureAgentIsMakingARequestForItself(workRequest, request);
 
-        Work work = buildRepositoryMessageProducer.getWork(workRequest.getAgentRuntimeInfo());
+        long waitMillis = NumberUtils.toLong(request.headers(StandardHeaders.REQUEST_WORK_WAIT_MILLIS));
+        Work work = waitMillis > 0 ? buildRepositoryMessageProducer.awaitWork(workRequest.getAgentRuntimeInfo(), waitMillis) : null;
+        if (work == null) {
+            work = buildRepositoryMessageProducer.getWork(workRequest.getAgentRuntimeInfo());
+        } else {
+            // lets the agent know that it need not back off before asking for work again
+            response.header(StandardHeaders.REQUEST_WORK_WAIT_MILLIS, valueOf(waitMillis));
+        }
 
         return WorkRepresenter.toJSON(work);
     }
@@ -36,6 +36,8 @@ import org.mockito.junit.jupiter.MockitoSettings
 import org.mockito.quality.Strictness
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory
+import static org.mockito.ArgumentMatchers.any
+import static org.mockito.Mockito.never
 import static org.mockito.Mockito.verify
 import static org.mockito.Mockito.when
 
@@ -335,6 +337,54 @@ class InternalAgentControllerV1Test implements ControllerTrait<InternalAgentCont
               .hasBodyContaining(WorkRepresenter.toJSON(new NoWork()))
     }
 
+    @Test
+    void 'should wait for work when the agent asks the server to'() {
+      def agent = new Agent("uuid", "localhost", "176.19.4.1")
+      def runtimeInfo = AgentRuntimeInfo.fromAgent(agent.getAgentIdentifier(), AgentRuntimeStatus.Idle, currentWorkingDirectory(),
+              "20.1.0", "20.9.0", () -> "Mac OS X")
+
+      when(buildRepositoryMessageProducer.awaitWork(runtimeInfo, 20000)).thenReturn(new NoWork())
+
+      def headers = [
+              'accept'                  : controller.mimeType,
+              'content-type'            : 'application/json',
+              'X-Agent-GUID'            : 'uuid',
+              'X-Agent-Work-Wait-Millis': '20000'
+      ]
+      postWithApiHeader(controller.controllerPath("/get_work"), headers, GetWorkRequestRepresenter.toJSON(
+              new GetWorkRequest(runtimeInfo)))
+
+      assertThatResponse()
+              .isOk()
+              .hasHeader('X-Agent-Work-Wait-Millis', '20000')
+              .hasBodyContaining(WorkRepresenter.toJSON(new NoWork()))
+      verify(buildRepositoryMessageProducer, never()).getWork(any())
+    }
+
+    @Test
+    void 'should fall back to answering right away when the server is not willing to wait'() {
+      def agent = new Agent("uuid", "localhost", "176.19.4.1")
+      def runtimeInfo = AgentRuntimeInfo.fromAgent(agent.getAgentIdentifier(), AgentRuntimeStatus.Idle, currentWorkingDirectory(),
+              "20.1.0", "20.9.0", () -> "Mac OS X")
+
+      when(buildRepositoryMessageProducer.awaitWork(runtimeInfo, 20000)).thenReturn(null)
+      when(buildRepositoryMessageProducer.getWork(runtimeInfo)).thenReturn(new NoWork())
+
+      def headers = [
+              'accept'                  : controller.mimeType,
+              'content-type'            : 'application/json',
+              'X-Agent-GUID'            : 'uuid',
+              'X-Agent-Work-Wait-Millis': '20000'
+      ]
+      postWithApiHeader(controller.controllerPath("/get_work"), headers, GetWorkRequestRepresenter.toJSON(
+              new GetWorkRequest(runtimeInfo)))
+
+      assertThatResponse()
+              .isOk()
+              .doesNotContainHeader('X-Agent-Work-Wait-Millis')
+              .hasBodyContaining(WorkRepresenter.toJSON(new NoWork()))
+    }
+
     @Test
     void 'ensure agent is making a request for itself'() {
       def agent = new Agent("different_agent_uuid", "localhost", "176.19.4.1")
@@ -23,6 +23,14 @@ public interface StandardHeaders {
 
     String REQUEST_UUID = "X-Agent-GUID";
     String REQUEST_AUTH = "Authorization";
+    String REQUEST_WORK_WAIT_MILLIS = "X-Agent-Work-Wait-Millis";
+
+    String REQUEST_ARTIFACT_UPLOAD_ID = "X-GoCD-Artifact-Upload-Id";
+    String REQUEST_ARTIFACT_CHUNK_OFFSET = "X-GoCD-Artifact-Chunk-Offset";
+    String REQUEST_ARTIFACT_CHUNK_MD5 = "X-GoCD-Artifact-Chunk-MD5";
+    String REQUEST_ARTIFACT_UPLOAD_COMPLETE_SIZE = "X-GoCD-Artifact-Upload-Complete-Size";
+    String RESPONSE_ARTIFACT_UPLOAD_OFFSET = "X-GoCD-Artifact-Upload-Offset";
+    String REQUEST_ARTIFACT_BLOB_QUERY = "X-GoCD-Artifact-Blob-Query";
 
     String RESPONSE_CONTENT_MD5 = "Content-MD5";
 
@@ -36,5 +44,6 @@ public interface StandardHeaders {
         String REGULAR_FILENAME = "file";
         String CHECKSUM_FILENAME = "file_checksum";
         String ZIP_FILENAME = "zipfile";
+        String BLOBS_FILENAME = "file_blobs";
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes files that are compressed already, going by their extension, without compressing them again. Deflating
+ * them costs time and rarely makes them any smaller.
+ */
+class CompressedFileAwareZipOutputStream extends ZipOutputStream {
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+        "zip", "jar", "war", "ear", "aar", "apk", "whl", "nupkg", "gem",
+        "gz", "tgz", "bz2", "tbz2", "xz", "txz", "zst", "lz4", "7z", "rar",
+        "deb", "rpm", "dmg", "msi",
+        "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "mov", "woff", "woff2");
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    CompressedFileAwareZipOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void setLevel(int level) {
+        this.level = level;
+        super.setLevel(level);
+    }
+
+    @Override
+    public void putNextEntry(ZipEntry entry) throws IOException {
+        closeEntry();
+        super.setLevel(isCompressed(entry.getName()) ? Deflater.NO_COMPRESSION : level);
+        super.putNextEntry(entry);
+    }
+
+    static boolean isCompressed(String name) {
+        int extensionStart = name.lastIndexOf('.');
+        return extensionStart > name.lastIndexOf('/') && COMPRESSED_EXTENSIONS.contains(name.substring(extensionStart + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -125,11 +125,38 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static final GoSystemProperty<Integer> RESPONSE_BUFFER_SIZE = new GoIntSystemProperty("response.buffer.size", 32 * 1024);
     public static final GoSystemProperty<Integer> API_REQUEST_IDLE_TIMEOUT_IN_SECONDS = new GoIntSystemProperty("api.request.idle.timeout.seconds", (int) MINUTES.toSeconds(5));
     public static final GoSystemProperty<Integer> AGENT_REQUEST_IDLE_TIMEOUT_IN_SECONDS = new GoIntSystemProperty("agent.request.idle.timeout.seconds", 30);
+    public static final GoSystemProperty<Long> AGENT_WORK_LONG_POLL_MAX_WAIT_IN_MILLIS = new GoLongSystemProperty("go.agent.work.long.poll.max.wait.millis", SECONDS.toMillis(20));
+    public static final GoSystemProperty<Integer> AGENT_WORK_LONG_POLL_MAX_WAITING_AGENTS = new GoIntSystemProperty("go.agent.work.long.poll.max.waiting.agents", 50);
+    public static final GoSystemProperty<Boolean> AGENT_STREAMING_ARTIFACT_UPLOAD = new GoBooleanSystemProperty("go.agent.artifact.streaming.upload", false);
+    public static final GoSystemProperty<Integer> AGENT_ARTIFACT_UPLOAD_THREADS = new GoIntSystemProperty("go.agent.artifact.upload.threads", 1);
+    public static final GoSystemProperty<Boolean> AGENT_CHUNKED_ARTIFACT_UPLOAD = new GoBooleanSystemProperty("go.agent.artifact.chunked.upload", false);
+    public static final GoSystemProperty<Integer> AGENT_ARTIFACT_UPLOAD_CHUNK_SIZE_BYTES = new GoIntSystemProperty("go.agent.artifact.upload.chunk.size.bytes", 8 * 1024 * 1024);
+    public static final GoSystemProperty<Boolean> AGENT_DEDUPLICATED_ARTIFACT_UPLOAD = new GoBooleanSystemProperty("go.agent.artifact.deduplicated.upload", false);
+    public static final GoSystemProperty<Boolean> AGENT_CONSOLE_COMPRESSION = new GoBooleanSystemProperty("go.agent.console.compression", false);
+    public static final GoSystemProperty<Boolean> AGENT_CONSOLE_BACKPRESSURE = new GoBooleanSystemProperty("go.agent.console.backpressure", false);
     public static final GoSystemProperty<Integer> GO_SERVER_SESSION_TIMEOUT_IN_SECONDS = new GoIntSystemProperty("go.server.session.timeout.seconds", (int) DAYS.toSeconds(14));
     public static final GoSystemProperty<Integer> GO_SERVER_SESSION_COOKIE_MAX_AGE_IN_SECONDS = new GoIntSystemProperty("go.sessioncookie.maxage.seconds", (int) DAYS.toSeconds(14));
     public static final GoSystemProperty<Boolean> GO_SERVER_SESSION_COOKIE_SECURE = new GoBooleanSystemProperty("go.sessioncookie.secure", false);
     public static final GoSystemProperty<String> AGENT_EXTRA_PROPERTIES = new GoStringSystemProperty("gocd.agent.extra.properties", "");
     public static final GoSystemProperty<Long> JMS_LISTENER_BACKOFF_TIME_IN_MILLIS = new GoLongSystemProperty("go.jms.listener.backoff.time.in.milliseconds", SECONDS.toMillis(5));
+    public static final GoSystemProperty<Boolean> IN_MEMORY_MESSAGING_ENABLED = new GoBooleanSystemProperty("go.messaging.in.memory", false);
+    public static final GoSystemProperty<Integer> IN_MEMORY_MESSAGING_CAPACITY = new GoIntSystemProperty("go.messaging.in.memory.capacity", 10_000);
+    public static final GoSystemProperty<Long> IN_MEMORY_MESSAGING_SEND_TIMEOUT_IN_MILLIS = new GoLongSystemProperty("go.messaging.in.memory.send.timeout.millis", SECONDS.toMillis(30));
+    public static final GoSystemProperty<Integer> DASHBOARD_QUEUE_PROCESSOR_WORKERS = new GoIntSystemProperty("go.dashboard.queue.processor.workers", 4);
+    public static final GoSystemProperty<Boolean> CONFIG_FILE_WATCH_ENABLED = new GoBooleanSystemProperty("go.config.file.watch.enabled", true);
+    public static final GoSystemProperty<Long> CONFIG_FILE_WATCH_QUIET_PERIOD_IN_MILLIS = new GoLongSystemProperty("go.config.file.watch.quiet.period.millis", 500L);
+    public static final GoSystemProperty<Long> CONFIG_FILE_WATCH_FALLBACK_POLL_INTERVAL_IN_MILLIS = new GoLongSystemProperty("go.config.file.watch.fallback.poll.interval.millis", 60_000L);
+    public static final GoSystemProperty<Boolean> CONFIG_ENTITY_SCOPED_VALIDATION = new GoBooleanSystemProperty("go.config.entity.scoped.validation", false);
+    public static final GoSystemProperty<Long> SCHEDULE_CHECK_SWEEP_INTERVAL_IN_MILLIS = new GoLongSystemProperty("go.schedule.check.sweep.interval.millis", MINUTES.toMillis(5));
+    public static final GoSystemProperty<Boolean> SCHEDULED_JOB_PLANS_INCREMENTAL_RELOAD = new GoBooleanSystemProperty("go.schedule.job.plans.incremental.reload", false);
+    public static final GoSystemProperty<Integer> PIPELINE_CREATION_THREADS = new GoIntSystemProperty("go.schedule.pipeline.creation.threads", 4);
+    public static final GoSystemProperty<Long> CHUNKED_ARTIFACT_UPLOAD_IDLE_TIMEOUT_IN_MILLIS = new GoLongSystemProperty("go.artifact.chunked.upload.idle.timeout.millis", MINUTES.toMillis(10));
+    public static final GoSystemProperty<Boolean> ARTIFACTS_CONTENT_ADDRESSABLE = new GoBooleanSystemProperty("go.artifacts.content.addressable", false);
+    public static final GoSystemProperty<Boolean> ARTIFACT_ZIP_DOWNLOAD_STREAMING = new GoBooleanSystemProperty("go.artifact.zip.download.streaming", false);
+    public static final GoSystemProperty<Long> ZIP_ARTIFACT_CACHE_MAX_SIZE_IN_BYTES = new GoLongSystemProperty("go.artifact.zip.cache.max.size.bytes", 10L * 1024 * 1024 * 1024);
+    public static final GoSystemProperty<Long> ELASTIC_AGENT_ASSIGNMENT_DECISION_CACHE_TTL_IN_MILLIS = new GoLongSystemProperty("go.elastic.agent.assignment.decision.cache.ttl.millis", 0L);
+    public static final GoSystemProperty<Long> VERIFIED_ACCESS_TOKEN_CACHE_TTL_IN_MILLIS = new GoLongSystemProperty("go.access.token.verified.cache.ttl.millis", 0L);
+    public static final GoSystemProperty<Integer> VERIFIED_ACCESS_TOKEN_CACHE_MAX_ENTRIES = new GoIntSystemProperty("go.access.token.verified.cache.max.entries", 1000);
 
     public static final GoSystemProperty<Integer> GO_SERVER_AUTHORIZATION_EXTENSION_CALLS_CACHE_TIMEOUT_IN_SECONDS = new GoIntSystemProperty("go.server.authorization.extension.calls.cache.timeout.in.secs", 60);
 
@@ -17,6 +17,7 @@ package com.thoughtworks.go.util;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.HashMap;
@@ -29,6 +30,7 @@ public class ZipBuilder {
     private final OutputStream destinationStream;
     private final boolean excludeRootDir;
     private final Map<String, File> toAdd = new HashMap<>();
+    private boolean keepCompressedFiles;
 
     public ZipBuilder(ZipUtil zipUtil, int level, OutputStream destinationStream, boolean excludeRootDir) {
         this.zipUtil = zipUtil;
@@ -42,13 +44,26 @@ public class ZipBuilder {
         return this;
     }
 
+    /**
+     * Leaves files that are compressed already, like archives and images, as they are rather than deflating them again.
+     */
+    public ZipBuilder withoutRecompressing() {
+        this.keepCompressedFiles = true;
+        return this;
+    }
+
     public void done() throws IOException {
-        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(destinationStream))) {
+        done(null, null);
+    }
+
+    void done(ZipUtil.ZippedFileChecksumHandler checksumHandler, FileFilter fileFilter) throws IOException {
+        BufferedOutputStream output = new BufferedOutputStream(destinationStream);
+        try (ZipOutputStream zip = keepCompressedFiles ? new CompressedFileAwareZipOutputStream(output) : new ZipOutputStream(output)) {
             zip.setLevel(level);
             for (Map.Entry<String, File> zipDirToSourceFileEntry : toAdd.entrySet()) {
                 File sourceFileToZip = zipDirToSourceFileEntry.getValue();
                 String destinationFolder = zipDirToSourceFileEntry.getKey();
-                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir);
+                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir, checksumHandler, fileFilter);
             }
             zip.flush();
         }
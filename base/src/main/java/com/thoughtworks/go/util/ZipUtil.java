@@ -19,6 +19,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -54,48 +58,90 @@ public class ZipUtil {
         zipContents(file, output, level, false);
     }
 
+    /**
+     * Zips into the stream, handing over the MD5 of each file as it is zipped so that callers do not need to read
+     * the files a second time to checksum them.
+     */
+    public void zip(File file, OutputStream output, int level, ZippedFileChecksumHandler checksumHandler) throws IOException {
+        new ZipBuilder(this, level, output, false).add("", file).done(checksumHandler, null);
+    }
+
+    /**
+     * Zips into the stream, leaving files that are compressed already, like archives and images, as they are.
+     */
+    public void zipWithoutRecompressing(File source, OutputStream output, int level) throws IOException {
+        new ZipBuilder(this, level, output, false).withoutRecompressing().add("", source).done();
+    }
+
+    /**
+     * Zips only the files accepted by the filter. Directories are always added, so the zip keeps the layout of the source.
+     */
+    public File zip(File source, File destZipFile, int level, FileFilter fileFilter) throws IOException {
+        new ZipBuilder(this, level, new FileOutputStream(destZipFile), false).add("", source).done(null, fileFilter);
+        return destZipFile;
+    }
+
     private void zipContents(File file, OutputStream output, int level, boolean excludeRootDir) throws IOException {
         new ZipBuilder(this, level, output, excludeRootDir).add("", file).done();
     }
 
-    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir, ZippedFileChecksumHandler checksumHandler, FileFilter fileFilter) throws IOException {
         ZipPath newPath = path.with(source);
         if (source.isFile()) {
-            addToZip(newPath, source, zip, false);
+            addToZip(newPath, source, zip, false, checksumHandler, fileFilter);
         } else {
-            addDirectory(path, source, zip, excludeRootDir);
+            addDirectory(path, source, zip, excludeRootDir, checksumHandler, fileFilter);
         }
     }
 
-    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir, ZippedFileChecksumHandler checksumHandler, FileFilter fileFilter) throws IOException {
         if (excludeRootDir) {
-            addDirContents(path, source, zip);
+            addDirContents(path, source, zip, checksumHandler, fileFilter);
             return;
         }
         ZipPath newPath = path.with(source);
         zip.putNextEntry(newPath.asZipEntryDirectory());
-        addDirContents(newPath, source, zip);
+        addDirContents(newPath, source, zip, checksumHandler, fileFilter);
     }
 
-    private void addDirContents(ZipPath path, File source, ZipOutputStream zip) throws IOException {
+    private void addDirContents(ZipPath path, File source, ZipOutputStream zip, ZippedFileChecksumHandler checksumHandler, FileFilter fileFilter) throws IOException {
         for (File file : source.listFiles()) {
-            addToZip(path, file, zip, false);
+            addToZip(path, file, zip, false, checksumHandler, fileFilter);
         }
     }
 
-    void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir, ZippedFileChecksumHandler checksumHandler, FileFilter fileFilter) throws IOException {
         if (srcFile.isDirectory()) {
-            addFolderToZip(path, srcFile, zip, excludeRootDir);
-        } else {
+            addFolderToZip(path, srcFile, zip, excludeRootDir, checksumHandler, fileFilter);
+        } else if (fileFilter != null && !fileFilter.accept(srcFile)) {
+            LOGGER.debug("Leaving [{}] out of the zip", srcFile);
+        } else if (checksumHandler == null) {
             try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(srcFile))) {
-                ZipEntry zipEntry = path.with(srcFile).asZipEntry();
-                zipEntry.setTime(srcFile.lastModified());
-                zip.putNextEntry(zipEntry);
-                inputStream.transferTo(zip);
+                addFileEntry(path, srcFile, zip, inputStream);
+            }
+        } else {
+            try (DigestInputStream inputStream = new DigestInputStream(new BufferedInputStream(new FileInputStream(srcFile)), md5())) {
+                addFileEntry(path, srcFile, zip, inputStream);
+                checksumHandler.handle(srcFile, HexFormat.of().formatHex(inputStream.getMessageDigest().digest()));
             }
         }
     }
 
+    private void addFileEntry(ZipPath path, File srcFile, ZipOutputStream zip, InputStream inputStream) throws IOException {
+        ZipEntry zipEntry = path.with(srcFile).asZipEntry();
+        zipEntry.setTime(srcFile.lastModified());
+        zip.putNextEntry(zipEntry);
+        inputStream.transferTo(zip);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private void bombIfZipEntryPathContainsDirectoryTraversalCharacters(String filepath) {
         if (filepath.contains("..")) {
             throw new IllegalPathException(String.format("File %s is outside extraction target directory", filepath));
@@ -169,4 +215,8 @@ public class ZipUtil {
         void handleEntry(ZipEntry entry, InputStream stream) throws IOException;
     }
 
+    public interface ZippedFileChecksumHandler {
+        void handle(File file, String md5) throws IOException;
+    }
+
 }
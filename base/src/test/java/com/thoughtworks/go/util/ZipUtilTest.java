@@ -21,12 +21,19 @@ import org.junit.jupiter.api.condition.EnabledOnOs;
 import org.junit.jupiter.api.condition.OS;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -36,6 +43,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 public class ZipUtilTest {
     @TempDir
@@ -147,6 +155,39 @@ public class ZipUtilTest {
         assertThat(fileContent(actualSpecialFile)).isEqualTo(fileContent(specialFile));
     }
 
+    @Test
+    void shouldHandOverTheChecksumOfEveryFileWhileZippingToAStream() throws IOException {
+        Map<File, String> checksums = new HashMap<>();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        zipUtil.zip(srcDir, output, Deflater.BEST_SPEED, checksums::put);
+
+        assertThat(checksums).containsOnly(
+            entry(file1, HexFormat.of().formatHex(md5("_file1"))),
+            entry(file2, HexFormat.of().formatHex(md5("_file2"))));
+        zipUtil.unzip(new ZipInputStream(new ByteArrayInputStream(output.toByteArray())), destDir);
+        assertThat(fileContent(new File(destDir, srcDir.getName() + "/" + childDir1.getName() + "/" + file2.getName()))).isEqualTo("_file2");
+    }
+
+    @Test
+    void shouldLeaveFilesRejectedByTheFilterOutOfTheZip() throws IOException {
+        zipFile = zipUtil.zip(srcDir, createFileInTempDir(), Deflater.BEST_SPEED, file -> !file.equals(file2));
+        zipUtil.unzip(zipFile, destDir);
+
+        File baseDir = new File(destDir, srcDir.getName());
+        assertThat(fileContent(new File(baseDir, file1.getName()))).isEqualTo("_file1");
+        assertIsDirectory(new File(baseDir, childDir1.getName()));
+        assertThat(new File(baseDir, childDir1.getName() + "/" + file2.getName())).doesNotExist();
+    }
+
+    private static byte[] md5(String content) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(content.getBytes(UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Test
     void shouldReadContentsOfAFileWhichIsInsideAZip() throws Exception {
         Files.writeString(new File(srcDir, "some-file.txt").toPath(), "some-text-here", UTF_8);
@@ -158,6 +199,26 @@ public class ZipUtilTest {
         }
     }
 
+    @Test
+    void shouldStoreAlreadyCompressedFilesWithoutRecompressingThem() throws Exception {
+        byte[] compressible = "compress me ".repeat(1000).getBytes(UTF_8);
+        Files.write(new File(srcDir, "archive.jar").toPath(), compressible);
+        Files.write(new File(srcDir, "text.txt").toPath(), compressible);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        zipUtil.zipWithoutRecompressing(srcDir, output, Deflater.BEST_COMPRESSION);
+        zipFile = createFileInTempDir();
+        Files.write(zipFile.toPath(), output.toByteArray());
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            ZipEntry jar = zip.getEntry(srcDir.getName() + "/archive.jar");
+            ZipEntry text = zip.getEntry(srcDir.getName() + "/text.txt");
+            assertThat(jar.getCompressedSize()).isGreaterThanOrEqualTo(jar.getSize());
+            assertThat(text.getCompressedSize()).isLessThan(text.getSize());
+            assertThat(zip.getInputStream(jar).readAllBytes()).isEqualTo(compressible);
+        }
+    }
+
     @Test
     void shouldZipMultipleFolderContentsAndExcludeRootDirectory() throws IOException {
         File folderOne = createDirectoryInTempDir("a-folder1");
@@ -0,0 +1,231 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A sparse index from line numbers to byte offsets in a console log, kept in a file of its own. An entry is recorded
+ * roughly every {@code spacing} bytes, always at the start of a line, so reading from line N only needs to decode the
+ * log from the nearest entry at or before N instead of from the start of the file.
+ * <p>
+ * Updates to the same index file are serialized, so concurrent appends to a log do not record entries twice or out of
+ * order.
+ * <p>
+ * Lines are counted the way {@link java.io.BufferedReader#readLine()} counts them, i.e. terminated by any of
+ * {@code \n}, {@code \r} or {@code \r\n}. The index is only a hint: entries that do not match the log are ignored and
+ * callers fall back to reading from the start.
+ */
+public class ConsoleLogLineIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogLineIndex.class);
+
+    private static final int DEFAULT_SPACING = 64 * 1024;
+    private static final int ENTRY_SIZE = 2 * Long.BYTES;
+    private static final Object[] UPDATE_LOCKS = new Object[64];
+
+    static {
+        Arrays.setAll(UPDATE_LOCKS, i -> new Object());
+    }
+
+    private final Path log;
+    private final Path index;
+    private final int spacing;
+
+    public record Entry(long line, long offset) {
+        public static final Entry START = new Entry(0, 0);
+    }
+
+    public ConsoleLogLineIndex(Path log) {
+        this(log, indexFor(log));
+    }
+
+    public ConsoleLogLineIndex(Path log, Path index) {
+        this(log, index, DEFAULT_SPACING);
+    }
+
+    ConsoleLogLineIndex(Path log, int spacing) {
+        this(log, indexFor(log), spacing);
+    }
+
+    ConsoleLogLineIndex(Path log, Path index, int spacing) {
+        this.log = log;
+        this.index = index;
+        this.spacing = spacing;
+    }
+
+    /**
+     * @return the default location of the index of a log, next to it
+     */
+    public static Path indexFor(Path log) {
+        return log.resolveSibling(log.getFileName() + ".idx");
+    }
+
+    /**
+     * @return whether line terminators in the charset are the single bytes {@code \r} and {@code \n}, which is what
+     * the index relies on to find line boundaries without decoding
+     */
+    public static boolean supports(Charset charset) {
+        return Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'});
+    }
+
+    /**
+     * Adds entries for everything appended to the log since the index was last updated. Only the log from the last
+     * entry onwards is read, so calling this after every append costs about as much as the append itself.
+     */
+    public void update() throws IOException {
+        synchronized (UPDATE_LOCKS[Math.floorMod(index.toAbsolutePath().normalize().hashCode(), UPDATE_LOCKS.length)]) {
+            updateExclusively();
+        }
+    }
+
+    private void updateExclusively() throws IOException {
+        if (!Files.exists(log)) {
+            return;
+        }
+        Entry last = lastEntry();
+        if (last.offset() > Files.size(log)) {
+            // the log was replaced by a shorter one; start over
+            Files.deleteIfExists(index);
+            last = Entry.START;
+        }
+        if (Files.size(log) - last.offset() < spacing) {
+            // nothing new could be recorded, so do not leave an empty index behind for short logs
+            return;
+        }
+
+        ByteBuffer entries = ByteBuffer.allocate(ENTRY_SIZE * 64);
+        try (FileChannel logChannel = FileChannel.open(log, READ);
+             FileChannel indexChannel = FileChannel.open(index, CREATE, WRITE, APPEND)) {
+            ByteBuffer buffer = ByteBuffer.allocate(spacing);
+            long line = last.line();
+            long lastRecorded = last.offset();
+            long position = last.offset();
+            boolean afterCarriageReturn = false;
+
+            while (logChannel.read(buffer, position) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '\r') {
+                        line++;
+                        afterCarriageReturn = true;
+                    } else if (b == '\n') {
+                        if (!afterCarriageReturn) {
+                            line++;
+                        }
+                        afterCarriageReturn = false;
+                        if (position - lastRecorded >= spacing) {
+                            if (!entries.hasRemaining()) {
+                                flush(entries, indexChannel);
+                            }
+                            entries.putLong(line).putLong(position);
+                            lastRecorded = position;
+                        }
+                    } else {
+                        afterCarriageReturn = false;
+                    }
+                }
+                buffer.clear();
+            }
+            flush(entries, indexChannel);
+        }
+    }
+
+    /**
+     * @return the entry with the greatest line number not after {@code line} that agrees with the log, or
+     * {@link Entry#START} if there is none
+     */
+    public Entry floor(long line) {
+        if (line <= 0 || !Files.exists(index)) {
+            return Entry.START;
+        }
+        try (FileChannel indexChannel = FileChannel.open(index, READ);
+             FileChannel logChannel = FileChannel.open(log, READ)) {
+            long low = 0;
+            long high = indexChannel.size() / ENTRY_SIZE - 1;
+            Entry found = Entry.START;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                Entry entry = read(indexChannel, mid);
+                if (entry.line() <= line) {
+                    found = entry;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return startsLine(logChannel, found) ? found : Entry.START;
+        } catch (IOException e) {
+            LOGGER.debug("Ignoring unreadable console log index {}", index, e);
+            return Entry.START;
+        }
+    }
+
+    private Entry lastEntry() throws IOException {
+        if (!Files.exists(index)) {
+            return Entry.START;
+        }
+        try (FileChannel indexChannel = FileChannel.open(index, READ, WRITE)) {
+            long entries = indexChannel.size() / ENTRY_SIZE;
+            // drop a partially written trailing entry, if any
+            indexChannel.truncate(entries * ENTRY_SIZE);
+            return entries == 0 ? Entry.START : read(indexChannel, entries - 1);
+        }
+    }
+
+    private static Entry read(FileChannel indexChannel, long entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE);
+        while (buffer.hasRemaining()) {
+            if (indexChannel.read(buffer, entry * ENTRY_SIZE + buffer.position()) < 0) {
+                throw new EOFException("Console log index ends in the middle of entry " + entry);
+            }
+        }
+        buffer.flip();
+        return new Entry(buffer.getLong(), buffer.getLong());
+    }
+
+    private static boolean startsLine(FileChannel logChannel, Entry entry) throws IOException {
+        if (entry.offset() == 0) {
+            return entry.line() == 0;
+        }
+        if (entry.offset() > logChannel.size()) {
+            return false;
+        }
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        return logChannel.read(previous, entry.offset() - 1) == 1 && previous.get(0) == '\n';
+    }
+
+    private static void flush(ByteBuffer entries, FileChannel indexChannel) throws IOException {
+        entries.flip();
+        while (entries.hasRemaining()) {
+            indexChannel.write(entries);
+        }
+        entries.clear();
+    }
+}
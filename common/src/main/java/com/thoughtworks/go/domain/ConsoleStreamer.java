@@ -17,28 +17,53 @@ package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.SystemEnvironment;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
  * Encapsulates a stream of lines from a console log file while keeping track of the number of lines processed
- * as well as the starting line to read.
+ * as well as the starting line to read. When the log has a {@link ConsoleLogLineIndex}, reading starts from the
+ * nearest indexed line instead of from the start of the file.
  */
 public class ConsoleStreamer implements ConsoleConsumer, AutoCloseable {
     private final Path path;
+    private final Path index;
     private Stream<String> stream;
     private Iterator<String> iterator;
 
     private final long start;
+    private final long end;
     private long count = 0L;
 
     public ConsoleStreamer(Path path, long start) {
+        this(path, start, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param end the line to stop before; lines from {@code start} up to, but not including, {@code end} are streamed
+     */
+    public ConsoleStreamer(Path path, long start, long end) {
+        this(path, ConsoleLogLineIndex.indexFor(path), start, end);
+    }
+
+    /**
+     * @param index where the {@link ConsoleLogLineIndex} of the log is kept
+     */
+    public ConsoleStreamer(Path path, Path index, long start, long end) {
         this.path = path;
+        this.index = index;
         this.start = Math.max(start, 0L);
+        this.end = Math.max(end, this.start);
     }
 
     /**
@@ -55,7 +80,7 @@ public class ConsoleStreamer implements ConsoleConsumer, AutoCloseable {
         long linesStreamed = 0L;
 
         if (null == stream) {
-            stream = Files.lines(path, new SystemEnvironment().consoleLogCharset()).skip(start);
+            stream = linesFrom(start, new SystemEnvironment().consoleLogCharset()).limit(end - start);
         }
         if (null == iterator) {
             iterator = stream.iterator();
@@ -70,6 +95,24 @@ public class ConsoleStreamer implements ConsoleConsumer, AutoCloseable {
         return linesStreamed;
     }
 
+    private Stream<String> linesFrom(long line, Charset charset) throws IOException {
+        ConsoleLogLineIndex.Entry entry = ConsoleLogLineIndex.supports(charset) ? new ConsoleLogLineIndex(path, index).floor(line) : ConsoleLogLineIndex.Entry.START;
+        if (entry.offset() == 0) {
+            return Files.lines(path, charset).skip(line);
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(entry.offset());
+        BufferedReader reader = new BufferedReader(Channels.newReader(channel, charset.newDecoder(), -1));
+        return reader.lines().skip(line - entry.line()).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     @Override
     public void close() {
         if (stream != null) {
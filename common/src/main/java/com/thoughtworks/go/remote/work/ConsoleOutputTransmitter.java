@@ -17,7 +17,6 @@ package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.command.TaggedStreamConsumer;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,10 +24,13 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
@@ -36,18 +38,40 @@ import static java.lang.String.format;
 public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleOutputTransmitter.class);
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final int MAX_BUFFERED_LINES = 10 * 1024;
 
-    private final CircularFifoQueue<String> buffer = new CircularFifoQueue<>(10 * 1024); // maximum 10k lines
+    private final Deque<String> buffer = new ArrayDeque<>();
+    private final int maxBufferedLines;
+    private final boolean backpressure;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
     private final ConsoleAppender consoleAppender;
     private final ScheduledThreadPoolExecutor executor;
+    private volatile boolean closed;
 
     public ConsoleOutputTransmitter(ConsoleAppender consoleAppender) {
-        this(consoleAppender, new SystemEnvironment().getConsolePublishIntervalSeconds(), TimeUnit.SECONDS, new ScheduledThreadPoolExecutor(1));
+        this(consoleAppender, new SystemEnvironment());
+    }
+
+    private ConsoleOutputTransmitter(ConsoleAppender consoleAppender, SystemEnvironment systemEnvironment) {
+        this(consoleAppender, systemEnvironment.getConsolePublishIntervalSeconds(), TimeUnit.SECONDS, new ScheduledThreadPoolExecutor(1),
+            systemEnvironment.get(SystemEnvironment.AGENT_CONSOLE_BACKPRESSURE), MAX_BUFFERED_LINES);
     }
 
     ConsoleOutputTransmitter(ConsoleAppender consoleAppender, long consolePublishInterval, TimeUnit consumePublishIntervalUnit, ScheduledThreadPoolExecutor scheduledThreadPoolExecutor) {
+        this(consoleAppender, consolePublishInterval, consumePublishIntervalUnit, scheduledThreadPoolExecutor, false, MAX_BUFFERED_LINES);
+    }
+
+    /**
+     * @param backpressure whether a full buffer should make the build wait for it to be sent to the server, rather
+     *                     than dropping the oldest lines
+     */
+    ConsoleOutputTransmitter(ConsoleAppender consoleAppender, long consolePublishInterval, TimeUnit consumePublishIntervalUnit, ScheduledThreadPoolExecutor scheduledThreadPoolExecutor,
+                             boolean backpressure, int maxBufferedLines) {
         this.consoleAppender = consoleAppender;
         this.executor = scheduledThreadPoolExecutor;
+        this.backpressure = backpressure;
+        this.maxBufferedLines = maxBufferedLines;
         executor.scheduleAtFixedRate(this, 0L, consolePublishInterval, consumePublishIntervalUnit);
     }
 
@@ -61,7 +85,27 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
         String taggedDate = format("%s|%s", tag, FORMATTER.format(LocalTime.now()));
         String logLine = format("%s %s", taggedDate, line).replace("\n", "\n" + taggedDate + " ");
         synchronized (buffer) {
-            buffer.add(logLine);
+            if (backpressure) {
+                waitForSpaceInBuffer();
+            }
+            while (buffer.size() >= maxBufferedLines) {
+                buffer.removeFirst();
+            }
+            buffer.addLast(logLine);
+        }
+    }
+
+    private void waitForSpaceInBuffer() {
+        if (buffer.size() >= maxBufferedLines && !closed && flushRequested.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+        while (buffer.size() >= maxBufferedLines && !closed) {
+            try {
+                buffer.wait(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
         }
     }
 
@@ -75,29 +119,41 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
     }
 
     public void flushToServer() {
-        if (buffer.isEmpty()) {
-            return;
-        }
-
-        List<String> toFlush;
-        synchronized (buffer) {
-            toFlush = new ArrayList<>(buffer);
-            buffer.clear();
-        }
-        try {
-            consoleAppender.append(toFlush.stream().collect(Collectors.joining("\n", "", "\n")));
-        } catch (IOException e) {
-            LOGGER.warn("Could not send console output to server", e);
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            List<String> toFlush;
             synchronized (buffer) {
-                toFlush.addAll(buffer);
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                toFlush = new ArrayList<>(buffer);
                 buffer.clear();
-                buffer.addAll(toFlush);
+                buffer.notifyAll();
+            }
+            try {
+                consoleAppender.append(toFlush.stream().collect(Collectors.joining("\n", "", "\n")));
+            } catch (IOException e) {
+                LOGGER.warn("Could not send console output to server", e);
+                synchronized (buffer) {
+                    for (int i = toFlush.size() - 1; i >= 0; i--) {
+                        buffer.addFirst(toFlush.get(i));
+                    }
+                    if (!backpressure) {
+                        while (buffer.size() > maxBufferedLines) {
+                            buffer.removeFirst();
+                        }
+                    }
+                }
             }
         }
     }
 
     @Override
     public void close() {
+        closed = true;
+        synchronized (buffer) {
+            buffer.notifyAll();
+        }
         flushToServer();
         executor.shutdown();
     }
@@ -23,6 +23,7 @@ import com.thoughtworks.go.plugin.access.artifact.ArtifactExtension;
 import com.thoughtworks.go.plugin.access.artifact.models.PublishArtifactResponse;
 import com.thoughtworks.go.plugin.infra.PluginRequestProcessorRegistry;
 import com.thoughtworks.go.util.ArtifactUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.command.EnvironmentVariableContext;
 import com.thoughtworks.go.work.GoPublisher;
 import org.apache.commons.io.FileUtils;
@@ -35,20 +36,27 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
 
 import static com.thoughtworks.go.remote.work.artifact.ArtifactRequestProcessor.Request.CONSOLE_LOG;
+import static com.thoughtworks.go.util.ExceptionUtils.uncaughtExceptionHandlerFor;
 import static com.thoughtworks.go.work.GoPublisher.PRODUCT_NAME;
 import static java.lang.String.format;
 
 public class ArtifactsPublisher implements Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactsPublisher.class);
+    private static final ThreadFactory UPLOAD_THREAD_FACTORY = Thread.ofPlatform()
+        .daemon()
+        .name("artifact-upload-thread-", 1)
+        .uncaughtExceptionHandler(uncaughtExceptionHandlerFor(ArtifactsPublisher.class))
+        .factory();
     private final PluginRequestProcessorRegistry pluginRequestProcessorRegistry;
     private final File workingDirectory;
     private final GoPublisher goPublisher;
     private final ArtifactPlanFilter artifactPlanFilter;
     private final ArtifactExtension artifactExtension;
     private final ArtifactStores artifactStores;
-    private final List<ArtifactPlan> failedArtifact = new ArrayList<>();
+    private final List<ArtifactPlan> failedArtifact = new CopyOnWriteArrayList<>();
 
     public ArtifactsPublisher(GoPublisher goPublisher, ArtifactExtension artifactExtension, ArtifactStores artifactStores, PluginRequestProcessorRegistry pluginRequestProcessorRegistry, File workingDirectory) {
         this.goPublisher = goPublisher;
@@ -70,13 +78,7 @@ public class ArtifactsPublisher implements Serializable {
                 mergedPlans.addFirst(new ArtifactPlan(ArtifactPlanType.file, format("%s%s*", pluggableArtifactFolder.getName(), File.separator), ArtifactUtil.PLUGGABLE_ARTIFACT_METADATA_FOLDER));
             }
 
-            for (ArtifactPlan artifactPlan : mergedPlans) {
-                try {
-                    artifactPlan.publishBuiltInArtifacts(goPublisher, workingDirectory);
-                } catch (Exception e) {
-                    failedArtifact.add(artifactPlan);
-                }
-            }
+            publishBuiltInArtifacts(mergedPlans);
 
             if (!failedArtifact.isEmpty()) {
                 StringBuilder builder = new StringBuilder();
@@ -90,6 +92,40 @@ public class ArtifactsPublisher implements Serializable {
         }
     }
 
+    private void publishBuiltInArtifacts(List<ArtifactPlan> artifactPlans) {
+        int uploadThreads = Math.min(artifactPlans.size(), new SystemEnvironment().get(SystemEnvironment.AGENT_ARTIFACT_UPLOAD_THREADS));
+        if (uploadThreads <= 1) {
+            artifactPlans.forEach(this::publishBuiltInArtifact);
+            return;
+        }
+
+        ExecutorService uploaders = Executors.newFixedThreadPool(uploadThreads, UPLOAD_THREAD_FACTORY);
+        try {
+            List<Future<?>> uploads = new ArrayList<>();
+            for (ArtifactPlan artifactPlan : artifactPlans) {
+                uploads.add(uploaders.submit(() -> publishBuiltInArtifact(artifactPlan)));
+            }
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            uploaders.shutdownNow();
+        }
+    }
+
+    private void publishBuiltInArtifact(ArtifactPlan artifactPlan) {
+        try {
+            artifactPlan.publishBuiltInArtifacts(goPublisher, workingDirectory);
+        } catch (Exception e) {
+            failedArtifact.add(artifactPlan);
+        }
+    }
+
     private boolean isMetadataFolderEmpty(File pluggableArtifactFolder) {
         return pluggableArtifactFolder != null && pluggableArtifactFolder.list().length == 0;
     }
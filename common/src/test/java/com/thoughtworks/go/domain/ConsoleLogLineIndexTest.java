@@ -0,0 +1,137 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsoleLogLineIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRecordTheStartOfALineAboutEverySpacingBytes() throws Exception {
+        Path log = Files.writeString(tempDir.resolve("console.log"), "0123456789\n0123456789\n0123456789\n0123456789\n");
+        ConsoleLogLineIndex index = new ConsoleLogLineIndex(log, 20);
+
+        index.update();
+
+        assertThat(index.floor(0)).isEqualTo(ConsoleLogLineIndex.Entry.START);
+        assertThat(index.floor(1)).isEqualTo(ConsoleLogLineIndex.Entry.START);
+        assertThat(index.floor(2)).isEqualTo(new ConsoleLogLineIndex.Entry(2, 22));
+        assertThat(index.floor(3)).isEqualTo(new ConsoleLogLineIndex.Entry(2, 22));
+        assertThat(index.floor(100)).isEqualTo(new ConsoleLogLineIndex.Entry(4, 44));
+    }
+
+    @Test
+    void shouldOnlyReadWhatWasAppendedSinceTheLastUpdate() throws Exception {
+        Path log = Files.writeString(tempDir.resolve("console.log"), "0123456789\n0123456789\n");
+        ConsoleLogLineIndex index = new ConsoleLogLineIndex(log, 20);
+        index.update();
+
+        Files.writeString(log, "01234\r\n56789\r0123456789\n", StandardOpenOption.APPEND);
+        index.update();
+
+        assertThat(index.floor(100)).isEqualTo(new ConsoleLogLineIndex.Entry(5, 46));
+        assertThat(Files.size(ConsoleLogLineIndex.indexFor(log))).isEqualTo(2 * 16);
+    }
+
+    @Test
+    void shouldNotCreateAnIndexForALogShorterThanTheSpacing() throws Exception {
+        Path log = Files.writeString(tempDir.resolve("console.log"), "0123456789\n");
+        ConsoleLogLineIndex index = new ConsoleLogLineIndex(log, 20);
+
+        index.update();
+
+        assertThat(ConsoleLogLineIndex.indexFor(log)).doesNotExist();
+        assertThat(index.floor(1)).isEqualTo(ConsoleLogLineIndex.Entry.START);
+    }
+
+    @Test
+    void shouldIgnoreEntriesThatDoNotMatchTheLog() throws Exception {
+        Path log = Files.writeString(tempDir.resolve("console.log"), "0123456789\n0123456789\n0123456789\n");
+        ConsoleLogLineIndex index = new ConsoleLogLineIndex(log, 20);
+        index.update();
+
+        Files.writeString(log, "a completely different log");
+
+        assertThat(index.floor(2)).isEqualTo(ConsoleLogLineIndex.Entry.START);
+    }
+
+    @Test
+    void shouldKeepTheIndexWhereItIsTold() throws Exception {
+        Path log = Files.writeString(tempDir.resolve("console.log"), "0123456789\n0123456789\n0123456789\n");
+        Path indexFile = tempDir.resolve("elsewhere").resolve("console.log.idx");
+        Files.createDirectories(indexFile.getParent());
+        ConsoleLogLineIndex index = new ConsoleLogLineIndex(log, indexFile, 20);
+
+        index.update();
+
+        assertThat(indexFile).exists();
+        assertThat(ConsoleLogLineIndex.indexFor(log)).doesNotExist();
+        assertThat(index.floor(100)).isEqualTo(new ConsoleLogLineIndex.Entry(2, 22));
+    }
+
+    @Test
+    void shouldNotRecordEntriesTwiceWhenUpdatedConcurrently() throws Exception {
+        Path log = Files.writeString(tempDir.resolve("console.log"), "0123456789\n".repeat(1000));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            var updates = IntStream.range(0, 8).mapToObj(i -> executor.submit(() -> {
+                start.await();
+                new ConsoleLogLineIndex(log, 20).update();
+                return null;
+            })).toList();
+            start.countDown();
+            for (Future<?> update : updates) {
+                update.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ConsoleLogLineIndex expected = new ConsoleLogLineIndex(log, tempDir.resolve("expected.idx"), 20);
+        expected.update();
+        assertThat(Files.readAllBytes(ConsoleLogLineIndex.indexFor(log))).isEqualTo(Files.readAllBytes(tempDir.resolve("expected.idx")));
+    }
+
+    @Test
+    void shouldStartFromTheBeginningWithoutAnIndex() {
+        ConsoleLogLineIndex index = new ConsoleLogLineIndex(tempDir.resolve("console.log"));
+
+        assertThat(index.floor(42)).isEqualTo(ConsoleLogLineIndex.Entry.START);
+    }
+
+    @Test
+    void shouldOnlySupportCharsetsWithSingleByteLineTerminators() {
+        assertThat(ConsoleLogLineIndex.supports(UTF_8)).isTrue();
+        assertThat(ConsoleLogLineIndex.supports(ISO_8859_1)).isTrue();
+        assertThat(ConsoleLogLineIndex.supports(UTF_16)).isFalse();
+    }
+}
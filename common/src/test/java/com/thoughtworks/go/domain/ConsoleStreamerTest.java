@@ -81,6 +81,37 @@ public class ConsoleStreamerTest {
         }
     }
 
+    @Test
+    public void streamSeeksToStartLineUsingTheLineIndex() throws Exception {
+        String[] lines = new String[20_000];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "line " + i;
+        }
+        File console = makeConsoleFile(lines);
+        ConsoleLogLineIndex.indexFor(console.toPath()).toFile().deleteOnExit();
+        new ConsoleLogLineIndex(console.toPath()).update();
+        assertTrue(new ConsoleLogLineIndex(console.toPath()).floor(15_000L).offset() > 0);
+
+        final List<String> actual = new ArrayList<>();
+        try (ConsoleStreamer streamer = new ConsoleStreamer(console.toPath(), 15_000L)) {
+            streamer.stream(actual::add);
+            assertEquals("line 15000", actual.getFirst());
+            assertEquals("line 19999", actual.getLast());
+            assertEquals(5_000L, streamer.totalLinesConsumed());
+        }
+    }
+
+    @Test
+    public void streamStopsBeforeEndLine() throws Exception {
+        final List<String> actual = new ArrayList<>();
+
+        try (ConsoleStreamer console = new ConsoleStreamer(makeConsoleFile("first", "second", "third", "fourth").toPath(), 1L, 3L)) {
+            console.stream(actual::add);
+            assertArrayEquals(new String[]{"second", "third"}, actual.toArray());
+            assertEquals(2L, console.totalLinesConsumed());
+        }
+    }
+
     private File makeConsoleFile(String... message) throws IOException {
         File console = File.createTempFile("console", ".log");
         console.deleteOnExit();
@@ -23,6 +23,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -61,6 +62,59 @@ public class ConsoleOutputTransmitterTest {
         assertThat(requestArgumentCaptor.getValue()).contains("second line\n");
     }
 
+    @Test
+    public void shouldDropOldestLinesWhenBufferIsFullWithoutBackpressure() throws Exception {
+        transmitter = new ConsoleOutputTransmitter(consoleAppender, 0, TimeUnit.SECONDS, mock(ScheduledThreadPoolExecutor.class), false, 2);
+        ArgumentCaptor<String> requestArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        doNothing().when(consoleAppender).append(requestArgumentCaptor.capture());
+
+        transmitter.consumeLine("first line");
+        transmitter.consumeLine("second line");
+        transmitter.consumeLine("third line");
+        transmitter.flushToServer();
+
+        assertThat(requestArgumentCaptor.getValue()).doesNotContain("first line").contains("second line\n", "third line\n");
+    }
+
+    @Test
+    public void shouldWaitForBufferToBeFlushedWhenFullWithBackpressure() throws Exception {
+        ScheduledThreadPoolExecutor executor = mock(ScheduledThreadPoolExecutor.class);
+        transmitter = new ConsoleOutputTransmitter(consoleAppender, 0, TimeUnit.SECONDS, executor, true, 2);
+        ArgumentCaptor<String> requestArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        doNothing().when(consoleAppender).append(requestArgumentCaptor.capture());
+
+        transmitter.consumeLine("first line");
+        transmitter.consumeLine("second line");
+        Thread producer = new Thread(() -> transmitter.consumeLine("third line"));
+        producer.start();
+
+        verify(executor, timeout(5000)).execute(transmitter);
+        assertThat(producer.isAlive()).isTrue();
+
+        transmitter.flushToServer();
+        producer.join(5000);
+        assertThat(producer.isAlive()).isFalse();
+        transmitter.flushToServer();
+
+        assertThat(requestArgumentCaptor.getAllValues()).hasSize(2);
+        assertThat(requestArgumentCaptor.getAllValues().get(0)).contains("first line\n", "second line\n");
+        assertThat(requestArgumentCaptor.getAllValues().get(1)).contains("third line\n");
+    }
+
+    @Test
+    public void shouldKeepLinesThatCouldNotBeSentForTheNextFlush() throws Exception {
+        ArgumentCaptor<String> requestArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        doThrow(new IOException("server unavailable")).doNothing().when(consoleAppender).append(requestArgumentCaptor.capture());
+
+        transmitter.consumeLine("first line");
+        transmitter.flushToServer();
+        transmitter.consumeLine("second line");
+        transmitter.flushToServer();
+
+        assertThat(requestArgumentCaptor.getAllValues()).hasSize(2);
+        assertThat(requestArgumentCaptor.getValue()).containsSubsequence("first line\n", "second line\n");
+    }
+
     @Test
     public void shouldNotFlushToServerWhenBufferIsEmpty() throws Exception {
         transmitter.flushToServer();
@@ -73,7 +73,8 @@ public class BasicCruiseConfig implements CruiseConfig {
             AllTemplatesWithAssociatedPipelines.class,
             PipelineNameToConfigMap.class,
             CachedPluggableArtifactConfigs.class,
-            CachedFetchPluggableArtifactTasks.class
+            CachedFetchPluggableArtifactTasks.class,
+            ConfigReferenceIndex.class
     ).toArray(Class[]::new);
 
     @ConfigSubtag
@@ -125,6 +126,9 @@ public class BasicCruiseConfig implements CruiseConfig {
     @IgnoreTraversal
     private transient AllTemplatesWithAssociatedPipelines allTemplatesWithAssociatedPipelines;
 
+    @IgnoreTraversal
+    private transient ConfigReferenceIndex referenceIndex;
+
     public BasicCruiseConfig() {
         strategy = new BasicStrategy();
     }
@@ -177,6 +181,7 @@ public class BasicCruiseConfig implements CruiseConfig {
         allPipelineConfigs = null;
         pipelineNameToConfigMap = null;
         allTemplatesWithAssociatedPipelines = null;
+        referenceIndex = null;
     }
 
     private void createMergedConfig(BasicCruiseConfig main, List<PartialConfig> partList, boolean forEdit) {
@@ -201,6 +206,25 @@ public class BasicCruiseConfig implements CruiseConfig {
         strategy = new BasicStrategy();
     }
 
+    @Override
+    public BasicCruiseConfig shallowCopy() {
+        BasicCruiseConfig copy = new BasicCruiseConfig();
+        copy.serverConfig = serverConfig;
+        copy.elasticConfig = elasticConfig;
+        copy.packageRepositories = packageRepositories;
+        copy.scms = scms;
+        copy.configRepos = configRepos;
+        copy.artifactStores = artifactStores;
+        copy.secretConfigs = secretConfigs;
+        copy.groups = new PipelineGroups(groups);
+        copy.templatesConfig = templatesConfig;
+        copy.environments = environments;
+        copy.strategy = strategy.copyFor(copy);
+        copy.md5 = md5;
+        copy.partials = partials;
+        return copy;
+    }
+
     @Override
     @PostConstruct
     public void initializeServer() {
@@ -220,6 +244,8 @@ public class BasicCruiseConfig implements CruiseConfig {
     }
 
     private interface CruiseStrategy {
+        CruiseStrategy copyFor(BasicCruiseConfig config);
+
         ConfigOrigin getOrigin();
 
         void setOrigins(ConfigOrigin origins);
@@ -237,6 +263,13 @@ public class BasicCruiseConfig implements CruiseConfig {
             origin = new FileConfigOrigin();
         }
 
+        @Override
+        public CruiseStrategy copyFor(BasicCruiseConfig config) {
+            BasicStrategy copy = config.new BasicStrategy();
+            copy.origin = origin;
+            return copy;
+        }
+
         @Override
         public ConfigOrigin getOrigin() {
             return origin;
@@ -287,6 +320,11 @@ public class BasicCruiseConfig implements CruiseConfig {
             this.parts.addAll(parts);
         }
 
+        @Override
+        public CruiseStrategy copyFor(BasicCruiseConfig config) {
+            return config.new MergeStrategy(parts, forEdit);
+        }
+
         private EnvironmentsConfig mergeEnvironmentConfigs() {
             EnvironmentsConfig environments = new EnvironmentsConfig();
 
@@ -1158,6 +1196,14 @@ public class BasicCruiseConfig implements CruiseConfig {
         return allTemplatesWithAssociatedPipelines;
     }
 
+    @Override
+    public ConfigReferenceIndex referenceIndex() {
+        if (referenceIndex == null) {
+            referenceIndex = new ConfigReferenceIndex(this);
+        }
+        return referenceIndex;
+    }
+
     @Override
     public List<CaseInsensitiveString> pipelinesAssociatedWithTemplate(CaseInsensitiveString templateName) {
         List<CaseInsensitiveString> pipelines = new ArrayList<>();
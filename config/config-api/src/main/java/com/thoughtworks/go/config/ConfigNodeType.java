@@ -0,0 +1,72 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.preprocessor.ConcurrentFieldCache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Understands how the config graph walkers traverse instances of a class: whether the class is part of the config
+ * graph at all, and which of its fields lead to child nodes. This is worked out, and the fields made accessible,
+ * once per class rather than on every visit to a node.
+ */
+final class ConfigNodeType {
+    private static final ClassValue<ConfigNodeType> TYPES = new ClassValue<>() {
+        @Override
+        protected ConfigNodeType computeValue(Class<?> type) {
+            return new ConfigNodeType(type);
+        }
+    };
+
+    private final boolean walkable;
+    private volatile Field[] childFields;
+
+    private ConfigNodeType(Class<?> type) {
+        this.walkable = type.getName().startsWith("com.thoughtworks");
+    }
+
+    static boolean isWalkable(Object obj) {
+        return obj != null && TYPES.get(obj.getClass()).walkable;
+    }
+
+    static Field[] childFieldsOf(Object obj) {
+        ConfigNodeType type = TYPES.get(obj.getClass());
+        Field[] fields = type.childFields;
+        if (fields == null) {
+            fields = ConcurrentFieldCache.nonStaticOrSyntheticFieldsFor(obj.getClass()).stream()
+                .filter(ConfigNodeType::leadsToChild)
+                .peek(field -> field.setAccessible(true))
+                .toArray(Field[]::new);
+            type.childFields = fields;
+        }
+        return fields;
+    }
+
+    static Object valueOf(Field field, Object obj) {
+        try {
+            return field.get(obj);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean leadsToChild(Field field) {
+        // MCCXL cannot assign value to final fields as it always uses the default constructor. Hence this assumption is OK
+        return !Modifier.isFinal(field.getModifiers()) && !field.isAnnotationPresent(IgnoreTraversal.class);
+    }
+}
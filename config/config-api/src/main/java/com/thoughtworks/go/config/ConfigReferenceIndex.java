@@ -0,0 +1,84 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.domain.Task;
+
+import java.util.*;
+
+/**
+ * Understands which pipelines and environments refer to a given pipeline, so that a change to one pipeline only needs
+ * to be validated against the parts of the config which depend on it. Pipelines which use a template are already
+ * tracked by {@link CruiseConfig#templatesWithAssociatedPipelines()}.
+ */
+public class ConfigReferenceIndex {
+    private final Map<CaseInsensitiveString, Set<CaseInsensitiveString>> downstreamPipelines = new HashMap<>();
+    private final Map<CaseInsensitiveString, Set<CaseInsensitiveString>> fetchingPipelines = new HashMap<>();
+    private final Map<CaseInsensitiveString, Set<CaseInsensitiveString>> environments = new HashMap<>();
+
+    public ConfigReferenceIndex(CruiseConfig cruiseConfig) {
+        for (PipelineConfig pipelineConfig : cruiseConfig.getAllPipelineConfigs()) {
+            for (DependencyMaterialConfig material : pipelineConfig.dependencyMaterialConfigs()) {
+                add(downstreamPipelines, material.getPipelineName(), pipelineConfig.name());
+            }
+            for (StageConfig stageConfig : pipelineConfig) {
+                for (JobConfig jobConfig : stageConfig.getJobs()) {
+                    for (Task task : jobConfig.tasks()) {
+                        if (task instanceof AbstractFetchTask fetchTask && !CaseInsensitiveString.isEmpty(fetchTask.getPipelineName())) {
+                            for (CaseInsensitiveString upstream : fetchTask.getPipelineNamePathFromAncestor().pathIncludingAncestor()) {
+                                add(fetchingPipelines, upstream, pipelineConfig.name());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        for (EnvironmentConfig environmentConfig : cruiseConfig.getEnvironments()) {
+            for (CaseInsensitiveString pipelineName : environmentConfig.getPipelineNames()) {
+                add(environments, pipelineName, environmentConfig.name());
+            }
+        }
+    }
+
+    public Set<CaseInsensitiveString> downstreamPipelinesOf(CaseInsensitiveString pipelineName) {
+        return downstreamPipelines.getOrDefault(pipelineName, Set.of());
+    }
+
+    public Set<CaseInsensitiveString> pipelinesFetchingFrom(CaseInsensitiveString pipelineName) {
+        return fetchingPipelines.getOrDefault(pipelineName, Set.of());
+    }
+
+    public Set<CaseInsensitiveString> environmentsContaining(CaseInsensitiveString pipelineName) {
+        return environments.getOrDefault(pipelineName, Set.of());
+    }
+
+    /**
+     * @return the other pipelines whose validity depends on the given pipeline, through a dependency material or a fetch task
+     */
+    public Set<CaseInsensitiveString> pipelinesReferencing(CaseInsensitiveString pipelineName) {
+        Set<CaseInsensitiveString> referencing = new LinkedHashSet<>(downstreamPipelinesOf(pipelineName));
+        referencing.addAll(pipelinesFetchingFrom(pipelineName));
+        referencing.remove(pipelineName);
+        return referencing;
+    }
+
+    private static void add(Map<CaseInsensitiveString, Set<CaseInsensitiveString>> index, CaseInsensitiveString referenced, CaseInsensitiveString referencedBy) {
+        if (referenced != null) {
+            index.computeIfAbsent(referenced, k -> new LinkedHashSet<>()).add(referencedBy);
+        }
+    }
+}
@@ -259,6 +259,14 @@ public interface CruiseConfig extends Validatable, ConfigOriginTraceable {
 
     Map<CaseInsensitiveString, Map<CaseInsensitiveString, Authorization>> templatesWithAssociatedPipelines();
 
+    ConfigReferenceIndex referenceIndex();
+
+    /**
+     * @return a copy of this config which shares every node below its root with this config, apart from the list of
+     * pipeline groups, so that groups can be added to or replaced in the copy without changing this config
+     */
+    CruiseConfig shallowCopy();
+
     ArtifactStores getArtifactStores();
 
     @TestOnly
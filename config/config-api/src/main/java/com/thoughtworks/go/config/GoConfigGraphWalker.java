@@ -15,10 +15,7 @@
  */
 package com.thoughtworks.go.config;
 
-import com.thoughtworks.go.config.preprocessor.ConcurrentFieldCache;
-
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.Collection;
 
 /**
@@ -32,7 +29,7 @@ public class GoConfigGraphWalker {
     }
 
     public static boolean shouldWalk(Object obj) {
-        return obj != null && obj.getClass().getName().startsWith("com.thoughtworks");
+        return ConfigNodeType.isWalkable(obj);
     }
 
     public void walk(Validatable.Handler handler) {
@@ -52,24 +49,11 @@ public class GoConfigGraphWalker {
     }
 
     private void tryWalkFields(Object current, ConfigSaveValidationContext ctx, Validatable.Handler handler) {
-        for (Field field : ConcurrentFieldCache.nonStaticOrSyntheticFieldsFor(current.getClass())) {
-            if (isFinal(field) || field.isAnnotationPresent(IgnoreTraversal.class)) {
-                continue;
-            }
-            try {
-                field.setAccessible(true);
-                walkSubtree(field.get(current), ctx, handler);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
+        for (Field field : ConfigNodeType.childFieldsOf(current)) {
+            walkSubtree(ConfigNodeType.valueOf(field, current), ctx, handler);
         }
     }
 
-    private boolean isFinal(Field field) {
-        //MCCXL cannot assign value to final fields as it always uses the default constructor. Hence this assumption is OK
-        return Modifier.isFinal(field.getModifiers());
-    }
-
     private void tryWalkCollection(Object current, ConfigSaveValidationContext ctx, Validatable.Handler handler) {
         // We can only expect java to honor the contract of data structure interfaces(read: List),
         // and not depend on how they choose to implement it, so we short-circuit at a level that we know will continue to work(bad, but safe)
@@ -15,10 +15,7 @@
  */
 package com.thoughtworks.go.config;
 
-import com.thoughtworks.go.config.preprocessor.ConcurrentFieldCache;
-
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -53,24 +50,11 @@ public class GoConfigParallelGraphWalker {
     }
 
     private void walkFields(Object raw, Object withErrors, Handler handler) {
-        for (Field field : ConcurrentFieldCache.nonStaticOrSyntheticFieldsFor(raw.getClass())) {
-            if (isFinal(field) || field.isAnnotationPresent(IgnoreTraversal.class)) {
-                continue;
-            }
-            try {
-                field.setAccessible(true);
-                walkSubtree(field.get(raw), field.get(withErrors), handler);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
+        for (Field field : ConfigNodeType.childFieldsOf(raw)) {
+            walkSubtree(ConfigNodeType.valueOf(field, raw), ConfigNodeType.valueOf(field, withErrors), handler);
         }
     }
 
-    private boolean isFinal(Field field) {
-        // MCCXL cannot assign value to final fields as it always uses the default constructor. Hence this assumption is OK
-        return Modifier.isFinal(field.getModifiers());
-    }
-
     private void walkCollection(Object raw, Object withErrors, Handler handler) {
         if (raw instanceof Collection<?> rawCollection && withErrors instanceof Collection<?> withErrorsCollection) {
             rawCollection.stream()
@@ -15,7 +15,12 @@
  */
 package com.thoughtworks.go.domain;
 
+import com.thoughtworks.go.config.CaseInsensitiveString;
+
 import java.util.Collection;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toSet;
 
 /**
  * Understands matching job with agents in situations where either, both or none are in environment
@@ -37,6 +42,14 @@ public class EnvironmentPipelineMatchers extends BaseCollection<EnvironmentPipel
         return !pipelineReferenced(pipelineName) && !agentReferenced(uuid);
     }
 
+    public Set<CaseInsensitiveString> environmentsWithPipeline(String pipelineName) {
+        return this.stream().filter(matcher -> matcher.hasPipeline(pipelineName)).map(EnvironmentPipelineMatcher::name).collect(toSet());
+    }
+
+    public Set<CaseInsensitiveString> environmentsWithAgent(String uuid) {
+        return this.stream().filter(matcher -> matcher.hasAgent(uuid)).map(EnvironmentPipelineMatcher::name).collect(toSet());
+    }
+
     private boolean agentReferenced(String uuid) {
         for(EnvironmentPipelineMatcher matcher : this) {
             if (matcher.hasAgent(uuid)) {
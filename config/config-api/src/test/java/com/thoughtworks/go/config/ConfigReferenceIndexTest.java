@@ -0,0 +1,89 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.helper.GoConfigMother;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+import static com.thoughtworks.go.helper.PipelineConfigMother.createPipelineConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigReferenceIndexTest {
+    private BasicCruiseConfig cruiseConfig;
+
+    @BeforeEach
+    void setUp() {
+        /*
+         *  p1 --> p2 --> p3 (fetches from p1/p2)
+         *  p1 --> p4 (in environment e1)
+         */
+        PipelineConfig p1 = createPipelineConfig("p1", "s1", "j1");
+        PipelineConfig p2 = createPipelineConfig("p2", "s2", "j2");
+        p2.addMaterialConfig(new DependencyMaterialConfig(cis("p1"), cis("s1")));
+        PipelineConfig p3 = createPipelineConfig("p3", "s3", "j3");
+        p3.addMaterialConfig(new DependencyMaterialConfig(cis("p2"), cis("s2")));
+        p3.getFirstStageConfig().getJobs().getFirst().addTask(new FetchTask(cis("p1/p2"), cis("s1"), cis("j1"), "src", "dest"));
+        PipelineConfig p4 = createPipelineConfig("p4", "s4", "j4");
+        p4.addMaterialConfig(new DependencyMaterialConfig(cis("p1"), cis("s1")));
+
+        cruiseConfig = GoConfigMother.configWithPipelines();
+        cruiseConfig.addPipelineWithoutValidation("group", p1);
+        cruiseConfig.addPipelineWithoutValidation("group", p2);
+        cruiseConfig.addPipelineWithoutValidation("group", p3);
+        cruiseConfig.addPipelineWithoutValidation("group", p4);
+        BasicEnvironmentConfig environment = new BasicEnvironmentConfig(cis("e1"));
+        environment.addPipeline(cis("p4"));
+        cruiseConfig.addEnvironment(environment);
+    }
+
+    @Test
+    void shouldIndexPipelinesReferencingAPipelineThroughDependencyMaterials() {
+        ConfigReferenceIndex index = new ConfigReferenceIndex(cruiseConfig);
+
+        assertThat(index.downstreamPipelinesOf(cis("p1"))).containsExactlyInAnyOrder(cis("p2"), cis("p4"));
+        assertThat(index.downstreamPipelinesOf(cis("p2"))).containsExactly(cis("p3"));
+        assertThat(index.downstreamPipelinesOf(cis("p3"))).isEmpty();
+    }
+
+    @Test
+    void shouldIndexPipelinesFetchingFromEveryPipelineAlongTheFetchPath() {
+        ConfigReferenceIndex index = new ConfigReferenceIndex(cruiseConfig);
+
+        assertThat(index.pipelinesFetchingFrom(cis("p1"))).containsExactly(cis("p3"));
+        assertThat(index.pipelinesFetchingFrom(cis("p2"))).containsExactly(cis("p3"));
+        assertThat(index.pipelinesFetchingFrom(cis("p4"))).isEmpty();
+        assertThat(index.pipelinesReferencing(cis("p1"))).containsExactlyInAnyOrder(cis("p2"), cis("p3"), cis("p4"));
+    }
+
+    @Test
+    void shouldIndexEnvironmentsContainingAPipeline() {
+        ConfigReferenceIndex index = new ConfigReferenceIndex(cruiseConfig);
+
+        assertThat(index.environmentsContaining(cis("p4"))).containsExactly(cis("e1"));
+        assertThat(index.environmentsContaining(cis("p1"))).isEmpty();
+    }
+
+    @Test
+    void shouldBeCachedByTheConfigAndDroppedWhenCloned() {
+        ConfigReferenceIndex index = cruiseConfig.referenceIndex();
+
+        assertThat(cruiseConfig.referenceIndex()).isSameAs(index);
+        assertThat(BasicCruiseConfig.DO_NOT_CLONE_CLASSES).contains(ConfigReferenceIndex.class);
+    }
+}
@@ -24,7 +24,9 @@ import com.thoughtworks.go.domain.packagerepository.Packages;
 import com.thoughtworks.go.domain.scm.SCM;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import static com.thoughtworks.go.util.ReflectionUtil.setField;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -85,6 +87,20 @@ public class GoConfigGraphWalkerTest {
         verify(pipe, atLeastOnce()).validate(any());
     }
 
+    @Test
+    public void shouldVisitEveryValidatableReachableThroughFieldsAndCollections() {
+        JobConfig job = new JobConfig(new CaseInsensitiveString("job"), new ResourceConfigs("linux"), new ArtifactTypeConfigs(), new Tasks(new ExecTask("ls", "", (String) null)));
+        StageConfig stage = new StageConfig(new CaseInsensitiveString("stage"), new JobConfigs(job));
+        List<Validatable> visited = new ArrayList<>();
+
+        new GoConfigGraphWalker(stage).walk((validatable, ctx) -> visited.add(validatable));
+        assertThat(visited).contains(stage, stage.getJobs(), job, job.getTasks(), job.getTasks().getFirst(), job.resourceConfigs());
+
+        List<Validatable> visitedAgain = new ArrayList<>();
+        new GoConfigGraphWalker(stage).walk((validatable, ctx) -> visitedAgain.add(validatable));
+        assertThat(visitedAgain).containsExactlyElementsOf(visited);
+    }
+
     @Test
     public void shouldNotWalkFieldsWhichAreTaggedWithIgnoreTraversal() {
         PackageRepository repository = mock(PackageRepository.class);
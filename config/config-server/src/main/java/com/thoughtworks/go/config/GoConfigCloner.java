@@ -30,6 +30,8 @@ import com.thoughtworks.go.util.ClonerFactory;
 public class GoConfigCloner extends Cloner {
     public GoConfigCloner() {
         nullInsteadOfClone(BasicCruiseConfig.DO_NOT_CLONE_CLASSES);
+        // Config names are immutable, and there is one for nearly every node of a large config, so share them
+        registerImmutable(CaseInsensitiveString.class);
         ClonerFactory.applyFixes(this);
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.domain.PipelineGroups;
+
+/**
+ * Copies config snapshots for a change which only adds, replaces or moves pipelines. Instead of deep cloning the
+ * whole config like {@link GoConfigCloner}, only the root, the list of pipeline groups and the groups themselves are
+ * copied. Pipelines, templates, environments and everything else are shared with the original.
+ * <p>
+ * This relies on snapshots held by the config cache never being modified, so anything shared must be replaced in the
+ * copy rather than changed in place.
+ */
+public class GoConfigPathCopier {
+    private final GoConfigCloner groupCloner = new GoConfigCloner();
+
+    public GoConfigPathCopier() {
+        groupCloner.dontCloneInstanceOf(PipelineConfig.class);
+    }
+
+    public CruiseConfig copy(CruiseConfig cruiseConfig) {
+        CruiseConfig copy = cruiseConfig.shallowCopy();
+        PipelineGroups groups = copy.getGroups();
+        for (int i = 0; i < groups.size(); i++) {
+            groups.set(i, groupCloner.deepClone(groups.get(i)));
+        }
+        return copy;
+    }
+}
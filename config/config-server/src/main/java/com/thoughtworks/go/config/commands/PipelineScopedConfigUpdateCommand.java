@@ -0,0 +1,33 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config.commands;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.CruiseConfig;
+
+import java.util.Set;
+
+/**
+ * An {@link EntityConfigUpdateCommand} whose {@link #update(CruiseConfig)} only adds or replaces pipelines defined in
+ * the main config. Such a save can re-use the last preprocessed config, preprocessing and validating only the changed
+ * pipelines and whatever refers to them.
+ */
+public interface PipelineScopedConfigUpdateCommand<T> extends EntityConfigUpdateCommand<T> {
+    /**
+     * @return names of the pipelines which {@link #update(CruiseConfig)} adds or replaces
+     */
+    Set<CaseInsensitiveString> changedPipelines();
+}
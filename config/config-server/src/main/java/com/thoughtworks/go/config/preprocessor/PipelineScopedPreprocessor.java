@@ -0,0 +1,124 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config.preprocessor;
+
+import com.thoughtworks.go.config.*;
+import com.thoughtworks.go.config.exceptions.GoConfigInvalidException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.thoughtworks.go.config.CaseInsensitiveString.str;
+
+/**
+ * Understands preprocessing and validating a config in which only a few pipelines have changed. Instead of merging
+ * partials, expanding templates and resolving parameters for every pipeline, the last preprocessed config is re-used,
+ * sharing everything but the changed pipelines, and only those are preprocessed again. Anything this cannot reproduce faithfully, such as a pipeline
+ * name which is duplicated or clashes with a config repository pipeline, is rejected so the caller can fall back to
+ * preprocessing the whole config and let full validation report it.
+ */
+public class PipelineScopedPreprocessor {
+    private final GoConfigCloner cloner = new GoConfigCloner();
+    private final GoConfigPathCopier pathCopier = new GoConfigPathCopier();
+    private final TemplateExpansionPreprocessor templateExpansionPreprocessor = new TemplateExpansionPreprocessor();
+    private final ConfigParamPreprocessor configParamPreprocessor = new ConfigParamPreprocessor();
+
+    /**
+     * @param lastPreprocessedConfig the preprocessed config which {@code modifiedConfig} was derived from, left untouched
+     * @param modifiedConfig         the config for edit, in which only {@code changedPipelines} differ
+     * @return a preprocessed equivalent of {@code modifiedConfig}
+     */
+    public CruiseConfig preprocess(CruiseConfig lastPreprocessedConfig, CruiseConfig modifiedConfig, Set<CaseInsensitiveString> changedPipelines) {
+        CruiseConfig preprocessedConfig = pathCopier.copy(lastPreprocessedConfig);
+        preprocessedConfig.setPartials(modifiedConfig.getPartials());
+        for (CaseInsensitiveString pipelineName : changedPipelines) {
+            if (occurrencesOf(pipelineName, modifiedConfig) != 1) {
+                throw new IllegalStateException("Expected exactly one pipeline named " + pipelineName);
+            }
+            PipelineConfigs group = modifiedConfig.getGroups().findGroupByPipeline(pipelineName);
+            PipelineConfig pipelineConfig = cloner.deepClone(group.findBy(pipelineName));
+            templateExpansionPreprocessor.process(preprocessedConfig, pipelineConfig);
+            configParamPreprocessor.process(pipelineConfig);
+
+            Optional<PipelineConfigs> existingGroup = preprocessedConfig.getGroups().findGroupByPipelineOptional(pipelineName);
+            if (existingGroup.isPresent() && !existingGroup.get().findBy(pipelineName).isLocal()) {
+                throw new IllegalStateException("Pipeline " + pipelineName + " is already defined in a config repository");
+            }
+            if (existingGroup.isPresent() && existingGroup.get().isNamed(group.getGroup())) {
+                preprocessedConfig.update(group.getGroup(), str(pipelineName), pipelineConfig);
+            } else {
+                existingGroup.ifPresent(previous -> previous.remove(previous.findBy(pipelineName)));
+                preprocessedConfig.addPipelineWithoutValidation(group.getGroup(), pipelineConfig);
+            }
+        }
+        return preprocessedConfig;
+    }
+
+    /**
+     * Validates the pipelines and environments which referred to any of {@code changedPipelines}, since a change to a
+     * pipeline can break a dependency material or fetch task pointing at it.
+     *
+     * @throws GoConfigInvalidException if any of them is no longer valid
+     */
+    public void validateReferencesTo(Set<CaseInsensitiveString> changedPipelines, CruiseConfig lastPreprocessedConfig, CruiseConfig preprocessedConfig) {
+        ConfigReferenceIndex referenceIndex = lastPreprocessedConfig.referenceIndex();
+        Set<CaseInsensitiveString> referencingPipelines = new LinkedHashSet<>();
+        Set<CaseInsensitiveString> referencingEnvironments = new LinkedHashSet<>();
+        for (CaseInsensitiveString pipelineName : changedPipelines) {
+            referencingPipelines.addAll(referenceIndex.pipelinesReferencing(pipelineName));
+            referencingEnvironments.addAll(referenceIndex.environmentsContaining(pipelineName));
+        }
+        referencingPipelines.removeAll(changedPipelines);
+
+        List<ConfigErrors> errors = new ArrayList<>();
+        for (CaseInsensitiveString pipelineName : referencingPipelines) {
+            PipelineConfig sharedPipelineConfig = preprocessedConfig.getPipelineConfigByName(pipelineName);
+            if (sharedPipelineConfig != null) {
+                String groupName = preprocessedConfig.findGroupByPipeline(sharedPipelineConfig).getGroup();
+                // shared with the current config, so errors must not be left on it
+                PipelineConfig pipelineConfig = cloner.deepClone(sharedPipelineConfig);
+                pipelineConfig.validateTree(PipelineConfigSaveValidationContext.forChain(false, groupName, preprocessedConfig, pipelineConfig));
+                errors.addAll(ErrorCollector.getAllErrors(pipelineConfig));
+            }
+        }
+        for (CaseInsensitiveString environmentName : referencingEnvironments) {
+            EnvironmentConfig sharedEnvironmentConfig = preprocessedConfig.getEnvironments().find(environmentName);
+            if (sharedEnvironmentConfig != null) {
+                EnvironmentConfig environmentConfig = cloner.deepClone(sharedEnvironmentConfig);
+                environmentConfig.validateTree(ConfigSaveValidationContext.forChain(preprocessedConfig), preprocessedConfig);
+                errors.addAll(ErrorCollector.getAllErrors(environmentConfig));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new GoConfigInvalidException(preprocessedConfig, errors);
+        }
+    }
+
+    private static int occurrencesOf(CaseInsensitiveString pipelineName, CruiseConfig cruiseConfig) {
+        int occurrences = 0;
+        for (PipelineConfigs group : cruiseConfig.getGroups()) {
+            for (PipelineConfig pipelineConfig : group) {
+                if (pipelineConfig.name().equals(pipelineName)) {
+                    occurrences++;
+                }
+            }
+        }
+        return occurrences;
+    }
+}
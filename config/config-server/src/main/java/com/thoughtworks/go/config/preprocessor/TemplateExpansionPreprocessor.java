@@ -25,13 +25,17 @@ public class TemplateExpansionPreprocessor implements GoConfigPreprocessor {
     @Override
     public void process(CruiseConfig cruiseConfig) {
         for (PipelineConfig pipelineConfig : cruiseConfig.getAllPipelineConfigs()) {
-            if (pipelineConfig.hasTemplate()) {
-                CaseInsensitiveString templateName = pipelineConfig.getTemplateName();
-                PipelineTemplateConfig pipelineTemplate = cruiseConfig.findTemplate(templateName);
-                pipelineConfig.validateTemplate(pipelineTemplate);
-                if (pipelineConfig.errors().isEmpty() && !pipelineConfig.hasTemplateApplied()) {
-                    pipelineConfig.usingTemplate(pipelineTemplate);
-                }
+            process(cruiseConfig, pipelineConfig);
+        }
+    }
+
+    public void process(CruiseConfig cruiseConfig, PipelineConfig pipelineConfig) {
+        if (pipelineConfig.hasTemplate()) {
+            CaseInsensitiveString templateName = pipelineConfig.getTemplateName();
+            PipelineTemplateConfig pipelineTemplate = cruiseConfig.findTemplate(templateName);
+            pipelineConfig.validateTemplate(pipelineTemplate);
+            if (pipelineConfig.errors().isEmpty() && !pipelineConfig.hasTemplateApplied()) {
+                pipelineConfig.usingTemplate(pipelineTemplate);
             }
         }
     }
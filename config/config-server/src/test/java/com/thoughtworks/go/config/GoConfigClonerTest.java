@@ -38,6 +38,17 @@ public class GoConfigClonerTest {
         assertEquals(dupe, original);
     }
 
+    @Test
+    public void shouldShareImmutableNamesWhileCloningTheConfigsHoldingThem() {
+        PipelineConfig pipeline = PipelineConfigMother.pipelineConfig("p1");
+
+        PipelineConfig cloned = new GoConfigCloner().deepClone(pipeline);
+
+        assertThat(cloned).isNotSameAs(pipeline).isEqualTo(pipeline);
+        assertThat(cloned.getFirstStageConfig()).isNotSameAs(pipeline.getFirstStageConfig());
+        assertThat(cloned.name()).isSameAs(pipeline.name());
+    }
+
     @Test
     public void shouldNotCloneAllPipelineConfigs() {
         BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1", "p2");
@@ -0,0 +1,67 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import org.junit.jupiter.api.Test;
+
+import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GoConfigPathCopierTest {
+    @Test
+    public void shouldShareEverythingButTheRootAndPipelineGroups() {
+        BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1", "p2");
+        config.addEnvironment("env");
+
+        CruiseConfig copy = new GoConfigPathCopier().copy(config);
+
+        assertThat(copy).isNotSameAs(config).isEqualTo(config);
+        assertThat(copy.getGroups()).isNotSameAs(config.getGroups());
+        assertThat(copy.findGroup("defaultGroup")).isNotSameAs(config.findGroup("defaultGroup"));
+        assertThat(copy.getPipelineConfigByName(cis("p1"))).isSameAs(config.getPipelineConfigByName(cis("p1")));
+        assertThat(copy.getEnvironments()).isSameAs(config.getEnvironments());
+        assertThat(copy.server()).isSameAs(config.server());
+    }
+
+    @Test
+    public void shouldLeaveTheOriginalUntouchedWhenPipelinesAreAddedOrReplacedInTheCopy() {
+        BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1", "p2");
+        PipelineConfig original = config.getPipelineConfigByName(cis("p1"));
+
+        CruiseConfig copy = new GoConfigPathCopier().copy(config);
+        copy.update("defaultGroup", "p1", PipelineConfigMother.pipelineConfig("p1"));
+        copy.addPipelineWithoutValidation("defaultGroup", PipelineConfigMother.pipelineConfig("p3"));
+        copy.addPipelineWithoutValidation("newGroup", PipelineConfigMother.pipelineConfig("p4"));
+
+        assertThat(config.getPipelineConfigByName(cis("p1"))).isSameAs(original);
+        assertThat(config.getAllPipelineNames()).containsExactly(cis("p1"), cis("p2"));
+        assertThat(copy.getPipelineConfigByName(cis("p1"))).isNotSameAs(original);
+        assertThat(copy.getAllPipelineNames()).containsExactly(cis("p1"), cis("p2"), cis("p3"), cis("p4"));
+    }
+
+    @Test
+    public void shouldKeepTheOriginOfTheCopiedConfig() {
+        BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1");
+        config.setOrigins(new FileConfigOrigin());
+
+        CruiseConfig copy = new GoConfigPathCopier().copy(config);
+
+        assertThat(copy.getOrigin()).isEqualTo(new FileConfigOrigin());
+        assertThat(copy.isLocal()).isTrue();
+    }
+}
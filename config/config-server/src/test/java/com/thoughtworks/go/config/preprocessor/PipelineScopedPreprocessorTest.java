@@ -0,0 +1,122 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config.preprocessor;
+
+import com.thoughtworks.go.config.*;
+import com.thoughtworks.go.config.exceptions.GoConfigInvalidException;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.helper.StageConfigMother;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+import static com.thoughtworks.go.helper.PipelineConfigMother.createPipelineConfig;
+import static com.thoughtworks.go.helper.PipelineConfigMother.pipelineConfigWithTemplate;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelineScopedPreprocessorTest {
+    private final GoConfigCloner cloner = new GoConfigCloner();
+    private PipelineScopedPreprocessor preprocessor;
+    private BasicCruiseConfig configForEdit;
+    private CruiseConfig lastPreprocessedConfig;
+
+    @BeforeEach
+    void setUp() {
+        preprocessor = new PipelineScopedPreprocessor();
+
+        configForEdit = GoConfigMother.configWithPipelines();
+        configForEdit.addTemplate(new PipelineTemplateConfig(cis("template"), StageConfigMother.stageConfig("template-stage")));
+        PipelineConfig upstream = createPipelineConfig("upstream", "s1", "j1");
+        PipelineConfig downstream = createPipelineConfig("downstream", "s2", "j2");
+        downstream.addMaterialConfig(new DependencyMaterialConfig(cis("upstream"), cis("s1")));
+        configForEdit.addPipelineWithoutValidation("group1", upstream);
+        configForEdit.addPipelineWithoutValidation("group1", downstream);
+        configForEdit.addPipelineWithoutValidation("group1", pipelineConfigWithTemplate("templated", "template"));
+
+        lastPreprocessedConfig = cloner.deepClone(configForEdit);
+        MagicalGoConfigXmlLoader.preprocess(lastPreprocessedConfig);
+    }
+
+    @Test
+    void shouldExpandTemplatesAndParamsOfOnlyTheChangedPipelines() {
+        CruiseConfig modifiedConfig = cloner.deepClone(configForEdit);
+        PipelineConfig templated = modifiedConfig.getPipelineConfigByName(cis("templated"));
+        templated.addParam(new ParamConfig("version", "1"));
+        templated.setLabelTemplate("#{version}-${COUNT}");
+
+        CruiseConfig preprocessedConfig = preprocessor.preprocess(lastPreprocessedConfig, modifiedConfig, Set.of(cis("templated")));
+
+        PipelineConfig preprocessedPipeline = preprocessedConfig.getPipelineConfigByName(cis("templated"));
+        assertThat(preprocessedPipeline.getLabelTemplate()).isEqualTo("1-${COUNT}");
+        assertThat(preprocessedPipeline.hasTemplateApplied()).isTrue();
+        assertThat(preprocessedPipeline.getFirstStageConfig().name()).isEqualTo(cis("template-stage"));
+        assertThat(preprocessedConfig.findGroup("group1").indexOf(preprocessedPipeline)).isEqualTo(2);
+        assertThat(templated.getLabelTemplate()).isEqualTo("#{version}-${COUNT}");
+        assertThat(lastPreprocessedConfig.getPipelineConfigByName(cis("templated")).getLabelTemplate()).isNotEqualTo("1-${COUNT}");
+        assertThat(preprocessedConfig.getPipelineConfigByName(cis("upstream"))).isSameAs(lastPreprocessedConfig.getPipelineConfigByName(cis("upstream")));
+    }
+
+    @Test
+    void shouldAddNewPipelinesAndMovePipelinesBetweenGroups() {
+        CruiseConfig modifiedConfig = cloner.deepClone(configForEdit);
+        PipelineConfig moved = modifiedConfig.getPipelineConfigByName(cis("upstream"));
+        modifiedConfig.findGroup("group1").remove(moved);
+        modifiedConfig.getGroups().addPipeline("group2", moved);
+        modifiedConfig.addPipelineWithoutValidation("group2", createPipelineConfig("new", "s3", "j3"));
+
+        CruiseConfig preprocessedConfig = preprocessor.preprocess(lastPreprocessedConfig, modifiedConfig, Set.of(cis("upstream"), cis("new")));
+
+        assertThat(preprocessedConfig.findGroup("group1").findBy(cis("upstream"))).isNull();
+        assertThat(preprocessedConfig.findGroup("group2").findBy(cis("upstream"))).isNotNull();
+        assertThat(preprocessedConfig.findGroup("group2").findBy(cis("new"))).isNotNull();
+        assertThat(lastPreprocessedConfig.findGroup("group1").findBy(cis("upstream"))).isNotNull();
+    }
+
+    @Test
+    void shouldRefuseToPreprocessAPipelineWhoseNameIsDuplicated() {
+        CruiseConfig modifiedConfig = cloner.deepClone(configForEdit);
+        modifiedConfig.addPipelineWithoutValidation("group2", createPipelineConfig("upstream", "s3", "j3"));
+
+        assertThatThrownBy(() -> preprocessor.preprocess(lastPreprocessedConfig, modifiedConfig, Set.of(cis("upstream"))))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldFailValidationWhenAChangeBreaksAPipelineReferringToIt() {
+        CruiseConfig modifiedConfig = cloner.deepClone(configForEdit);
+        modifiedConfig.getPipelineConfigByName(cis("upstream")).getFirstStageConfig().setName(cis("renamed"));
+        CruiseConfig preprocessedConfig = preprocessor.preprocess(lastPreprocessedConfig, modifiedConfig, Set.of(cis("upstream")));
+
+        assertThatThrownBy(() -> preprocessor.validateReferencesTo(Set.of(cis("upstream")), lastPreprocessedConfig, preprocessedConfig))
+            .isInstanceOf(GoConfigInvalidException.class)
+            .hasMessageContaining("Stage with name 's1' does not exist on pipeline 'upstream'");
+    }
+
+    @Test
+    void shouldPassValidationWhenPipelinesReferringToTheChangeAreStillValid() {
+        CruiseConfig modifiedConfig = cloner.deepClone(configForEdit);
+        modifiedConfig.getPipelineConfigByName(cis("upstream")).setLabelTemplate("${COUNT}-upstream");
+        CruiseConfig preprocessedConfig = preprocessor.preprocess(lastPreprocessedConfig, modifiedConfig, Set.of(cis("upstream")));
+
+        preprocessor.validateReferencesTo(Set.of(cis("upstream")), lastPreprocessedConfig, preprocessedConfig);
+
+        assertThat(preprocessedConfig.getPipelineConfigByName(cis("downstream")).errors().isEmpty()).isTrue();
+    }
+}
@@ -61,6 +61,14 @@ public abstract class QueryExtensions {
     }
 
     public String retrievePipelineTimeline() {
+        return retrievePipelineTimelineWhere("p.id > :pipelineId");
+    }
+
+    public String retrievePipelineTimelineForPipelineIds() {
+        return retrievePipelineTimelineWhere("p.id IN (:pipelineIds)");
+    }
+
+    protected String retrievePipelineTimelineWhere(String pipelineCondition) {
         return """
             SELECT p.name, p.id AS p_id, p.counter, m.modifiedtime, \
               (SELECT materials.fingerprint FROM materials WHERE id = m.materialId), \
@@ -68,8 +76,8 @@ public abstract class QueryExtensions {
             FROM pipelines p, pipelinematerialrevisions pmr, modifications m \
             WHERE p.id = pmr.pipelineid \
             AND pmr.torevisionid = m.id \
-            AND p.id > :pipelineId
-            """;
+            AND %s
+            """.formatted(pipelineCondition);
     }
 
     protected String joinWithQuotesForSql(List<? extends Number> array) {
@@ -20,7 +20,7 @@ import com.thoughtworks.go.server.database.QueryExtensions;
 
 public class PostgresqlQueryExtensions extends QueryExtensions {
     @Override
-    public String retrievePipelineTimeline() {
+    protected String retrievePipelineTimelineWhere(String pipelineCondition) {
         // we run a `CAST` because otherwise hibernate is unable to understand the `citext` datatype
         return """
             SELECT CAST(p.name AS VARCHAR), p.id AS p_id, p.counter, m.modifiedtime, \
@@ -28,7 +28,7 @@ public class PostgresqlQueryExtensions extends QueryExtensions {
             FROM pipelines p, pipelinematerialrevisions pmr, modifications m \
             WHERE p.id = pmr.pipelineid \
             AND pmr.torevisionid = m.id \
-            AND p.id > :pipelineId""";
+            AND %s""".formatted(pipelineCondition);
     }
 
     @Override
@@ -39,6 +39,7 @@ public class DefaultJobPlan implements JobPlan {
     private ClusterProfile clusterProfile;
     private boolean fetchMaterials = StageConfig.DEFAULT_FETCH_MATERIALS;
     private boolean cleanWorkingDir = StageConfig.DEFAULT_CLEAN_WORKING_DIR;
+    private transient boolean readOnly;
 
 
     //FOR IBATIS
@@ -95,18 +96,22 @@ public class DefaultJobPlan implements JobPlan {
     }
 
     public void setJobId(long jobId) {
+        assertWritable();
         this.jobId = jobId;
     }
 
     public void setIdentifier(JobIdentifier identifier) {
+        assertWritable();
         this.identifier = identifier;
     }
 
     public void setArtifactPlans(List<ArtifactPlan> artifactPlans) {
+        assertWritable();
         this.artifactPlans = artifactPlans;
     }
 
     public void setResources(List<Resource> resources) {
+        assertWritable();
         this.resources = new Resources(resources);
     }
 
@@ -154,6 +159,7 @@ public class DefaultJobPlan implements JobPlan {
 
     @Override
     public void setVariables(EnvironmentVariables variables) {
+        assertWritable();
         this.variables = new EnvironmentVariables(variables);
     }
 
@@ -163,6 +169,7 @@ public class DefaultJobPlan implements JobPlan {
     }
 
     public void setTriggerVariables(EnvironmentVariables environmentVariables) {
+        assertWritable();
         triggerVariables = new EnvironmentVariables(environmentVariables);
     }
 
@@ -178,16 +185,19 @@ public class DefaultJobPlan implements JobPlan {
     }
 
     public void setAgentUuid(String agentUuid) {
+        assertWritable();
         this.agentUuid = agentUuid;
     }
 
     @Override
     public void setFetchMaterials(boolean fetchMaterials) {
+        assertWritable();
         this.fetchMaterials = fetchMaterials;
     }
 
     @Override
     public void setCleanWorkingDir(boolean cleanWorkingDir) {
+        assertWritable();
         this.cleanWorkingDir = cleanWorkingDir;
     }
 
@@ -213,6 +223,7 @@ public class DefaultJobPlan implements JobPlan {
 
     @Override
     public void setElasticProfile(ElasticProfile elasticProfile) {
+        assertWritable();
         this.elasticProfile = new ElasticProfile(elasticProfile.getId(), elasticProfile.getClusterProfileId(), elasticProfile);
     }
 
@@ -223,6 +234,7 @@ public class DefaultJobPlan implements JobPlan {
 
     @Override
     public void setClusterProfile(ClusterProfile clusterProfile) {
+        assertWritable();
         if (clusterProfile != null) {
             this.clusterProfile = new ClusterProfile(clusterProfile.getId(), clusterProfile.getPluginId(), clusterProfile);
         }
@@ -232,4 +244,23 @@ public class DefaultJobPlan implements JobPlan {
     public boolean assignedToAgent() {
         return agentUuid == null;
     }
+
+    /**
+     * Marks this plan as shared between callers, so that it can be handed out without a defensive copy. Any later
+     * attempt to change it fails.
+     */
+    public DefaultJobPlan makeReadOnly() {
+        this.readOnly = true;
+        return this;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    private void assertWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Job plan " + identifier + " is read-only");
+        }
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.rits.cloning.Cloner;
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
+import com.thoughtworks.go.config.preprocessor.ConcurrentFieldCache;
+import com.thoughtworks.go.util.ClonerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+
+/**
+ * Compares walking and deep-cloning a large config through {@link GoConfigGraphWalker} and {@link GoConfigCloner}
+ * with the purely reflective way they used to work, and with the copy {@link GoConfigPathCopier} makes for a pipeline
+ * save. Run with {@code ./gradlew :server:jmh -PjmhArgs="ConfigGraphBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigGraphBenchmark {
+    @Param({"500", "5000"})
+    public int pipelines;
+
+    private BasicCruiseConfig config;
+    private Cloner reflectiveCloner;
+    private GoConfigCloner goConfigCloner;
+    private GoConfigPathCopier pathCopier;
+
+    @Setup
+    public void setUp() {
+        config = new BasicCruiseConfig();
+        for (int i = 0; i < pipelines; i++) {
+            GitMaterialConfig git = new GitMaterialConfig();
+            git.setUrl("https://example.com/repo-" + i + ".git");
+            StageConfig build = new StageConfig(cis("build"), new JobConfigs(job("compile"), job("test")));
+            StageConfig deploy = new StageConfig(cis("deploy"), new JobConfigs(job("deploy")));
+            PipelineConfig pipeline = new PipelineConfig(cis("pipeline-" + i), new MaterialConfigs(git), build, deploy);
+            pipeline.addEnvironmentVariable("ENV", "value-" + i);
+            config.addPipelineWithoutValidation("group-" + (i % 50), pipeline);
+        }
+
+        reflectiveCloner = ClonerFactory.applyFixes(new Cloner());
+        reflectiveCloner.nullInsteadOfClone(BasicCruiseConfig.DO_NOT_CLONE_CLASSES);
+        goConfigCloner = new GoConfigCloner();
+        pathCopier = new GoConfigPathCopier();
+    }
+
+    private static JobConfig job(String name) {
+        Tasks tasks = new Tasks(new ExecTask("make", name, "src"), new ExecTask("echo", "done", null));
+        return new JobConfig(cis(name), new ResourceConfigs("linux,docker"), new ArtifactTypeConfigs(), tasks);
+    }
+
+    @Benchmark
+    public int walk() {
+        int[] visited = {0};
+        new GoConfigGraphWalker(config).walk((validatable, context) -> visited[0]++);
+        return visited[0];
+    }
+
+    @Benchmark
+    public int reflectiveWalk() {
+        int[] visited = {0};
+        reflectiveWalk(config, validatable -> visited[0]++);
+        return visited[0];
+    }
+
+    @Benchmark
+    public CruiseConfig deepClone() {
+        return goConfigCloner.deepClone(config);
+    }
+
+    @Benchmark
+    public CruiseConfig reflectiveDeepClone() {
+        return reflectiveCloner.deepClone(config);
+    }
+
+    @Benchmark
+    public CruiseConfig pathCopy() {
+        return pathCopier.copy(config);
+    }
+
+    // How GoConfigGraphWalker visited nodes before it cached what to traverse per class
+    private static void reflectiveWalk(Object current, Consumer<Validatable> handler) {
+        if (current == null || !current.getClass().getName().startsWith("com.thoughtworks")) {
+            return;
+        }
+        if (current instanceof Validatable validatable) {
+            handler.accept(validatable);
+        }
+        if (current instanceof Collection<?> collection) {
+            for (Object item : collection) {
+                reflectiveWalk(item, handler);
+            }
+        }
+        for (Field field : ConcurrentFieldCache.nonStaticOrSyntheticFieldsFor(current.getClass())) {
+            if (Modifier.isFinal(field.getModifiers()) || field.isAnnotationPresent(IgnoreTraversal.class)) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                reflectiveWalk(field.get(current), handler);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
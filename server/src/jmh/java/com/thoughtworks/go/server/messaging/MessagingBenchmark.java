@@ -0,0 +1,86 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.server.messaging.activemq.ActiveMqMessagingService;
+import com.thoughtworks.go.server.messaging.inmemory.InMemoryMessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares how fast messages get from a sender to a listener through the embedded ActiveMQ broker and through
+ * {@link InMemoryMessagingService}: the throughput of a queue with a single listener, and the latency of a single
+ * message on a topic. Run with {@code ./gradlew :server:jmh -PjmhArgs="MessagingBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessagingBenchmark {
+    private static final int BATCH = 1000;
+
+    @Param({"activemq", "in-memory"})
+    public String implementation;
+
+    private MessagingService<GoMessage> messaging;
+    private GoMessageQueue<GoTextMessage> queue;
+    private GoMessageTopic<GoTextMessage> topic;
+    private final Semaphore queueMessagesReceived = new Semaphore(0);
+    private final Semaphore topicMessagesReceived = new Semaphore(0);
+    private final GoTextMessage message = new GoTextMessage("benchmark");
+
+    @Setup
+    public void setUp() throws Exception {
+        SystemEnvironment systemEnvironment = new SystemEnvironment();
+        DaemonThreadStatsCollector daemonThreadStatsCollector = new DaemonThreadStatsCollector();
+        messaging = "activemq".equals(implementation)
+            ? new ActiveMqMessagingService(daemonThreadStatsCollector, systemEnvironment, new ServerHealthService(null))
+            : new InMemoryMessagingService(daemonThreadStatsCollector, systemEnvironment);
+
+        queue = new GoMessageQueue<>(messaging, "benchmark-queue");
+        queue.addListener(received -> queueMessagesReceived.release());
+        topic = new GoMessageTopic<>(messaging, "benchmark-topic");
+        topic.addListener(received -> topicMessagesReceived.release());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        messaging.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(BATCH)
+    public void queueThroughput() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            queue.post(message);
+        }
+        queueMessagesReceived.acquire(BATCH);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public void topicLatency() throws InterruptedException {
+        topic.post(message);
+        topicMessagesReceived.acquire();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.Agent;
+import com.thoughtworks.go.config.EnvironmentPipelineConfig;
+import com.thoughtworks.go.config.EnvironmentPipelinesConfig;
+import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Compares the cost of a single agent poll when matching against the whole job queue with the cost when going
+ * through {@link JobAssignmentIndex}. Run with {@code ./gradlew :server:jmh -PjmhArgs="JobAssignmentBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobAssignmentBenchmark {
+    private static final String[] RESOURCES = {"linux", "windows", "docker", "firefox", "chrome", "java", "ruby", "gpu"};
+
+    @Param({"1500"})
+    public int agents;
+
+    @Param({"500", "3000"})
+    public int jobs;
+
+    @Param({"10"})
+    public int environments;
+
+    private final Random random = new Random(42);
+    private List<JobPlan> jobPlans;
+    private List<AgentInstance> agentInstances;
+    private EnvironmentPipelineMatchers matchers;
+    private JobAssignmentIndex index;
+
+    @Setup
+    public void setUp() {
+        List<EnvironmentPipelineMatcher> environmentMatchers = new ArrayList<>();
+        List<List<String>> agentsPerEnvironment = new ArrayList<>();
+        List<EnvironmentPipelinesConfig> pipelinesPerEnvironment = new ArrayList<>();
+        for (int i = 0; i < environments; i++) {
+            agentsPerEnvironment.add(new ArrayList<>());
+            pipelinesPerEnvironment.add(new EnvironmentPipelinesConfig());
+            environmentMatchers.add(new EnvironmentPipelineMatcher(cis("env-" + i), agentsPerEnvironment.get(i), pipelinesPerEnvironment.get(i)));
+        }
+
+        agentInstances = new ArrayList<>();
+        for (int i = 0; i < agents; i++) {
+            String uuid = "agent-" + i;
+            Agent agent = new Agent(uuid, uuid, "127.0.0.1", "cookie");
+            agent.setResourcesFrom(randomResources(3));
+            // roughly a fifth of the agents, and of the pipelines, are not in any environment
+            int environment = random.nextInt(environments + environments / 4 + 1);
+            if (environment < environments) {
+                agentsPerEnvironment.get(environment).add(uuid);
+            }
+            agentInstances.add(AgentInstance.createFromAgent(agent, new SystemEnvironment(), null));
+        }
+
+        jobPlans = new ArrayList<>();
+        for (int i = 0; i < jobs; i++) {
+            String pipelineName = "pipeline-" + (i % (jobs / 5 + 1));
+            int environment = Math.abs(pipelineName.hashCode()) % (environments + environments / 4 + 1);
+            if (environment < environments && !pipelinesPerEnvironment.get(environment).containsPipelineNamed(cis(pipelineName))) {
+                pipelinesPerEnvironment.get(environment).add(new EnvironmentPipelineConfig(cis(pipelineName)));
+            }
+            Resources resources = new Resources(String.join(",", randomResources(1 + random.nextInt(2))));
+            JobIdentifier identifier = new JobIdentifier(pipelineName, 1, "1", "stage", "1", "job-" + i, (long) i);
+            jobPlans.add(new DefaultJobPlan(resources, new ArrayList<>(), i, identifier, null, new EnvironmentVariables(), new EnvironmentVariables(), null, null));
+        }
+
+        matchers = new EnvironmentPipelineMatchers(environmentMatchers);
+        index = new JobAssignmentIndex();
+        index.rebuild(jobPlans, matchers);
+    }
+
+    @Benchmark
+    public JobPlan linearScanPoll() {
+        AgentInstance agent = nextAgent();
+        List<JobPlan> filtered = jobPlans.stream().filter(jobPlan -> matchers.match(jobPlan.getPipelineName(), agent.getUuid())).collect(toList());
+        return agent.firstMatching(filtered);
+    }
+
+    @Benchmark
+    public JobPlan indexedPoll() {
+        AgentInstance agent = nextAgent();
+        return agent.firstMatching(index.candidatesFor(agent));
+    }
+
+    private AgentInstance nextAgent() {
+        return agentInstances.get(random.nextInt(agentInstances.size()));
+    }
+
+    private List<String> randomResources(int count) {
+        List<String> resources = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            resources.add(RESOURCES[random.nextInt(RESOURCES.length)]);
+        }
+        return resources;
+    }
+}
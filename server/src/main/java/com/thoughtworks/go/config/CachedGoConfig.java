@@ -33,6 +33,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.thoughtworks.go.server.service.GoConfigService.INVALID_CRUISE_CONFIG_XML;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
@@ -48,6 +49,8 @@ public class CachedGoConfig {
     private final GoConfigMigrator goConfigMigrator;
     private final MaintenanceModeService maintenanceModeService;
     private final ServerHealthService serverHealthService;
+    private final ConfigFileWatcher configFileWatcher;
+    private final AtomicBoolean configFileChanged = new AtomicBoolean(false);
     private final List<ConfigChangedListener> listeners = new ArrayList<>();
     private volatile CruiseConfig currentConfig;
     private volatile CruiseConfig currentConfigForEdit;
@@ -58,12 +61,13 @@ public class CachedGoConfig {
     @Autowired
     public CachedGoConfig(ServerHealthService serverHealthService, GoFileConfigDataSource dataSource,
                           CachedGoPartials cachedGoPartials, GoConfigMigrator goConfigMigrator,
-                          MaintenanceModeService maintenanceModeService) {
+                          MaintenanceModeService maintenanceModeService, ConfigFileWatcher configFileWatcher) {
         this.serverHealthService = serverHealthService;
         this.dataSource = dataSource;
         this.cachedGoPartials = cachedGoPartials;
         this.goConfigMigrator = goConfigMigrator;
         this.maintenanceModeService = maintenanceModeService;
+        this.configFileWatcher = configFileWatcher;
     }
 
     @TestOnly
@@ -73,6 +77,14 @@ public class CachedGoConfig {
         }
     }
 
+    /**
+     * Starts reloading the config file as soon as the file system reports it changed, rather than only when
+     * {@link #onTimer()} gets to it.
+     */
+    public void startWatchingConfigFile() {
+        configFileWatcher.start(dataSource.location(), this::onConfigFileChanged);
+    }
+
     //NOTE: This method is called on a thread from Spring
     public void onTimer() {
         if (maintenanceModeService.isMaintenanceMode()) {
@@ -80,7 +92,33 @@ public class CachedGoConfig {
             return;
         }
 
-        this.forceReload();
+        // While the file is watched, only check it when a change was reported (and perhaps skipped in maintenance mode),
+        // or every so often in case the file system did not report one
+        if (!configFileChanged.getAndSet(false) && !configFileWatcher.isPollDue()) {
+            return;
+        }
+
+        reloadIfConfigFileChanged();
+    }
+
+    void onConfigFileChanged() {
+        configFileChanged.set(true);
+        onTimer();
+    }
+
+    private void reloadIfConfigFileChanged() {
+        try {
+            // checked before taking the write lock, so that an unchanged file does not hold up config saves
+            if (!dataSource.requiresReload()) {
+                LOGGER.debug("Config file (on disk) is the same as the one last loaded");
+                return;
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error checking cruise-config.xml on disk for changes, keeping previous one", e);
+            saveConfigError(e);
+            return;
+        }
+        forceReload();
     }
 
     public void forceReload() {
@@ -0,0 +1,190 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.util.ExceptionUtils;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.thoughtworks.go.util.SystemEnvironment.CONFIG_FILE_WATCH_ENABLED;
+import static com.thoughtworks.go.util.SystemEnvironment.CONFIG_FILE_WATCH_FALLBACK_POLL_INTERVAL_IN_MILLIS;
+import static com.thoughtworks.go.util.SystemEnvironment.CONFIG_FILE_WATCH_QUIET_PERIOD_IN_MILLIS;
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Understands when the file system reports a change to a config file. Changes are coalesced, so that a burst of
+ * events (editors typically write, truncate and rename) results in a single notification once the file has been quiet
+ * for a while.
+ * <p>
+ * If the file system cannot be watched, nothing is reported and {@link #isWatching()} is false, in which case callers
+ * are expected to fall back to checking the file themselves. Even while it is watched, some changes are never reported
+ * (e.g. on network or bind mounts, or when a Kubernetes ConfigMap swaps its {@code ..data} symlink), so callers should
+ * still check the file whenever {@link #isPollDue()}.
+ */
+@Component
+public class ConfigFileWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigFileWatcher.class);
+
+    private final SystemEnvironment systemEnvironment;
+    private volatile WatcherThread watcherThread;
+    private final AtomicLong lastPollNanos = new AtomicLong(System.nanoTime());
+
+    @Autowired
+    public ConfigFileWatcher(SystemEnvironment systemEnvironment) {
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    /**
+     * @return whether the file is being watched
+     */
+    public synchronized boolean start(Path configFile, Runnable onChange) {
+        if (watcherThread != null) {
+            throw new IllegalStateException("Cannot start watching the config file multiple times.");
+        }
+        if (!systemEnvironment.get(CONFIG_FILE_WATCH_ENABLED)) {
+            LOGGER.info("Watching {} for changes is disabled, it will be polled instead", configFile);
+            return false;
+        }
+
+        Path file = configFile.toAbsolutePath().normalize();
+        try {
+            WatchService watchService = file.getFileSystem().newWatchService();
+            try {
+                // Watch the directory, since editors and tools often replace the file rather than write to it
+                file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            } catch (IOException | RuntimeException e) {
+                watchService.close();
+                throw e;
+            }
+            watcherThread = new WatcherThread(watchService, file, onChange, systemEnvironment.get(CONFIG_FILE_WATCH_QUIET_PERIOD_IN_MILLIS));
+            watcherThread.start();
+            LOGGER.info("Watching {} for changes", file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to watch {} for changes, it will be polled instead", file, e);
+            return false;
+        }
+    }
+
+    public boolean isWatching() {
+        WatcherThread thread = watcherThread;
+        return thread != null && thread.watching;
+    }
+
+    /**
+     * @return whether callers should check the file themselves: always while it is not watched, otherwise about once
+     * every {@code go.config.file.watch.fallback.poll.interval.millis}
+     */
+    public boolean isPollDue() {
+        if (!isWatching()) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long last = lastPollNanos.get();
+        if (now - last < TimeUnit.MILLISECONDS.toNanos(systemEnvironment.get(CONFIG_FILE_WATCH_FALLBACK_POLL_INTERVAL_IN_MILLIS))) {
+            return false;
+        }
+        return lastPollNanos.compareAndSet(last, now);
+    }
+
+    public synchronized void stop() {
+        if (watcherThread == null) {
+            return;
+        }
+        watcherThread.interrupt();
+        try {
+            watcherThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        watcherThread = null;
+    }
+
+    private static class WatcherThread extends Thread {
+        private final WatchService watchService;
+        private final Path file;
+        private final Runnable onChange;
+        private final long quietPeriodInMillis;
+        private volatile boolean watching = true;
+
+        WatcherThread(WatchService watchService, Path file, Runnable onChange, long quietPeriodInMillis) {
+            super("goConfigFileWatcher");
+            this.watchService = watchService;
+            this.file = file;
+            this.onChange = onChange;
+            this.quietPeriodInMillis = quietPeriodInMillis;
+            setUncaughtExceptionHandler(ExceptionUtils.uncaughtExceptionHandlerFor(LOGGER));
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try (watchService) {
+                while (!isInterrupted()) {
+                    if (!changed(watchService.take())) {
+                        continue;
+                    }
+                    waitForQuietPeriod();
+                    notifyChange();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                LOGGER.debug("Stopped watching {} for changes", file);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close the watch service for {}", file, e);
+            } finally {
+                watching = false;
+            }
+        }
+
+        private void waitForQuietPeriod() throws InterruptedException {
+            WatchKey key;
+            while ((key = watchService.poll(quietPeriodInMillis, TimeUnit.MILLISECONDS)) != null) {
+                changed(key);
+            }
+        }
+
+        private boolean changed(WatchKey key) {
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                changed |= event.kind() == OVERFLOW || file.getFileName().equals(event.context());
+            }
+            if (!key.reset()) {
+                // the directory went away; nothing more will be reported, so let the caller poll instead
+                LOGGER.warn("Stopped watching {} for changes as its directory is no longer accessible, it will be polled instead", file);
+                watching = false;
+                interrupt();
+                return true;
+            }
+            return changed;
+        }
+
+        private void notifyChange() {
+            try {
+                onChange.run();
+            } catch (Exception e) {
+                LOGGER.error("Failed to handle a change to {}", file, e);
+            }
+        }
+    }
+}
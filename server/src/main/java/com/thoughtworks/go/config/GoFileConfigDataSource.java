@@ -17,7 +17,9 @@ package com.thoughtworks.go.config;
 
 import com.thoughtworks.go.CurrentGoCDVersion;
 import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
+import com.thoughtworks.go.config.commands.PipelineScopedConfigUpdateCommand;
 import com.thoughtworks.go.config.exceptions.*;
+import com.thoughtworks.go.config.preprocessor.PipelineScopedPreprocessor;
 import com.thoughtworks.go.config.registry.ConfigElementImplementationRegistry;
 import com.thoughtworks.go.config.remote.PartialConfig;
 import com.thoughtworks.go.config.update.FullConfigUpdateCommand;
@@ -44,6 +46,7 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
@@ -66,6 +69,8 @@ public class GoFileConfigDataSource {
     private final SystemEnvironment systemEnvironment;
     private final GoConfigMigration upgrader;
     private final GoConfigCloner cloner = new GoConfigCloner();
+    private final GoConfigPathCopier pathCopier = new GoConfigPathCopier();
+    private final PipelineScopedPreprocessor pipelineScopedPreprocessor = new PipelineScopedPreprocessor();
     private final GoConfigFileReader goConfigFileReader;
     private final GoConfigFileWriter goConfigFileWriter;
     private final PartialConfigHelper partials;
@@ -247,6 +252,18 @@ public class GoFileConfigDataSource {
         return Path.of(systemEnvironment.getCruiseConfigFile());
     }
 
+    /**
+     * Checks whether the config file differs from the config last loaded, without loading it. The file is only hashed
+     * if its size or modification time changed.
+     */
+    public boolean requiresReload() {
+        ReloadStrategy.ReloadTestResult result = reloadStrategy.requiresReload(fileLocation());
+        if (!result.requiresReload) {
+            reloadStrategy.hasLatest(result);
+        }
+        return result.requiresReload;
+    }
+
     public GoConfigHolder load() throws IOException, JDOMException, GitAPIException {
         File configFile = fileLocation();
 
@@ -293,7 +310,7 @@ public class GoFileConfigDataSource {
     }
 
     public synchronized EntityConfigSaveResult<?> writeEntityWithLock(EntityConfigUpdateCommand<?> updatingCommand, GoConfigHolder configHolder, Username currentUser) {
-        CruiseConfig modifiedConfig = cloner.deepClone(configHolder.configForEdit);
+        CruiseConfig modifiedConfig = isPipelineScoped(updatingCommand) ? pathCopier.copy(configHolder.configForEdit) : cloner.deepClone(configHolder.configForEdit);
         try {
             updatingCommand.update(modifiedConfig);
         } catch (Exception e) {
@@ -302,10 +319,10 @@ public class GoFileConfigDataSource {
         List<PartialConfig> lastValidPartials = cachedGoPartials.lastValidPartials();
         List<PartialConfig> lastKnownPartials = cachedGoPartials.lastKnownPartials();
         if (lastKnownPartials.isEmpty() || partials.isEquivalent(lastKnownPartials, lastValidPartials)) {
-            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials);
+            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials, configHolder);
         }
         try {
-            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials);
+            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials, configHolder);
         } catch (GoConfigInvalidException e) {
             StringBuilder errorMessageBuilder = new StringBuilder();
             try {
@@ -315,8 +332,10 @@ public class GoFileConfigDataSource {
                 errorMessageBuilder.append(message);
                 LOGGER.warn(message, e);
                 updatingCommand.clearErrors();
-                modifiedConfig.setPartials(lastKnownPartials);
-                String configAsXml = configAsXml(modifiedConfig, false);
+                // converting with validation writes back to the config, which may share unchanged parts with the current one
+                CruiseConfig fallbackConfig = cloner.deepClone(modifiedConfig);
+                fallbackConfig.setPartials(lastKnownPartials);
+                String configAsXml = configAsXml(fallbackConfig, false);
                 GoConfigHolder holder = internalLoad(configAsXml, new ConfigModifyingUser(currentUser.getUsername().toString()), lastKnownPartials);
                 LOGGER.info("Update operation on merged configuration succeeded with {} KNOWN partials. Now there are {} LAST KNOWN partials",
                     lastKnownPartials.size(), cachedGoPartials.lastKnownPartials().size());
@@ -482,12 +501,46 @@ public class GoFileConfigDataSource {
         this.goConfigFileWriter.writeToConfigXmlFile(content);
     }
 
-    private <T> EntityConfigSaveResult<T> trySavingEntity(EntityConfigUpdateCommand<T> updatingCommand, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials) {
+    /**
+     * @return the pipelines changed by the command when its save can be preprocessed and validated incrementally, or an empty set
+     */
+    private Set<CaseInsensitiveString> scopedChangesOf(EntityConfigUpdateCommand<?> updatingCommand, GoConfigHolder configHolder, List<PartialConfig> partialConfigs) {
+        if (isPipelineScoped(updatingCommand)
+            && configHolder.config != null
+            && partials.isEquivalent(configHolder.config.getPartials(), partialConfigs)) {
+            return ((PipelineScopedConfigUpdateCommand<?>) updatingCommand).changedPipelines();
+        }
+        return Set.of();
+    }
+
+    private boolean isPipelineScoped(EntityConfigUpdateCommand<?> updatingCommand) {
+        return systemEnvironment.get(SystemEnvironment.CONFIG_ENTITY_SCOPED_VALIDATION) && updatingCommand instanceof PipelineScopedConfigUpdateCommand<?>;
+    }
+
+    private CruiseConfig scopedPreprocess(GoConfigHolder configHolder, CruiseConfig modifiedConfig, Set<CaseInsensitiveString> changedPipelines) {
+        LOGGER.debug("[Config Save] Preprocessing changes to {} incrementally.", changedPipelines);
+        try {
+            return pipelineScopedPreprocessor.preprocess(configHolder.config, modifiedConfig, changedPipelines);
+        } catch (RuntimeException e) {
+            LOGGER.warn("[Config Save] Unable to preprocess changes to {} incrementally, preprocessing the whole config instead.", changedPipelines, e);
+            return null;
+        }
+    }
+
+    private <T> EntityConfigSaveResult<T> trySavingEntity(EntityConfigUpdateCommand<T> updatingCommand, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials, GoConfigHolder configHolder) {
         modifiedConfig.setPartials(partials);
-        CruiseConfig preprocessedConfig = cloner.deepClone(modifiedConfig);
-        MagicalGoConfigXmlLoader.preprocess(preprocessedConfig);
+        Set<CaseInsensitiveString> changedPipelines = scopedChangesOf(updatingCommand, configHolder, partials);
+        CruiseConfig preprocessedConfig = changedPipelines.isEmpty() ? null : scopedPreprocess(configHolder, modifiedConfig, changedPipelines);
+        if (preprocessedConfig == null) {
+            changedPipelines = Set.of();
+            preprocessedConfig = cloner.deepClone(modifiedConfig);
+            MagicalGoConfigXmlLoader.preprocess(preprocessedConfig);
+        }
         updatingCommand.encrypt(preprocessedConfig);
         if (updatingCommand.isValid(preprocessedConfig)) {
+            if (!changedPipelines.isEmpty()) {
+                pipelineScopedPreprocessor.validateReferencesTo(changedPipelines, configHolder.config, preprocessedConfig);
+            }
             try {
                 LOGGER.info("[Configuration Changed] Saving updated configuration.");
                 String configAsXml = configAsXml(modifiedConfig, true);
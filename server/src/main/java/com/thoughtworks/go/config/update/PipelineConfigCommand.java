@@ -16,11 +16,13 @@
 package com.thoughtworks.go.config.update;
 
 import com.thoughtworks.go.config.*;
-import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
+import com.thoughtworks.go.config.commands.PipelineScopedConfigUpdateCommand;
 import com.thoughtworks.go.server.service.ExternalArtifactsService;
 import com.thoughtworks.go.server.service.GoConfigService;
 
-public abstract class PipelineConfigCommand implements EntityConfigUpdateCommand<PipelineConfig> {
+import java.util.Set;
+
+public abstract class PipelineConfigCommand implements PipelineScopedConfigUpdateCommand<PipelineConfig> {
     final PipelineConfig pipelineConfig;
     final GoConfigService goConfigService;
     private final ExternalArtifactsService externalArtifactsService;
@@ -38,6 +40,11 @@ public abstract class PipelineConfigCommand implements EntityConfigUpdateCommand
         Validatable.clearErrors(pipelineConfig);
     }
 
+    @Override
+    public Set<CaseInsensitiveString> changedPipelines() {
+        return Set.of(pipelineConfig.name());
+    }
+
     @Override
     public PipelineConfig getPreprocessedEntityConfig() {
         return preprocessedPipelineConfig;
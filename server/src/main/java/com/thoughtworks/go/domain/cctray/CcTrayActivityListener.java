@@ -84,6 +84,10 @@ public class CcTrayActivityListener implements Initializer, Daemonized, JobStatu
         return processor.isEmpty();
     }
 
+    public MultiplexingQueueProcessor.Statistics queueStatistics() {
+        return processor.statistics();
+    }
+
     protected SecurityConfigChangeListener securityConfigChangeListener() {
         return new SecurityConfigChangeListener() {
             @Override
@@ -18,39 +18,31 @@ package com.thoughtworks.go.server.caching;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.thoughtworks.go.domain.JobInstance;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
-import net.sf.ehcache.Cache;
-import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.config.CacheConfiguration;
-import net.sf.ehcache.config.PersistenceConfiguration;
-import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class CacheFactory {
 
-    private final CacheConfiguration cacheConfiguration;
+    private final List<GoCacheRegion> regions;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
 
     public CacheFactory(TransactionSynchronizationManager transactionSynchronizationManager,
                         @Value("${cruise.cache.elements.limit}") int maxElementsInMemory,
-                        @Value("${cruise.cache.is.eternal}") boolean eternal) {
+                        @Value("${cruise.cache.regions}") String regions) {
         this.transactionSynchronizationManager = transactionSynchronizationManager;
-        cacheConfiguration = new CacheConfiguration("goCache", maxElementsInMemory)
-                .persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE))
-                .eternal(eternal)
-                .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU);
+        this.regions = new ArrayList<>(GoCacheRegion.parse(regions));
+        this.regions.add(GoCacheRegion.defaultRegion(maxElementsInMemory, null));
     }
 
     @Bean(name = "goCache")
     public GoCache domainObjectCache() {
-        CacheManager cacheManager = CacheManager.newInstance(new net.sf.ehcache.config.Configuration().name(getClass().getName()));
-        Cache cache = new Cache(cacheConfiguration);
-        cacheManager.addCache(cache);
-        return new GoCache(cache, transactionSynchronizationManager);
+        return new GoCache(regions, transactionSynchronizationManager);
     }
 
     @Bean(name = "buildDurationCache")
@@ -15,13 +15,13 @@
  */
 package com.thoughtworks.go.server.caching;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.thoughtworks.go.domain.NullUser;
 import com.thoughtworks.go.domain.PersistentObject;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
-import net.sf.ehcache.Ehcache;
-import net.sf.ehcache.Element;
-import net.sf.ehcache.config.CacheConfiguration;
-import net.sf.ehcache.event.CacheEventListener;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.slf4j.Logger;
@@ -29,47 +29,128 @@ import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import javax.annotation.PreDestroy;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
-import static org.apache.commons.lang3.StringUtils.splitByWholeSeparator;
 
 /**
- * Understands storing and retrieving objects from an underlying LRU cache
+ * Understands storing and retrieving objects from an underlying bounded cache.
+ * <p>
+ * Keys are split into {@link GoCacheRegion}s by prefix, each with its own size limit and expiry. Values stored under a
+ * key and sub key belong to a family that is invalidated as a whole by {@link #remove(String)}. Every family carries a
+ * generation that is part of the keys of its entries, so removing a family makes all of its entries unreachable at once
+ * without having to lock the family against concurrent puts; the entries themselves are dropped eagerly where possible
+ * and otherwise age out like any other entry.
+ * <p>
+ * Hits, misses, puts and evictions are counted per key family (see {@link #familyOf(String)}) so that it is possible
+ * to tell which of the caches layered over the database actually pay for themselves.
  */
 public class GoCache {
-    @VisibleForTesting public static final String SUB_KEY_DELIMITER = "!_#$#_!";
     private static final Logger LOGGER = LoggerFactory.getLogger(GoCache.class);
+    private static final String GENERATED_KEY_DELIMITER = ".$";
+    private static final int MAX_FAMILIES = 256;
+    @VisibleForTesting static final String OTHER_FAMILIES = "(other)";
+
     private final ThreadLocal<Boolean> doNotServeForTransaction = new ThreadLocal<>();
 
-    private final Ehcache ehCache;
+    private final List<Region> regions;
+    private final ConcurrentMap<String, SubKeys> subKeys;
+    private final AtomicLong generations;
+    private final ConcurrentMap<String, Counters> statistics;
+    private final List<Listener> listeners;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
 
-    @VisibleForTesting static class KeyList extends HashSet<String> { }
+    /**
+     * Notified of explicit puts and removals, but not of evictions.
+     */
+    public interface Listener {
+        void keyPut(String key);
+
+        void keyRemoved(String key);
+    }
+
+    public record Statistics(long hits, long misses, long puts, long evictions) {
+    }
+
+    private record Key(String key, @Nullable String subKey, long generation) {
+    }
+
+    private record Region(GoCacheRegion definition, Cache<Key, Object> entries) {
+    }
+
+    private static class SubKeys {
+        private final long generation;
+        private final Set<String> names = ConcurrentHashMap.newKeySet();
+
+        private SubKeys(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private static class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        private Statistics snapshot() {
+            return new Statistics(hits.sum(), misses.sum(), puts.sum(), evictions.sum());
+        }
+    }
 
     @TestOnly
     public GoCache(GoCache goCache) {
-        this(goCache.ehCache, goCache.transactionSynchronizationManager);
+        this.regions = goCache.regions;
+        this.subKeys = goCache.subKeys;
+        this.generations = goCache.generations;
+        this.statistics = goCache.statistics;
+        this.listeners = goCache.listeners;
+        this.transactionSynchronizationManager = goCache.transactionSynchronizationManager;
     }
 
-    public GoCache(Ehcache cache, TransactionSynchronizationManager transactionSynchronizationManager) {
-        this.ehCache = cache;
+    public GoCache(List<GoCacheRegion> regions, TransactionSynchronizationManager transactionSynchronizationManager) {
+        this.subKeys = new ConcurrentHashMap<>();
+        this.generations = new AtomicLong();
+        this.statistics = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
         this.transactionSynchronizationManager = transactionSynchronizationManager;
-        ehCache.getCacheEventNotificationService().registerListener(new CacheEvictionListener(this));
+        // the most specific prefix wins, which leaves the default region with its empty prefix last
+        this.regions = regions.stream()
+            .sorted(Comparator.comparingInt((GoCacheRegion region) -> region.keyPrefix().length()).reversed())
+            .map(region -> new Region(region, newEntries(region)))
+            .toList();
+        if (this.regions.isEmpty() || !this.regions.get(this.regions.size() - 1).definition().keyPrefix().isEmpty()) {
+            throw new IllegalArgumentException("GoCache needs a default region with an empty key prefix, but was given " + regions);
+        }
+    }
+
+    private Cache<Key, Object> newEntries(GoCacheRegion region) {
+        Caffeine<Key, Object> builder = Caffeine.newBuilder()
+            .maximumSize(region.maximumSize())
+            // run maintenance and removal notifications on the calling thread, like the cache this replaced
+            .executor(Runnable::run)
+            .removalListener(this::onRemoval);
+        if (region.timeToLive() != null) {
+            builder.expireAfterWrite(region.timeToLive());
+        }
+        return builder.build();
     }
 
     @PreDestroy
     public void destroy() {
         clear();
-        Optional.ofNullable(ehCache.getCacheManager())
-            .ifPresent(cm -> cm.removeCache(ehCache.getName()));
+        regions.forEach(region -> region.entries().cleanUp());
     }
 
     @TestOnly
-    public void addListener(CacheEventListener listener) {
-        ehCache.getCacheEventNotificationService().registerListener(listener);
+    public void addListener(Listener listener) {
+        listeners.add(listener);
     }
 
     public void stopServingForTransaction() {
@@ -85,19 +166,45 @@ public class GoCache {
     }
 
     public void put(String key, Object value) {
+        if (!canPut(key, value)) {
+            return;
+        }
+        entriesFor(key).put(new Key(key, null, 0), value);
+        countersFor(key).puts.increment();
+        listeners.forEach(listener -> listener.keyPut(key));
+    }
+
+    public void put(String key, String subKey, Object value) {
+        if (!canPut(key, value)) {
+            return;
+        }
+        SubKeys family = subKeys.computeIfAbsent(key, k -> new SubKeys(generations.incrementAndGet()));
+        family.names.add(subKey);
+        entriesFor(key).put(new Key(key, subKey, family.generation), value);
+        countersFor(key).puts.increment();
+        listeners.forEach(listener -> listener.keyPut(key));
+    }
+
+    private boolean canPut(String key, Object value) {
         logUnsavedPersistentObjectInteraction(value, "PersistentObject {} added to cache without an id.");
         if (transactionSynchronizationManager.isActualTransactionActive()) {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("transaction active during cache put for {} = {}", key, value, new IllegalStateException());
             }
-            return;
+            return false;
         }
-        ehCache.put(new Element(key, value));
+        return true;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * @return the keys of all values put without a sub key, and of all families of values put with a sub key
+     */
     public List<String> getKeys() {
-        return ehCache.getKeys();
+        return Stream.concat(
+                regions.stream().flatMap(region -> region.entries().asMap().keySet().stream()).filter(key -> key.subKey() == null).map(Key::key),
+                subKeys.keySet().stream())
+            .distinct()
+            .toList();
     }
 
     private void logUnsavedPersistentObjectInteraction(Object value, String message) {
@@ -121,17 +228,27 @@ public class GoCache {
         if (doNotServeForTransaction()) {
             return null;
         }
-        return getWithoutTransactionCheck(key);
+        return served(key, entriesFor(key).getIfPresent(new Key(key, null, 0)));
     }
 
-    private <T> T getWithoutTransactionCheck(String key) {
-        Element element = ehCache.get(key);
-        if (element == null) {
+    public Object get(String key, String subKey) {
+        if (doNotServeForTransaction()) {
+            return null;
+        }
+        SubKeys family = subKeys.get(key);
+        return served(key, family == null ? null : entriesFor(key).getIfPresent(new Key(key, subKey, family.generation)));
+    }
+
+    private <T> T served(String key, @Nullable Object value) {
+        Counters counters = countersFor(key);
+        if (value == null) {
+            counters.misses.increment();
             return null;
         }
-        @SuppressWarnings("unchecked") T value = (T) element.getObjectValue();
-        logUnsavedPersistentObjectInteraction(value, "PersistentObject {} without an id served out of cache.");
-        return value;
+        counters.hits.increment();
+        @SuppressWarnings("unchecked") T served = (T) value;
+        logUnsavedPersistentObjectInteraction(served, "PersistentObject {} without an id served out of cache.");
+        return served;
     }
 
     private boolean doNotServeForTransaction() {
@@ -139,36 +256,34 @@ public class GoCache {
     }
 
     public void clear() {
-        ehCache.removeAll();
+        subKeys.clear();
+        regions.forEach(region -> region.entries().invalidateAll());
     }
 
+    /**
+     * Removes the value stored under the key along with every value stored under the key and a sub key.
+     */
     public boolean remove(String key) {
-        synchronized (key.intern()) {
-            Object value = getWithoutTransactionCheck(key);
-            if (value instanceof KeyList keyList) {
-                for (String subKey : keyList) {
-                    ehCache.remove(compositeKey(key, subKey));
-                }
-            }
-            return ehCache.remove(key);
+        Cache<Key, Object> entries = entriesFor(key);
+        boolean removed = entries.asMap().remove(new Key(key, null, 0)) != null;
+        SubKeys family = subKeys.remove(key);
+        if (family != null) {
+            removed = true;
+            entries.invalidateAll(family.names.stream().map(subKey -> new Key(key, subKey, family.generation)).toList());
         }
+        if (removed) {
+            listeners.forEach(listener -> listener.keyRemoved(key));
+        }
+        return removed;
     }
 
-    public Object get(String key, String subKey) {
-        return get(compositeKey(key, subKey));
-    }
-
-    public void put(String key, String subKey, Object value) {
-        KeyList subKeys;
-        synchronized (key.intern()) {
-            subKeys = subKeyFamily(key);
-            if (subKeys == null) {
-                subKeys = new KeyList();
-                put(key, subKeys);
-            }
-            subKeys.add(subKey);
+    public void remove(String key, String subKey) {
+        SubKeys family = subKeys.get(key);
+        if (family == null) {
+            return;
         }
-        put(compositeKey(key, subKey), value);
+        family.names.remove(subKey);
+        entriesFor(key).invalidate(new Key(key, subKey, family.generation));
     }
 
     public void removeAll(List<String> keys) {
@@ -177,56 +292,78 @@ public class GoCache {
         }
     }
 
-    public void removeAssociations(String key, Element element) {
-        if (element.getObjectValue() instanceof KeyList keyList) {
-            synchronized (key.intern()) {
-                for (String subkey : keyList) {
-                    remove(compositeKey(key, subkey));
-                }
-            }
-        } else if (key.contains(SUB_KEY_DELIMITER)) {
-            String[] parts = splitByWholeSeparator(key, SUB_KEY_DELIMITER);
-            String parentKey = parts[0];
-            String childKey = parts[1];
-            synchronized (parentKey.intern()) {
-                Element parent = ehCache.get(parentKey);
-                if (parent == null) {
-                    return;
-                }
-                KeyList subKeys = (KeyList) parent.getObjectValue();
-                subKeys.remove(childKey);
-            }
-        }
+    public boolean isKeyInCache(String key) {
+        return subKeys.containsKey(key) || entriesFor(key).asMap().containsKey(new Key(key, null, 0));
     }
 
-    public boolean isKeyInCache(Object key) {
-        return ehCache.isKeyInCache(key);
+    /**
+     * @return hits, misses, puts and evictions so far by key family, in family order
+     */
+    public Map<String, Statistics> statistics() {
+        Map<String, Statistics> snapshot = new TreeMap<>();
+        statistics.forEach((family, counters) -> snapshot.put(family, counters.snapshot()));
+        return snapshot;
     }
 
-    private KeyList subKeyFamily(String parentKey) {
-        return get(parentKey);
+    /**
+     * @return the approximate number of entries in each region, most specific region first
+     */
+    public Map<GoCacheRegion, Long> regionSizes() {
+        Map<GoCacheRegion, Long> sizes = new LinkedHashMap<>();
+        regions.forEach(region -> sizes.put(region.definition(), region.entries().estimatedSize()));
+        return sizes;
     }
 
-    private String compositeKey(String key, String subKey) {
-        String concat = key + subKey;
-        if (concat.contains(SUB_KEY_DELIMITER)) {
-            bomb(String.format("Base and sub key concatenation(key = %s, subkey = %s) must not have pattern %s", key, subKey, SUB_KEY_DELIMITER));
+    /**
+     * Keys made by {@link CacheKeyGenerator} belong to the family named by their class and identifier, other keys to
+     * the family named by everything before a trailing {@code _<id>}, if any.
+     */
+    @VisibleForTesting
+    static String familyOf(String key) {
+        int identifier = key.indexOf(GENERATED_KEY_DELIMITER);
+        if (identifier >= 0) {
+            int arguments = key.indexOf(GENERATED_KEY_DELIMITER, identifier + GENERATED_KEY_DELIMITER.length());
+            return arguments < 0 ? key : key.substring(0, arguments);
+        }
+        int suffix = key.lastIndexOf('_');
+        if (suffix > 0 && key.chars().skip(suffix + 1).anyMatch(Character::isDigit)) {
+            return key.substring(0, suffix);
         }
-        return key + SUB_KEY_DELIMITER + subKey;
+        return key;
     }
 
-    public void remove(String key, String subKey) {
-        synchronized (key.intern()) {
-            KeyList subKeys = subKeyFamily(key);
-            if (subKeys == null) {
-                return;
+    private Counters countersFor(String key) {
+        String family = familyOf(key);
+        Counters counters = statistics.get(family);
+        if (counters != null) {
+            return counters;
+        }
+        // keep the number of families bounded even if some caller puts unique ids where the family name is expected
+        return statistics.computeIfAbsent(statistics.size() < MAX_FAMILIES ? family : OTHER_FAMILIES, f -> new Counters());
+    }
+
+    private Cache<Key, Object> entriesFor(String key) {
+        for (Region region : regions) {
+            if (region.definition().holds(key)) {
+                return region.entries();
             }
-            subKeys.remove(subKey);
-            remove(compositeKey(key, subKey));
         }
+        throw new IllegalStateException("No cache region holds " + key);
     }
 
-    public CacheConfiguration configuration() {
-        return ehCache.getCacheConfiguration();
+    private void onRemoval(@Nullable Key key, @Nullable Object value, RemovalCause cause) {
+        if (key == null || !cause.wasEvicted()) {
+            return;
+        }
+        countersFor(key.key()).evictions.increment();
+        if (key.subKey() != null) {
+            subKeys.computeIfPresent(key.key(), (parent, family) -> {
+                if (family.generation != key.generation()) {
+                    return family;
+                }
+                family.names.remove(key.subKey());
+                return family.names.isEmpty() ? null : family;
+            });
+        }
     }
 }
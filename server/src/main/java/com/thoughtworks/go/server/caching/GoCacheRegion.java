@@ -0,0 +1,63 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.caching;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * A slice of {@link GoCache} with its own size limit and expiry, holding every key that starts with {@link #keyPrefix()}.
+ * The region with an empty prefix holds everything no other region claims.
+ *
+ * @param timeToLive how long an entry lives after it was written, or {@code null} for entries that only go away when
+ *                   evicted to make room
+ */
+public record GoCacheRegion(String keyPrefix, long maximumSize, @Nullable Duration timeToLive) {
+
+    public static GoCacheRegion defaultRegion(long maximumSize, @Nullable Duration timeToLive) {
+        return new GoCacheRegion("", maximumSize, timeToLive);
+    }
+
+    public boolean holds(String key) {
+        return key.startsWith(keyPrefix);
+    }
+
+    /**
+     * Parses a comma separated list of {@code keyPrefix=maximumSize} or {@code keyPrefix=maximumSize/timeToLiveSeconds}
+     * region definitions, e.g. {@code com.thoughtworks.go.server.dao.StageSqlMapDao=20000/3600}.
+     */
+    public static List<GoCacheRegion> parse(String regions) {
+        List<GoCacheRegion> parsed = new ArrayList<>();
+        if (isBlank(regions)) {
+            return parsed;
+        }
+        for (String region : regions.split(",")) {
+            String[] prefixAndLimits = region.trim().split("=", 2);
+            if (prefixAndLimits.length != 2 || isBlank(prefixAndLimits[0])) {
+                throw new IllegalArgumentException(String.format("Cache region '%s' should look like keyPrefix=maximumSize[/timeToLiveSeconds]", region));
+            }
+            String[] limits = prefixAndLimits[1].split("/", 2);
+            Duration timeToLive = limits.length == 2 ? Duration.ofSeconds(Long.parseLong(limits[1].trim())) : null;
+            parsed.add(new GoCacheRegion(prefixAndLimits[0].trim(), Long.parseLong(limits[0].trim()), timeToLive));
+        }
+        return parsed;
+    }
+}
@@ -17,24 +17,44 @@ package com.thoughtworks.go.server.caching;
 
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.List;
 import java.util.zip.Deflater;
 
 @Component
 public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZipArtifactCache.class);
     private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
 
     @Autowired
-    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
+    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
         super(artifactsDirHolder);
         this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    @Override
+    public boolean cacheCreated(ArtifactFolder artifactFolder) throws IOException {
+        boolean created = super.cacheCreated(artifactFolder);
+        if (created) {
+            // the modification time of a cached zip doubles as its last use, which is what eviction goes by
+            cachedFile(artifactFolder).setLastModified(System.currentTimeMillis());
+        }
+        return created;
     }
 
     private static String removeTrailingSlash(String s) {
@@ -50,13 +70,44 @@ public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
         File cachedZip = cachedFile(artifactFolder);
         File cachedTempZip = zipToTempFile(cachedZip);
         cachedTempZip.getParentFile().mkdirs();
-        try {
-            zipUtil.zip(originalFolder, cachedTempZip, Deflater.DEFAULT_COMPRESSION);
+        try (OutputStream output = new FileOutputStream(cachedTempZip)) {
+            zipUtil.zipWithoutRecompressing(originalFolder, output, Deflater.DEFAULT_COMPRESSION);
         } catch (IOException e) {
             cachedTempZip.delete();
             throw e;
         }
         FileUtils.moveFile(cachedTempZip, cachedZip);
+        evictLeastRecentlyUsed(cachedZip);
+    }
+
+    /**
+     * Deletes the cached zips that were used least recently until the cache fits in its maximum size again. The zip
+     * that was just created is kept, even if it does not fit by itself.
+     */
+    synchronized void evictLeastRecentlyUsed(File justCreated) {
+        long maxSize = systemEnvironment.get(SystemEnvironment.ZIP_ARTIFACT_CACHE_MAX_SIZE_IN_BYTES);
+        File cacheRoot = new File(artifactsDirHolder.getArtifactsDir(), CACHE_ARTIFACTS_FOLDER);
+        if (maxSize <= 0 || !cacheRoot.isDirectory()) {
+            return;
+        }
+
+        List<CachedZip> cachedZips = FileUtils.listFiles(cacheRoot, new String[]{"zip"}, true).stream()
+            .map(zip -> new CachedZip(zip, zip.lastModified(), zip.length()))
+            .sorted(Comparator.comparingLong(CachedZip::lastUsed))
+            .toList();
+        long totalSize = cachedZips.stream().mapToLong(CachedZip::size).sum();
+        for (CachedZip cachedZip : cachedZips) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            if (!cachedZip.file().equals(justCreated) && FileUtils.deleteQuietly(cachedZip.file())) {
+                totalSize -= cachedZip.size();
+                LOGGER.debug("Evicted cached artifact zip [{}]", cachedZip.file());
+            }
+        }
+    }
+
+    private record CachedZip(File file, long lastUsed, long size) {
     }
 
     private File zipToTempFile(File cachedZip) {
@@ -24,6 +24,7 @@ import com.thoughtworks.go.server.caching.ZipArtifactCache;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
 import com.thoughtworks.go.server.security.ConfirmationConstraint;
 import com.thoughtworks.go.server.service.ArtifactsService;
+import com.thoughtworks.go.server.service.ChunkedArtifactUploadService;
 import com.thoughtworks.go.server.service.ConsoleActivityMonitor;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.service.RestfulService;
@@ -35,6 +36,7 @@ import com.thoughtworks.go.util.SystemEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -45,12 +47,18 @@ import org.springframework.web.servlet.ModelAndView;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
 
 import static com.thoughtworks.go.util.ArtifactUtil.*;
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
@@ -69,16 +77,19 @@ public class ArtifactsController {
     private final RestfulService restfulService;
     private final ConsoleService consoleService;
     private final ConfirmationConstraint confirmationConstraint;
+    private final ChunkedArtifactUploadService chunkedArtifactUploadService;
 
     @Autowired
     ArtifactsController(ArtifactsService artifactsService, RestfulService restfulService, ZipArtifactCache zipArtifactCache, JobInstanceDao jobInstanceDao,
-                        ConsoleActivityMonitor consoleActivityMonitor, ConsoleService consoleService, SystemEnvironment systemEnvironment) {
+                        ConsoleActivityMonitor consoleActivityMonitor, ConsoleService consoleService, SystemEnvironment systemEnvironment,
+                        ChunkedArtifactUploadService chunkedArtifactUploadService) {
         this.artifactsService = artifactsService;
+        this.chunkedArtifactUploadService = chunkedArtifactUploadService;
         this.restfulService = restfulService;
         this.jobInstanceDao = jobInstanceDao;
         this.consoleActivityMonitor = consoleActivityMonitor;
         this.consoleService = consoleService;
-        this.zipFolderViewFactory = new ZipArtifactFolderViewFactory(zipArtifactCache);
+        this.zipFolderViewFactory = new ZipArtifactFolderViewFactory(zipArtifactCache, systemEnvironment.get(SystemEnvironment.ARTIFACT_ZIP_DOWNLOAD_STREAMING));
         this.confirmationConstraint = new ConfirmationConstraint();
         this.consoleLogCharset = systemEnvironment.consoleLogCharset();
     }
@@ -153,13 +164,14 @@ public class ArtifactsController {
             }
 
             MultipartFile multipartFile = multipartFile(request);
-            if (multipartFile == null) {
+            Properties blobs = blobs(request);
+            if (multipartFile == null && blobs.isEmpty()) {
                 return FileModelAndView.invalidUploadRequest();
             }
 
-            boolean success = saveFile(convertedAttempt, artifact, multipartFile, shouldUnzipStream(multipartFile));
+            boolean success = multipartFile == null || saveFile(convertedAttempt, artifact, multipartFile, shouldUnzipStream(multipartFile));
 
-            if (!success) {
+            if (!success || !artifactsService.deduplicate(jobIdentifier, artifact, blobs)) {
                 return FileModelAndView.errorSavingFile(filePath);
             }
 
@@ -176,20 +188,126 @@ public class ArtifactsController {
         }
     }
 
+    /**
+     * Takes an artifact zip in chunks, so that an agent on a flaky link can resume an upload from the last acknowledged
+     * chunk instead of sending the whole artifact again. The final request carries the checksums of the artifact.
+     */
+    @RequestMapping(value = "/spring-internal/artifact/POST/*", method = RequestMethod.POST, headers = StandardHeaders.REQUEST_ARTIFACT_UPLOAD_ID)
+    public ModelAndView postArtifactChunk(@RequestParam("pipelineName") String pipelineName,
+                                          @RequestParam("pipelineCounter") String pipelineCounter,
+                                          @RequestParam("stageName") String stageName,
+                                          @RequestParam(value = "stageCounter", required = false) String stageCounter,
+                                          @RequestParam("buildName") String buildName,
+                                          @RequestParam(value = "buildId", required = false) Long buildId,
+                                          @RequestParam("filePath") String filePath,
+                                          HttpServletRequest request,
+                                          HttpServletResponse response) throws IOException {
+        if (!confirmationConstraint.isSatisfied(request)) {
+            return ResponseCodeView.create(HTTP_BAD_REQUEST, String.format("Missing required header '%s'", StandardHeaders.REQUEST_CONFIRM_MODIFICATION));
+        }
+        if (!isValidStageCounter(stageCounter)) {
+            return buildNotFound(pipelineName, pipelineCounter, stageName, stageCounter, buildName);
+        }
+        JobIdentifier jobIdentifier;
+        try {
+            jobIdentifier = restfulService.findJob(pipelineName, pipelineCounter, stageName, stageCounter, buildName, buildId);
+        } catch (Exception e) {
+            return buildNotFound(pipelineName, pipelineCounter, stageName, stageCounter, buildName);
+        }
+
+        String uploadId = request.getHeader(StandardHeaders.REQUEST_ARTIFACT_UPLOAD_ID);
+        String completeSize = request.getHeader(StandardHeaders.REQUEST_ARTIFACT_UPLOAD_COMPLETE_SIZE);
+        String chunkOffset = request.getHeader(StandardHeaders.REQUEST_ARTIFACT_CHUNK_OFFSET);
+        String chunkMd5 = request.getHeader(StandardHeaders.REQUEST_ARTIFACT_CHUNK_MD5);
+        if (!chunkedArtifactUploadService.isValidUploadId(uploadId) || (completeSize == null && (!isNumber(chunkOffset) || isEmpty(chunkMd5))) || (completeSize != null && !isNumber(completeSize))) {
+            return ResponseCodeView.create(HTTP_BAD_REQUEST, String.format("Invalid request. A chunk must have the headers '%s', '%s' and '%s', and the final request '%s'",
+                StandardHeaders.REQUEST_ARTIFACT_UPLOAD_ID, StandardHeaders.REQUEST_ARTIFACT_CHUNK_OFFSET, StandardHeaders.REQUEST_ARTIFACT_CHUNK_MD5, StandardHeaders.REQUEST_ARTIFACT_UPLOAD_COMPLETE_SIZE));
+        }
+
+        try {
+            File artifact = artifactsService.findArtifact(jobIdentifier, filePath);
+            if (artifact.exists() && artifact.isFile()) {
+                return FileModelAndView.fileAlreadyExists(filePath);
+            }
+
+            if (completeSize == null) {
+                ChunkedArtifactUploadService.Result result = chunkedArtifactUploadService.appendChunk(uploadId, artifact, Long.parseLong(chunkOffset), chunkMd5, request.getInputStream());
+                response.setHeader(StandardHeaders.RESPONSE_ARTIFACT_UPLOAD_OFFSET, String.valueOf(result.acknowledgedOffset()));
+                return switch (result.status()) {
+                    case ACCEPTED -> ResponseCodeView.create(HttpServletResponse.SC_OK, String.format("Accepted chunk of the artifact at path '%s'", filePath));
+                    case OFFSET_MISMATCH -> ResponseCodeView.create(HttpServletResponse.SC_CONFLICT, String.format("Expected the chunk at offset %s", result.acknowledgedOffset()));
+                    case CHECKSUM_MISMATCH -> ResponseCodeView.create(HttpServletResponse.SC_PRECONDITION_FAILED, "Chunk does not match its checksum");
+                    case FAILED -> FileModelAndView.errorSavingFile(filePath);
+                };
+            }
+
+            ChunkedArtifactUploadService.Result result = chunkedArtifactUploadService.complete(uploadId, artifact, Long.parseLong(completeSize));
+            response.setHeader(StandardHeaders.RESPONSE_ARTIFACT_UPLOAD_OFFSET, String.valueOf(result.acknowledgedOffset()));
+            return switch (result.status()) {
+                case OFFSET_MISMATCH -> ResponseCodeView.create(HttpServletResponse.SC_CONFLICT, String.format("Expected the chunk at offset %s", result.acknowledgedOffset()));
+                case ACCEPTED -> {
+                    artifactsService.deduplicate(jobIdentifier, artifact, new Properties());
+                    yield updateChecksumFile(request.getInputStream(), jobIdentifier) ? FileModelAndView.fileCreated(filePath) : FileModelAndView.errorSavingChecksumFile(filePath);
+                }
+                case CHECKSUM_MISMATCH, FAILED -> FileModelAndView.errorSavingFile(filePath);
+            };
+        } catch (IllegalArtifactLocationException e) {
+            return FileModelAndView.forbiddenUrl(filePath);
+        }
+    }
+
+    /**
+     * Tells an agent which of the files it is about to upload the server already has, going by their SHA-256, so
+     * that it can leave them out of the upload.
+     */
+    @RequestMapping(value = "/spring-internal/artifact/POST/*", method = RequestMethod.POST, headers = StandardHeaders.REQUEST_ARTIFACT_BLOB_QUERY)
+    public ModelAndView queryArtifactBlobs(HttpServletRequest request) throws IOException {
+        if (!confirmationConstraint.isSatisfied(request)) {
+            return ResponseCodeView.create(HTTP_BAD_REQUEST, String.format("Missing required header '%s'", StandardHeaders.REQUEST_CONFIRM_MODIFICATION));
+        }
+        if (!artifactsService.isContentAddressable()) {
+            return ResponseCodeView.create(HttpServletResponse.SC_OK, "");
+        }
+        List<String> hashes;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            hashes = reader.lines().toList();
+        }
+        return ResponseCodeView.create(HttpServletResponse.SC_OK, String.join("\n", artifactsService.knownContentBlobs(hashes)));
+    }
+
+    private Properties blobs(MultipartHttpServletRequest request) throws IOException {
+        Properties blobs = new Properties();
+        MultipartFile blobsFile = request.getFile(StandardHeaders.Multipart.BLOBS_FILENAME);
+        if (blobsFile != null) {
+            try (InputStream inputStream = blobsFile.getInputStream()) {
+                blobs.load(inputStream);
+            }
+        }
+        return blobs;
+    }
+
+    private static boolean isNumber(String value) {
+        return value != null && value.matches("\\d{1,18}");
+    }
+
     private boolean updateChecksumFile(MultipartHttpServletRequest request, JobIdentifier jobIdentifier, String filePath) throws IOException, IllegalArtifactLocationException {
         MultipartFile checksumMultipartFile = getChecksumFile(request);
         if (checksumMultipartFile != null) {
-            String checksumFilePath = String.format("%s/%s/%s", artifactsService.findArtifactRoot(jobIdentifier), CRUISE_OUTPUT_FOLDER, MD5_CHECKSUM_FILENAME);
-            File checksumFile = artifactsService.getArtifactLocation(checksumFilePath);
-            synchronized (checksumFilePath.intern()) {
-                return artifactsService.saveOrAppendFile(checksumFile, checksumMultipartFile.getInputStream());
-            }
+            return updateChecksumFile(checksumMultipartFile.getInputStream(), jobIdentifier);
         } else {
             LOGGER.warn("[Artifacts Upload] Checksum file not uploaded for artifact at path '{}'", filePath);
         }
         return true;
     }
 
+    private boolean updateChecksumFile(InputStream checksums, JobIdentifier jobIdentifier) throws IllegalArtifactLocationException {
+        String checksumFilePath = String.format("%s/%s/%s", artifactsService.findArtifactRoot(jobIdentifier), CRUISE_OUTPUT_FOLDER, MD5_CHECKSUM_FILENAME);
+        File checksumFile = artifactsService.getArtifactLocation(checksumFilePath);
+        synchronized (checksumFilePath.intern()) {
+            return artifactsService.saveOrAppendFile(checksumFile, checksums);
+        }
+    }
+
     private boolean saveFile(int convertedAttempt, File artifact, MultipartFile multipartFile, boolean shouldUnzip) throws IOException {
         try (InputStream inputStream = multipartFile.getInputStream()) {
             return artifactsService.saveFile(artifact, inputStream, shouldUnzip, convertedAttempt);
@@ -223,7 +341,7 @@ public class ArtifactsController {
         }
 
         if (isConsoleOutput(filePath)) {
-            return putConsoleOutput(jobIdentifier, request.getInputStream());
+            return putConsoleOutput(jobIdentifier, consoleInput(request));
         } else {
             return putArtifact(jobIdentifier, filePath, request.getInputStream());
         }
@@ -237,7 +355,8 @@ public class ArtifactsController {
                                       @RequestParam("stageName") String stageName,
                                       @RequestParam("buildName") String buildName,
                                       @RequestParam(value = "stageCounter", required = false) String stageCounter,
-                                      @RequestParam(value = "startLineNumber", required = false) Long start
+                                      @RequestParam(value = "startLineNumber", required = false) Long start,
+                                      @RequestParam(value = "endLineNumber", required = false) Long end
     ) {
         if (!isValidStageCounter(stageCounter)) {
             return buildNotFound(pipelineName, pipelineCounter, stageName, stageCounter, buildName);
@@ -248,7 +367,7 @@ public class ArtifactsController {
             if (jobInstanceDao.isJobCompleted(identifier) && !consoleService.doesLogExist(identifier)) {
                 return logsNotFound(identifier);
             }
-            ConsoleConsumer streamer = consoleService.getStreamer(start == null ? 0 : start, identifier);
+            ConsoleConsumer streamer = consoleService.getStreamer(start == null ? 0 : start, end == null ? Long.MAX_VALUE : end, identifier);
             return new ModelAndView(new ConsoleOutView(streamer, consoleLogCharset));
         } catch (Exception e) {
             return buildNotFound(pipelineName, pipelineCounter, stageName, stageCounter, buildName);
@@ -307,9 +426,16 @@ public class ArtifactsController {
         return request.getFile(StandardHeaders.Multipart.CHECKSUM_FILENAME);
     }
 
+    private InputStream consoleInput(HttpServletRequest request) throws IOException {
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            return new GZIPInputStream(request.getInputStream());
+        }
+        return request.getInputStream();
+    }
+
     private ModelAndView putConsoleOutput(final JobIdentifier jobIdentifier, final InputStream inputStream) throws IllegalArtifactLocationException {
         File consoleLogFile = consoleService.consoleLogFile(jobIdentifier);
-        boolean updated = consoleService.appendToConsoleLogIoSafe(consoleLogFile, inputStream);
+        boolean updated = consoleService.appendToConsoleLogIoSafe(jobIdentifier, consoleLogFile, inputStream);
         if (updated) {
             consoleActivityMonitor.consoleUpdatedFor(jobIdentifier);
             return FileModelAndView.fileAppended(consoleLogFile.getPath());
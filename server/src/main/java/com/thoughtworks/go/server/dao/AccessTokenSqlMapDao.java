@@ -17,6 +17,8 @@ package com.thoughtworks.go.server.dao;
 
 import com.thoughtworks.go.domain.AccessToken;
 import com.thoughtworks.go.server.service.AccessTokenFilter;
+import com.thoughtworks.go.server.service.VerifiedAccessTokenCache;
+import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.util.Clock;
 import org.hibernate.Criteria;
@@ -29,6 +31,7 @@ import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import java.sql.Timestamp;
 import java.util.Collection;
@@ -40,13 +43,19 @@ public class AccessTokenSqlMapDao extends HibernateDaoSupport implements AccessT
     private final SessionFactory sessionFactory;
     private final TransactionTemplate transactionTemplate;
     private final Clock clock;
+    private final TransactionSynchronizationManager transactionSynchronizationManager;
+    private final VerifiedAccessTokenCache verifiedAccessTokenCache;
 
     @Autowired
     public AccessTokenSqlMapDao(SessionFactory sessionFactory,
-                                TransactionTemplate transactionTemplate, Clock clock) {
+                                TransactionTemplate transactionTemplate, Clock clock,
+                                TransactionSynchronizationManager transactionSynchronizationManager,
+                                VerifiedAccessTokenCache verifiedAccessTokenCache) {
         this.sessionFactory = sessionFactory;
         this.transactionTemplate = transactionTemplate;
         this.clock = clock;
+        this.transactionSynchronizationManager = transactionSynchronizationManager;
+        this.verifiedAccessTokenCache = verifiedAccessTokenCache;
         setSessionFactory(sessionFactory);
     }
 
@@ -55,6 +64,7 @@ public class AccessTokenSqlMapDao extends HibernateDaoSupport implements AccessT
         transactionTemplate.execute(new TransactionCallbackWithoutResult() {
             @Override
             protected void doInTransactionWithoutResult(TransactionStatus status) {
+                invalidateVerifiedTokensOnCommit(() -> verifiedAccessTokenCache.invalidate(accessToken.getId()));
                 sessionFactory.getCurrentSession().saveOrUpdate(AccessToken.class.getName(), accessToken);
             }
         });
@@ -106,6 +116,7 @@ public class AccessTokenSqlMapDao extends HibernateDaoSupport implements AccessT
     @Override
     public void revokeTokensBecauseOfUserDelete(Collection<String> usernames, String byWhom) {
         transactionTemplate.execute(status -> {
+            invalidateVerifiedTokensOnCommit(verifiedAccessTokenCache::invalidateAll);
             Session currentSession = sessionFactory.getCurrentSession();
             usernames
                 .stream()
@@ -151,4 +162,15 @@ public class AccessTokenSqlMapDao extends HibernateDaoSupport implements AccessT
             return Boolean.TRUE;
         });
     }
+
+    // once now, so a token already cached stops being served, and again on commit, so a token loaded in between does not outlive the change
+    private void invalidateVerifiedTokensOnCommit(Runnable invalidation) {
+        invalidation.run();
+        transactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                invalidation.run();
+            }
+        });
+    }
 }
@@ -32,12 +32,14 @@ import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.ui.SortOrder;
 import com.thoughtworks.go.util.ClonerFactory;
+import com.thoughtworks.go.util.SystemEnvironment;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.Configuration;
 import net.sf.ehcache.config.PersistenceConfiguration;
 import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -53,12 +55,14 @@ import org.springframework.transaction.support.TransactionSynchronizationAdapter
 
 import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.thoughtworks.go.server.dao.NullableMaps.nullableMapOf;
 
 @Component
 public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobInstanceDao, JobStatusListener {
     private static final Logger LOG = LoggerFactory.getLogger(JobInstanceSqlMapDao.class);
+    private static final int BATCH_SIZE_NUM_SCHEDULED_PLANS = 500;
     private final LazyCache latestCompletedCache;
     private final CacheKeyGenerator cacheKeyGenerator;
     private final Cache<JobInstance.BuildDurationKey, ?> buildDurationCache;
@@ -69,6 +73,9 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     private final Cloner cloner = ClonerFactory.instance();
     private final ResourceRepository resourceRepository;
     private final ArtifactPlanRepository artifactPlanRepository;
+    private final SystemEnvironment systemEnvironment;
+    private final AtomicLong scheduledJobsVersion = new AtomicLong();
+    private volatile ScheduledPlans lastScheduledPlans;
 
     @Autowired
     public JobInstanceSqlMapDao(EnvironmentVariableDao environmentVariableDao,
@@ -79,7 +86,8 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
                                 TransactionSynchronizationManager transactionSynchronizationManager,
                                 ResourceRepository resourceRepository,
                                 ArtifactPlanRepository artifactPlanRepository,
-                                JobAgentMetadataDao jobAgentMetadataDao) {
+                                JobAgentMetadataDao jobAgentMetadataDao,
+                                SystemEnvironment systemEnvironment) {
         super(goCache, sqlSessionFactory);
         this.environmentVariableDao = environmentVariableDao;
         this.transactionTemplate = transactionTemplate;
@@ -88,6 +96,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         this.resourceRepository = resourceRepository;
         this.artifactPlanRepository = artifactPlanRepository;
         this.jobAgentMetadataDao = jobAgentMetadataDao;
+        this.systemEnvironment = systemEnvironment;
         this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
         this.latestCompletedCache = new LazyCache(createCacheIfRequired(getClass().getName()), transactionSynchronizationManager);
     }
@@ -310,6 +319,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
                         goCache.remove(activeJobKey);
                     }
                     removeCachedJobInstance(jobInstance);
+                    scheduledJobsVersion.incrementAndGet();
                 }
             });
             logIfJobIsCompleted(jobInstance);
@@ -404,33 +414,62 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
     @Override
     public List<JobPlan> orderedScheduledBuilds() {
+        long version = scheduledJobsVersion.get();
+        ScheduledPlans last = lastScheduledPlans;
+        if (systemEnvironment.get(SystemEnvironment.SCHEDULED_JOB_PLANS_INCREMENTAL_RELOAD) && last != null && last.version() == version) {
+            return new ArrayList<>(last.plans());
+        }
+
         List<Long> jobIds = getSqlMapClientTemplate().queryForList("scheduledPlanIds");
 
+        Map<Long, JobPlan> plansById = new HashMap<>();
+        List<Long> missingJobIds = new ArrayList<>();
+        for (Long jobId : jobIds) {
+            JobPlan jobPlan = goCache.get(cacheKeyForJobPlan(jobId));
+            if (jobPlan == null) {
+                missingJobIds.add(jobId);
+            } else {
+                plansById.put(jobId, jobPlan);
+            }
+        }
+        plansById.putAll(loadScheduledPlans(missingJobIds, version));
+
         List<JobPlan> plans = new ArrayList<>();
         for (Long jobId : jobIds) {
-            String cacheKey = cacheKeyForJobPlan(jobId);
-            synchronized (cacheKey) {
-                JobPlan jobPlan = goCache.get(cacheKey);
-                if (jobPlan == null) {
-                    jobPlan = _loadJobPlan(jobId);
-                }
-                if (jobPlan != null) {
-                    jobPlan = cloner.deepClone(jobPlan);
-                    goCache.put(cacheKey, jobPlan);
-                    plans.add(jobPlan);
-                }
+            JobPlan jobPlan = plansById.get(jobId);
+            if (jobPlan != null) {
+                plans.add(jobPlan);
             }
         }
+        lastScheduledPlans = new ScheduledPlans(version, List.copyOf(plans));
         return plans;
     }
 
-    private JobPlan _loadJobPlan(Long jobId) {
-        DefaultJobPlan jobPlan = getSqlMapClientTemplate().queryForObject("scheduledPlan", nullableMapOf("id", jobId));
-        if (jobPlan == null) {
-            return null;
+    private Map<Long, JobPlan> loadScheduledPlans(List<Long> jobIds, long version) {
+        Map<Long, JobPlan> plans = new HashMap<>();
+        for (List<Long> batch : ListUtils.partition(jobIds, BATCH_SIZE_NUM_SCHEDULED_PLANS)) {
+            List<DefaultJobPlan> loaded = getSqlMapClientTemplate().queryForList("scheduledPlans", Map.of("ids", batch));
+            for (DefaultJobPlan jobPlan : loaded) {
+                loadJobPlanAssociatedEntities(jobPlan);
+                jobPlan.makeReadOnly();
+                String cacheKey = cacheKeyForJobPlan(jobPlan.getJobId());
+                synchronized (cacheKey) {
+                    // a job whose state changed while it was being loaded may no longer be scheduled; do not cache it
+                    if (scheduledJobsVersion.get() == version) {
+                        goCache.put(cacheKey, jobPlan);
+                    }
+                }
+                plans.put(jobPlan.getJobId(), jobPlan);
+            }
         }
-        loadJobPlanAssociatedEntities(jobPlan);
-        return jobPlan;
+        return plans;
+    }
+
+    /**
+     * The scheduled plans returned by the last reload, along with the version of scheduled jobs they were loaded at.
+     * Any job state change bumps the version, so an unchanged version means the plans can be handed out again as is.
+     */
+    private record ScheduledPlans(long version, List<JobPlan> plans) {
     }
 
     @VisibleForTesting
@@ -37,6 +37,7 @@ public abstract class AbstractDashboardGroup implements DashboardGroup {
     private final String name;
     private final boolean hasDefinedPipelines;
     private final Map<String, GoDashboardPipeline> pipelines = new LinkedHashMap<>();
+    private long pipelinesSegment = 0;
 
     AbstractDashboardGroup(String name, boolean hasDefinedPipelines) {
         this.name = name;
@@ -82,7 +83,11 @@ public abstract class AbstractDashboardGroup implements DashboardGroup {
     @Override
     public void addPipeline(GoDashboardPipeline pipeline) {
         if (pipeline != null) {
-            pipelines.put(pipeline.name().toString(), pipeline);
+            GoDashboardPipeline replaced = pipelines.put(pipeline.name().toString(), pipeline);
+            if (replaced != null) {
+                pipelinesSegment -= replaced.cacheSegment();
+            }
+            pipelinesSegment += pipeline.cacheSegment();
         }
     }
 
@@ -96,12 +101,9 @@ public abstract class AbstractDashboardGroup implements DashboardGroup {
             outputStreamWriter.write('/');
             outputStreamWriter.write(permissionsSegment);
             outputStreamWriter.write('[');
-
-            for (GoDashboardPipeline pipeline : allPipelines()) {
-                outputStreamWriter.write(pipeline.cacheSegment());
-                outputStreamWriter.write(',');
-            }
-
+            outputStreamWriter.write(Integer.toString(pipelines.size()));
+            outputStreamWriter.write(':');
+            outputStreamWriter.write(Long.toHexString(pipelinesSegment));
             outputStreamWriter.write(']');
             outputStreamWriter.flush();
 
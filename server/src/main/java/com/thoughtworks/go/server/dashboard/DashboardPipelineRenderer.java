@@ -0,0 +1,28 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import com.thoughtworks.go.server.domain.Username;
+
+import java.net.URI;
+
+/* Understands rendering a pipeline on the dashboard for a user, in the same form as the dashboard API does. */
+public interface DashboardPipelineRenderer {
+    /**
+     * @param rootUrl the URL of the server up to and including its context path, which links are made absolute with
+     */
+    String render(GoDashboardPipeline pipeline, Username username, URI rootUrl);
+}
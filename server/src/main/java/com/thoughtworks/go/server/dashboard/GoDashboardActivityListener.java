@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.dashboard;
 
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.PipelineConfigs;
@@ -33,13 +34,19 @@ import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.server.service.PipelineLockService;
 import com.thoughtworks.go.server.service.PipelinePauseService;
 import com.thoughtworks.go.server.service.StageService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.jetbrains.annotations.TestOnly;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PreDestroy;
 
+import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+
 /* Listens to all activity that is needed to keep the dashboard updated and sets it up for processing.
+ *
+ * Updates for a single pipeline are processed in parallel with updates for other pipelines, and a pending update for a
+ * pipeline is replaced by a later one of the same kind. Updates for the whole config are processed on their own.
  */
 @Component
 public class GoDashboardActivityListener implements Initializer, Daemonized, ConfigChangedListener, PipelinePauseChangeListener,
@@ -65,7 +72,8 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
                                        GoDashboardConfigChangeHandler configChangeHandler,
                                        GoDashboardPipelinePauseStatusChangeHandler pauseStatusChangeHandler,
                                        GoDashboardPipelineLockStatusChangeHandler lockStatusChangeHandler,
-                                       GoDashboardTemplateConfigChangeHandler templateConfigChangeHandler) {
+                                       GoDashboardTemplateConfigChangeHandler templateConfigChangeHandler,
+                                       SystemEnvironment systemEnvironment) {
         this.goConfigService = goConfigService;
         this.stageService = stageService;
         this.pipelinePauseService = pipelinePauseService;
@@ -77,7 +85,7 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
         this.lockStatusChangeHandler = lockStatusChangeHandler;
         this.templateConfigChangeHandler = templateConfigChangeHandler;
 
-        this.processor = new MultiplexingQueueProcessor("Dashboard");
+        this.processor = new MultiplexingQueueProcessor("Dashboard", systemEnvironment.get(SystemEnvironment.DASHBOARD_QUEUE_PROCESSOR_WORKERS));
     }
 
     @Override
@@ -108,9 +116,13 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
         return processor.isEmpty();
     }
 
+    public MultiplexingQueueProcessor.Statistics queueStatistics() {
+        return processor.statistics();
+    }
+
     @Override
     public void onConfigChange(final CruiseConfig newConfig) {
-        processor.add(new Action() {
+        processor.add(new ConfigReloadAction() {
             @Override
             public void call() {
                 configChangeHandler.call(newConfig);
@@ -127,7 +139,7 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
         return new EntityConfigChangedListener<>() {
             @Override
             public void onEntityConfigChange(final PipelineConfig pipelineConfig) {
-                processor.add(new Action() {
+                processor.add(new PipelineUpdateAction(pipelineConfig.name(), PipelineUpdate.CONFIG) {
                     @Override
                     public void call() {
                         configChangeHandler.call(pipelineConfig);
@@ -146,7 +158,7 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
         return new EntityConfigChangedListener<>() {
             @Override
             public void onEntityConfigChange(final PipelineConfigs pipelineConfigs) {
-                processor.add(new Action() {
+                processor.add(new ConfigReloadAction() {
                     @Override
                     public void call() {
                         configChangeHandler.call(goConfigService.currentCruiseConfig());
@@ -181,7 +193,7 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
     }
 
     private StageStatusListener stageStatusChangedListener() {
-        return stage -> processor.add(new Action() {
+        return stage -> processor.add(new PipelineUpdateAction(cis(stage.getIdentifier().getPipelineName()), PipelineUpdate.STAGE_STATUS) {
             @Override
             public void call() {
                 stageStatusChangeHandler.call(stage);
@@ -198,7 +210,7 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
         return new SecurityConfigChangeListener() {
             @Override
             public void onEntityConfigChange(Object entity) {
-                processor.add(new Action() {
+                processor.add(new ConfigReloadAction() {
                     @Override
                     public void call() {
                         configChangeHandler.call(goConfigService.currentCruiseConfig());
@@ -215,7 +227,7 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
 
     @Override
     public void pauseStatusChanged(final PipelinePauseChangeListener.Event event) {
-        processor.add(new Action() {
+        processor.add(new PipelineUpdateAction(cis(event.pipelineName()), PipelineUpdate.PAUSE_STATUS) {
             @Override
             public void call() {
                 pauseStatusChangeHandler.call(event);
@@ -230,7 +242,7 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
 
     @Override
     public void lockStatusChanged(final PipelineLockStatusChangeListener.Event event) {
-        processor.add(new Action() {
+        processor.add(new PipelineUpdateAction(cis(event.pipelineName()), PipelineUpdate.LOCK_STATUS) {
             @Override
             public void call() {
                 lockStatusChangeHandler.call(event);
@@ -242,4 +254,38 @@ public class GoDashboardActivityListener implements Initializer, Daemonized, Con
             }
         });
     }
+
+    private enum PipelineUpdate {
+        CONFIG, STAGE_STATUS, PAUSE_STATUS, LOCK_STATUS
+    }
+
+    /* Not every update of a single pipeline reloads all of its state (config changes skip pipelines that use templates),
+     * so a pending update is only made redundant by a later one of the same kind. */
+    private abstract static class PipelineUpdateAction implements Action {
+        private final CaseInsensitiveString pipelineName;
+        private final PipelineUpdate kind;
+
+        private PipelineUpdateAction(CaseInsensitiveString pipelineName, PipelineUpdate kind) {
+            this.pipelineName = pipelineName;
+            this.kind = kind;
+        }
+
+        @Override
+        public Object partitionKey() {
+            return pipelineName;
+        }
+
+        @Override
+        public boolean supersedes(Action pending) {
+            return pending instanceof PipelineUpdateAction update && update.kind == kind;
+        }
+    }
+
+    /* Reloads every pipeline from a config at least as recent as that of any pending reload. */
+    private abstract static class ConfigReloadAction implements Action {
+        @Override
+        public boolean supersedes(Action pending) {
+            return pending instanceof ConfigReloadAction;
+        }
+    }
 }
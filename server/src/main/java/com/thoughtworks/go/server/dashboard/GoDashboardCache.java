@@ -23,20 +23,30 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 /* Understands how to cache dashboard statuses, for every pipeline. */
 @Component
 public class GoDashboardCache {
+    private static final int MAX_FRAGMENTS_PER_PIPELINE = 32;
+
     private final TimeStampBasedCounter timeStampBasedCounter;
     /**
-     * Assumption: The put() and replaceAllEntriesInCacheWith() methods, which change this cache,
-     * will always be called from the same thread (queueProcessor in GoDashboardActivityListener). Even get() will be.
-     * So, not surrounding it with a synchronizedMap. Also, uses {@link LinkedHashMap} to preserve insertion order. That
-     * order is not very important in this case, but it comes for free (almost) because of the map.
+     * The put(), remove() and replaceAllEntriesInCacheWith() methods, which change this cache, are called from the
+     * workers of the queueProcessor in GoDashboardActivityListener, and only ever wait for each other for as long as it
+     * takes to copy one group. Readers on other threads only ever see a complete, immutable snapshot, and a change to one
+     * pipeline only copies the group of that pipeline.
      */
-    private final Map<CaseInsensitiveString, GoDashboardPipeline> cache = new LinkedHashMap<>();
-
     private volatile GoDashboardPipelines dashboardPipelines;
+    /**
+     * Serialized forms of the cached pipelines, e.g. the JSON of the dashboard API. They belong to one snapshot of a
+     * pipeline, and are dropped as soon as that pipeline changes.
+     */
+    private final ConcurrentMap<CaseInsensitiveString, PipelineFragments> fragments = new ConcurrentHashMap<>();
+    private final List<GoDashboardChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public GoDashboardCache(TimeStampBasedCounter timeStampBasedCounter) {
@@ -44,27 +54,60 @@ public class GoDashboardCache {
         dashboardPipelines = new GoDashboardPipelines(new HashMap<>(), timeStampBasedCounter);
     }
 
-    public void put(GoDashboardPipeline pipeline) {
-        cache.put(pipeline.name(), pipeline);
-        cacheHasChanged();
+    public synchronized void put(GoDashboardPipeline pipeline) {
+        dashboardPipelines = dashboardPipelines.with(pipeline, timeStampBasedCounter);
+        fragments.remove(pipeline.name());
+        listeners.forEach(listener -> listener.pipelineChanged(pipeline));
     }
 
-    public void remove(CaseInsensitiveString pipelineName) {
-        cache.remove(pipelineName);
+    public synchronized void remove(CaseInsensitiveString pipelineName) {
+        GoDashboardPipeline removed = dashboardPipelines.find(pipelineName);
+        dashboardPipelines = dashboardPipelines.without(pipelineName, timeStampBasedCounter);
+        fragments.remove(pipelineName);
+        if (removed != null) {
+            listeners.forEach(listener -> listener.pipelineRemoved(removed));
+        }
+    }
+
+    public synchronized void replaceAllEntriesInCacheWith(List<GoDashboardPipeline> newPipelinesToCache) {
+        dashboardPipelines = new GoDashboardPipelines(createMapFor(newPipelinesToCache), timeStampBasedCounter);
+        fragments.clear();
+        listeners.forEach(GoDashboardChangeListener::allPipelinesChanged);
     }
 
-    public void replaceAllEntriesInCacheWith(List<GoDashboardPipeline> newPipelinesToCache) {
-        cache.clear();
-        cache.putAll(createMapFor(newPipelinesToCache));
-        cacheHasChanged();
+    /**
+     * Listeners are told about changes in the order they happen, while holding up further changes, so they should hand
+     * off any real work to another thread.
+     */
+    public void addListener(GoDashboardChangeListener listener) {
+        listeners.add(listener);
     }
 
     public GoDashboardPipelines allEntries() {
         return dashboardPipelines;
     }
 
-    private void cacheHasChanged() {
-        dashboardPipelines = new GoDashboardPipelines(new HashMap<>(cache), timeStampBasedCounter);
+    /**
+     * @param variant  identifies everything other than the pipeline that the fragment depends on, such as the
+     *                 permissions of the user it is rendered for
+     * @param renderer renders the fragment, when it is not cached yet
+     * @return the cached fragment of the pipeline for the variant. Fragments are only cached for the current snapshot of
+     * a pipeline, so one rendered for a snapshot that has been replaced already is returned without being cached.
+     */
+    public String pipelineFragment(GoDashboardPipeline pipeline, String variant, Supplier<String> renderer) {
+        PipelineFragments pipelineFragments = fragments.get(pipeline.name());
+        if (pipelineFragments == null || pipelineFragments.pipeline() != pipeline) {
+            if (dashboardPipelines.find(pipeline.name()) != pipeline) {
+                return renderer.get();
+            }
+            pipelineFragments = fragments.compute(pipeline.name(), (name, existing) ->
+                existing != null && existing.pipeline() == pipeline ? existing : new PipelineFragments(pipeline, new ConcurrentHashMap<>()));
+        }
+
+        if (pipelineFragments.byVariant().size() >= MAX_FRAGMENTS_PER_PIPELINE) {
+            pipelineFragments.byVariant().clear();
+        }
+        return pipelineFragments.byVariant().computeIfAbsent(variant, key -> renderer.get());
     }
 
     private Map<CaseInsensitiveString, GoDashboardPipeline> createMapFor(List<GoDashboardPipeline> pipelines) {
@@ -74,4 +117,7 @@ public class GoDashboardCache {
         }
         return result;
     }
+
+    private record PipelineFragments(GoDashboardPipeline pipeline, ConcurrentMap<String, String> byVariant) {
+    }
 }
@@ -60,7 +60,8 @@ public class GoDashboardCurrentStateLoader {
     private final SchedulingCheckerService schedulingCheckerService;
     private final GoConfigPipelinePermissionsAuthority permissionsAuthority;
     private final TimeStampBasedCounter timeStampBasedCounter;
-    private boolean everLoadedCurrentState = false;
+    private final Object fullLoadLock = new Object();
+    private volatile boolean everLoadedCurrentState = false;
     private PipelineInstanceModels historyForDashboard = PipelineInstanceModels.createPipelineInstanceModels();
     private Set<CaseInsensitiveString> lastKnownPipelineNames = new HashSet<>();
 
@@ -79,42 +80,55 @@ public class GoDashboardCurrentStateLoader {
         this.timeStampBasedCounter = timeStampBasedCounter;
     }
 
+    /**
+     * Only the bookkeeping of which pipelines are known is done while holding on to this loader, so that updates of
+     * single pipelines (see {@link #pipelineFor(PipelineConfig, PipelineConfigs)}) are not held up by the history
+     * query and the rest of a full load.
+     */
     public List<GoDashboardPipeline> allPipelines(CruiseConfig config) {
-        List<CaseInsensitiveString> allPipelineNames = config.getAllPipelineNames();
-
-        HashSet<CaseInsensitiveString> currentPipelineNames = new HashSet<>(allPipelineNames);
-
-        Collection<CaseInsensitiveString> pipelinesToRemove = SetUtils.difference(lastKnownPipelineNames, currentPipelineNames);
-        Collection<CaseInsensitiveString> pipelinesToAdd = SetUtils.difference(currentPipelineNames, lastKnownPipelineNames);
-
-        if (!pipelinesToAdd.isEmpty()) {
-            historyForDashboard.addAll(loadHistoryForPipelines(new ArrayList<>(CaseInsensitiveString.toStringList(pipelinesToAdd))));
-        }
-
-        for (CaseInsensitiveString pipelineNameToRemove : new ArrayList<>(pipelinesToRemove)) {
-            clearEntryFor(pipelineNameToRemove);
-        }
+        synchronized (fullLoadLock) {
+            HashSet<CaseInsensitiveString> currentPipelineNames = new HashSet<>(config.getAllPipelineNames());
+            Collection<CaseInsensitiveString> pipelinesToAdd;
+            synchronized (this) {
+                for (CaseInsensitiveString pipelineNameToRemove : SetUtils.difference(lastKnownPipelineNames, currentPipelineNames).toSet()) {
+                    clearEntryFor(pipelineNameToRemove);
+                }
+                pipelinesToAdd = SetUtils.difference(currentPipelineNames, lastKnownPipelineNames).toSet();
+                lastKnownPipelineNames = new HashSet<>(currentPipelineNames);
+            }
 
-        lastKnownPipelineNames = currentPipelineNames;
+            PipelineInstanceModels added = pipelinesToAdd.isEmpty()
+                ? createPipelineInstanceModels()
+                : loadHistoryForPipelines(new ArrayList<>(CaseInsensitiveString.toStringList(pipelinesToAdd)));
+
+            PipelineInstanceModels history;
+            synchronized (this) {
+                // a single pipeline may have been brought up to date meanwhile, in which case its history is newer
+                Set<String> alreadyLoaded = new HashSet<>();
+                historyForDashboard.forEach(model -> alreadyLoaded.add(model.getName().toLowerCase()));
+                added.stream().filter(model -> !alreadyLoaded.contains(model.getName().toLowerCase())).forEach(historyForDashboard::add);
+                history = createPipelineInstanceModels(new ArrayList<>(historyForDashboard));
+            }
 
-        LOGGER.debug("Loading permissions from authority");
-        final Map<CaseInsensitiveString, Permissions> pipelinesAndTheirPermissions = permissionsAuthority.pipelinesAndTheirPermissions();
+            LOGGER.debug("Loading permissions from authority");
+            final Map<CaseInsensitiveString, Permissions> pipelinesAndTheirPermissions = permissionsAuthority.pipelinesAndTheirPermissions();
 
-        final List<GoDashboardPipeline> pipelines = new ArrayList<>(1024);
+            final List<GoDashboardPipeline> pipelines = new ArrayList<>(1024);
 
-        LOGGER.debug("Populating dashboard pipelines");
-        config.accept((PipelineGroupVisitor) group -> group.accept(pipelineConfig -> {
-            long start = System.currentTimeMillis();
-            Permissions permissions = pipelinesAndTheirPermissions.getOrDefault(pipelineConfig.getName(), Permissions.NOONE);
-            pipelines.add(createGoDashboardPipeline(pipelineConfig, permissions, historyForDashboard, group));
+            LOGGER.debug("Populating dashboard pipelines");
+            config.accept((PipelineGroupVisitor) group -> group.accept(pipelineConfig -> {
+                long start = System.currentTimeMillis();
+                Permissions permissions = pipelinesAndTheirPermissions.getOrDefault(pipelineConfig.getName(), Permissions.NOONE);
+                pipelines.add(createGoDashboardPipeline(pipelineConfig, permissions, history, group));
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("It took {} ms to process pipeline {}", System.currentTimeMillis() - start, pipelineConfig.getName());
-            }
-        }));
-        LOGGER.debug("Done populating dashboard pipelines");
-        this.everLoadedCurrentState = true;
-        return pipelines;
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("It took {} ms to process pipeline {}", System.currentTimeMillis() - start, pipelineConfig.getName());
+                }
+            }));
+            LOGGER.debug("Done populating dashboard pipelines");
+            this.everLoadedCurrentState = true;
+            return pipelines;
+        }
     }
 
     public boolean hasEverLoadedCurrentState() {
@@ -138,7 +152,7 @@ public class GoDashboardCurrentStateLoader {
         return createGoDashboardPipeline(pipelineConfig, permissions, pipelineHistoryForDashboard, groupConfig);
     }
 
-    private void syncHistoryForDashboard(PipelineInstanceModels pipelineHistoryForDashboard, final CaseInsensitiveString pipelineName) {
+    private synchronized void syncHistoryForDashboard(PipelineInstanceModels pipelineHistoryForDashboard, final CaseInsensitiveString pipelineName) {
         clearEntryFor(pipelineName);
         historyForDashboard.addAll(pipelineHistoryForDashboard);
         lastKnownPipelineNames.add(pipelineName);
@@ -202,12 +216,12 @@ public class GoDashboardCurrentStateLoader {
         instanceModel.setCanUnlock(canBeUnlocked);
     }
 
-    public void reset() {
+    public synchronized void reset() {
         historyForDashboard = PipelineInstanceModels.createPipelineInstanceModels();
         lastKnownPipelineNames = new HashSet<>();
     }
 
-    public void clearEntryFor(CaseInsensitiveString pipeline) {
+    public synchronized void clearEntryFor(CaseInsensitiveString pipeline) {
         lastKnownPipelineNames.remove(pipeline);
         historyForDashboard.removeIf(pipelineInstanceModel -> pipeline.equals(cis(pipelineInstanceModel.getName())));
     }
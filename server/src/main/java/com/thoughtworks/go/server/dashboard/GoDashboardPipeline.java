@@ -38,6 +38,7 @@ public class GoDashboardPipeline {
     private final ConfigOrigin origin;
     private final int displayOrderWeight;
     private final PipelineConfig pipelineConfig;
+    private final long cacheSegment;
 
     public GoDashboardPipeline(PipelineModel pipelineModel, Permissions permissions, String groupName, Counter timeStampBasedCounter, PipelineConfig pipelineConfig) {
         this.pipelineModel = pipelineModel;
@@ -48,6 +49,7 @@ public class GoDashboardPipeline {
         this.origin = pipelineConfig.getOrigin();
         this.displayOrderWeight = pipelineConfig.getDisplayOrderWeight();
         this.pipelineConfig = pipelineConfig;
+        this.cacheSegment = mix(name().toString().hashCode() * 0x9E3779B97F4A7C15L + lastUpdatedTimeStamp);
     }
 
     public String groupName() {
@@ -129,8 +131,22 @@ public class GoDashboardPipeline {
         return result;
     }
 
-    String cacheSegment() {
-        return name().toString() + ":" + getLastUpdatedTimeStamp();
+    /**
+     * @return a well-mixed hash of this pipeline's name and timestamp, which changes every time the pipeline does and
+     * can be summed up into the etag of a group without having to hash the group's pipelines again
+     */
+    long cacheSegment() {
+        return cacheSegment;
+    }
+
+    // the finalizer of MurmurHash3's 64-bit variant
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
     }
 
     public boolean isLocal() {
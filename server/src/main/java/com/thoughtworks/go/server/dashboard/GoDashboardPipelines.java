@@ -17,32 +17,104 @@ package com.thoughtworks.go.server.dashboard;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
 
-import java.util.Collection;
-import java.util.Map;
+import java.util.*;
 
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * An immutable snapshot of the dashboard statuses of all pipelines, held per pipeline group. Changing a pipeline with
+ * {@link #with(GoDashboardPipeline, Counter)} copies only the map of groups and the group of that pipeline; every
+ * other group, and the index from pipeline to group unless the pipeline is new or moved, is shared with the previous
+ * snapshot.
+ */
 public class GoDashboardPipelines {
-    private final Map<CaseInsensitiveString, GoDashboardPipeline> pipelines;
+    private final Map<String, Map<CaseInsensitiveString, GoDashboardPipeline>> groups;
+    private final Map<CaseInsensitiveString, String> groupOfPipeline;
     private final long lastUpdatedTimeStamp;
 
-    public GoDashboardPipelines(Map<CaseInsensitiveString, GoDashboardPipeline> pipelines, TimeStampBasedCounter timeStampBasedCounter) {
-        this.pipelines = pipelines;
+    public GoDashboardPipelines(Map<CaseInsensitiveString, GoDashboardPipeline> pipelines, Counter timeStampBasedCounter) {
+        Map<String, Map<CaseInsensitiveString, GoDashboardPipeline>> groups = new HashMap<>();
+        Map<CaseInsensitiveString, String> groupOfPipeline = new HashMap<>();
+        pipelines.forEach((name, pipeline) -> {
+            groups.computeIfAbsent(pipeline.groupName(), group -> new LinkedHashMap<>()).put(name, pipeline);
+            groupOfPipeline.put(name, pipeline.groupName());
+        });
+        groups.replaceAll((group, pipelinesInGroup) -> unmodifiableMap(pipelinesInGroup));
+        this.groups = unmodifiableMap(groups);
+        this.groupOfPipeline = unmodifiableMap(groupOfPipeline);
         this.lastUpdatedTimeStamp = timeStampBasedCounter.getNext();
     }
 
+    private GoDashboardPipelines(Map<String, Map<CaseInsensitiveString, GoDashboardPipeline>> groups, Map<CaseInsensitiveString, String> groupOfPipeline, Counter timeStampBasedCounter) {
+        this.groups = groups;
+        this.groupOfPipeline = groupOfPipeline;
+        this.lastUpdatedTimeStamp = timeStampBasedCounter.getNext();
+    }
+
+    /**
+     * @return a snapshot with the pipeline added, or replacing the pipeline of the same name
+     */
+    GoDashboardPipelines with(GoDashboardPipeline pipeline, Counter timeStampBasedCounter) {
+        CaseInsensitiveString name = pipeline.name();
+        String previousGroup = groupOfPipeline.get(name);
+        Map<String, Map<CaseInsensitiveString, GoDashboardPipeline>> newGroups = new HashMap<>(groups);
+        if (previousGroup != null && !Objects.equals(previousGroup, pipeline.groupName())) {
+            removeFrom(newGroups, previousGroup, name);
+        }
+        Map<CaseInsensitiveString, GoDashboardPipeline> group = new LinkedHashMap<>(groups.getOrDefault(pipeline.groupName(), Map.of()));
+        group.put(name, pipeline);
+        newGroups.put(pipeline.groupName(), unmodifiableMap(group));
+
+        Map<CaseInsensitiveString, String> newGroupOfPipeline = groupOfPipeline;
+        if (previousGroup == null || !Objects.equals(previousGroup, pipeline.groupName())) {
+            newGroupOfPipeline = new HashMap<>(groupOfPipeline);
+            newGroupOfPipeline.put(name, pipeline.groupName());
+            newGroupOfPipeline = unmodifiableMap(newGroupOfPipeline);
+        }
+        return new GoDashboardPipelines(unmodifiableMap(newGroups), newGroupOfPipeline, timeStampBasedCounter);
+    }
+
+    /**
+     * @return a snapshot without the pipeline, or this snapshot if it does not have the pipeline
+     */
+    GoDashboardPipelines without(CaseInsensitiveString name, Counter timeStampBasedCounter) {
+        String group = groupOfPipeline.get(name);
+        if (group == null) {
+            return this;
+        }
+        Map<String, Map<CaseInsensitiveString, GoDashboardPipeline>> newGroups = new HashMap<>(groups);
+        removeFrom(newGroups, group, name);
+        Map<CaseInsensitiveString, String> newGroupOfPipeline = new HashMap<>(groupOfPipeline);
+        newGroupOfPipeline.remove(name);
+        return new GoDashboardPipelines(unmodifiableMap(newGroups), unmodifiableMap(newGroupOfPipeline), timeStampBasedCounter);
+    }
+
+    private static void removeFrom(Map<String, Map<CaseInsensitiveString, GoDashboardPipeline>> groups, String group, CaseInsensitiveString name) {
+        Map<CaseInsensitiveString, GoDashboardPipeline> pipelinesInGroup = new LinkedHashMap<>(groups.get(group));
+        pipelinesInGroup.remove(name);
+        if (pipelinesInGroup.isEmpty()) {
+            groups.remove(group);
+        } else {
+            groups.put(group, unmodifiableMap(pipelinesInGroup));
+        }
+    }
+
     public long lastUpdatedTimeStamp() {
         return lastUpdatedTimeStamp;
     }
 
     public Collection<GoDashboardPipeline> getPipelines() {
-        return pipelines.values();
+        List<GoDashboardPipeline> pipelines = new ArrayList<>(groupOfPipeline.size());
+        groups.values().forEach(pipelinesInGroup -> pipelines.addAll(pipelinesInGroup.values()));
+        return pipelines;
     }
 
     public GoDashboardPipeline find(CaseInsensitiveString name) {
-        return pipelines.get(name);
+        String group = groupOfPipeline.get(name);
+        return group == null ? null : groups.get(group).get(name);
     }
 
     public boolean isEmpty() {
-        return pipelines.isEmpty();
+        return groupOfPipeline.isEmpty();
     }
 }
-
@@ -0,0 +1,308 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.domain.PipelineTimelineEntry.Revision;
+
+import java.util.*;
+
+/**
+ * Understands the runs of a single pipeline in the {@link PipelineTimeline}, kept in primitive arrays instead of as
+ * {@link PipelineTimelineEntry} objects since a server accumulates a lot of them over the years. Revisions are shared
+ * by all pipelines through {@link Revisions}, and a run only keeps a packed pair of ordinals for each of its revisions.
+ * <p>
+ * Entries handed out are created on demand and not linked to their neighbours; they are equal to the entries that were
+ * added. Not thread safe, {@link PipelineTimeline} guards access.
+ */
+final class CompactPipelineTimeline {
+    static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Revisions revisions;
+
+    // indexed by schedule order, i.e. the order in which runs were added
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] counters = new int[INITIAL_CAPACITY];
+    private double[] naturalOrders = new double[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] insertedBefore = new int[INITIAL_CAPACITY];
+    private int[] insertedAfter = new int[INITIAL_CAPACITY];
+    private int[] revisionsStart = new int[INITIAL_CAPACITY + 1];
+
+    private long[] packedRevisions = new long[INITIAL_CAPACITY];
+
+    // schedule order indexes, sorted by natural order
+    private int[] naturalOrder = new int[INITIAL_CAPACITY];
+
+    CompactPipelineTimeline(Revisions revisions) {
+        this.revisions = revisions;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the run and links it up with the runs before and after it in natural order, the same way
+     * {@link PipelineTimeline#add(PipelineTimelineEntry)} always has.
+     *
+     * @return {@code false} if a run with the same id was already there, in which case it is only linked up and checked
+     * against its neighbours, and nothing changes here
+     */
+    boolean add(PipelineTimelineEntry entry) {
+        int position = naturalPosition(entry);
+        if (position < 0) {
+            int existing = -(position + 1);
+            entry.setInsertedBefore(entry(existing + 1 < size ? naturalOrder[existing + 1] : NONE));
+            entry.setInsertedAfter(entry(existing > 0 ? naturalOrder[existing - 1] : NONE));
+            entry.updateNaturalOrder();
+            return false;
+        }
+        int index = append(entry);
+        naturalOrder = insert(naturalOrder, size - 1, position, index);
+
+        int after = position + 1 < size ? naturalOrder[position + 1] : NONE;
+        int before = position > 0 ? naturalOrder[position - 1] : NONE;
+        insertedBefore[index] = after;
+        insertedAfter[index] = before;
+
+        entry.setInsertedBefore(entry(after));
+        entry.setInsertedAfter(entry(before));
+        entry.updateNaturalOrder();
+        naturalOrders[index] = entry.naturalOrder();
+        return true;
+    }
+
+    /**
+     * Takes out the run with this id, which is expected to be one of the last ones added, as happens when the
+     * transaction that added it is rolled back.
+     */
+    void remove(long id) {
+        int index = indexOf(id);
+        if (index == NONE) {
+            return;
+        }
+        int position = 0;
+        while (naturalOrder[position] != index) {
+            position++;
+        }
+        System.arraycopy(naturalOrder, position + 1, naturalOrder, position, size - position - 1);
+
+        int revisionsFrom = revisionsStart[index];
+        int revisionsTo = revisionsStart[index + 1];
+        System.arraycopy(packedRevisions, revisionsTo, packedRevisions, revisionsFrom, revisionsStart[size] - revisionsTo);
+        for (int i = index; i < size; i++) {
+            revisionsStart[i] = revisionsStart[i + 1] - (revisionsTo - revisionsFrom);
+        }
+
+        int remaining = size - index - 1;
+        System.arraycopy(ids, index + 1, ids, index, remaining);
+        System.arraycopy(counters, index + 1, counters, index, remaining);
+        System.arraycopy(naturalOrders, index + 1, naturalOrders, index, remaining);
+        System.arraycopy(names, index + 1, names, index, remaining);
+        System.arraycopy(insertedBefore, index + 1, insertedBefore, index, remaining);
+        System.arraycopy(insertedAfter, index + 1, insertedAfter, index, remaining);
+        size--;
+        names[size] = null;
+
+        for (int i = 0; i < size; i++) {
+            naturalOrder[i] = shiftedAfterRemoving(naturalOrder[i], index);
+            insertedBefore[i] = shiftedAfterRemoving(insertedBefore[i], index);
+            insertedAfter[i] = shiftedAfterRemoving(insertedAfter[i], index);
+        }
+    }
+
+    private static int shiftedAfterRemoving(int reference, int removed) {
+        if (reference == removed) {
+            return NONE;
+        }
+        return reference > removed ? reference - 1 : reference;
+    }
+
+    /**
+     * @return the run at this position in schedule order, or {@code null} for {@link #NONE}
+     */
+    PipelineTimelineEntry entry(int index) {
+        if (index == NONE) {
+            return null;
+        }
+        Map<String, List<Revision>> revisionsByFingerprint = new HashMap<>();
+        for (int i = revisionsStart[index]; i < revisionsStart[index + 1]; i++) {
+            long packed = packedRevisions[i];
+            revisionsByFingerprint.computeIfAbsent(revisions.fingerprint((int) (packed >>> 32)), k -> new ArrayList<>()).add(revisions.revision((int) packed));
+        }
+        return new PipelineTimelineEntry(names[index], ids[index], counters[index], revisionsByFingerprint, naturalOrders[index]);
+    }
+
+    int indexOf(long id) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    int indexOfCounter(int counter) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (counters[i] == counter) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the run that came right after the one at this index in natural order when it was added
+     */
+    PipelineTimelineEntry insertedBefore(int index) {
+        return entry(insertedBefore[index]);
+    }
+
+    /**
+     * @return the run that came right before the one at this index in natural order when it was added
+     */
+    PipelineTimelineEntry insertedAfter(int index) {
+        return entry(insertedAfter[index]);
+    }
+
+    PipelineTimelineEntry lower(PipelineTimelineEntry entry) {
+        int low = 0;
+        int high = size - 1;
+        int found = NONE;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (entry.compareTo(entry(naturalOrder[mid])) > 0) {
+                found = naturalOrder[mid];
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return entry(found);
+    }
+
+    List<PipelineTimelineEntry> inNaturalOrder() {
+        List<PipelineTimelineEntry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(entry(naturalOrder[i]));
+        }
+        return entries;
+    }
+
+    // the position to insert the run at, or -(position + 1) of the run that is equal to it
+    private int naturalPosition(PipelineTimelineEntry entry) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = entry.compareTo(entry(naturalOrder[mid]));
+            if (comparison > 0) {
+                low = mid + 1;
+            } else if (comparison < 0) {
+                high = mid - 1;
+            } else {
+                return -(mid + 1);
+            }
+        }
+        return low;
+    }
+
+    private int append(PipelineTimelineEntry entry) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            counters = Arrays.copyOf(counters, capacity);
+            naturalOrders = Arrays.copyOf(naturalOrders, capacity);
+            names = Arrays.copyOf(names, capacity);
+            insertedBefore = Arrays.copyOf(insertedBefore, capacity);
+            insertedAfter = Arrays.copyOf(insertedAfter, capacity);
+            revisionsStart = Arrays.copyOf(revisionsStart, capacity + 1);
+        }
+        int index = size;
+        ids[index] = entry.getId();
+        counters[index] = entry.getCounter();
+        naturalOrders[index] = entry.naturalOrder();
+        names[index] = revisions.pipelineName(entry.getPipelineName());
+        insertedBefore[index] = NONE;
+        insertedAfter[index] = NONE;
+
+        int next = revisionsStart[index];
+        for (Map.Entry<String, List<Revision>> revisionsOfMaterial : entry.revisions().entrySet()) {
+            long fingerprint = revisions.fingerprintOrdinal(revisionsOfMaterial.getKey());
+            for (Revision revision : revisionsOfMaterial.getValue()) {
+                if (next == packedRevisions.length) {
+                    packedRevisions = Arrays.copyOf(packedRevisions, next + (next >> 1) + 1);
+                }
+                packedRevisions[next++] = fingerprint << 32 | revisions.revisionOrdinal(revision);
+            }
+        }
+        revisionsStart[index + 1] = next;
+        size++;
+        return index;
+    }
+
+    private static int[] insert(int[] array, int length, int position, int value) {
+        int[] target = length == array.length ? Arrays.copyOf(array, length + (length >> 1) + 1) : array;
+        System.arraycopy(array, position, target, position + 1, length - position);
+        target[position] = value;
+        return target;
+    }
+
+    /**
+     * Understands the material fingerprints, revisions and pipeline names of every run in the timeline, each of which
+     * is kept once and referred to by its ordinal.
+     */
+    static final class Revisions {
+        private final List<String> fingerprints = new ArrayList<>();
+        private final Map<String, Integer> fingerprintOrdinals = new HashMap<>();
+        private final List<Revision> revisions = new ArrayList<>();
+        private final Map<RevisionKey, Integer> revisionOrdinals = new HashMap<>();
+        private final Map<String, String> pipelineNames = new HashMap<>();
+
+        // Revision#equals ignores the modification id, which entries handed out should keep
+        private record RevisionKey(Revision revision, long id) {
+        }
+
+        int fingerprintOrdinal(String fingerprint) {
+            return fingerprintOrdinals.computeIfAbsent(fingerprint, k -> {
+                fingerprints.add(k);
+                return fingerprints.size() - 1;
+            });
+        }
+
+        int revisionOrdinal(Revision revision) {
+            return revisionOrdinals.computeIfAbsent(new RevisionKey(revision, revision.id()), k -> {
+                revisions.add(k.revision());
+                return revisions.size() - 1;
+            });
+        }
+
+        String pipelineName(String pipelineName) {
+            return pipelineNames.computeIfAbsent(pipelineName, k -> k);
+        }
+
+        String fingerprint(int ordinal) {
+            return fingerprints.get(ordinal);
+        }
+
+        Revision revision(int ordinal) {
+            return revisions.get(ordinal);
+        }
+    }
+}
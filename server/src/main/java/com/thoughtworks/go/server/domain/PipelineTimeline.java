@@ -21,6 +21,8 @@ import com.thoughtworks.go.server.persistence.PipelineRepository;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import org.jetbrains.annotations.TestOnly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
@@ -29,24 +31,33 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+import static com.thoughtworks.go.config.CaseInsensitiveString.str;
 
 /**
  * Understands a sorted collection of PipelineMaterialModification
+ * <p>
+ * Runs are kept per pipeline in a {@link CompactPipelineTimeline}. After {@link #updateTimelineOnInit()}, the runs of a
+ * pipeline are only read from the database the first time the pipeline is asked for.
  */
 @Component
 public class PipelineTimeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineTimeline.class);
+
     private final PipelineRepository pipelineRepository;
     private final TransactionTemplate transactionTemplate;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
 
-    private final Map<CaseInsensitiveString, NavigableSet<PipelineTimelineEntry>> naturalOrderPmm = new HashMap<>();
-    private final Map<CaseInsensitiveString, List<PipelineTimelineEntry>> scheduleOrderPmm = new HashMap<>();
-    private final ReadWriteLock naturalOrderLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock scheduleOrderLock = new ReentrantReadWriteLock();
+    private final Map<CaseInsensitiveString, CompactPipelineTimeline> timelines = new HashMap<>();
+    private CompactPipelineTimeline.Revisions revisions = new CompactPipelineTimeline.Revisions();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     private final AtomicLong maximumId = new AtomicLong(-1);
+    // runs up to this id are in the database, but have not been read for pipelines missing from timelines yet
+    private long loadOnDemandUpTo = -1;
 
     @Autowired
     public PipelineTimeline(PipelineRepository pipelineRepository, TransactionTemplate transactionTemplate, TransactionSynchronizationManager transactionSynchronizationManager) {
@@ -57,12 +68,7 @@ public class PipelineTimeline {
 
     @TestOnly
     public Collection<PipelineTimelineEntry> getEntriesFor(String pipelineName) {
-        naturalOrderLock.readLock().lock();
-        try {
-            return Collections.unmodifiableCollection(naturalOrderPmm.getOrDefault(cis(pipelineName), Collections.emptyNavigableSet()));
-        } finally {
-            naturalOrderLock.readLock().unlock();
-        }
+        return read(cis(pipelineName), timeline -> timeline == null ? Collections.emptyList() : Collections.unmodifiableList(timeline.inNaturalOrder()));
     }
 
     public long maximumId() {
@@ -71,16 +77,29 @@ public class PipelineTimeline {
 
     public void add(PipelineTimelineEntry pipelineTimelineEntry) {
         CaseInsensitiveString pipelineName = cis(pipelineTimelineEntry.getPipelineName());
-        initializedNaturalOrderCollection(pipelineName).add(pipelineTimelineEntry);
-        initializedScheduleOrderCollection(pipelineName).add(pipelineTimelineEntry);
-        pipelineTimelineEntry.setInsertedBefore(naturalOrderAfter(pipelineTimelineEntry));
-        pipelineTimelineEntry.setInsertedAfter(naturalOrderBefore(pipelineTimelineEntry));
-        pipelineTimelineEntry.updateNaturalOrder();
-        updateMaximumId(pipelineTimelineEntry.getId());
+        lock.writeLock().lock();
+        try {
+            initializedTimeline(pipelineName).add(pipelineTimelineEntry);
+            updateMaximumId(pipelineTimelineEntry.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void update() {
-        acquireAllWriteLocks();
+        update(newlyAddedEntries -> pipelineRepository.updatePipelineTimeline(this, newlyAddedEntries));
+    }
+
+    /**
+     * Adds just the run with this id, for when runs are saved concurrently and runs with lower ids may not have been
+     * committed yet, which {@link #update()} would then miss.
+     */
+    public void update(long pipelineId) {
+        update(newlyAddedEntries -> pipelineRepository.updatePipelineTimeline(this, pipelineId, newlyAddedEntries));
+    }
+
+    private void update(Consumer<List<PipelineTimelineEntry>> loadNewEntries) {
+        lock.writeLock().lock();
         try {
             final long maximumIdBeforeUpdate = maximumId.get();
             transactionTemplate.execute(transactionStatus -> {
@@ -93,52 +112,50 @@ public class PipelineTimeline {
                         }
                     }
 
+                    // runs after the transaction, so possibly after the lock taken by update has been released
                     private void rollbackTempEntries() {
-                        for (PipelineTimelineEntry entry : newlyAddedEntries) {
-                            rollbackNewEntryFor(entry);
+                        lock.writeLock().lock();
+                        try {
+                            long raisedTo = maximumIdBeforeUpdate;
+                            for (PipelineTimelineEntry entry : newlyAddedEntries) {
+                                rollbackNewEntryFor(entry);
+                                raisedTo = Math.max(raisedTo, entry.getId());
+                            }
+                            // only undo what these entries did, not what other updates did since
+                            maximumId.compareAndSet(raisedTo, maximumIdBeforeUpdate);
+                        } finally {
+                            lock.writeLock().unlock();
                         }
-                        maximumId.set(maximumIdBeforeUpdate);
                     }
 
                     private void rollbackNewEntryFor(PipelineTimelineEntry entry) {
-                        CaseInsensitiveString pipelineName = cis(entry.getPipelineName());
-                        initializedNaturalOrderCollection(pipelineName).remove(entry);
-                        initializedScheduleOrderCollection(pipelineName).remove(entry);
+                        CompactPipelineTimeline timeline = timelines.get(cis(entry.getPipelineName()));
+                        if (timeline != null) {
+                            timeline.remove(entry.getId());
+                        }
                     }
-
-
                 });
-                pipelineRepository.updatePipelineTimeline(PipelineTimeline.this, newlyAddedEntries);
+                loadNewEntries.accept(newlyAddedEntries);
                 return null;
             });
         } finally {
-            releaseAllWriteLocks();
+            lock.writeLock().unlock();
         }
     }
 
-
-    // --------------------------------------------------------
-    // These methods should acquire and release lock in corresponding order.
-    private void acquireAllWriteLocks() {
-        naturalOrderLock.writeLock().lock();
-        scheduleOrderLock.writeLock().lock();
-    }
-
-    //Release in the reverse of the acquired order.
-    private void releaseAllWriteLocks() {
-        scheduleOrderLock.writeLock().unlock();
-        naturalOrderLock.writeLock().unlock();
-    }
-
     /**
-     * This is called on system init and is called by Spring. Hence, this is not done in a transaction. At any other time, the method update should be used
+     * This is called on system init and is called by Spring. Hence, this is not done in a transaction. At any other
+     * time, the method update should be used. Nothing is read apart from the most recent run; the runs of a pipeline
+     * are read when it is first asked for, so that pipelines nobody asks about do not take up memory.
      */
     public void updateTimelineOnInit() {
-        acquireAllWriteLocks();
+        lock.writeLock().lock();
         try {
-            pipelineRepository.updatePipelineTimeline(this, new ArrayList<>());
+            long maximumPipelineId = pipelineRepository.maximumPipelineId();
+            loadOnDemandUpTo = Math.max(loadOnDemandUpTo, maximumPipelineId);
+            updateMaximumId(maximumPipelineId);
         } finally {
-            releaseAllWriteLocks();
+            lock.writeLock().unlock();
         }
     }
 
@@ -148,21 +165,12 @@ public class PipelineTimeline {
      * @return PMM which was before the pipeline with this id at the time of insertion of the PTE with the id or null if there was nothing before this pipeline during insertion
      */
     public PipelineTimelineEntry runBefore(long id, final CaseInsensitiveString pipelineName) {
-        naturalOrderLock.readLock().lock();
-        try {
-            Set<PipelineTimelineEntry> treeForPipeline = naturalOrderPmm.get(pipelineName);
-            if (treeForPipeline == null) {
+        return read(pipelineName, timeline -> {
+            if (timeline == null || timeline.size() == 0) {
                 return null;
             }
-            for (PipelineTimelineEntry pipelineTimelineEntry : treeForPipeline) {
-                if (id == pipelineTimelineEntry.getId()) {
-                    return pipelineTimelineEntry.insertedAfter();
-                }
-            }
-            throw new RuntimeException("Cannot find pipeline with id: " + id);
-        } finally {
-            naturalOrderLock.readLock().unlock();
-        }
+            return timeline.insertedAfter(indexOf(timeline, id));
+        });
     }
 
     /**
@@ -171,102 +179,106 @@ public class PipelineTimeline {
      * @return PMM which was after the pipeline with this id at the time of insertion of the PTE with the id or null if there was nothing after this pipeline during insertion
      */
     public PipelineTimelineEntry runAfter(long id, final CaseInsensitiveString pipelineName) {
-        naturalOrderLock.readLock().lock();
-        try {
-            Set<PipelineTimelineEntry> treeForPipeline = naturalOrderPmm.get(pipelineName);
-            if (treeForPipeline == null) {
+        return read(pipelineName, timeline -> {
+            if (timeline == null || timeline.size() == 0) {
                 return null;
             }
-            for (PipelineTimelineEntry pipelineTimelineEntry : treeForPipeline) {
-                if (id == pipelineTimelineEntry.getId()) {
-                    return pipelineTimelineEntry.insertedBefore();
-                }
-            }
+            return timeline.insertedBefore(indexOf(timeline, id));
+        });
+    }
+
+    private static int indexOf(CompactPipelineTimeline timeline, long id) {
+        int index = timeline.indexOf(id);
+        if (index == CompactPipelineTimeline.NONE) {
             throw new RuntimeException("Cannot find pipeline with id: " + id);
-        } finally {
-            naturalOrderLock.readLock().unlock();
         }
+        return index;
     }
 
     private void updateMaximumId(long id) {
         maximumId.accumulateAndGet(id, Math::max);
     }
 
-    private NavigableSet<PipelineTimelineEntry> initializedNaturalOrderCollection(final CaseInsensitiveString pipelineName) {
-        return naturalOrderPmm.computeIfAbsent(pipelineName, k -> new TreeSet<>());
+    // needs the write lock
+    private CompactPipelineTimeline initializedTimeline(final CaseInsensitiveString pipelineName) {
+        CompactPipelineTimeline timeline = timelines.get(pipelineName);
+        if (timeline == null) {
+            timeline = new CompactPipelineTimeline(revisions);
+            if (loadOnDemandUpTo >= 0) {
+                load(pipelineName, timeline);
+            }
+            timelines.put(pipelineName, timeline);
+        }
+        return timeline;
     }
 
-    private List<PipelineTimelineEntry> initializedScheduleOrderCollection(final CaseInsensitiveString pipelineName) {
-        return scheduleOrderPmm.computeIfAbsent(pipelineName, k -> new ArrayList<>());
+    private void load(CaseInsensitiveString pipelineName, CompactPipelineTimeline timeline) {
+        long startedAt = System.currentTimeMillis();
+        List<PipelineTimelineEntry> entries = pipelineRepository.loadPipelineTimeline(str(pipelineName), loadOnDemandUpTo);
+        for (PipelineTimelineEntry entry : entries) {
+            timeline.add(entry);
+        }
+        pipelineRepository.updateNaturalOrdering(entries);
+        LOGGER.debug("Loaded {} runs of pipeline {} into the pipeline timeline in {} ms", entries.size(), pipelineName, System.currentTimeMillis() - startedAt);
     }
 
-    private PipelineTimelineEntry naturalOrderAfter(PipelineTimelineEntry pipelineTimelineEntry) {
-        naturalOrderLock.readLock().lock();
+    /**
+     * Runs the reader against the runs of the pipeline, or {@code null} if it has never run, after reading them from the
+     * database if they have not been read yet.
+     */
+    private <T> T read(CaseInsensitiveString pipelineName, Function<CompactPipelineTimeline, T> reader) {
+        lock.readLock().lock();
         try {
-            return naturalOrderPmm.get(cis(pipelineTimelineEntry.getPipelineName())).higher(pipelineTimelineEntry);
+            if (loadOnDemandUpTo < 0 || timelines.containsKey(pipelineName)) {
+                return reader.apply(timelines.get(pipelineName));
+            }
         } finally {
-            naturalOrderLock.readLock().unlock();
+            lock.readLock().unlock();
         }
-    }
 
-    PipelineTimelineEntry naturalOrderBefore(PipelineTimelineEntry pipelineTimelineEntry) {
-        naturalOrderLock.readLock().lock();
+        lock.writeLock().lock();
         try {
-            return naturalOrderPmm.get(cis(pipelineTimelineEntry.getPipelineName())).lower(pipelineTimelineEntry);
+            return reader.apply(initializedTimeline(pipelineName));
         } finally {
-            naturalOrderLock.readLock().unlock();
+            lock.writeLock().unlock();
         }
     }
 
+    PipelineTimelineEntry naturalOrderBefore(PipelineTimelineEntry pipelineTimelineEntry) {
+        return read(cis(pipelineTimelineEntry.getPipelineName()), timeline -> timeline.lower(pipelineTimelineEntry));
+    }
+
     /**
      * No reason why you should use this apart from test tear down
      */
     @TestOnly
     public void clearWhichIsEvilAndShouldNotBeUsedInRealWorld() {
-        acquireAllWriteLocks();
+        lock.writeLock().lock();
         try {
-            naturalOrderPmm.clear();
-            scheduleOrderPmm.clear();
+            timelines.clear();
+            revisions = new CompactPipelineTimeline.Revisions();
+            loadOnDemandUpTo = -1;
         } finally {
-            releaseAllWriteLocks();
+            lock.writeLock().unlock();
         }
     }
 
     public int instanceCount(CaseInsensitiveString pipelineName) {
-        scheduleOrderLock.readLock().lock();
-        try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            return instances == null ? 0 : instances.size();
-        } finally {
-            scheduleOrderLock.readLock().unlock();
-        }
+        return read(pipelineName, timeline -> timeline == null ? 0 : timeline.size());
     }
 
     public PipelineTimelineEntry instanceFor(CaseInsensitiveString pipelineName, int index) {
-        scheduleOrderLock.readLock().lock();
-        try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            return instances == null ? null : instances.get(index);
-        } finally {
-            scheduleOrderLock.readLock().unlock();
-        }
+        return read(pipelineName, timeline -> {
+            if (timeline == null || timeline.size() == 0) {
+                return null;
+            }
+            return timeline.entry(Objects.checkIndex(index, timeline.size()));
+        });
     }
 
 
     public PipelineTimelineEntry getEntryFor(CaseInsensitiveString pipelineName, int pipelineCounter) {
-        scheduleOrderLock.readLock().lock();
-        try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            for (int i = instances.size() - 1; i >= 0; i--) {
-                PipelineTimelineEntry instance = instances.get(i);
-                if (instance.getCounter() == pipelineCounter) {
-                    return instance;
-                }
-            }
-            return null;
-        } finally {
-            scheduleOrderLock.readLock().unlock();
-        }
+        return read(pipelineName, timeline -> timeline == null ? null : timeline.entry(timeline.indexOfCounter(pipelineCounter)));
     }
 
 }
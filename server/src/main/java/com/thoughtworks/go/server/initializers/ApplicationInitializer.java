@@ -192,6 +192,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
             if (this.daemonsEnabled) {
                 dashboardActivityListener.start();
                 ccTrayActivityListener.start();
+                cachedGoConfig.startWatchingConfigFile();
             }
         } catch (Throwable throwable) {
             // Raise a Spring exception to ensure that existing beans are disposed of cleanly
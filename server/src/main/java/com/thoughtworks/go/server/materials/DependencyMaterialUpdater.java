@@ -42,46 +42,52 @@ public class DependencyMaterialUpdater implements MaterialUpdater {
     }
 
     @Override
-    public void insertLatestOrNewModifications(Material material, MaterialInstance materialInstance, File folder, Modifications list) {
-        insertDependencyMaterialRevisions((DependencyMaterial) material, list);
+    public boolean insertLatestOrNewModifications(Material material, MaterialInstance materialInstance, File folder, Modifications list) {
+        return insertDependencyMaterialRevisions((DependencyMaterial) material, list);
     }
 
     @Override
-    public void addNewMaterialWithModifications(Material material, File folder) {
-        insertRevisionsForAllParentStageInstances((DependencyMaterial) material);
+    public boolean addNewMaterialWithModifications(Material material, File folder) {
+        return insertRevisionsForAllParentStageInstances((DependencyMaterial) material);
     }
 
-    private void insertDependencyMaterialRevisions(final DependencyMaterial dependencyMaterial, Modifications list) {
+    private boolean insertDependencyMaterialRevisions(final DependencyMaterial dependencyMaterial, Modifications list) {
         if (list.isEmpty()) {
-            insertRevisionsForAllParentStageInstances(dependencyMaterial);
+            return insertRevisionsForAllParentStageInstances(dependencyMaterial);
         } else {
-            insertRevisionsForParentStagesAfter(dependencyMaterial, list);
+            return insertRevisionsForParentStagesAfter(dependencyMaterial, list);
         }
     }
 
-    private void insertRevisionsForParentStagesAfter(DependencyMaterial dependencyMaterial, Modifications list) {
+    private boolean insertRevisionsForParentStagesAfter(DependencyMaterial dependencyMaterial, Modifications list) {
         Pagination pagination = Pagination.pageByOffsetUnknownTotal(0, MaterialDatabaseUpdater.STAGES_PER_PAGE);
+        boolean inserted = false;
         List<Modification> modifications;
         do {
             modifications = dependencyMaterialSourceDao.getPassedStagesAfter(list.getLast().getRevision(), pagination);
             for (Modification modification : modifications) {
                 MaterialRevision revision = new MaterialRevision(dependencyMaterial, modification);
                 materialRepository.saveMaterialRevision(revision);
+                inserted = true;
             }
             pagination = Pagination.pageByOffsetUnknownTotal(pagination.getOffset() + pagination.getPageSize(), pagination.getPageSize());
         } while (!modifications.isEmpty());
+        return inserted;
     }
 
-    private void insertRevisionsForAllParentStageInstances(DependencyMaterial dependencyMaterial) {
+    private boolean insertRevisionsForAllParentStageInstances(DependencyMaterial dependencyMaterial) {
         Pagination pagination = Pagination.pageByOffsetUnknownTotal(0, MaterialDatabaseUpdater.STAGES_PER_PAGE);
+        boolean inserted = false;
         List<Modification> modifications;
         do {
             modifications = dependencyMaterialSourceDao.getPassedStagesByName(dependencyMaterial, pagination);
             for (Modification modification : modifications) {
                 MaterialRevision revision = new MaterialRevision(dependencyMaterial, modification);
                 materialRepository.saveMaterialRevision(revision);
+                inserted = true;
             }
             pagination = Pagination.pageByOffsetUnknownTotal(pagination.getOffset() + pagination.getPageSize(), pagination.getPageSize());
         } while (!modifications.isEmpty());
+        return inserted;
     }
 }
@@ -77,9 +77,13 @@ public class MaterialDatabaseUpdater {
         this.goConfigService = goConfigService;
     }
 
-    public void updateMaterial(final Material material) {
+    /**
+     * @return whether any new modifications were recorded for the material
+     */
+    public boolean updateMaterial(final Material material) {
         String materialMutex = mutexForMaterial(material);
         HealthStateScope scope = HealthStateScope.forMaterial(material);
+        boolean foundNewModifications = false;
         try {
             MaterialInstance materialInstance = materialRepository.findMaterialInstance(material);
             if (materialInstance == null) {
@@ -87,29 +91,28 @@ public class MaterialDatabaseUpdater {
 
                 synchronized (materialMutex) {
                     if (materialRepository.findMaterialInstance(material) == null) {
-                        transactionTemplate.executeWithExceptionHandling(new TransactionCallback() {
+                        foundNewModifications = Boolean.TRUE.equals(transactionTemplate.executeWithExceptionHandling(new TransactionCallback() {
                             @Override
                             public Object doInTransaction(TransactionStatus status) {
-                                initializeMaterialWithLatestRevision(material);
-                                return null;
+                                return initializeMaterialWithLatestRevision(material);
                             }
-                        });
+                        }));
                     }
                 }
             } else {
                 LOGGER.debug("[Material Update] Existing material repository, fetching new revisions from {} in flyweight {}", material, materialInstance.getFlyweightName());
 
                 synchronized (materialMutex) {
-                    transactionTemplate.executeWithExceptionHandling(new TransactionCallback() {
+                    foundNewModifications = Boolean.TRUE.equals(transactionTemplate.executeWithExceptionHandling(new TransactionCallback() {
                         @Override
                         public Object doInTransaction(TransactionStatus status) {
-                            updateMaterialWithNewRevisions(material);
-                            return null;
+                            return updateMaterialWithNewRevisions(material);
                         }
-                    });
+                    }));
                 }
             }
             healthService.removeByScope(scope);
+            return foundNewModifications;
         } catch (Exception e) {
             String message = "Modification check failed for material: " + material.getLongDescription();
             String finalMessage = message + affectedPipelinesMessageFor(material);
@@ -132,32 +135,36 @@ public class MaterialDatabaseUpdater {
             : pipelineNames.stream().map(CaseInsensitiveString::toString).collect(Collectors.joining(", ", "\nAffected pipelines are ", "."));
     }
 
-    private void initializeMaterialWithLatestRevision(Material material) {
+    private boolean initializeMaterialWithLatestRevision(Material material) {
         Materials materials = new Materials();
         materialExpansionService.expandForHistory(material, materials);
+        boolean foundNewModifications = false;
         for (Material expanded : materials) {
-            addNewMaterialWithModifications(folderFor(expanded), expanded, updater(expanded));
+            foundNewModifications |= addNewMaterialWithModifications(folderFor(expanded), expanded, updater(expanded));
         }
+        return foundNewModifications;
     }
 
-    void updateMaterialWithNewRevisions(Material material) {
+    boolean updateMaterialWithNewRevisions(Material material) {
         Materials materials = new Materials();
         materialExpansionService.expandForHistory(material, materials);
+        boolean foundNewModifications = false;
         for (Material expanded : materials) {
             MaterialInstance expandedInstance = materialRepository.findMaterialInstance(expanded);
             File expandedFolder = folderFor(expanded);
             if (expandedInstance == null) {
-                addNewMaterialWithModifications(expandedFolder, expanded, updater(expanded));
+                foundNewModifications |= addNewMaterialWithModifications(expandedFolder, expanded, updater(expanded));
             } else {
-                insertLatestOrNewModifications(expanded, expandedInstance, expandedFolder, updater(expanded));
+                foundNewModifications |= insertLatestOrNewModifications(expanded, expandedInstance, expandedFolder, updater(expanded));
             }
         }
+        return foundNewModifications;
     }
 
-    private void insertLatestOrNewModifications(Material material, MaterialInstance materialInstance, File folder, MaterialUpdater updater) {
+    private boolean insertLatestOrNewModifications(Material material, MaterialInstance materialInstance, File folder, MaterialUpdater updater) {
         MaterialRevisions materialRevisions = materialRepository.findLatestModification(material);
         Modifications list = materialRevisions.getModifications(material);
-        updater.insertLatestOrNewModifications(material, materialInstance, folder, list);
+        return updater.insertLatestOrNewModifications(material, materialInstance, folder, list);
     }
 
     MaterialUpdater updater(Material material) {
@@ -177,8 +184,8 @@ public class MaterialDatabaseUpdater {
         return this.materialRepository.folderFor(material);
     }
 
-    private void addNewMaterialWithModifications(File folder, Material expanded, MaterialUpdater updater) {
-        updater.addNewMaterialWithModifications(expanded, folder);
+    private boolean addNewMaterialWithModifications(File folder, Material expanded, MaterialUpdater updater) {
+        return updater.addNewMaterialWithModifications(expanded, folder);
     }
 
     private String mutexForMaterial(Material material) {
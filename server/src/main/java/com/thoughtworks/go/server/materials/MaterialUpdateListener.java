@@ -61,9 +61,9 @@ public class MaterialUpdateListener implements GoMessageListener<MaterialUpdateM
             maintenanceModeService.mduStartedForMaterial(material);
             mduPerformanceLogger.pickedUpMaterialForMDU(message.trackingId(), material);
             bombIf(diskSpaceMonitor.isLowOnDisk(), "GoCD server is too low on disk to continue with material update");
-            updater.updateMaterial(material);
+            boolean foundNewModifications = updater.updateMaterial(material);
             mduPerformanceLogger.postingMessageAboutMDUCompletion(message.trackingId(), material);
-            channel.post(new MaterialUpdateSuccessfulMessage(material, message.trackingId())); //This should happen only if the transaction is committed.
+            channel.post(new MaterialUpdateSuccessfulMessage(material, message.trackingId(), foundNewModifications)); //This should happen only if the transaction is committed.
         } catch (Exception e) {
             LOGGER.warn("Material update failed for material {}. Error: {}", material, e.toString());
             channel.post(new MaterialUpdateFailedMessage(material, message.trackingId(), e));
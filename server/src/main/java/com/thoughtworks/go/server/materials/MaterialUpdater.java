@@ -21,8 +21,9 @@ import com.thoughtworks.go.domain.materials.Modifications;
 
 import java.io.File;
 
+/* Both methods answer whether any new modifications were recorded for the material. */
 interface MaterialUpdater {
-    void insertLatestOrNewModifications(Material material, MaterialInstance materialInstance, File folder, Modifications list);
+    boolean insertLatestOrNewModifications(Material material, MaterialInstance materialInstance, File folder, Modifications list);
 
-    void addNewMaterialWithModifications(Material material, File folder);
+    boolean addNewMaterialWithModifications(Material material, File folder);
 }
@@ -41,7 +41,7 @@ public class PackageMaterialUpdater implements MaterialUpdater {
     }
 
     @Override
-    public void insertLatestOrNewModifications(final Material material, MaterialInstance materialInstance, File folder, Modifications list) {
+    public boolean insertLatestOrNewModifications(final Material material, MaterialInstance materialInstance, File folder, Modifications list) {
         final PackageMaterialInstance packageMaterialInstance = (PackageMaterialInstance) materialInstance;
 
         if (packageMaterialInstance.shouldUpgradeTo((PackageMaterialInstance) material.createMaterialInstance())) {
@@ -52,11 +52,11 @@ public class PackageMaterialUpdater implements MaterialUpdater {
                 return materialInstance1;
             });
         }
-        scmMaterialUpdater.insertLatestOrNewModifications(material,packageMaterialInstance,folder,list);
+        return scmMaterialUpdater.insertLatestOrNewModifications(material,packageMaterialInstance,folder,list);
     }
 
     @Override
-    public void addNewMaterialWithModifications(Material material, File folder) {
-        scmMaterialUpdater.addNewMaterialWithModifications(material,folder);
+    public boolean addNewMaterialWithModifications(Material material, File folder) {
+        return scmMaterialUpdater.addNewMaterialWithModifications(material,folder);
     }
 }
@@ -40,7 +40,7 @@ public class PluggableSCMMaterialUpdater implements MaterialUpdater {
     }
 
     @Override
-    public void insertLatestOrNewModifications(final Material material, MaterialInstance materialInstance, File folder, Modifications list) {
+    public boolean insertLatestOrNewModifications(final Material material, MaterialInstance materialInstance, File folder, Modifications list) {
         final PluggableSCMMaterialInstance currentMaterialInstance = (PluggableSCMMaterialInstance) materialInstance;
 
         final PluggableSCMMaterialInstance latestMaterialInstance = (PluggableSCMMaterialInstance) material.createMaterialInstance();
@@ -52,11 +52,11 @@ public class PluggableSCMMaterialUpdater implements MaterialUpdater {
                 return materialInstance1;
             });
         }
-        scmMaterialUpdater.insertLatestOrNewModifications(material, currentMaterialInstance, folder, list);
+        return scmMaterialUpdater.insertLatestOrNewModifications(material, currentMaterialInstance, folder, list);
     }
 
     @Override
-    public void addNewMaterialWithModifications(Material material, File folder) {
-        scmMaterialUpdater.addNewMaterialWithModifications(material, folder);
+    public boolean addNewMaterialWithModifications(Material material, File folder) {
+        return scmMaterialUpdater.addNewMaterialWithModifications(material, folder);
     }
 }
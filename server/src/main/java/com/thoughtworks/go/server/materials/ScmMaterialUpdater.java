@@ -50,7 +50,7 @@ class ScmMaterialUpdater implements MaterialUpdater {
     }
 
     @Override
-    public void insertLatestOrNewModifications(Material material, MaterialInstance materialInstance, File folder, Modifications list) {
+    public boolean insertLatestOrNewModifications(Material material, MaterialInstance materialInstance, File folder, Modifications list) {
         List<Modification> newChanges = list.isEmpty() ?
                 materialChecker.findLatestModification(folder, material, subprocessExecutionContext) :
                 materialService.modificationsSince(material, folder, list.latestRevision(material), subprocessExecutionContext);
@@ -58,15 +58,18 @@ class ScmMaterialUpdater implements MaterialUpdater {
             LOGGER.info("[Material Update] Found '{}' modifications for material '{}' with flyweight '{}' using working directory '{}'", newChanges.size(), material, material.getFingerprint(), folder.getAbsolutePath());
 
             materialRepository.saveModifications(materialInstance, newChanges);
-        } else if (LOGGER.isDebugEnabled()) {
+            return true;
+        }
+        if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("[Material Update] Did not find any new modifications for material '{}' with flyweight '{}' using working directory '{}'", material, material.getFingerprint(), folder.getAbsolutePath());
         }
+        return false;
     }
 
     @Override
-    public void addNewMaterialWithModifications(Material material, File folder) {
+    public boolean addNewMaterialWithModifications(Material material, File folder) {
         MaterialRevisions materialRevisions = materialRepository.findLatestModification(material);
         Modifications list = materialRevisions.getModifications(material);
-        insertLatestOrNewModifications(material, materialRepository.findOrCreateFrom(material), folder, list);
+        return insertLatestOrNewModifications(material, materialRepository.findOrCreateFrom(material), folder, list);
     }
 }
@@ -56,6 +56,21 @@ public class BuildRepositoryMessageProducer implements BuildRepositoryRemote {
         return work;
     }
 
+    /**
+     * @return work for the agent, waiting up to {@code waitMillis} for some to be assigned, or {@code null} if the
+     * server is not willing to hold on to this request; see {@link WorkAssignments#awaitWork(AgentRuntimeInfo, long)}
+     */
+    public Work awaitWork(AgentRuntimeInfo runtimeInfo, long waitMillis) {
+        long startTime = System.currentTimeMillis();
+
+        Work work = workAssignments.awaitWork(runtimeInfo, waitMillis);
+
+        if (work != null) {
+            workAssignmentPerformanceLogger.retrievedWorkForAgent(runtimeInfo, work, startTime, System.currentTimeMillis());
+        }
+        return work;
+    }
+
     @Override
     public void reportCurrentStatus(AgentRuntimeInfo agentRuntimeInfo, JobIdentifier jobIdentifier, JobState jobState) {
         buildRepository.reportCurrentStatus(agentRuntimeInfo, jobIdentifier, jobState);
@@ -15,9 +15,7 @@
  */
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
-
 public interface GoMessageChannel<T extends GoMessage> {
-    JMSMessageListenerAdapter<T> addListener(GoMessageListener<T> listener);
+    GoMessageConsumer addListener(GoMessageListener<T> listener);
     void post(T message);
 }
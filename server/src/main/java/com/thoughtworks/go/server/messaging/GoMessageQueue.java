@@ -15,7 +15,6 @@
  */
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
 import com.thoughtworks.go.util.SupplierUtils;
 
 import java.util.function.Supplier;
@@ -33,7 +32,7 @@ public class GoMessageQueue<T extends GoMessage> implements GoMessageChannel<T>
     }
 
     @Override
-    public JMSMessageListenerAdapter<T> addListener(GoMessageListener<T> listener) {
+    public GoMessageConsumer addListener(GoMessageListener<T> listener) {
         return messaging.addQueueListener(queueName, listener);
     }
 
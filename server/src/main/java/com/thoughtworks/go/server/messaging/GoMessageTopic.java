@@ -15,8 +15,6 @@
  */
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
-
 public class GoMessageTopic<T extends GoMessage> implements GoMessageChannel<T> {
     private final MessagingService<T> messaging;
     private final String topic;
@@ -36,7 +34,7 @@ public class GoMessageTopic<T extends GoMessage> implements GoMessageChannel<T>
     }
 
     @Override
-    public JMSMessageListenerAdapter<T> addListener(GoMessageListener<T> listener) {
+    public GoMessageConsumer addListener(GoMessageListener<T> listener) {
         return messaging.addListener(topic, listener);
     }
 
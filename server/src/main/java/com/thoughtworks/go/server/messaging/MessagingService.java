@@ -15,17 +15,15 @@
  */
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
-
 public interface MessagingService<T extends GoMessage> {
     MessageSender createSender(String topic);
 
-    JMSMessageListenerAdapter<T> addListener(String topic, GoMessageListener<T> listener);
+    GoMessageConsumer addListener(String topic, GoMessageListener<T> listener);
 
     void removeQueue(String queueName);
 
     void stop() throws Exception;
-    JMSMessageListenerAdapter<T> addQueueListener(String topic, GoMessageListener<T> listener);
+    GoMessageConsumer addQueueListener(String topic, GoMessageListener<T> listener);
 
     MessageSender createQueueSender(String queueName);
 
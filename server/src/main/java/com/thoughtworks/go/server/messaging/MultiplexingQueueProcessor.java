@@ -16,86 +16,232 @@
 package com.thoughtworks.go.server.messaging;
 
 import com.thoughtworks.go.server.initializers.Daemonized;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.thoughtworks.go.util.ExceptionUtils.uncaughtExceptionHandlerFor;
 
 /*
- * Multiplexes added actions asynchronously and processes them in a single thread.
+ * Multiplexes added actions asynchronously and processes them on a fixed set of worker threads.
  *
- * Since actions can be added from different threads, line up all of them on to one thread,
+ * Since actions can be added from different threads, line up all of them on to the workers,
  * for processing, and to make sure that the upstream processes are not blocked.
+ *
+ * Actions with a partition key (see Action#partitionKey) are spread over the workers by key. Actions with the same key
+ * are processed one at a time, in the order they were added. Actions without a key are processed once everything added
+ * before them is done, and hold up everything added after them, just as if there was a single worker.
+ *
+ * An action that supersedes (see Action#supersedes) the last pending action with the same key takes its place instead
+ * of being lined up behind it, so bursts of identical work for one key only get processed once.
  */
 public class MultiplexingQueueProcessor implements Daemonized {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexingQueueProcessor.class);
     private static final int SHUTDOWN_MILLIS = 1000;
 
     private final String queueName;
-    private final BlockingQueue<Action> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Partition> partitions;
+
+    // guarded by lock
+    private int pending;
+    private Barrier lastBarrier;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
 
-    private volatile Thread processorThread;
+    private volatile List<Thread> workers;
 
     public MultiplexingQueueProcessor(String processorNameForLogging) {
+        this(processorNameForLogging, 1);
+    }
+
+    public MultiplexingQueueProcessor(String processorNameForLogging, int numberOfWorkers) {
+        if (numberOfWorkers < 1) {
+            throw new IllegalArgumentException(String.format("Queue processor for %s needs at least one worker, not %s.", processorNameForLogging, numberOfWorkers));
+        }
         this.queueName = processorNameForLogging;
-        queue = new LinkedBlockingQueue<>();
+        List<Partition> partitions = new ArrayList<>(numberOfWorkers);
+        for (int i = 0; i < numberOfWorkers; i++) {
+            partitions.add(new Partition());
+        }
+        this.partitions = List.copyOf(partitions);
     }
 
     public void add(Action action) {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Adding action into {} queue for {}", queueName, action.description());
         }
-        queue.add(action);
+        Object key = action.partitionKey();
+        lock.lock();
+        try {
+            if (key == null) {
+                addBarrier(action);
+            } else {
+                addToPartition(action, key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addToPartition(Action action, Object key) {
+        Partition partition = partitions.get(Math.floorMod(key.hashCode(), partitions.size()));
+        Entry last = partition.lastEntryByKey.get(key);
+        if (last != null && action.supersedes(last.action)) {
+            coalesce(last.action, action);
+            last.action = action;
+            return;
+        }
+        Entry entry = new Entry(action, key, null);
+        partition.entries.add(entry);
+        partition.lastEntryByKey.put(key, entry);
+        partition.notEmpty.signal();
+        lastBarrier = null;
+        pending++;
+    }
+
+    private void addBarrier(Action action) {
+        if (lastBarrier != null && action.supersedes(lastBarrier.action)) {
+            coalesce(lastBarrier.action, action);
+            lastBarrier.action = action;
+            return;
+        }
+        Barrier barrier = new Barrier(action, partitions.size());
+        for (Partition partition : partitions) {
+            partition.entries.add(new Entry(null, null, barrier));
+            // nothing added after this may overtake it
+            partition.lastEntryByKey.clear();
+            partition.notEmpty.signal();
+        }
+        lastBarrier = barrier;
+        pending++;
+    }
+
+    private void coalesce(Action superseded, Action action) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Replacing pending action in {} queue for {} with {}", queueName, superseded.description(), action.description());
+        }
+        coalesced.increment();
     }
 
     @TestOnly
     public boolean isEmpty() {
-        return queue.isEmpty();
+        lock.lock();
+        try {
+            return pending == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Statistics statistics() {
+        lock.lock();
+        int pendingNow;
+        try {
+            pendingNow = pending;
+        } finally {
+            lock.unlock();
+        }
+        return new Statistics(queueName, partitions.size(), pendingNow, processed.sum(), coalesced.sum(),
+            totalWaitNanos.sum(), maxWaitNanos.get(), totalRunNanos.sum(), maxRunNanos.get());
     }
 
     @Override
     public void start() {
-        if (processorThread != null) {
+        if (workers != null) {
             throw new RuntimeException(String.format("Cannot start queue processor for %s multiple times.", queueName));
         }
 
-        processorThread = Thread.ofPlatform()
-            .name("Queue-Processor-" + queueName)
-            .daemon(true)
-            .uncaughtExceptionHandler(uncaughtExceptionHandlerFor(LOGGER))
-            .start(() -> {
-                while (!Thread.currentThread().isInterrupted()) {
+        List<Thread> threads = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            Partition partition = partitions.get(i);
+            String threadName = partitions.size() == 1 ? "Queue-Processor-" + queueName : "Queue-Processor-" + queueName + "-" + i;
+            threads.add(Thread.ofPlatform()
+                .name(threadName)
+                .daemon(true)
+                .uncaughtExceptionHandler(uncaughtExceptionHandlerFor(LOGGER))
+                .start(() -> process(partition)));
+        }
+        workers = threads;
+    }
+
+    private void process(Partition partition) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Entry entry = partition.take();
+                if (entry.barrier == null) {
+                    run(entry.action, entry.addedAt);
+                } else if (entry.lastToArrive) {
                     try {
-                        Action action = queue.take();
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("Acting on item in {} queue for {}", queueName, action.description());
-                        }
-
-                        long startTime = System.currentTimeMillis();
-                        action.call();
-
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("Finished acting on item in {} queue for {}. Time taken: {} ms", queueName, action.description(), System.currentTimeMillis() - startTime);
-                        }
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    } catch (Throwable e) {
-                        LOGGER.warn("Failed to handle action in {} queue", queueName, e);
+                        run(entry.barrier.action, entry.barrier.addedAt);
+                    } finally {
+                        entry.barrier.done.countDown();
                     }
+                } else {
+                    entry.barrier.done.await();
                 }
-            });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                LOGGER.warn("Failed to handle action in {} queue", queueName, e);
+            }
+        }
+    }
+
+    private void run(Action action, long addedAt) {
+        long startTime = System.nanoTime();
+        recordTime(totalWaitNanos, maxWaitNanos, startTime - addedAt);
+        try {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Acting on item in {} queue for {}", queueName, action.description());
+            }
+
+            action.call();
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Finished acting on item in {} queue for {}. Time taken: {} ms", queueName, action.description(), (System.nanoTime() - startTime) / 1_000_000);
+            }
+        } catch (Throwable e) {
+            LOGGER.warn("Failed to handle action in {} queue", queueName, e);
+        } finally {
+            recordTime(totalRunNanos, maxRunNanos, System.nanoTime() - startTime);
+            processed.increment();
+            lock.lock();
+            try {
+                pending--;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static void recordTime(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
     }
 
     @Override
     public void stop() throws InterruptedException {
-        if (processorThread != null && processorThread.isAlive()) {
-            processorThread.interrupt();
-            processorThread.join(SHUTDOWN_MILLIS);
-            processorThread = null;
+        List<Thread> threads = workers;
+        if (threads != null) {
+            threads.forEach(Thread::interrupt);
+            for (Thread thread : threads) {
+                thread.join(SHUTDOWN_MILLIS);
+            }
+            workers = null;
         }
     }
 
@@ -103,5 +249,111 @@ public class MultiplexingQueueProcessor implements Daemonized {
         void call();
 
         String description();
+
+        /**
+         * @return the key of whatever this action works on, e.g. a pipeline name, or {@code null} if this action has to
+         * be processed on its own, after everything added before it and before everything added after it
+         */
+        default @Nullable Object partitionKey() {
+            return null;
+        }
+
+        /**
+         * @param pending an action with the same {@link #partitionKey()} that was added before this one and has not
+         *                started yet, with nothing else for that key lined up in between
+         * @return {@code true} if processing this action makes processing {@code pending} pointless, in which case only
+         * this action is processed, in the place of {@code pending}
+         */
+        default boolean supersedes(Action pending) {
+            return false;
+        }
+    }
+
+    /**
+     * A snapshot of how busy the processor is. Wait times are measured from when an action was first lined up to when
+     * it started, so an action that took the place of another one is counted from when the other one was added.
+     */
+    public record Statistics(String queueName, int workers, int pending, long processed, long coalesced,
+                             long totalWaitNanos, long maxWaitNanos, long totalRunNanos, long maxRunNanos) {
+        public long averageWaitMillis() {
+            return processed == 0 ? 0 : totalWaitNanos / processed / 1_000_000;
+        }
+
+        public long averageRunMillis() {
+            return processed == 0 ? 0 : totalRunNanos / processed / 1_000_000;
+        }
+
+        public Map<String, Object> asJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("Workers", workers);
+            json.put("Pending", pending);
+            json.put("Processed", processed);
+            json.put("Coalesced", coalesced);
+            json.put("Average wait (ms)", averageWaitMillis());
+            json.put("Max wait (ms)", maxWaitNanos / 1_000_000);
+            json.put("Average run (ms)", averageRunMillis());
+            json.put("Max run (ms)", maxRunNanos / 1_000_000);
+            return json;
+        }
+    }
+
+    private class Partition {
+        private final Deque<Entry> entries = new ArrayDeque<>();
+        private final Map<Object, Entry> lastEntryByKey = new HashMap<>();
+        private final Condition notEmpty = lock.newCondition();
+
+        private Entry take() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (entries.isEmpty()) {
+                    notEmpty.await();
+                }
+                Entry entry = entries.poll();
+                if (entry.key != null) {
+                    lastEntryByKey.remove(entry.key, entry);
+                }
+                if (entry.barrier != null) {
+                    entry.lastToArrive = ++entry.barrier.arrived == entry.barrier.parties;
+                    if (lastBarrier == entry.barrier) {
+                        // it has been reached, so it is too late to replace its action
+                        lastBarrier = null;
+                    }
+                }
+                return entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static class Entry {
+        private final Object key;
+        private final Barrier barrier;
+        private final long addedAt = System.nanoTime();
+        private Action action;
+        private boolean lastToArrive;
+
+        private Entry(Action action, Object key, Barrier barrier) {
+            this.action = action;
+            this.key = key;
+            this.barrier = barrier;
+        }
+    }
+
+    /**
+     * An action without a partition key, lined up on every worker. The last worker to reach it processes it, while the
+     * others wait for that to finish.
+     */
+    private static class Barrier {
+        private final int parties;
+        private final long addedAt = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Action action;
+        private int arrived;
+
+        private Barrier(Action action, int parties) {
+            this.action = action;
+            this.parties = parties;
+        }
     }
 }
@@ -16,6 +16,7 @@
 package com.thoughtworks.go.server.messaging.activemq;
 
 import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoMessageConsumer;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
 import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
 import com.thoughtworks.go.serverhealth.HealthStateType;
@@ -36,7 +37,7 @@ import java.util.concurrent.ThreadFactory;
 import static com.thoughtworks.go.serverhealth.HealthStateScope.GLOBAL;
 import static com.thoughtworks.go.util.ExceptionUtils.uncaughtExceptionHandlerFor;
 
-public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable {
+public class JMSMessageListenerAdapter<T extends GoMessage> implements GoMessageConsumer, Runnable {
     private static final Logger LOG = LoggerFactory.getLogger(JMSMessageListenerAdapter.class);
     private static final ConcurrentMap<Class<?>, ThreadFactory> THREAD_FACTORIES = new ConcurrentHashMap<>();
 
@@ -73,6 +74,7 @@ public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable
         }
     }
 
+    @Override
     public void stop() throws JMSException {
         consumer.close();
     }
@@ -117,6 +119,7 @@ public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable
         return new JMSMessageListenerAdapter<>(consumer, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
     }
 
+    @Override
     public String listenerThreadName() {
         return thread.getName();
     }
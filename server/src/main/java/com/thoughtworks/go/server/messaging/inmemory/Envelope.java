@@ -0,0 +1,29 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+
+/**
+ * A message on its way to a listener, along with when it stops being worth delivering.
+ */
+record Envelope(GoMessage message, long expiresAtMillis) {
+    static final long NEVER = Long.MAX_VALUE;
+
+    boolean hasExpired(long nowMillis) {
+        return nowMillis > expiresAtMillis;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoMessageConsumer;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+import static com.thoughtworks.go.util.ExceptionUtils.uncaughtExceptionHandlerFor;
+
+/**
+ * Feeds the messages of a topic subscription or queue to a single listener on a thread of its own.
+ */
+class InMemoryMessageConsumer implements GoMessageConsumer, Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryMessageConsumer.class);
+    private static final ConcurrentMap<Class<?>, ThreadFactory> THREAD_FACTORIES = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<Envelope> source;
+    private final int prefetch;
+    private final GoMessageListener<GoMessage> listener;
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final Consumer<InMemoryMessageConsumer> onStop;
+    private final Deque<Envelope> prefetched = new ArrayDeque<>();
+    private final Thread thread;
+
+    private boolean stopped = false;
+    private boolean receiving = false;
+
+    InMemoryMessageConsumer(BlockingQueue<Envelope> source, int prefetch, GoMessageListener<GoMessage> listener,
+                            DaemonThreadStatsCollector daemonThreadStatsCollector, Consumer<InMemoryMessageConsumer> onStop) {
+        this.source = source;
+        this.prefetch = prefetch;
+        this.listener = listener;
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.onStop = onStop;
+        this.thread = THREAD_FACTORIES.computeIfAbsent(listener.getClass(), clz -> Thread.ofPlatform()
+                .name(clz.getSimpleName() + "-", 1)
+                .daemon(true)
+                .uncaughtExceptionHandler(uncaughtExceptionHandlerFor(clz))
+                .factory())
+            .newThread(this);
+    }
+
+    InMemoryMessageConsumer start() {
+        thread.start();
+        return this;
+    }
+
+    BlockingQueue<Envelope> source() {
+        return source;
+    }
+
+    boolean isCurrentThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    @Override
+    public void run() {
+        try {
+            Envelope envelope;
+            while ((envelope = receive()) != null) {
+                if (!envelope.hasExpired(System.currentTimeMillis())) {
+                    handle(envelope.message());
+                }
+            }
+        } finally {
+            // like unacknowledged prefetched messages on a closed JMS consumer, these go back to the other consumers
+            prefetched.forEach(source::offer);
+            prefetched.clear();
+        }
+        LOG.debug("Message consumer was closed.");
+    }
+
+    private void handle(GoMessage message) {
+        try {
+            daemonThreadStatsCollector.captureStats(thread.threadId());
+            listener.onMessage(message);
+        } catch (Throwable e) {
+            LOG.error("Exception thrown in message handling by listener {}", listener, e);
+        } finally {
+            daemonThreadStatsCollector.clearStats(thread.threadId());
+        }
+    }
+
+    private Envelope receive() {
+        synchronized (this) {
+            if (stopped) {
+                return null;
+            }
+            if (!prefetched.isEmpty()) {
+                return prefetched.poll();
+            }
+            receiving = true;
+        }
+        try {
+            Envelope envelope = source.take();
+            if (prefetch > 1) {
+                source.drainTo(prefetched, prefetch - 1);
+            }
+            return envelope;
+        } catch (InterruptedException e) {
+            return null;
+        } finally {
+            synchronized (this) {
+                receiving = false;
+                // an interrupt meant for the wait must not reach the listener
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Stops taking messages once the message being handled, if any, has been handled.
+     */
+    @Override
+    public void stop() {
+        synchronized (this) {
+            stopped = true;
+            if (receiving) {
+                thread.interrupt();
+            }
+        }
+        onStop.accept(this);
+    }
+
+    @Override
+    public String listenerThreadName() {
+        return thread.getName();
+    }
+}
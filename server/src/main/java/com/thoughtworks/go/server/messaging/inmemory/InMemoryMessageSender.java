@@ -0,0 +1,53 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.MessageSender;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+class InMemoryMessageSender implements MessageSender {
+    interface Delivery {
+        void deliver(Envelope envelope) throws InterruptedException;
+    }
+
+    private final Delivery delivery;
+
+    InMemoryMessageSender(Delivery delivery) {
+        this.delivery = delivery;
+    }
+
+    @Override
+    public void sendMessage(GoMessage goMessage) {
+        send(new Envelope(goMessage, Envelope.NEVER));
+    }
+
+    @Override
+    public void sendMessage(GoMessage goMessage, long timeToLive) {
+        // as with JMS, a time to live of 0 means the message never expires
+        send(new Envelope(goMessage, timeToLive > 0 ? System.currentTimeMillis() + timeToLive : Envelope.NEVER));
+    }
+
+    private void send(Envelope envelope) {
+        try {
+            delivery.deliver(envelope);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw bomb(e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.*;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * Delivers messages between components of the server through bounded in-memory queues, without the JMS wrapping and
+ * broker hops of {@link com.thoughtworks.go.server.messaging.activemq.ActiveMqMessagingService}. Enabled with
+ * {@link SystemEnvironment#IN_MEMORY_MESSAGING_ENABLED}.
+ * <p>
+ * The semantics are those of the non-persistent topics and queues of the broker: every listener of a topic gets every
+ * message posted after it started listening, while the listeners of a queue compete for its messages, each taking no
+ * more than the queue prefetch at a time. Messages are handed to listeners as they were posted, without being copied.
+ * When a topic listener or a queue falls {@link SystemEnvironment#IN_MEMORY_MESSAGING_CAPACITY} messages behind,
+ * senders wait for it to catch up, like producers do when the broker runs out of memory. A sender that has waited
+ * {@link SystemEnvironment#IN_MEMORY_MESSAGING_SEND_TIMEOUT_IN_MILLIS} gets an exception instead, and so does a
+ * listener posting to a full topic or queue that it consumes itself, which would otherwise wait for itself forever.
+ */
+public class InMemoryMessagingService implements MessagingService<GoMessage> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryMessagingService.class);
+
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final int capacity;
+    private final int queuePrefetch;
+    private final long sendTimeoutMillis;
+
+    private final ConcurrentMap<String, List<InMemoryMessageConsumer>> topics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Destination> queues = new ConcurrentHashMap<>();
+
+    private record Destination(BlockingQueue<Envelope> messages, List<InMemoryMessageConsumer> consumers) {
+    }
+
+    public InMemoryMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment) {
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.capacity = systemEnvironment.get(SystemEnvironment.IN_MEMORY_MESSAGING_CAPACITY);
+        this.queuePrefetch = systemEnvironment.getActivemqQueuePrefetch();
+        this.sendTimeoutMillis = systemEnvironment.get(SystemEnvironment.IN_MEMORY_MESSAGING_SEND_TIMEOUT_IN_MILLIS);
+    }
+
+    @Override
+    public MessageSender createSender(String topic) {
+        return new InMemoryMessageSender(envelope -> {
+            // a listener that cannot keep up must not keep the others from getting the message
+            List<String> undelivered = new ArrayList<>();
+            for (InMemoryMessageConsumer consumer : topics.getOrDefault(topic, List.of())) {
+                if (!offer(consumer.source(), envelope, consumer.isCurrentThread())) {
+                    undelivered.add(consumer.listenerThreadName());
+                }
+            }
+            if (!undelivered.isEmpty()) {
+                throw undelivered(envelope, "topic " + topic + " for " + undelivered);
+            }
+        });
+    }
+
+    @Override
+    public GoMessageConsumer addListener(String topic, GoMessageListener<GoMessage> listener) {
+        List<InMemoryMessageConsumer> consumers = topics.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>());
+        // every listener of a topic has a queue of its own, so it sees every message whatever the others do
+        InMemoryMessageConsumer consumer = new InMemoryMessageConsumer(new LinkedBlockingQueue<>(capacity), 0, listener, daemonThreadStatsCollector, consumers::remove);
+        consumers.add(consumer);
+        return consumer.start();
+    }
+
+    @Override
+    public MessageSender createQueueSender(String queueName) {
+        // look the queue up on every send, so that posting to a removed queue starts a fresh one
+        return new InMemoryMessageSender(envelope -> {
+            Destination queue = queue(queueName);
+            if (!offer(queue.messages(), envelope, queue.consumers().stream().anyMatch(InMemoryMessageConsumer::isCurrentThread))) {
+                throw undelivered(envelope, "queue " + queueName);
+            }
+        });
+    }
+
+    @Override
+    public GoMessageConsumer addQueueListener(String queueName, GoMessageListener<GoMessage> listener) {
+        Destination queue = queue(queueName);
+        InMemoryMessageConsumer consumer = new InMemoryMessageConsumer(queue.messages(), queuePrefetch, listener, daemonThreadStatsCollector, queue.consumers()::remove);
+        queue.consumers().add(consumer);
+        return consumer.start();
+    }
+
+    private boolean offer(BlockingQueue<Envelope> messages, Envelope envelope, boolean fromOwnListener) throws InterruptedException {
+        return fromOwnListener ? messages.offer(envelope) : messages.offer(envelope, sendTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static RuntimeException undelivered(Envelope envelope, String destination) {
+        String message = String.format("Could not deliver %s to %s, which is full and not being emptied", envelope.message(), destination);
+        LOGGER.error(message);
+        return bomb(message);
+    }
+
+    private Destination queue(String queueName) {
+        return queues.computeIfAbsent(queueName, name -> new Destination(new LinkedBlockingQueue<>(capacity), new CopyOnWriteArrayList<>()));
+    }
+
+    @Override
+    public void removeQueue(String queueName) {
+        Destination queue = queues.remove(queueName);
+        if (queue != null) {
+            queue.consumers().forEach(InMemoryMessageConsumer::stop);
+            queue.messages().clear();
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void stop() {
+        topics.values().forEach(consumers -> consumers.forEach(InMemoryMessageConsumer::stop));
+        topics.clear();
+        queues.keySet().forEach(this::removeQueue);
+    }
+}
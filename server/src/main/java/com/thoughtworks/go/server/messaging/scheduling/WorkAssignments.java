@@ -21,24 +21,38 @@ import com.thoughtworks.go.remote.work.Work;
 import com.thoughtworks.go.server.messaging.GoMessageChannel;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.server.service.BuildAssignmentService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 @Service
 public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
     private GoMessageChannel<IdleAgentMessage> idleAgentsTopic;
     private ConcurrentMap<AgentIdentifier, Work> assignments;
+    private final ConcurrentMap<AgentIdentifier, WaitingAgent> waitingAgents = new ConcurrentHashMap<>();
+    private final Semaphore waitingAgentPermits;
+    private final long maxWaitMillis;
     private static final NoWork NO_WORK = new NoWork();
 
     @Autowired
     public WorkAssignments(IdleAgentTopic idleAgentsTopic,
-                           WorkAssignedTopic assignedWorkTopic) {
+                           WorkAssignedTopic assignedWorkTopic,
+                           BuildAssignmentService buildAssignmentService,
+                           SystemEnvironment systemEnvironment) {
         this.idleAgentsTopic = idleAgentsTopic;
         assignedWorkTopic.addListener(this);
         this.assignments = new ConcurrentHashMap<>();
+        this.waitingAgentPermits = new Semaphore(systemEnvironment.get(SystemEnvironment.AGENT_WORK_LONG_POLL_MAX_WAITING_AGENTS));
+        this.maxWaitMillis = systemEnvironment.get(SystemEnvironment.AGENT_WORK_LONG_POLL_MAX_WAIT_IN_MILLIS);
+        buildAssignmentService.registerNewJobPlansListener(this::offerNewWorkToWaitingAgents);
     }
 
     public Work getWork(AgentRuntimeInfo runtimeInfo) {
@@ -59,6 +73,47 @@ public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
         }
     }
 
+    /**
+     * Like {@link #getWork(AgentRuntimeInfo)}, but when there is no work for the agent yet, holds on to the request
+     * for up to {@code waitMillis} (capped by the server) and hands out work as soon as it is assigned to the agent.
+     *
+     * @return {@code null} when long polling is disabled or too many agents are already waiting, in which case the
+     * caller should fall back to {@link #getWork(AgentRuntimeInfo)}
+     */
+    public Work awaitWork(AgentRuntimeInfo runtimeInfo, long waitMillis) {
+        long timeoutMillis = Math.min(waitMillis, maxWaitMillis);
+        if (timeoutMillis <= 0 || !waitingAgentPermits.tryAcquire()) {
+            return null;
+        }
+
+        AgentIdentifier agent = runtimeInfo.getIdentifier();
+        WaitingAgent waitingAgent = new WaitingAgent(runtimeInfo);
+        waitingAgents.put(agent, waitingAgent);
+        try {
+            Work work = getWork(runtimeInfo);
+            if (!(work instanceof NoWork)) {
+                return work;
+            }
+            return waitingAgent.awaitAssignment(timeoutMillis) ? getWork(runtimeInfo) : NO_WORK;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NO_WORK;
+        } finally {
+            waitingAgents.remove(agent, waitingAgent);
+            waitingAgentPermits.release();
+        }
+    }
+
+    private void offerNewWorkToWaitingAgents() {
+        waitingAgents.forEach((agent, waitingAgent) -> {
+            synchronized (agentMutex(agent)) {
+                if (assignments.putIfAbsent(agent, NO_WORK) == null) {
+                    idleAgentsTopic.post(new IdleAgentMessage(waitingAgent.runtimeInfo));
+                }
+            }
+        });
+    }
+
     private String agentMutex(AgentIdentifier agent) {
         return agent.getUuid().intern();
     }
@@ -75,7 +130,23 @@ public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
             synchronized (agentMutex(agentIdentifier)) {
                 assignments.replace(agentIdentifier, NO_WORK, work);
             }
+            WaitingAgent waitingAgent = waitingAgents.get(agentIdentifier);
+            if (waitingAgent != null) {
+                waitingAgent.assigned.countDown();
+            }
         }
     }
 
+    private static class WaitingAgent {
+        private final AgentRuntimeInfo runtimeInfo;
+        private final CountDownLatch assigned = new CountDownLatch(1);
+
+        private WaitingAgent(AgentRuntimeInfo runtimeInfo) {
+            this.runtimeInfo = runtimeInfo;
+        }
+
+        private boolean awaitAssignment(long timeoutMillis) throws InterruptedException {
+            return assigned.await(timeoutMillis, MILLISECONDS);
+        }
+    }
 }
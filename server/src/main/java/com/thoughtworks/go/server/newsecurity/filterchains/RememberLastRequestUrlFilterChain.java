@@ -34,6 +34,7 @@ public class RememberLastRequestUrlFilterChain extends FilterChainProxy {
                 .addFilterChain("/**/*.json")
                 .addFilterChain("/files/**")
                 .addFilterChain("/console-websocket/**")
+                .addFilterChain("/dashboard-websocket/**")
                 .addFilterChain("/history/**")
                 .addFilterChain("/admin/config_change/**")
                 .addFilterChain("/**/*iframe")
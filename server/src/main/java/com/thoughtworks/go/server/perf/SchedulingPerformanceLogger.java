@@ -109,4 +109,10 @@ public class SchedulingPerformanceLogger {
             performanceLogger.debug("SCH-SCHEDULED {} {} {} {}", pipelineName, toBeScheduledQueueSize, schedulePipelineStartTime, schedulePipelineEndTime);
         }
     }
+
+    public void drainedToBeScheduledQueue(int pipelinesInQueue, int pipelinesScheduled, long drainStartTime, long drainEndTime) {
+        if (performanceLogger.isDebugEnabled()) {
+            performanceLogger.debug("SCH-TO-BE-SCHEDULED-QUEUE-DRAINED {} {} {} {}", pipelinesInQueue, pipelinesScheduled, drainStartTime, drainEndTime);
+        }
+    }
 }
@@ -21,14 +21,12 @@ import com.thoughtworks.go.server.database.Database;
 import com.thoughtworks.go.server.database.QueryExtensions;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.domain.user.PipelineSelections;
-import org.hibernate.HibernateException;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
 import org.springframework.stereotype.Component;
 
@@ -43,6 +41,7 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 @Component
 public class PipelineRepository extends HibernateDaoSupport {
     private static final Logger LOGGER = LoggerFactory.getLogger(PipelineRepository.class);
+    private static final int TIMELINE_PAGE_SIZE = 500;
     private final QueryExtensions queryExtensions;
     private final GoCache goCache;
 
@@ -62,131 +61,191 @@ public class PipelineRepository extends HibernateDaoSupport {
     }
 
     public void updatePipelineTimeline(final PipelineTimeline pipelineTimeline, final List<PipelineTimelineEntry> tempEntriesForRollback) {
-        getHibernateTemplate().execute(new HibernateCallback<>() {
-            private static final int PIPELINE_NAME = 0;
-            private static final int ID = 1;
-            private static final int COUNTER = 2;
-            private static final int MODIFIED_TIME = 3;
-            private static final int FINGERPRINT = 4;
-            private static final int NATURAL_ORDER = 5;
-            private static final int REVISION = 6;
-            private static final int MOD_ID = 7;
-            private static final int PMR_ID = 8;
-
-            @Override
-            public Object doInHibernate(Session session) throws HibernateException {
-                LOGGER.info("Start updating pipeline timeline");
-                List<Object[]> matches = retrieveTimeline(session, pipelineTimeline.maximumId());
-                List<PipelineTimelineEntry> newPipelines = populateFrom(matches);
-                addEntriesToPipelineTimeline(newPipelines, pipelineTimeline, tempEntriesForRollback);
-
-                updateNaturalOrdering(session, newPipelines);
-                LOGGER.info("Pipeline timeline updated");
-                return null;
-            }
+        getHibernateTemplate().execute(session -> {
+            LOGGER.info("Start updating pipeline timeline");
+            List<Object[]> matches = retrieveTimeline(session, pipelineTimeline.maximumId());
+            List<PipelineTimelineEntry> newPipelines = TimelineRows.entriesFrom(matches);
+            addEntriesToPipelineTimeline(newPipelines, pipelineTimeline, tempEntriesForRollback);
+
+            updateNaturalOrdering(session, newPipelines);
+            LOGGER.info("Pipeline timeline updated");
+            return null;
+        });
+    }
 
-            private void updateNaturalOrdering(Session session, List<PipelineTimelineEntry> pipelines) {
-                for (PipelineTimelineEntry pipeline : pipelines) {
-                    if (pipeline.hasBeenUpdated()) {
-                        updateNaturalOrderForPipeline(session, pipeline.getId(), pipeline.naturalOrder());
-                    }
-                }
-            }
+    /**
+     * Adds just the pipeline run with this id to the timeline. Unlike {@link #updatePipelineTimeline(PipelineTimeline, List)},
+     * this does not assume that every run with a lower id has already been committed.
+     */
+    public void updatePipelineTimeline(final PipelineTimeline pipelineTimeline, final long pipelineId, final List<PipelineTimelineEntry> tempEntriesForRollback) {
+        getHibernateTemplate().execute(session -> {
+            SQLQuery query = session.createSQLQuery(queryExtensions.retrievePipelineTimelineForPipelineIds());
+            query.setParameterList("pipelineIds", List.of(pipelineId));
+            List<Object[]> matches = loadTimeline(query);
+            TimelineRows.sortByPipelineAndRevision(matches);
+            List<PipelineTimelineEntry> newPipelines = TimelineRows.entriesFrom(matches);
+            addEntriesToPipelineTimeline(newPipelines, pipelineTimeline, tempEntriesForRollback);
+
+            updateNaturalOrdering(session, newPipelines);
+            return null;
+        });
+    }
 
-            @SuppressWarnings("unchecked")
-            private List<Object[]> loadTimeline(SQLQuery query) {
-                long startedAt = System.currentTimeMillis();
-                List<Object[]> matches = (List<Object[]>) query.list();
-                long duration = System.currentTimeMillis() - startedAt;
-                if (duration > 1000) {
-                    LOGGER.warn("updating in memory pipeline-timeline took: {} ms", duration);
-                }
-                return matches;
-            }
+    /**
+     * @return the id of the most recent pipeline run, or -1 if nothing has ever run
+     */
+    public long maximumPipelineId() {
+        Number result = (Number) getHibernateTemplate().execute(session -> session.createSQLQuery("SELECT MAX(id) FROM pipelines").uniqueResult());
+        return result == null ? -1 : result.longValue();
+    }
 
-            private List<Object[]> retrieveTimeline(Session session, long pipelineId) {
-                SQLQuery query = session.createSQLQuery(queryExtensions.retrievePipelineTimeline());
-                query.setLong("pipelineId", pipelineId);
+    /**
+     * Loads the timeline of a single pipeline, up to and including the run with id {@code maximumId}. Runs are read
+     * from the database a page at a time, so that loading a pipeline with a long history does not need one huge result
+     * set.
+     */
+    public List<PipelineTimelineEntry> loadPipelineTimeline(final String pipelineName, final long maximumId) {
+        return getHibernateTemplate().execute(session -> {
+            SQLQuery idQuery = session.createSQLQuery("SELECT id FROM pipelines WHERE name = :pipelineName AND id <= :maximumId ORDER BY id");
+            idQuery.setString("pipelineName", pipelineName);
+            idQuery.setLong("maximumId", maximumId);
+            List<Long> ids = new ArrayList<>();
+            for (Object id : idQuery.list()) {
+                ids.add(((Number) id).longValue());
+            }
 
+            List<PipelineTimelineEntry> entries = new ArrayList<>(ids.size());
+            for (int from = 0; from < ids.size(); from += TIMELINE_PAGE_SIZE) {
+                SQLQuery query = session.createSQLQuery(queryExtensions.retrievePipelineTimelineForPipelineIds());
+                query.setParameterList("pipelineIds", ids.subList(from, Math.min(ids.size(), from + TIMELINE_PAGE_SIZE)));
                 List<Object[]> matches = loadTimeline(query);
-                sortTimeLineByPidAndPmrId(matches);
-                return matches;
+                TimelineRows.sortByPipelineAndRevision(matches);
+                entries.addAll(TimelineRows.entriesFrom(matches));
             }
+            return entries;
+        });
+    }
+
+    public void updateNaturalOrdering(final List<PipelineTimelineEntry> pipelines) {
+        getHibernateTemplate().execute(session -> {
+            updateNaturalOrdering(session, pipelines);
+            return null;
+        });
+    }
 
-            private void sortTimeLineByPidAndPmrId(List<Object[]> matches) {
-                matches.sort(Comparator.comparing(this::id).thenComparingLong(this::pmrId));
+    private static void updateNaturalOrdering(Session session, List<PipelineTimelineEntry> pipelines) {
+        for (PipelineTimelineEntry pipeline : pipelines) {
+            if (pipeline.hasBeenUpdated()) {
+                updateNaturalOrderForPipeline(session, pipeline.getId(), pipeline.naturalOrder());
             }
+        }
+    }
 
-            private List<PipelineTimelineEntry> populateFrom(List<Object[]> matches) {
-                List<PipelineTimelineEntry> newPipelines = new ArrayList<>();
-                if (matches.isEmpty()) {
-                    return newPipelines;
-                }
+    @SuppressWarnings("unchecked")
+    private static List<Object[]> loadTimeline(SQLQuery query) {
+        long startedAt = System.currentTimeMillis();
+        List<Object[]> matches = (List<Object[]>) query.list();
+        long duration = System.currentTimeMillis() - startedAt;
+        if (duration > 1000) {
+            LOGGER.warn("updating in memory pipeline-timeline took: {} ms", duration);
+        }
+        return matches;
+    }
 
-                BigInteger lastId = null;
-                PipelineTimelineEntry lastEntry = null;
+    private List<Object[]> retrieveTimeline(Session session, long pipelineId) {
+        SQLQuery query = session.createSQLQuery(queryExtensions.retrievePipelineTimeline());
+        query.setLong("pipelineId", pipelineId);
+
+        List<Object[]> matches = loadTimeline(query);
+        TimelineRows.sortByPipelineAndRevision(matches);
+        return matches;
+    }
 
-                for (Object[] row : matches) {
-                    BigInteger id = id(row);
+    private void addEntriesToPipelineTimeline(List<PipelineTimelineEntry> newEntries, PipelineTimeline pipelineTimeline, List<PipelineTimelineEntry> tempEntriesForRollback) {
+        for (PipelineTimelineEntry newEntry : newEntries) {
+            tempEntriesForRollback.add(newEntry);
+            pipelineTimeline.add(newEntry);
+        }
+    }
 
-                    // New row
-                    if (!id.equals(lastId)) {
-                        lastId = id;
-                        lastEntry = new PipelineTimelineEntry(pipelineName(row), lastId.longValue(), counter(row), new HashMap<>(), naturalOrder(row));
-                        newPipelines.add(lastEntry);
-                    }
+    /* Understands the rows returned by the pipeline timeline queries; there is one row per material revision of a pipeline run */
+    private static class TimelineRows {
+        private static final int PIPELINE_NAME = 0;
+        private static final int ID = 1;
+        private static final int COUNTER = 2;
+        private static final int MODIFIED_TIME = 3;
+        private static final int FINGERPRINT = 4;
+        private static final int NATURAL_ORDER = 5;
+        private static final int REVISION = 6;
+        private static final int MOD_ID = 7;
+        private static final int PMR_ID = 8;
+
+        private static void sortByPipelineAndRevision(List<Object[]> matches) {
+            matches.sort(Comparator.comparing(TimelineRows::id).thenComparingLong(TimelineRows::pmrId));
+        }
 
-                    lastEntry.addRevision(fingerprint(row), rev(row));
-                }
+        private static List<PipelineTimelineEntry> entriesFrom(List<Object[]> matches) {
+            List<PipelineTimelineEntry> newPipelines = new ArrayList<>();
+            if (matches.isEmpty()) {
                 return newPipelines;
             }
 
-            private PipelineTimelineEntry.Revision rev(Object[] row) {
-                return new PipelineTimelineEntry.Revision(modifiedTime(row), stringRevision(row), modId(row));
-            }
+            BigInteger lastId = null;
+            PipelineTimelineEntry lastEntry = null;
 
-            private long pmrId(Object[] row) {
-                return ((BigInteger) row[PMR_ID]).longValue();
-            }
+            for (Object[] row : matches) {
+                BigInteger id = id(row);
 
-            private long modId(Object[] row) {
-                return ((BigInteger) row[MOD_ID]).longValue();
-            }
+                // New row
+                if (!id.equals(lastId)) {
+                    lastId = id;
+                    lastEntry = new PipelineTimelineEntry(pipelineName(row), lastId.longValue(), counter(row), new HashMap<>(), naturalOrder(row));
+                    newPipelines.add(lastEntry);
+                }
 
-            private double naturalOrder(Object[] row) {
-                return (Double) row[NATURAL_ORDER];
+                lastEntry.addRevision(fingerprint(row), rev(row));
             }
+            return newPipelines;
+        }
 
-            private Date modifiedTime(Object[] row) {
-                return (Date) row[MODIFIED_TIME];
-            }
+        private static PipelineTimelineEntry.Revision rev(Object[] row) {
+            return new PipelineTimelineEntry.Revision(modifiedTime(row), stringRevision(row), modId(row));
+        }
 
-            private String stringRevision(Object[] row) {
-                return (String) row[REVISION];
-            }
+        private static long pmrId(Object[] row) {
+            return ((BigInteger) row[PMR_ID]).longValue();
+        }
 
-            private String fingerprint(Object[] row) {
-                return String.valueOf(row[FINGERPRINT]);
-            }
+        private static long modId(Object[] row) {
+            return ((BigInteger) row[MOD_ID]).longValue();
+        }
 
-            private String pipelineName(Object[] row) {
-                return (String) row[PIPELINE_NAME];
-            }
+        private static double naturalOrder(Object[] row) {
+            return (Double) row[NATURAL_ORDER];
+        }
 
-            private int counter(Object[] row) {
-                return row[COUNTER] == null ? -1 : ((BigInteger) row[COUNTER]).intValue();
-            }
+        private static Date modifiedTime(Object[] row) {
+            return (Date) row[MODIFIED_TIME];
+        }
 
-            private BigInteger id(Object[] first) {
-                return (BigInteger) first[ID];
-            }
-        });
-    }
+        private static String stringRevision(Object[] row) {
+            return (String) row[REVISION];
+        }
 
-    private void addEntriesToPipelineTimeline(List<PipelineTimelineEntry> newEntries, PipelineTimeline pipelineTimeline, List<PipelineTimelineEntry> tempEntriesForRollback) {
-        for (PipelineTimelineEntry newEntry : newEntries) {
-            tempEntriesForRollback.add(newEntry);
-            pipelineTimeline.add(newEntry);
+        private static String fingerprint(Object[] row) {
+            return String.valueOf(row[FINGERPRINT]);
+        }
+
+        private static String pipelineName(Object[] row) {
+            return (String) row[PIPELINE_NAME];
+        }
+
+        private static int counter(Object[] row) {
+            return row[COUNTER] == null ? -1 : ((BigInteger) row[COUNTER]).intValue();
+        }
+
+        private static BigInteger id(Object[] first) {
+            return (BigInteger) first[ID];
         }
     }
 
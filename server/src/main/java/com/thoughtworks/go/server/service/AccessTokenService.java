@@ -45,13 +45,15 @@ public class AccessTokenService {
 
     private final AccessTokenDao accessTokenDao;
     private final SecurityService securityService;
+    private final VerifiedAccessTokenCache verifiedAccessTokenCache;
     private final ConcurrentMap<Long, Timestamp> accessTokenIdToLastUsedTimestampCache = new ConcurrentHashMap<>();
 
     @Autowired
-    public AccessTokenService(AccessTokenDao accessTokenDao, Clock clock, SecurityService securityService) {
+    public AccessTokenService(AccessTokenDao accessTokenDao, Clock clock, SecurityService securityService, VerifiedAccessTokenCache verifiedAccessTokenCache) {
         this.accessTokenDao = accessTokenDao;
         this.timeProvider = clock;
         this.securityService = securityService;
+        this.verifiedAccessTokenCache = verifiedAccessTokenCache;
     }
 
     public AccessToken.AccessTokenWithDisplayValue create(String description, String username, String authConfigId) {
@@ -95,6 +97,12 @@ public class AccessTokenService {
             throw new InvalidAccessTokenException();
         }
 
+        AccessToken verified = verifiedAccessTokenCache.get(userSuppliedToken);
+        if (verified != null) {
+            return verified;
+        }
+
+        long generation = verifiedAccessTokenCache.generation();
         String userSuppliedSaltId = userSuppliedToken.substring(0, 8);
         AccessToken token = accessTokenDao.findAccessTokenBySaltId(userSuppliedSaltId);
         if (token == null) {
@@ -112,6 +120,7 @@ public class AccessTokenService {
             throw new RevokedAccessTokenException(token.getRevokedAt());
         }
 
+        verifiedAccessTokenCache.put(userSuppliedToken, token, generation);
         return token;
     }
 
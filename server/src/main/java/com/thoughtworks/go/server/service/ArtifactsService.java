@@ -35,6 +35,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.Set;
 import java.util.zip.ZipInputStream;
 
 import static java.lang.String.format;
@@ -49,19 +52,22 @@ public class ArtifactsService implements ArtifactUrlReader {
     private final JobResolverService jobResolverService;
     private final StageDao stageDao;
     private final ArtifactDirectoryChooser chooser;
+    private final ContentAddressableArtifactStore contentStore;
 
     @Autowired
     public ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
-                            ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
-        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, new ArtifactDirectoryChooser());
+                            ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, ContentAddressableArtifactStore contentStore) {
+        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, contentStore, new ArtifactDirectoryChooser());
     }
 
     protected ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
-                               ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, ArtifactDirectoryChooser chooser) {
+                               ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, ContentAddressableArtifactStore contentStore,
+                               ArtifactDirectoryChooser chooser) {
         this.artifactsDirHolder = artifactsDirHolder;
         this.zipUtil = zipUtil;
         this.jobResolverService = jobResolverService;
         this.stageDao = stageDao;
+        this.contentStore = contentStore;
 
         //This is a Chain of Responsibility to decide which view should be shown for a particular artifact URL
         this.chooser = chooser;
@@ -77,6 +83,7 @@ public class ArtifactsService implements ArtifactUrlReader {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Saving file [{}]", destPath);
+            detachFromContentStore(dest);
             if (shouldUnzip) {
                 zipUtil.unzip(new ZipInputStream(new BufferedInputStream(stream)), dest);
             } else {
@@ -105,6 +112,7 @@ public class ArtifactsService implements ArtifactUrlReader {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Appending file [{}]", destPath);
+            detachFromContentStore(dest);
             try (FileOutputStream out = FileUtils.openOutputStream(dest, true)) {
                 stream.transferTo(out);
             }
@@ -116,6 +124,50 @@ public class ArtifactsService implements ArtifactUrlReader {
         }
     }
 
+    /**
+     * Files linked to the content store share their content with other jobs, so they must not be written to in place.
+     */
+    private void detachFromContentStore(File dest) throws IOException {
+        if (contentStore.isEnabled()) {
+            contentStore.detach(dest);
+        }
+    }
+
+    public boolean isContentAddressable() {
+        return contentStore.isEnabled();
+    }
+
+    public Set<String> knownContentBlobs(Collection<String> hashes) {
+        return contentStore.isEnabled() ? contentStore.knownBlobs(hashes) : Set.of();
+    }
+
+    /**
+     * Links the blobs that the agent did not upload into the artifact, and moves the rest of the artifact into the
+     * content store. Does nothing unless the store is enabled.
+     *
+     * @return false if a blob the agent relied on is not available any more
+     */
+    public boolean deduplicate(JobIdentifier jobIdentifier, File artifact, Properties blobs) throws IllegalArtifactLocationException {
+        if (!contentStore.isEnabled()) {
+            return blobs.isEmpty();
+        }
+        File jobRoot = findArtifact(jobIdentifier, "");
+        try {
+            if (!contentStore.linkBlobs(jobRoot, artifact, blobs)) {
+                return false;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to link the blobs for [{}]", artifact.getAbsolutePath(), e);
+            return false;
+        }
+        try {
+            contentStore.deduplicate(jobRoot, artifact);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to move [{}] into the content store. The files are kept as they are.", artifact.getAbsolutePath(), e);
+        }
+        return true;
+    }
+
     public File findArtifact(JobIdentifier identifier, String path) throws IllegalArtifactLocationException {
         return chooser.findArtifact(identifier, path);
     }
@@ -194,6 +246,9 @@ public class ArtifactsService implements ArtifactUrlReader {
                     deletePartiallyFailed = true;
                 }
             }
+            if (contentStore.isEnabled()) {
+                contentStore.release(jobRoot);
+            }
         }
         return !deletePartiallyFailed;
     }
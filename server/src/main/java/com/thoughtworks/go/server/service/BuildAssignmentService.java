@@ -45,11 +45,13 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
 import static com.thoughtworks.go.util.command.EnvironmentVariableContext.GO_ENVIRONMENT_NAME;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static java.util.stream.StreamSupport.stream;
 
 
@@ -81,6 +83,8 @@ public class BuildAssignmentService implements ConfigChangedListener {
     private final ConsoleService consoleService;
 
     private List<JobPlan> jobPlans = new ArrayList<>();
+    private final JobAssignmentIndex assignmentIndex = new JobAssignmentIndex();
+    private final List<Runnable> newJobPlansListeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public BuildAssignmentService(GoConfigService goConfigService, JobInstanceService jobInstanceService,
@@ -114,6 +118,13 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
 
+    /**
+     * @param listener notified, outside of any lock, whenever a reload of the queue brings in plans that were not queued before
+     */
+    public void registerNewJobPlansListener(Runnable listener) {
+        newJobPlansListeners.add(listener);
+    }
+
     protected EntityConfigChangedListener<PipelineConfig> pipelineConfigChangedListener() {
         return new EntityConfigChangedListener<>() {
             @Override
@@ -196,7 +207,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     @VisibleForTesting
     JobPlan findMatchingJob(AgentInstance agent) {
-        List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(jobPlans, agent.getUuid());
+        List<JobPlan> filteredJobPlans = compatibleJobPlans(agent);
         JobPlan match = null;
         if (!agent.isElastic()) {
             match = agent.firstMatching(filteredJobPlans);
@@ -222,10 +233,19 @@ public class BuildAssignmentService implements ConfigChangedListener {
         }
         if (match != null) {
             jobPlans.remove(match);
+            assignmentIndex.remove(match);
         }
         return match;
     }
 
+    private List<JobPlan> compatibleJobPlans(AgentInstance agent) {
+        EnvironmentPipelineMatchers matchers = environmentConfigService.matchers();
+        if (assignmentIndex.isStale(jobPlans, matchers)) {
+            assignmentIndex.rebuild(jobPlans, matchers);
+        }
+        return assignmentIndex.candidatesFor(agent);
+    }
+
     @SuppressWarnings("unused") // used by spring scheduler
     public void onTimer() {
         if (maintenanceModeService.isMaintenanceMode()) {
@@ -237,19 +257,32 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     private void reloadJobPlans() {
+        boolean hasNewJobPlans;
         synchronized (this) {
             if (jobPlans == null) {
                 jobPlans = jobInstanceService.orderedScheduledBuilds();
                 elasticAgentPluginService.createAgentsFor(jobPlans, new ArrayList<>());
+                hasNewJobPlans = !jobPlans.isEmpty();
             } else {
                 List<JobPlan> old = jobPlans;
                 List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
                 jobPlans = newPlan;
                 elasticAgentPluginService.createAgentsFor(old, newPlan);
+                hasNewJobPlans = hasNewJobPlans(old, newPlan);
             }
+            assignmentIndex.rebuild(jobPlans, environmentConfigService.matchers());
+        }
+
+        if (hasNewJobPlans) {
+            newJobPlansListeners.forEach(Runnable::run);
         }
     }
 
+    private boolean hasNewJobPlans(List<JobPlan> old, List<JobPlan> newPlan) {
+        Set<Long> oldJobIds = old.stream().map(JobPlan::getJobId).collect(toSet());
+        return newPlan.stream().anyMatch(jobPlan -> !oldJobIds.contains(jobPlan.getJobId()));
+    }
+
     @Override
     public void onConfigChange(CruiseConfig cruiseConfig) {
         synchronized (this) {
@@ -276,6 +309,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
     private void tryRemoveJob(JobPlan jobPlan) {
         try {
             jobPlans.remove(jobPlan);
+            assignmentIndex.remove(jobPlan);
             LOGGER.info("Removing job plan {} that no longer exists in the config", jobPlan);
             scheduleService.cancelJob(jobInstanceService.buildByIdWithTransitions(jobPlan.getJobId()));
             LOGGER.info("Successfully removed job plan {} that no longer exists in the config", jobPlan);
@@ -0,0 +1,312 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+import static com.thoughtworks.go.util.ExceptionUtils.uncaughtExceptionHandlerFor;
+
+/**
+ * Assembles artifacts that agents upload in chunks. Every chunk is verified against its MD5 before it is acknowledged,
+ * and the acknowledged offset is kept next to the partially uploaded zip, so an agent can resume from the last
+ * acknowledged chunk after a failure, even across server restarts. The zip is unzipped into its destination as chunks
+ * arrive, rather than once the upload has finished. An upload is known by its id together with its destination, which
+ * is inside the folder of the job it belongs to, so an id sent for another job or path starts a separate upload.
+ */
+@Service
+public class ChunkedArtifactUploadService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedArtifactUploadService.class);
+    private static final String CHUNKED_UPLOADS_FOLDER = "chunked-uploads";
+    private static final Duration ABANDONED_UPLOAD_AGE = Duration.ofDays(1);
+    private static final Pattern VALID_UPLOAD_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+    private static final ThreadFactory UNZIP_THREAD_FACTORY = Thread.ofVirtual()
+        .name("chunked-upload-unzip-thread-", 1)
+        .uncaughtExceptionHandler(uncaughtExceptionHandlerFor(ChunkedArtifactUploadService.class))
+        .factory();
+
+    private final ArtifactsService artifactsService;
+    private final SystemEnvironment systemEnvironment;
+    private final ConcurrentMap<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ChunkedArtifactUploadService(ArtifactsService artifactsService, SystemEnvironment systemEnvironment) {
+        this.artifactsService = artifactsService;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public boolean isValidUploadId(String uploadId) {
+        return uploadId != null && VALID_UPLOAD_ID.matcher(uploadId).matches();
+    }
+
+    public Result appendChunk(String uploadId, File destination, long offset, String md5, InputStream chunk) throws IllegalArtifactLocationException {
+        return upload(uploadId, destination).append(offset, md5, chunk);
+    }
+
+    /**
+     * Waits for everything up to {@code size} to be unzipped into the destination, and then forgets about the upload.
+     */
+    public Result complete(String uploadId, File destination, long size) throws IllegalArtifactLocationException {
+        ChunkedUpload upload = upload(uploadId, destination);
+        Result result = upload.complete(size);
+        if (result.status() != Status.OFFSET_MISMATCH) {
+            uploads.remove(keyFor(uploadId, destination), upload);
+            upload.delete();
+        }
+        return result;
+    }
+
+    private ChunkedUpload upload(String uploadId, File destination) throws IllegalArtifactLocationException {
+        if (!isValidUploadId(uploadId)) {
+            throw new IllegalArtifactLocationException("Illegal upload id " + uploadId);
+        }
+        String key = keyFor(uploadId, destination);
+        File partFile = artifactsService.getArtifactLocation(CHUNKED_UPLOADS_FOLDER + "/" + key + ".part");
+        return uploads.compute(key, (id, existing) -> {
+            if (existing != null && !existing.hasFailed()) {
+                return existing;
+            }
+            deleteAbandonedUploads(partFile.getParentFile(), id);
+            ChunkedUpload upload = new ChunkedUpload(partFile, destination, systemEnvironment.get(SystemEnvironment.CHUNKED_ARTIFACT_UPLOAD_IDLE_TIMEOUT_IN_MILLIS));
+            upload.startUnzipping(artifactsService, () -> {
+                if (upload.hasFailed()) {
+                    uploads.remove(id, upload);
+                }
+            });
+            return upload;
+        });
+    }
+
+    private static String keyFor(String uploadId, File destination) {
+        return uploadId + "-" + DigestUtils.sha256Hex(destination.getAbsolutePath()).substring(0, 16);
+    }
+
+    private void deleteAbandonedUploads(File uploadsFolder, String resumingKey) {
+        File[] parts = uploadsFolder.listFiles();
+        if (parts == null) {
+            return;
+        }
+        long abandonedBefore = System.currentTimeMillis() - ABANDONED_UPLOAD_AGE.toMillis();
+        for (File part : parts) {
+            String key = part.getName().replaceFirst("\\.part(\\.offset)?$", "");
+            if (part.lastModified() < abandonedBefore && !key.equals(resumingKey) && !uploads.containsKey(key)) {
+                FileUtils.deleteQuietly(part);
+            }
+        }
+    }
+
+    public enum Status {
+        ACCEPTED, OFFSET_MISMATCH, CHECKSUM_MISMATCH, FAILED
+    }
+
+    /**
+     * @param acknowledgedOffset the number of bytes of the upload the server holds; the offset an agent should resume from
+     */
+    public record Result(Status status, long acknowledgedOffset) {
+    }
+
+    static class ChunkedUpload {
+        private final File partFile;
+        private final File offsetFile;
+        private final File destination;
+        private final long idleTimeoutMillis;
+        private final CompletableFuture<Boolean> unzipped = new CompletableFuture<>();
+        private long acknowledged;
+        private boolean completed;
+
+        ChunkedUpload(File partFile, File destination, long idleTimeoutMillis) {
+            this.partFile = partFile;
+            this.offsetFile = new File(partFile.getPath() + ".offset");
+            this.destination = destination;
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            this.acknowledged = recoverAcknowledgedOffset();
+        }
+
+        void startUnzipping(ArtifactsService artifactsService, Runnable onFinish) {
+            UNZIP_THREAD_FACTORY.newThread(() -> {
+                try (InputStream acknowledgedBytes = new AcknowledgedBytesInputStream()) {
+                    unzipped.complete(artifactsService.saveFile(destination, acknowledgedBytes, true, 1));
+                } catch (Throwable e) {
+                    LOGGER.error("[Artifact Upload] Failed to unzip chunked upload [{}] into [{}]", partFile, destination, e);
+                    unzipped.complete(false);
+                }
+                onFinish.run();
+            }).start();
+        }
+
+        synchronized boolean hasFailed() {
+            return unzipped.isDone() && !unzipped.join();
+        }
+
+        synchronized Result append(long offset, String md5, InputStream chunk) {
+            if (hasFailed()) {
+                return new Result(Status.FAILED, acknowledged);
+            }
+            if (offset != acknowledged) {
+                return new Result(Status.OFFSET_MISMATCH, acknowledged);
+            }
+            try {
+                FileUtils.forceMkdirParent(partFile);
+                try (RandomAccessFile out = new RandomAccessFile(partFile, "rw")) {
+                    out.setLength(offset);
+                    out.seek(offset);
+                    DigestInputStream in = new DigestInputStream(chunk, md5());
+                    byte[] buffer = new byte[8192];
+                    long written = 0;
+                    for (int read; (read = in.read(buffer)) != -1; written += read) {
+                        out.write(buffer, 0, read);
+                    }
+                    if (!HexFormat.of().formatHex(in.getMessageDigest().digest()).equalsIgnoreCase(md5)) {
+                        out.setLength(offset);
+                        return new Result(Status.CHECKSUM_MISMATCH, acknowledged);
+                    }
+                    acknowledged = offset + written;
+                }
+                Files.writeString(offsetFile.toPath(), String.valueOf(acknowledged), StandardCharsets.UTF_8);
+                notifyAll();
+                return new Result(Status.ACCEPTED, acknowledged);
+            } catch (IOException e) {
+                LOGGER.warn("[Artifact Upload] Failed to append chunk at offset {} to [{}]", offset, partFile, e);
+                return new Result(Status.FAILED, acknowledged);
+            }
+        }
+
+        Result complete(long size) {
+            synchronized (this) {
+                if (size != acknowledged) {
+                    return new Result(Status.OFFSET_MISMATCH, acknowledged);
+                }
+                completed = true;
+                notifyAll();
+            }
+            try {
+                return new Result(unzipped.get() ? Status.ACCEPTED : Status.FAILED, size);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Result(Status.FAILED, size);
+            } catch (ExecutionException e) {
+                return new Result(Status.FAILED, size);
+            }
+        }
+
+        void delete() {
+            FileUtils.deleteQuietly(partFile);
+            FileUtils.deleteQuietly(offsetFile);
+        }
+
+        /**
+         * Bytes past the last acknowledged offset may be left over from a chunk that was being written when the server
+         * went down, and were never verified, so they are dropped.
+         */
+        private long recoverAcknowledgedOffset() {
+            try {
+                if (!partFile.exists() || !offsetFile.exists()) {
+                    return 0;
+                }
+                long recovered = Math.min(Long.parseLong(Files.readString(offsetFile.toPath(), StandardCharsets.UTF_8).trim()), partFile.length());
+                try (RandomAccessFile part = new RandomAccessFile(partFile, "rw")) {
+                    part.setLength(recovered);
+                }
+                return recovered;
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.warn("[Artifact Upload] Could not recover the upload at [{}], starting over", partFile, e);
+                return 0;
+            }
+        }
+
+        private static MessageDigest md5() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Reads the part file as it grows, blocking until more bytes are acknowledged or the upload is completed.
+         */
+        private class AcknowledgedBytesInputStream extends InputStream {
+            private RandomAccessFile part;
+            private long position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                long available = awaitAcknowledgedBytes();
+                if (available <= 0) {
+                    return -1;
+                }
+                if (part == null) {
+                    part = new RandomAccessFile(partFile, "r");
+                }
+                part.seek(position);
+                int read = part.read(buffer, offset, (int) Math.min(length, available));
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            }
+
+            private long awaitAcknowledgedBytes() throws IOException {
+                synchronized (ChunkedUpload.this) {
+                    long deadline = System.currentTimeMillis() + idleTimeoutMillis;
+                    while (acknowledged == position && !completed) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            throw new IOException("No chunk received for " + idleTimeoutMillis + "ms");
+                        }
+                        try {
+                            ChunkedUpload.this.wait(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException();
+                        }
+                    }
+                    return acknowledged - position;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (part != null) {
+                    part.close();
+                }
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.ConsoleLogLineIndex;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.LocatableEntity;
@@ -25,6 +26,7 @@ import com.thoughtworks.go.server.view.artifacts.BuildIdArtifactLocator;
 import com.thoughtworks.go.server.view.artifacts.PathBasedArtifactsLocator;
 import com.thoughtworks.go.util.ArtifactUtil;
 import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.io.FileUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.VisibleForTesting;
@@ -61,8 +63,12 @@ public class ConsoleService {
     }
 
     public ConsoleConsumer getStreamer(long startingLine, JobIdentifier identifier) throws IllegalArtifactLocationException {
+        return getStreamer(startingLine, Long.MAX_VALUE, identifier);
+    }
+
+    public ConsoleConsumer getStreamer(long startingLine, long endingLine, JobIdentifier identifier) throws IllegalArtifactLocationException {
         Path path = consoleLogFile(identifier).toPath();
-        return new ConsoleStreamer(path, startingLine);
+        return new ConsoleStreamer(path, lineIndexOf(identifier).toPath(), startingLine, endingLine);
     }
 
     public boolean doesLogExist(JobIdentifier jobIdentifier) {
@@ -91,10 +97,10 @@ public class ConsoleService {
     }
 
     public void appendToConsoleLogIoSafe(JobIdentifier jobIdentifier, String text) throws IllegalArtifactLocationException {
-        appendToConsoleLogIoSafe(consoleLogFile(jobIdentifier), new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        appendToConsoleLogIoSafe(jobIdentifier, consoleLogFile(jobIdentifier), new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
     }
 
-    public boolean appendToConsoleLogIoSafe(File dest, InputStream in) {
+    public boolean appendToConsoleLogIoSafe(JobIdentifier jobIdentifier, File dest, InputStream in) {
         FileUtil.mkdirsParentQuietly(dest);
         try (OutputStream out = new FileOutputStream(dest, true)) {
             in.transferTo(out);
@@ -102,6 +108,7 @@ public class ConsoleService {
             LOGGER.error("Failed to update console log at : [{}]", dest.getAbsolutePath(), e);
             return false;
         }
+        updateLineIndex(dest, lineIndexOf(jobIdentifier));
         return true;
     }
 
@@ -139,5 +146,27 @@ public class ConsoleService {
         } catch (IOException e) {
             throw new RuntimeException("Unexpected error moving console log from temporary location [%s] to permanent artifact location [%s]".formatted(from, to), e);
         }
+        // the index only speeds up tailing the log of a running job; drop it so it does not outlive the temporary log
+        FileUtils.deleteQuietly(lineIndexOf(locatableEntity));
+    }
+
+    private void updateLineIndex(File log, File index) {
+        if (!ConsoleLogLineIndex.supports(new SystemEnvironment().consoleLogCharset())) {
+            return;
+        }
+        try {
+            new ConsoleLogLineIndex(log.toPath(), index.toPath()).update();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to update line index of console log at [{}]; reading it from a given line will be slower", log.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * The line index of a job's console log is kept next to the temporary console log, so that it never shows up as an
+     * artifact, and is deleted along with it once the log moves into the artifacts of the job.
+     */
+    @VisibleForTesting
+    File lineIndexOf(LocatableEntity locatableEntity) {
+        return ConsoleLogLineIndex.indexFor(chooser.temporaryConsoleFile(locatableEntity).toPath()).toFile();
     }
 }
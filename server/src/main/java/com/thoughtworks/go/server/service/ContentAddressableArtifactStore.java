@@ -0,0 +1,294 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.ArtifactUtil;
+import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Keeps a single copy of every distinct artifact file, keyed by its SHA-256, under {@code content-store} in the
+ * artifacts directory. Artifact files stay at their usual paths, but as hard links to those blobs, so everything
+ * that reads artifacts is unaffected. The link count of a blob is its reference count: once every job that linked it
+ * has been purged, only the store's own link is left, and the blob is deleted.
+ * <p>
+ * Each job keeps a manifest of the blobs it references in its {@code cruise-output} folder, which survives purging,
+ * so that the blobs can be released once the job's artifacts are deleted.
+ */
+@Component
+public class ContentAddressableArtifactStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentAddressableArtifactStore.class);
+    static final String CONTENT_STORE_FOLDER = "content-store";
+    static final String MANIFEST_FILENAME = "content-manifest";
+    private static final Pattern VALID_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final ArtifactsDirHolder artifactsDirHolder;
+    private final SystemEnvironment systemEnvironment;
+    private volatile Boolean enabled;
+
+    @Autowired
+    public ContentAddressableArtifactStore(ArtifactsDirHolder artifactsDirHolder, SystemEnvironment systemEnvironment) {
+        this.artifactsDirHolder = artifactsDirHolder;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public boolean isEnabled() {
+        if (enabled == null) {
+            enabled = systemEnvironment.get(SystemEnvironment.ARTIFACTS_CONTENT_ADDRESSABLE) && linkCountsAreSupported();
+        }
+        return enabled;
+    }
+
+    private boolean linkCountsAreSupported() {
+        try {
+            File storeDir = storeDir();
+            Files.createDirectories(storeDir.toPath());
+            if (Files.getFileStore(storeDir.toPath()).supportsFileAttributeView("unix")) {
+                return true;
+            }
+            LOGGER.warn("[Content Addressable Artifacts] The file system of '{}' does not report link counts. Artifacts will not be deduplicated.", storeDir);
+        } catch (IOException e) {
+            LOGGER.warn("[Content Addressable Artifacts] Could not set up the store. Artifacts will not be deduplicated.", e);
+        }
+        return false;
+    }
+
+    public Set<String> knownBlobs(Collection<String> hashes) {
+        Set<String> known = new HashSet<>();
+        for (String hash : hashes) {
+            if (isValidHash(hash) && blob(hash).exists()) {
+                known.add(hash);
+            }
+        }
+        return known;
+    }
+
+    /**
+     * Links the blobs an agent left out of its upload into place.
+     *
+     * @param blobs relative paths under {@code directory}, mapped to the hash of their content
+     * @return false if any of the blobs is no longer in the store, in which case the agent has to upload the files
+     */
+    public boolean linkBlobs(File jobRoot, File directory, Properties blobs) throws IOException {
+        List<String> linked = new ArrayList<>();
+        try {
+            for (String path : blobs.stringPropertyNames()) {
+                String hash = blobs.getProperty(path);
+                File destination = new File(directory, path);
+                if (!isValidHash(hash) || !FileUtil.isSubdirectoryOf(directory, destination)) {
+                    LOGGER.error("[Content Addressable Artifacts] Refusing to link blob '{}' to '{}'", hash, destination);
+                    return false;
+                }
+                synchronized (hash.intern()) {
+                    Path blob = blob(hash).toPath();
+                    if (!Files.exists(blob)) {
+                        LOGGER.warn("[Content Addressable Artifacts] Blob '{}' for '{}' is no longer in the store", hash, destination);
+                        return false;
+                    }
+                    Files.createDirectories(destination.getParentFile().toPath());
+                    replaceWithLink(destination.toPath(), blob);
+                }
+                linked.add(hash);
+            }
+            return true;
+        } finally {
+            appendToManifest(jobRoot, linked);
+        }
+    }
+
+    /**
+     * Moves every file under {@code directory} into the store, replacing it with a link to the blob that has the same
+     * content. Files that are already links, and the folders managed by the server, are left alone.
+     */
+    public void deduplicate(File jobRoot, File directory) throws IOException {
+        if (!directory.exists()) {
+            return;
+        }
+        Path root = absolute(jobRoot);
+        List<String> linked = new ArrayList<>();
+        try {
+            Files.walkFileTree(absolute(directory), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return isSystemManaged(root, dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && !isSystemManaged(root, file.getParent()) && linkCount(file) == 1) {
+                        linked.add(store(file));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            appendToManifest(jobRoot, linked);
+        }
+    }
+
+    private static boolean isSystemManaged(Path jobRoot, Path dir) {
+        if (!dir.startsWith(jobRoot) || dir.equals(jobRoot)) {
+            return false;
+        }
+        return ArtifactUtil.artifactDirectoryIsSystemManaged(jobRoot.relativize(dir).getName(0).toString());
+    }
+
+    private static Path absolute(File file) {
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+
+    private String store(Path file) throws IOException {
+        String hash = sha256(file);
+        synchronized (hash.intern()) {
+            Path blob = blob(hash).toPath();
+            if (Files.exists(blob)) {
+                replaceWithLink(file, blob);
+            } else {
+                Files.createDirectories(blob.getParent());
+                Files.createLink(blob, file);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Gives the file (or every file under the folder) its own copy of its content, so that it can be written to
+     * without changing the blob it was linked to.
+     */
+    public void detach(File fileOrDirectory) throws IOException {
+        if (!fileOrDirectory.exists()) {
+            return;
+        }
+        Files.walkFileTree(fileOrDirectory.toPath(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile() && linkCount(file) > 1) {
+                    Path copy = temporarySibling(file);
+                    Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES);
+                    Files.move(copy, file, REPLACE_EXISTING, ATOMIC_MOVE);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Deletes the blobs referenced by the job that are no longer linked from anywhere else. Called once the job's
+     * artifacts have been deleted.
+     */
+    public void release(File jobRoot) {
+        File manifest = manifest(jobRoot);
+        if (!manifest.exists()) {
+            return;
+        }
+        try {
+            Set<String> hashes;
+            synchronized (manifest.getAbsolutePath().intern()) {
+                hashes = new HashSet<>(Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8));
+                Files.delete(manifest.toPath());
+            }
+            for (String hash : hashes) {
+                if (isValidHash(hash)) {
+                    releaseBlob(hash);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("[Content Addressable Artifacts] Failed to release the blobs referenced from '{}'", manifest, e);
+        }
+    }
+
+    private void releaseBlob(String hash) throws IOException {
+        synchronized (hash.intern()) {
+            Path blob = blob(hash).toPath();
+            if (Files.exists(blob) && linkCount(blob) == 1) {
+                Files.delete(blob);
+                LOGGER.debug("[Content Addressable Artifacts] Deleted blob '{}', which is no longer referenced", hash);
+            }
+        }
+    }
+
+    private void appendToManifest(File jobRoot, List<String> hashes) throws IOException {
+        if (hashes.isEmpty()) {
+            return;
+        }
+        File manifest = manifest(jobRoot);
+        synchronized (manifest.getAbsolutePath().intern()) {
+            Files.createDirectories(manifest.getParentFile().toPath());
+            Files.write(manifest.toPath(), hashes, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private static void replaceWithLink(Path file, Path blob) throws IOException {
+        Path link = temporarySibling(file);
+        Files.createLink(link, blob);
+        try {
+            Files.move(link, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(link);
+            throw e;
+        }
+    }
+
+    private static Path temporarySibling(Path file) {
+        return file.resolveSibling("." + file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    private static int linkCount(Path file) throws IOException {
+        return (Integer) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (DigestInputStream in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(file)), MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isValidHash(String hash) {
+        return hash != null && VALID_HASH.matcher(hash).matches();
+    }
+
+    private File blob(String hash) {
+        return new File(new File(storeDir(), hash.substring(0, 2)), hash);
+    }
+
+    private File storeDir() {
+        return new File(artifactsDirHolder.getArtifactsDir(), CONTENT_STORE_FOLDER);
+    }
+
+    private static File manifest(File jobRoot) {
+        return new File(new File(jobRoot, ArtifactUtil.CRUISE_OUTPUT_FOLDER), MANIFEST_FILENAME);
+    }
+}
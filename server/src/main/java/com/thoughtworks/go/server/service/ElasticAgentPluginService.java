@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.elastic.ClusterProfile;
 import com.thoughtworks.go.config.elastic.ElasticProfile;
 import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
@@ -22,6 +23,7 @@ import com.thoughtworks.go.domain.AgentInstance;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.JobInstance;
 import com.thoughtworks.go.domain.JobPlan;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
 import com.thoughtworks.go.plugin.access.elastic.ElasticAgentMetadataStore;
 import com.thoughtworks.go.plugin.access.elastic.ElasticAgentPluginRegistry;
 import com.thoughtworks.go.plugin.access.elastic.models.AgentMetadata;
@@ -42,6 +44,7 @@ import com.thoughtworks.go.server.messaging.elasticagents.ServerPingQueueHandler
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TimeProvider;
 import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.lang3.Strings;
@@ -56,6 +59,7 @@ import org.springframework.util.LinkedMultiValueMap;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Predicate;
 
 import static com.thoughtworks.go.serverhealth.HealthStateScope.forJob;
@@ -85,6 +89,8 @@ public class ElasticAgentPluginService {
     private final SecretParamResolver secretParamResolver;
     private final JobInstanceSqlMapDao jobInstanceSqlMapDao;
     private final JobStatusTopic jobStatusTopic;
+    private final SystemEnvironment systemEnvironment;
+    private final ConcurrentMap<AssignmentDecisionKey, Long> deniedAssignments = new ConcurrentHashMap<>();
 
     @Value("${go.elasticplugin.heartbeat.interval}")
     private long elasticPluginHeartBeatInterval;
@@ -104,11 +110,12 @@ public class ElasticAgentPluginService {
             GoConfigService goConfigService, TimeProvider timeProvider, ClusterProfilesService clusterProfilesService,
             ServerHealthService serverHealthService, JobInstanceSqlMapDao jobInstanceSqlMapDao, ScheduleService scheduleService,
             ConsoleService consoleService, EphemeralAutoRegisterKeyService ephemeralAutoRegisterKeyService, SecretParamResolver secretParamResolver,
-            JobStatusTopic jobStatusTopic) {
+            JobStatusTopic jobStatusTopic, SystemEnvironment systemEnvironment) {
 
         this(pluginManager, elasticAgentPluginRegistry, agentService, environmentConfigService, createAgentQueue,
                 serverPingQueue, goConfigService, timeProvider, serverHealthService, ElasticAgentMetadataStore.instance(),
-                clusterProfilesService, jobInstanceSqlMapDao, scheduleService, consoleService, ephemeralAutoRegisterKeyService, secretParamResolver, jobStatusTopic);
+                clusterProfilesService, jobInstanceSqlMapDao, scheduleService, consoleService, ephemeralAutoRegisterKeyService, secretParamResolver, jobStatusTopic,
+                systemEnvironment);
     }
 
     ElasticAgentPluginService(
@@ -119,7 +126,7 @@ public class ElasticAgentPluginService {
             ElasticAgentMetadataStore elasticAgentMetadataStore, ClusterProfilesService clusterProfilesService,
             JobInstanceSqlMapDao jobInstanceSqlMapDao, ScheduleService scheduleService, ConsoleService consoleService,
             EphemeralAutoRegisterKeyService ephemeralAutoRegisterKeyService,
-            SecretParamResolver secretParamResolver, JobStatusTopic jobStatusTopic) {
+            SecretParamResolver secretParamResolver, JobStatusTopic jobStatusTopic, SystemEnvironment systemEnvironment) {
         this.pluginManager = pluginManager;
         this.elasticAgentPluginRegistry = elasticAgentPluginRegistry;
         this.agentService = agentService;
@@ -137,9 +144,15 @@ public class ElasticAgentPluginService {
         this.ephemeralAutoRegisterKeyService = ephemeralAutoRegisterKeyService;
         this.secretParamResolver = secretParamResolver;
         this.jobStatusTopic = jobStatusTopic;
+        this.systemEnvironment = systemEnvironment;
+        goConfigService.register(new ElasticProfileChangeListener());
+        goConfigService.register(new ClusterProfileChangeListener());
     }
 
     public void heartbeat() {
+        long now = timeProvider.currentTimeMillis();
+        deniedAssignments.values().removeIf(expiresAt -> expiresAt <= now);
+
         LinkedMultiValueMap<String, ElasticAgentMetadata> elasticAgentsOfMissingPlugins = agentService.allElasticAgents();
 //      pingMessage TTL is set lesser than elasticPluginHeartBeatInterval to ensure there aren't multiple ping request for the same plugin
         long pingMessageTimeToLive = elasticPluginHeartBeatInterval - 10000L;
@@ -249,17 +262,68 @@ public class ElasticAgentPluginService {
         }
     }
 
+    /**
+     * Asks the plugin whether the agent should run the job. A poll by an agent still asks once for every compatible
+     * queued job until one is accepted, since plugins are told the job and there is no batch variant to ask about several
+     * at once. With {@code go.elastic.agent.assignment.decision.cache.ttl.millis} set, a refusal is remembered for that
+     * long, so later polls by the same agent skip jobs it was already refused; this is off by default because a job then
+     * waits out the TTL even if the plugin would have accepted it sooner, e.g. once the agent has capacity again.
+     */
     public boolean shouldAssignWork(ElasticAgentMetadata metadata, String environment, ElasticProfile elasticProfile, ClusterProfile clusterProfile, JobIdentifier identifier) {
         if (clusterProfile == null || !Strings.CS.equals(clusterProfile.getPluginId(), metadata.elasticPluginId())) {
             return false;
         }
 
+        long ttl = systemEnvironment.get(SystemEnvironment.ELASTIC_AGENT_ASSIGNMENT_DECISION_CACHE_TTL_IN_MILLIS);
+        AssignmentDecisionKey key = new AssignmentDecisionKey(metadata.elasticAgentId(), elasticProfile.getId(), clusterProfile.getId(), environment, identifier);
+        if (ttl > 0) {
+            Long expiresAt = deniedAssignments.get(key);
+            if (expiresAt != null && expiresAt > timeProvider.currentTimeMillis()) {
+                return false;
+            }
+        }
+
         resolveSecrets(clusterProfile, elasticProfile);
         Map<String, String> clusterProfileProperties = clusterProfile.getConfigurationAsMap(true, true);
         GoPluginDescriptor pluginDescriptor = pluginManager.getPluginDescriptorFor(metadata.elasticPluginId());
         Map<String, String> configuration = elasticProfile.getConfigurationAsMap(true, true);
 
-        return elasticAgentPluginRegistry.shouldAssignWork(pluginDescriptor, toAgentMetadata(metadata), environment, configuration, clusterProfileProperties, identifier);
+        boolean shouldAssignWork = elasticAgentPluginRegistry.shouldAssignWork(pluginDescriptor, toAgentMetadata(metadata), environment, configuration, clusterProfileProperties, identifier);
+        if (ttl > 0) {
+            if (shouldAssignWork) {
+                deniedAssignments.remove(key);
+            } else {
+                deniedAssignments.put(key, timeProvider.currentTimeMillis() + ttl);
+            }
+        }
+        return shouldAssignWork;
+    }
+
+    /**
+     * Remembers which jobs a plugin refused to assign to an agent, so that an elastic agent polling again and again for
+     * work does not ask the plugin about the same queued job every time. The job is part of the key because plugins are
+     * told which job it is, and may well accept one job while refusing another with the same profiles.
+     */
+    private record AssignmentDecisionKey(String elasticAgentId, String elasticProfileId, String clusterProfileId, String environment, JobIdentifier jobIdentifier) {
+    }
+
+    class ElasticProfileChangeListener extends EntityConfigChangedListener<ElasticProfile> {
+        @Override
+        public void onEntityConfigChange(ElasticProfile profile) {
+            deniedAssignments.keySet().removeIf(key -> Objects.equals(key.elasticProfileId(), profile.getId()));
+        }
+
+        @Override
+        public void onConfigChange(CruiseConfig newCruiseConfig) {
+            deniedAssignments.clear();
+        }
+    }
+
+    class ClusterProfileChangeListener extends EntityConfigChangedListener<ClusterProfile> {
+        @Override
+        public void onEntityConfigChange(ClusterProfile profile) {
+            deniedAssignments.keySet().removeIf(key -> Objects.equals(key.clusterProfileId(), profile.getId()));
+        }
     }
 
     public String getPluginStatusReport(String pluginId) {
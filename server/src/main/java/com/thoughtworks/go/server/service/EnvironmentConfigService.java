@@ -29,7 +29,6 @@ import com.thoughtworks.go.config.update.UpdateEnvironmentCommand;
 import com.thoughtworks.go.domain.AgentInstance;
 import com.thoughtworks.go.domain.ConfigElementForEdit;
 import com.thoughtworks.go.domain.EnvironmentPipelineMatchers;
-import com.thoughtworks.go.domain.JobPlan;
 import com.thoughtworks.go.i18n.LocalizedMessage;
 import com.thoughtworks.go.listener.AgentChangeListener;
 import com.thoughtworks.go.listener.ConfigChangedListener;
@@ -99,8 +98,8 @@ public class EnvironmentConfigService implements ConfigChangedListener, AgentCha
         agentService.registerAgentChangeListeners(this);
     }
 
-    List<JobPlan> filterJobsByAgent(List<JobPlan> jobPlans, String agentUuid) {
-        return jobPlans.stream().filter(jobPlan -> matchers.match(jobPlan.getPipelineName(), agentUuid)).collect(toList());
+    EnvironmentPipelineMatchers matchers() {
+        return matchers;
     }
 
     String envForPipeline(String pipelineName) {
@@ -30,6 +30,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.thoughtworks.go.config.security.util.SecurityConfigUtils.*;
@@ -97,6 +98,10 @@ public class GoDashboardService {
         cache.replaceAllEntriesInCacheWith(dashboardCurrentStateLoader.allPipelines(config));
     }
 
+    public String pipelineFragment(GoDashboardPipeline pipeline, String variant, Supplier<String> renderer) {
+        return cache.pipelineFragment(pipeline, variant, renderer);
+    }
+
     public boolean hasEverLoadedCurrentState() {
         return dashboardCurrentStateLoader.hasEverLoadedCurrentState();
     }
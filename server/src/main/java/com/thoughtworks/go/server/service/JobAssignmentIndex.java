@@ -0,0 +1,176 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.domain.AgentInstance;
+import com.thoughtworks.go.domain.EnvironmentPipelineMatchers;
+import com.thoughtworks.go.domain.JobPlan;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Understands which of the scheduled job plans an agent could possibly be assigned, so that an agent poll only looks at
+ * plans in the environments the agent belongs to and whose resource requirements the agent satisfies.
+ * <p>
+ * Plans are partitioned by environment and then bucketed by what they need from an agent (a set of resources, a
+ * specific agent, or an elastic agent). Each bucket is kept in queue order, so the head of every bucket is the
+ * oldest plan of its kind. Not thread safe; callers are expected to guard it with the same monitor as the queue.
+ */
+class JobAssignmentIndex {
+    private static final CaseInsensitiveString NO_ENVIRONMENT = new CaseInsensitiveString("");
+
+    private final Map<CaseInsensitiveString, Partition> partitions = new HashMap<>();
+    private final Map<JobPlan, Long> positions = new IdentityHashMap<>();
+    private List<JobPlan> indexedJobPlans;
+    private EnvironmentPipelineMatchers indexedMatchers;
+
+    boolean isStale(List<JobPlan> jobPlans, EnvironmentPipelineMatchers matchers) {
+        return indexedJobPlans != jobPlans || indexedMatchers != matchers || positions.size() != jobPlans.size();
+    }
+
+    void rebuild(List<JobPlan> jobPlans, EnvironmentPipelineMatchers matchers) {
+        partitions.clear();
+        positions.clear();
+        indexedJobPlans = jobPlans;
+        indexedMatchers = matchers;
+
+        long position = 0;
+        for (JobPlan jobPlan : jobPlans) {
+            positions.put(jobPlan, position);
+            for (CaseInsensitiveString environment : environmentsForPipeline(jobPlan.getPipelineName())) {
+                partitions.computeIfAbsent(environment, name -> new Partition()).add(position, jobPlan);
+            }
+            position++;
+        }
+    }
+
+    void remove(JobPlan jobPlan) {
+        Long position = positions.remove(jobPlan);
+        if (position == null) {
+            return;
+        }
+        for (CaseInsensitiveString environment : environmentsForPipeline(jobPlan.getPipelineName())) {
+            Partition partition = partitions.get(environment);
+            if (partition != null) {
+                partition.remove(position, jobPlan);
+                if (partition.isEmpty()) {
+                    partitions.remove(environment);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return for a regular agent, the oldest plan of every bucket it could pick up; for an elastic agent, every elastic
+     * plan it could pick up. In both cases the plans are in queue order.
+     */
+    List<JobPlan> candidatesFor(AgentInstance agent) {
+        TreeMap<Long, JobPlan> candidates = new TreeMap<>();
+        for (CaseInsensitiveString environment : environmentsForAgent(agent.getUuid())) {
+            Partition partition = partitions.get(environment);
+            if (partition == null) {
+                continue;
+            }
+            if (agent.isElastic()) {
+                candidates.putAll(partition.elastic);
+            } else {
+                partition.addHeadsOfMatchingBucketsTo(agent, candidates);
+            }
+        }
+        return new ArrayList<>(candidates.values());
+    }
+
+    int size() {
+        return positions.size();
+    }
+
+    private Set<CaseInsensitiveString> environmentsForPipeline(String pipelineName) {
+        return orNoEnvironment(indexedMatchers == null ? Set.of() : indexedMatchers.environmentsWithPipeline(pipelineName));
+    }
+
+    private Set<CaseInsensitiveString> environmentsForAgent(String uuid) {
+        return orNoEnvironment(indexedMatchers == null ? Set.of() : indexedMatchers.environmentsWithAgent(uuid));
+    }
+
+    private static Set<CaseInsensitiveString> orNoEnvironment(Set<CaseInsensitiveString> environments) {
+        return environments.isEmpty() ? Set.of(NO_ENVIRONMENT) : environments;
+    }
+
+    private static List<String> resourcesRequiredBy(JobPlan jobPlan) {
+        return jobPlan.getResources().toResourceConfigs().resourceNames().stream()
+                .map(String::toLowerCase)
+                .distinct()
+                .sorted()
+                .collect(toList());
+    }
+
+    private static class Partition {
+        private final Map<List<String>, TreeMap<Long, JobPlan>> byResources = new HashMap<>();
+        private final Map<String, TreeMap<Long, JobPlan>> byAgentUuid = new HashMap<>();
+        private final TreeMap<Long, JobPlan> elastic = new TreeMap<>();
+
+        void add(long position, JobPlan jobPlan) {
+            if (jobPlan.requiresElasticAgent()) {
+                elastic.put(position, jobPlan);
+            } else if (jobPlan.getAgentUuid() != null) {
+                byAgentUuid.computeIfAbsent(jobPlan.getAgentUuid(), uuid -> new TreeMap<>()).put(position, jobPlan);
+            } else {
+                byResources.computeIfAbsent(resourcesRequiredBy(jobPlan), resources -> new TreeMap<>()).put(position, jobPlan);
+            }
+        }
+
+        void remove(long position, JobPlan jobPlan) {
+            if (jobPlan.requiresElasticAgent()) {
+                elastic.remove(position);
+            } else if (jobPlan.getAgentUuid() != null) {
+                removeFrom(byAgentUuid, jobPlan.getAgentUuid(), position);
+            } else {
+                removeFrom(byResources, resourcesRequiredBy(jobPlan), position);
+            }
+        }
+
+        void addHeadsOfMatchingBucketsTo(AgentInstance agent, Map<Long, JobPlan> candidates) {
+            TreeMap<Long, JobPlan> assignedToAgent = byAgentUuid.get(agent.getUuid());
+            if (assignedToAgent != null) {
+                Map.Entry<Long, JobPlan> head = assignedToAgent.firstEntry();
+                candidates.put(head.getKey(), head.getValue());
+            }
+            byResources.forEach((resources, bucket) -> {
+                if (agent.getAgent().hasAllResources(resources)) {
+                    Map.Entry<Long, JobPlan> head = bucket.firstEntry();
+                    candidates.put(head.getKey(), head.getValue());
+                }
+            });
+        }
+
+        boolean isEmpty() {
+            return elastic.isEmpty() && byAgentUuid.isEmpty() && byResources.isEmpty();
+        }
+
+        private static <K> void removeFrom(Map<K, TreeMap<Long, JobPlan>> buckets, K key, long position) {
+            TreeMap<Long, JobPlan> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(position);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+}
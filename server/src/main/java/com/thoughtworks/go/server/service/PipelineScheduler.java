@@ -18,9 +18,16 @@ package com.thoughtworks.go.server.service;
 import com.thoughtworks.go.config.*;
 import com.thoughtworks.go.config.remote.ConfigRepoConfig;
 import com.thoughtworks.go.domain.PipelineConfigVisitor;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.listener.ConfigChangedListener;
 import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.server.domain.PipelineLockStatusChangeListener;
+import com.thoughtworks.go.server.domain.PipelinePauseChangeListener;
+import com.thoughtworks.go.server.domain.StageStatusListener;
 import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.materials.MaterialUpdateCompletedMessage;
+import com.thoughtworks.go.server.materials.MaterialUpdateCompletedTopic;
+import com.thoughtworks.go.server.materials.MaterialUpdateSuccessfulMessage;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
 import com.thoughtworks.go.server.perf.SchedulingPerformanceLogger;
 import com.thoughtworks.go.server.scheduling.*;
@@ -29,20 +36,26 @@ import com.thoughtworks.go.server.service.result.ServerHealthServiceUpdatingOper
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Consumer;
 
 import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+import static com.thoughtworks.go.util.SystemEnvironment.SCHEDULE_CHECK_SWEEP_INTERVAL_IN_MILLIS;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
+/**
+ * Understands when pipelines need to be checked for a new build cause. A pipeline is only sent to the schedule check
+ * queue when something it depends on changed: one of its materials (including upstream stages, as dependency
+ * materials) was updated, its config changed, or it was unpaused or unlocked. Every pipeline is also checked
+ * every {@link SystemEnvironment#SCHEDULE_CHECK_SWEEP_INTERVAL_IN_MILLIS}, to be safe.
+ */
 @Service
 public class PipelineScheduler implements ConfigChangedListener, GoMessageListener<ScheduleCheckCompletedMessage> {
     private static final Logger LOGGER = LoggerFactory.getLogger(PipelineScheduler.class);
@@ -54,7 +67,17 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
     private ScheduleCheckQueue scheduleCheckQueue;
     private ScheduleCheckCompletedTopic scheduleCheckCompletedTopic;
     private SchedulingPerformanceLogger schedulingPerformanceLogger;
+    private MaterialUpdateCompletedTopic materialUpdateCompletedTopic;
+    private StageService stageService;
+    private PipelinePauseService pipelinePauseService;
+    private PipelineLockService pipelineLockService;
+    private SystemEnvironment systemEnvironment;
+    private Clock clock;
+    // all guarded by pipelines
     private final Map<String, ScheduleCheckState> pipelines = new HashMap<>();
+    private final Set<CaseInsensitiveString> checksRequested = new HashSet<>();
+    private final Map<String, Set<CaseInsensitiveString>> pipelinesByMaterialFingerprint = new HashMap<>();
+    private long lastSweepAt = Long.MIN_VALUE;
 
     protected PipelineScheduler() {
     }
@@ -66,7 +89,13 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
                       BuildCauseProducerService buildCauseProducerService,
                       ScheduleCheckQueue scheduleCheckQueue,
                       ScheduleCheckCompletedTopic scheduleCheckCompletedTopic,
-                      SchedulingPerformanceLogger schedulingPerformanceLogger) {
+                      SchedulingPerformanceLogger schedulingPerformanceLogger,
+                      MaterialUpdateCompletedTopic materialUpdateCompletedTopic,
+                      StageService stageService,
+                      PipelinePauseService pipelinePauseService,
+                      PipelineLockService pipelineLockService,
+                      SystemEnvironment systemEnvironment,
+                      Clock clock) {
         this.goConfigService = goConfigService;
         this.serverHealthService = serverHealthService;
         this.schedulingChecker = schedulingChecker;
@@ -74,6 +103,12 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
         this.scheduleCheckQueue = scheduleCheckQueue;
         this.scheduleCheckCompletedTopic = scheduleCheckCompletedTopic;
         this.schedulingPerformanceLogger = schedulingPerformanceLogger;
+        this.materialUpdateCompletedTopic = materialUpdateCompletedTopic;
+        this.stageService = stageService;
+        this.pipelinePauseService = pipelinePauseService;
+        this.pipelineLockService = pipelineLockService;
+        this.systemEnvironment = systemEnvironment;
+        this.clock = clock;
     }
 
     public void initialize() {
@@ -81,6 +116,37 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
         goConfigService.register(pipelineConfigChangedListener());
         goConfigService.register(configRepoConfigChangedListener());
         scheduleCheckCompletedTopic.addListener(this);
+        materialUpdateCompletedTopic.addListener(materialUpdateCompletedListener());
+        stageService.addStageStatusListener(stageStatusChangedListener());
+        pipelinePauseService.registerListener(pipelinePauseChangeListener());
+        pipelineLockService.registerListener(pipelineLockStatusChangeListener());
+    }
+
+    GoMessageListener<MaterialUpdateCompletedMessage> materialUpdateCompletedListener() {
+        return message -> {
+            // failed or skipped updates, and updates that found no new modifications, record nothing new
+            if (message instanceof MaterialUpdateSuccessfulMessage successful && successful.foundNewModifications()) {
+                requestCheckForPipelinesWithMaterial(message.getMaterial().config().getFingerprint());
+            }
+        };
+    }
+
+    StageStatusListener stageStatusChangedListener() {
+        // a completed stage may have been what held up its pipeline; downstream pipelines are checked once the
+        // dependency material update records the new revision
+        return stage -> {
+            if (stage.isCompleted()) {
+                requestCheck(cis(stage.getIdentifier().getPipelineName()));
+            }
+        };
+    }
+
+    PipelinePauseChangeListener pipelinePauseChangeListener() {
+        return event -> requestCheck(cis(event.pipelineName()));
+    }
+
+    PipelineLockStatusChangeListener pipelineLockStatusChangeListener() {
+        return event -> requestCheck(cis(event.pipelineName()));
     }
 
     protected EntityConfigChangedListener<PipelineConfig> pipelineConfigChangedListener() {
@@ -88,9 +154,14 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
             @Override
             public void onEntityConfigChange(PipelineConfig pipelineConfig) {
                 synchronized (pipelines) {
-                    addPipelineIfNotPresent(pipelineConfig, pipelines);
-                    if (!goConfigService.getAllPipelineConfigs().contains(pipelineConfig)) {
+                    removeFromMaterialIndex(pipelineConfig.name());
+                    if (goConfigService.getAllPipelineConfigs().contains(pipelineConfig)) {
+                        addPipelineIfNotPresent(pipelineConfig, pipelines);
+                        addToMaterialIndex(pipelineConfig);
+                        checksRequested.add(pipelineConfig.name());
+                    } else {
                         pipelines.remove(pipelineConfig.name().toString());
+                        checksRequested.remove(pipelineConfig.name());
                     }
                 }
             }
@@ -109,9 +180,42 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
 
     //NOTE: This is called on a thread by Spring
     public void onTimer() {
+        requestChecksForAllPipelinesIfSweepIsDue();
         autoProduceBuildCauseAndSave();
     }
 
+    private void requestChecksForAllPipelinesIfSweepIsDue() {
+        long now = clock.currentTimeMillis();
+        synchronized (pipelines) {
+            if (lastSweepAt != Long.MIN_VALUE && now - lastSweepAt < systemEnvironment.get(SCHEDULE_CHECK_SWEEP_INTERVAL_IN_MILLIS)) {
+                return;
+            }
+            lastSweepAt = now;
+            requestChecksForAllPipelines();
+        }
+    }
+
+    private void requestChecksForAllPipelines() {
+        for (String pipelineName : pipelines.keySet()) {
+            checksRequested.add(cis(pipelineName));
+        }
+    }
+
+    /**
+     * Requests a check of every pipeline using the material with this fingerprint, since it has new modifications
+     */
+    public void requestCheckForPipelinesWithMaterial(String fingerprint) {
+        synchronized (pipelines) {
+            checksRequested.addAll(pipelinesByMaterialFingerprint.getOrDefault(fingerprint, Collections.emptySet()));
+        }
+    }
+
+    private void requestCheck(CaseInsensitiveString pipelineName) {
+        synchronized (pipelines) {
+            checksRequested.add(pipelineName);
+        }
+    }
+
     private void autoProduceBuildCauseAndSave() {
         try {
             OperationResult result = new ServerHealthServiceUpdatingOperationResult(serverHealthService);
@@ -130,6 +234,10 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
         synchronized (pipelines) {
             for (Map.Entry<String, ScheduleCheckState> entry : pipelines.entrySet()) {
                 if (entry.getValue().equals(ScheduleCheckState.IDLE)) {
+                    // a check requested while the pipeline is busy stays requested until it is idle again
+                    if (!checksRequested.remove(cis(entry.getKey()))) {
+                        continue;
+                    }
                     long trackingId = schedulingPerformanceLogger.pipelineSentToScheduleCheckQueue(entry.getKey());
 
                     scheduleCheckQueue.post(new ScheduleCheckMessage(entry.getKey(), trackingId));
@@ -211,7 +319,11 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
     @Override
     public void onConfigChange(CruiseConfig newCruiseConfig) {
         synchronized (pipelines) {
-            newCruiseConfig.accept((PipelineConfigVisitor) pipelineConfig -> addPipelineIfNotPresent(pipelineConfig, pipelines));
+            pipelinesByMaterialFingerprint.clear();
+            newCruiseConfig.accept((PipelineConfigVisitor) pipelineConfig -> {
+                addPipelineIfNotPresent(pipelineConfig, pipelines);
+                addToMaterialIndex(pipelineConfig);
+            });
 
             List<String> deletedPipeline = new ArrayList<>();
             for (String pipelineName : pipelines.keySet()) {
@@ -223,6 +335,8 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
             for (String pipelineName : deletedPipeline) {
                 pipelines.remove(pipelineName);
             }
+            checksRequested.clear();
+            requestChecksForAllPipelines();
         }
     }
 
@@ -230,6 +344,16 @@ public class PipelineScheduler implements ConfigChangedListener, GoMessageListen
         pipelines.putIfAbsent(CaseInsensitiveString.str(pipelineConfig.name()), ScheduleCheckState.IDLE);
     }
 
+    private void addToMaterialIndex(PipelineConfig pipelineConfig) {
+        for (MaterialConfig materialConfig : pipelineConfig.materialConfigs()) {
+            pipelinesByMaterialFingerprint.computeIfAbsent(materialConfig.getFingerprint(), k -> new HashSet<>()).add(pipelineConfig.name());
+        }
+    }
+
+    private void removeFromMaterialIndex(CaseInsensitiveString pipelineName) {
+        pipelinesByMaterialFingerprint.values().removeIf(pipelineNames -> pipelineNames.remove(pipelineName) && pipelineNames.isEmpty());
+    }
+
     @Override
     public void onMessage(ScheduleCheckCompletedMessage message) {
         synchronized (pipelines) {
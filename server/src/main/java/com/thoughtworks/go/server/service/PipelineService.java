@@ -91,7 +91,7 @@ public class PipelineService implements UpstreamPipelineResolver {
                     stageService.save(pipelineWithId, stage);
                 }
 
-                pipelineTimeline.update();
+                pipelineTimeline.update(pipelineWithId.getId());
                 return pipelineWithId;
             });
         }
@@ -41,6 +41,7 @@ import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TimeProvider;
 import org.apache.commons.lang3.Strings;
 import org.jetbrains.annotations.TestOnly;
@@ -52,19 +53,28 @@ import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
+import javax.annotation.PreDestroy;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
 import static com.thoughtworks.go.domain.buildcause.BuildCause.APPROVER_AUTOMATICALLY_TRIGGERED;
+import static com.thoughtworks.go.util.ExceptionUtils.uncaughtExceptionHandlerFor;
 import static java.lang.String.join;
 
 @Service
 public class ScheduleService {
     private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleService.class);
+    private static final ThreadFactory PIPELINE_CREATION_THREAD_FACTORY = Thread.ofPlatform()
+        .daemon()
+        .name("pipeline-creation-thread-", 1)
+        .uncaughtExceptionHandler(uncaughtExceptionHandlerFor(ScheduleService.class))
+        .factory();
 
     private GoConfigService goConfigService;
     private PipelineService pipelineService;
@@ -93,6 +103,8 @@ public class ScheduleService {
     private SchedulingPerformanceLogger schedulingPerformanceLogger;
     private ElasticProfileService elasticProfileService;
     private ClusterProfilesService clusterProfilesService;
+    private SystemEnvironment systemEnvironment;
+    private ExecutorService pipelineCreationExecutor;
 
     protected ScheduleService() {
     }
@@ -122,7 +134,8 @@ public class ScheduleService {
                            InstanceFactory instanceFactory,
                            SchedulingPerformanceLogger schedulingPerformanceLogger,
                            ElasticProfileService elasticProfileService,
-                           ClusterProfilesService clusterProfilesService
+                           ClusterProfilesService clusterProfilesService,
+                           SystemEnvironment systemEnvironment
     ) {
         this.goConfigService = goConfigService;
         this.pipelineService = pipelineService;
@@ -149,32 +162,86 @@ public class ScheduleService {
         this.schedulingPerformanceLogger = schedulingPerformanceLogger;
         this.elasticProfileService = elasticProfileService;
         this.clusterProfilesService = clusterProfilesService;
+        this.systemEnvironment = systemEnvironment;
     }
 
     //Note: This is called from a Spring timer
     public void autoSchedulePipelinesFromRequestBuffer() {
         synchronized (autoScheduleMutex) {
             try {
-                for (Entry<CaseInsensitiveString, BuildCause> entry : pipelineScheduleQueue.toBeScheduled().entrySet()) {
-                    CaseInsensitiveString pipelineName = entry.getKey();
-                    BuildCause buildCause = entry.getValue();
-
-                    LOGGER.info("[Pipeline Schedule] Scheduling pipeline {} with build cause {}", pipelineName, buildCause);
+                Map<CaseInsensitiveString, BuildCause> toBeScheduled = pipelineScheduleQueue.toBeScheduled();
+                if (toBeScheduled.isEmpty()) {
+                    return;
+                }
 
-                    long schedulingStartTime = System.currentTimeMillis();
-                    Pipeline pipeline = schedulePipeline(pipelineName, buildCause);
-                    long schedulingEndTime = System.currentTimeMillis();
+                long drainStartTime = System.currentTimeMillis();
+                List<Callable<Pipeline>> pipelineCreations = new ArrayList<>();
+                for (Entry<CaseInsensitiveString, BuildCause> entry : toBeScheduled.entrySet()) {
+                    pipelineCreations.add(() -> scheduleFromRequestBuffer(entry.getKey(), entry.getValue()));
+                }
 
-                    if (pipeline != null) {
-                        schedulingPerformanceLogger.scheduledPipeline(pipelineName, pipelineScheduleQueue.toBeScheduled().size(), schedulingStartTime, schedulingEndTime);
+                int scheduled = 0;
+                for (Future<Pipeline> pipelineCreation : createPipelines(pipelineCreations)) {
+                    try {
+                        if (pipelineCreation.get() != null) {
+                            scheduled++;
+                        }
+                    } catch (ExecutionException e) {
+                        LOGGER.error("[Pipeline Schedule] An exception occurred while scheduling the pipeline.", e.getCause());
                     }
                 }
+                schedulingPerformanceLogger.drainedToBeScheduledQueue(toBeScheduled.size(), scheduled, drainStartTime, System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Throwable e) {
                 LOGGER.error("[Pipeline Schedule] An exception occurred while scheduling the pipeline.", e);
             }
         }
     }
 
+    private Pipeline scheduleFromRequestBuffer(CaseInsensitiveString pipelineName, BuildCause buildCause) {
+        LOGGER.info("[Pipeline Schedule] Scheduling pipeline {} with build cause {}", pipelineName, buildCause);
+
+        long schedulingStartTime = System.currentTimeMillis();
+        Pipeline pipeline = schedulePipeline(pipelineName, buildCause);
+        long schedulingEndTime = System.currentTimeMillis();
+
+        if (pipeline != null) {
+            schedulingPerformanceLogger.scheduledPipeline(pipelineName, pipelineScheduleQueue.toBeScheduled().size(), schedulingStartTime, schedulingEndTime);
+        }
+        return pipeline;
+    }
+
+    /**
+     * Pipelines are created on a bounded pool, so unrelated pipelines do not wait on each other. Creations of the same
+     * pipeline are still serialized by {@link PipelineScheduleQueue}'s per-pipeline mutex.
+     */
+    private List<Future<Pipeline>> createPipelines(List<Callable<Pipeline>> pipelineCreations) throws InterruptedException {
+        int threads = systemEnvironment.get(SystemEnvironment.PIPELINE_CREATION_THREADS);
+        if (threads <= 1 || pipelineCreations.size() == 1) {
+            List<Future<Pipeline>> results = new ArrayList<>();
+            for (Callable<Pipeline> pipelineCreation : pipelineCreations) {
+                FutureTask<Pipeline> task = new FutureTask<>(pipelineCreation);
+                task.run();
+                results.add(task);
+            }
+            return results;
+        }
+        if (pipelineCreationExecutor == null) {
+            pipelineCreationExecutor = Executors.newFixedThreadPool(threads, PIPELINE_CREATION_THREAD_FACTORY);
+        }
+        return pipelineCreationExecutor.invokeAll(pipelineCreations);
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (autoScheduleMutex) {
+            if (pipelineCreationExecutor != null) {
+                pipelineCreationExecutor.shutdown();
+            }
+        }
+    }
+
     Pipeline schedulePipeline(final CaseInsensitiveString pipelineName, final BuildCause buildCause) {
         try {
             PipelineConfig pipelineConfig = goConfigService.pipelineConfigNamed(pipelineName);
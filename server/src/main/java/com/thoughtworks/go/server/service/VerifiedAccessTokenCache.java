@@ -0,0 +1,122 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.thoughtworks.go.domain.AccessToken;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers access tokens that were recently verified, so that an API client presenting the same token again does not
+ * pay for another database lookup and key derivation. Entries are keyed by an HMAC of the presented token under a key
+ * that never leaves this JVM, so the cache holds nothing that could be replayed against the server. Disabled unless
+ * {@link SystemEnvironment#VERIFIED_ACCESS_TOKEN_CACHE_TTL_IN_MILLIS} is positive.
+ */
+@Component
+public class VerifiedAccessTokenCache {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, AccessToken> verifiedTokens;
+    private final SecretKeySpec key;
+    private final AtomicLong generation = new AtomicLong();
+
+    public VerifiedAccessTokenCache(SystemEnvironment systemEnvironment, Ticker ticker) {
+        long ttl = systemEnvironment.get(SystemEnvironment.VERIFIED_ACCESS_TOKEN_CACHE_TTL_IN_MILLIS);
+        this.verifiedTokens = ttl <= 0 ? null : Caffeine.newBuilder()
+            .ticker(ticker)
+            .maximumSize(systemEnvironment.get(SystemEnvironment.VERIFIED_ACCESS_TOKEN_CACHE_MAX_ENTRIES))
+            .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+            .build();
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+    }
+
+    @Autowired
+    public VerifiedAccessTokenCache(SystemEnvironment systemEnvironment) {
+        this(systemEnvironment, Ticker.systemTicker());
+    }
+
+    public boolean isEnabled() {
+        return verifiedTokens != null;
+    }
+
+    /**
+     * @return the token last verified against exactly this presented value, if it has not expired or been invalidated
+     */
+    public AccessToken get(String presentedToken) {
+        return isEnabled() ? verifiedTokens.getIfPresent(keyFor(presentedToken)) : null;
+    }
+
+    /**
+     * To be read before loading a token, and handed back to {@link #put(String, AccessToken, long)}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a verified token unless it was invalidated since {@code generationBeforeLoad}, in which case the token may
+     * have been loaded before a revocation was committed.
+     */
+    public void put(String presentedToken, AccessToken token, long generationBeforeLoad) {
+        if (!isEnabled() || token.isRevoked()) {
+            return;
+        }
+        String cacheKey = keyFor(presentedToken);
+        verifiedTokens.put(cacheKey, token);
+        if (generation.get() != generationBeforeLoad) {
+            verifiedTokens.invalidate(cacheKey);
+        }
+    }
+
+    public void invalidate(long tokenId) {
+        generation.incrementAndGet();
+        if (isEnabled()) {
+            verifiedTokens.asMap().values().removeIf(token -> token.getId() == tokenId);
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        if (isEnabled()) {
+            verifiedTokens.invalidateAll();
+        }
+    }
+
+    private String keyFor(String presentedToken) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return HexFormat.of().formatHex(mac.doFinal(presentedToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
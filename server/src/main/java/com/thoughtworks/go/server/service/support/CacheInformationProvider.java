@@ -15,10 +15,12 @@
  */
 package com.thoughtworks.go.server.service.support;
 
+import com.thoughtworks.go.server.caching.GoCache;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.statistics.StatisticsGateway;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.LinkedHashMap;
@@ -26,6 +28,12 @@ import java.util.Map;
 
 @Component
 public class CacheInformationProvider implements ServerInfoProvider {
+    private final GoCache goCache;
+
+    @Autowired
+    public CacheInformationProvider(GoCache goCache) {
+        this.goCache = goCache;
+    }
 
     @Override
     public double priority() {
@@ -36,6 +44,8 @@ public class CacheInformationProvider implements ServerInfoProvider {
     public Map<String, Object> asJsonCompatibleMap() {
         LinkedHashMap<String, Object> json = new LinkedHashMap<>();
 
+        json.put("GoCache", getGoCacheInformationAsJson());
+
         for (CacheManager cacheManager : CacheManager.ALL_CACHE_MANAGERS) {
             LinkedHashMap<String, Object> jsonForManager = new LinkedHashMap<>();
             json.put(cacheManager.getName(), jsonForManager);
@@ -58,6 +68,31 @@ public class CacheInformationProvider implements ServerInfoProvider {
         return "Cache Information";
     }
 
+    public Map<String, Object> getGoCacheInformationAsJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        goCache.regionSizes().forEach((region, size) -> {
+            Map<String, Object> regionJson = new LinkedHashMap<>();
+            regionJson.put("Maximum Elements in Memory", region.maximumSize());
+            regionJson.put("Time To Live Seconds", region.timeToLive() == null ? 0 : region.timeToLive().toSeconds());
+            regionJson.put("Cache Size", size);
+            regions.put(region.keyPrefix().isEmpty() ? "default" : region.keyPrefix(), regionJson);
+        });
+        json.put("Regions", regions);
+
+        Map<String, Object> families = new LinkedHashMap<>();
+        goCache.statistics().forEach((family, statistics) -> families.put(family, Map.of(
+            "Hits", statistics.hits(),
+            "Miss", statistics.misses(),
+            "Put", statistics.puts(),
+            "Evicted", statistics.evictions())
+        ));
+        json.put("Cache Counts by Key Family", families);
+
+        return json;
+    }
+
     public Map<String, Object> getCacheRuntimeInformationAsJson(Cache cache) {
         Map<String, Object> json = new LinkedHashMap<>();
         StatisticsGateway statistics = cache.getStatistics();
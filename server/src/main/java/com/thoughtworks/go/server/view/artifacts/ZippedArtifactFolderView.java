@@ -0,0 +1,60 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.view.artifacts;
+
+import com.thoughtworks.go.util.ZipUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.view.AbstractView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Zips an artifact folder straight into the response, so the download starts right away instead of after the whole
+ * zip has been built into the cache.
+ */
+public class ZippedArtifactFolderView extends AbstractView {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZippedArtifactFolderView.class);
+    private final File folder;
+    private final ZipUtil zipUtil;
+
+    public ZippedArtifactFolderView(File folder, ZipUtil zipUtil) {
+        this.folder = folder;
+        this.zipUtil = zipUtil;
+        setContentType("application/zip");
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    @Override
+    protected void renderMergedOutputModel(Map<String, Object> model, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        LOGGER.info("[Artifact Download] Streaming zip of: {}", folder.getAbsolutePath());
+        long before = System.currentTimeMillis();
+
+        response.setContentType(getContentType());
+        response.setHeader("Content-Disposition", String.format("attachment; filename=\"%s.zip\"", folder.getName()));
+        zipUtil.zipWithoutRecompressing(folder, response.getOutputStream(), Deflater.DEFAULT_COMPRESSION);
+
+        LOGGER.info("[Artifact Download] Finished streaming zip of: {}. The time taken is: {} ms", folder.getAbsolutePath(), System.currentTimeMillis() - before);
+    }
+}
@@ -18,6 +18,8 @@ package com.thoughtworks.go.server.web;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.caching.ZipArtifactCache;
 import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.server.view.artifacts.ZippedArtifactFolderView;
+import com.thoughtworks.go.util.ZipUtil;
 import org.springframework.web.servlet.ModelAndView;
 
 import java.io.IOException;
@@ -26,13 +28,26 @@ import java.util.Map;
 
 public class ZipArtifactFolderViewFactory implements ArtifactFolderViewFactory {
     private final ZipArtifactCache zipArtifactCache;
+    private final boolean streaming;
 
     public ZipArtifactFolderViewFactory(ZipArtifactCache zipArtifactCache) {
+        this(zipArtifactCache, false);
+    }
+
+    /**
+     * @param streaming whether to zip folders straight into the response, rather than into the cache for the client
+     *                  to poll for. Zips that are in the cache already are still served from there.
+     */
+    public ZipArtifactFolderViewFactory(ZipArtifactCache zipArtifactCache, boolean streaming) {
         this.zipArtifactCache = zipArtifactCache;
+        this.streaming = streaming;
     }
 
     @Override
     public ModelAndView createView(JobIdentifier identifier, ArtifactFolder artifactFolder) throws IOException {
+        if (streaming && !zipArtifactCache.cachedFile(artifactFolder).exists()) {
+            return new ModelAndView(new ZippedArtifactFolderView(artifactFolder.getRootFolder(), new ZipUtil()));
+        }
         if (zipArtifactCache.cacheCreated(artifactFolder)) {
             Map<String, Object> data = new HashMap<>();
             data.put("targetFile", zipArtifactCache.cachedFile(artifactFolder));
@@ -19,6 +19,9 @@ import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.JobStatusMessage;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.util.Retryable;
 import com.thoughtworks.go.util.SystemEnvironment;
@@ -28,31 +31,96 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPOutputStream;
 
+import static com.thoughtworks.go.util.ExceptionUtils.uncaughtExceptionHandlerFor;
+
+/**
+ * Sends console logs to websockets. Logs of completed jobs are sent by the requesting thread; logs of running jobs are
+ * followed by a single {@link ConsoleLogTail} per job, shared by everybody watching that job and advanced by
+ * {@link #onTimer()}.
+ */
 @Component
-public class ConsoleLogSender {
+public class ConsoleLogSender implements GoMessageListener<JobStatusMessage> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogSender.class);
 
     private static final int LOG_DOES_NOT_EXIST = 4004;
     private static final int LOG_FILE_DOES_NOT_EXIST = 4410;
     private static final int BUF_SIZE = 1024 * 1024; // 1MB
-    private static final int FILL_INTERVAL_MILLIS = 500;
+    static final int MAX_PENDING_CHUNKS = 16;
+    private static final long CATCH_UP_PAUSE_MILLIS = 100;
 
     private final Charset charset;
     private final ConsoleService consoleService;
     private final JobInstanceDao jobInstanceDao;
+    private final JobStatusTopic jobStatusTopic;
+    private final ConcurrentMap<Long, ConsoleLogTail> tails = new ConcurrentHashMap<>();
+    private final Executor sendExecutor;
 
     @Autowired
-    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SystemEnvironment systemEnvironment) {
+    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, JobStatusTopic jobStatusTopic, SystemEnvironment systemEnvironment) {
+        this(consoleService, jobInstanceDao, jobStatusTopic, systemEnvironment, Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+            .name("console-log-send-", 1)
+            .uncaughtExceptionHandler(uncaughtExceptionHandlerFor(ConsoleLogSender.class))
+            .factory()));
+    }
+
+    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, JobStatusTopic jobStatusTopic, SystemEnvironment systemEnvironment, Executor sendExecutor) {
         this.consoleService = consoleService;
         this.jobInstanceDao = jobInstanceDao;
+        this.jobStatusTopic = jobStatusTopic;
         this.charset = systemEnvironment.consoleLogCharset();
+        this.sendExecutor = sendExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        jobStatusTopic.addListener(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        tails.values().forEach(ConsoleLogTail::close);
+        if (sendExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    @Override
+    public void onMessage(JobStatusMessage message) {
+        if (message.getJobState().isCompleted()) {
+            ConsoleLogTail tail = tails.get(message.getJobIdentifier().getBuildId());
+            if (tail != null) {
+                tail.markJobCompleted();
+            }
+        }
+    }
+
+    @SuppressWarnings("unused") // used via Spring
+    public void onTimer() {
+        tails.forEach((buildId, tail) -> {
+            try {
+                tail.tick();
+            } catch (Exception e) {
+                LOGGER.error("Failed to send console log updates for build {}; closing its viewers", buildId, e);
+                tail.close();
+            }
+            if (tail.isClosed()) {
+                tails.remove(buildId, tail);
+            }
+        });
     }
 
     public void process(final SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws IllegalArtifactLocationException, IOException {
@@ -78,37 +146,35 @@ public class ConsoleLogSender {
             return;
         }
 
+        boolean handedOverToTail = false;
         try (ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier)) {
-            do {
-                start += sendLogs(webSocket, streamer, jobIdentifier);
-
-                // allow buffers to fill to avoid sending 1 line at a time for running builds
-                if (isRunningBuild) {
-                    try {
-                        //noinspection BusyWait
-                        Thread.sleep(FILL_INTERVAL_MILLIS);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
+            start += sendLogs(webSocket, streamer, jobIdentifier);
+
+            // catch up on our own, then let the shared tail send everything after that
+            while (isRunningBuild && webSocket.isOpen() && !Thread.currentThread().isInterrupted()) {
+                ConsoleLogTail tail = tailFor(jobIdentifier);
+                if (tail.subscribe(webSocket, start)) {
+                    handedOverToTail = true;
+                    return;
+                }
+                if (tail.isJobCompleted()) {
+                    break;
                 }
-            } while (webSocket.isOpen() && !detectCompleted(jobIdentifier) && !Thread.currentThread().isInterrupted());
+                long sent = sendLogs(webSocket, streamer, jobIdentifier);
+                if (sent == 0 && !pauseBeforeCatchingUp()) {
+                    break;
+                }
+                start += sent;
+            }
 
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
             }
-            // empty the tail end of the file because the build could have been marked completed, and exited the
-            // loop before we've seen the last content update
-            if (isRunningBuild) {
-                sendLogs(webSocket, streamer, jobIdentifier);
-            }
 
             //send the remaining logs if any
-            if (detectCompleted(jobIdentifier)) {
+            if (isRunningBuild) {
                 try (ConsoleConsumer consoleFileStreamer = consoleService.getStreamer(start, jobIdentifier)) {
                     start += sendLogs(webSocket, consoleFileStreamer, jobIdentifier);
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
-                    }
                 }
             }
 
@@ -116,10 +182,30 @@ public class ConsoleLogSender {
                 LOGGER.debug("Sent {} log lines for {} from all sources", start, jobIdentifier);
             }
         } finally {
-            webSocket.close();
+            if (!handedOverToTail) {
+                webSocket.close();
+            }
+        }
+    }
+
+    // the tail is ahead of what the log shows us so far, so give the log a moment to be written rather than spin
+    private static boolean pauseBeforeCatchingUp() {
+        try {
+            Thread.sleep(CATCH_UP_PAUSE_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
+    private ConsoleLogTail tailFor(JobIdentifier jobIdentifier) {
+        // a tail closed for lack of viewers is replaced; one closed because the job completed tells callers as much
+        return tails.compute(jobIdentifier.getBuildId(), (buildId, tail) -> tail == null || (tail.isClosed() && !tail.isJobCompleted())
+            ? new ConsoleLogTail(jobIdentifier, consoleService, jobInstanceDao, charset, this::maybeGzipIfLargeEnough, BUF_SIZE, sendExecutor, MAX_PENDING_CHUNKS)
+            : tail);
+    }
+
     private boolean doesLogExists(JobIdentifier jobIdentifier) {
         return consoleService.doesLogExist(jobIdentifier);
     }
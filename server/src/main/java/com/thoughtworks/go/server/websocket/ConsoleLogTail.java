@@ -0,0 +1,332 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.service.ConsoleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+
+/**
+ * Follows the console log of a single running job on behalf of all the sockets watching it. The log is read once per
+ * {@link #tick()} and every chunk is compressed once and sent to every subscriber, so the cost of tailing a job does not
+ * grow with the number of viewers.
+ * <p>
+ * Sockets are expected to catch up to {@link #subscribe(SocketEndpoint, long)} on their own before subscribing; the
+ * tail only ever sends what it reads after that point.
+ * <p>
+ * Chunks are queued for each subscriber and written to its socket by the send executor, never while holding on to the
+ * tail, so that a slow or half-open connection only holds up itself. A subscriber that falls more than
+ * {@code maxPendingChunks} chunks behind is closed; the browser reconnects from the last line it was sent.
+ */
+class ConsoleLogTail {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogTail.class);
+
+    // the job status topic does not carry cancellations, so fall back to asking the database every so often
+    private static final int TICKS_BETWEEN_COMPLETION_CHECKS = 10;
+
+    private final JobIdentifier jobIdentifier;
+    private final ConsoleService consoleService;
+    private final JobInstanceDao jobInstanceDao;
+    private final Charset charset;
+    private final UnaryOperator<byte[]> compressor;
+    private final int chunkSize;
+    private final Executor sendExecutor;
+    private final int maxPendingChunks;
+
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private ConsoleConsumer reader;
+    private long position = -1;
+    private long ticks = 0;
+    private volatile boolean jobCompleted = false;
+    private volatile boolean closed = false;
+
+    ConsoleLogTail(JobIdentifier jobIdentifier, ConsoleService consoleService, JobInstanceDao jobInstanceDao, Charset charset, UnaryOperator<byte[]> compressor, int chunkSize,
+                   Executor sendExecutor, int maxPendingChunks) {
+        this.jobIdentifier = jobIdentifier;
+        this.consoleService = consoleService;
+        this.jobInstanceDao = jobInstanceDao;
+        this.charset = charset;
+        this.compressor = compressor;
+        this.chunkSize = chunkSize;
+        this.sendExecutor = sendExecutor;
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    /**
+     * Hands the socket over to this tail if the socket has already been sent everything the tail has read so far.
+     *
+     * @param socket   the socket to send further log lines to
+     * @param nextLine the first line the socket has not been sent yet
+     * @return {@code false} if the socket needs to catch up further, or if this tail has been closed, in which case the
+     * socket is still the responsibility of the caller
+     */
+    synchronized boolean subscribe(SocketEndpoint socket, long nextLine) {
+        if (closed) {
+            return false;
+        }
+        if (position < 0) {
+            position = nextLine;
+        }
+        if (nextLine < position) {
+            return false;
+        }
+        subscribers.add(new Subscriber(socket, nextLine));
+        return true;
+    }
+
+    void markJobCompleted() {
+        jobCompleted = true;
+    }
+
+    boolean isJobCompleted() {
+        return jobCompleted;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    synchronized int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Sends whatever was appended to the log since the last tick to all subscribers. Once the job has completed, this
+     * sends the remainder of the log, closes every subscriber and closes the tail. The tail also closes once nobody is
+     * watching any more.
+     */
+    synchronized void tick() throws IOException, IllegalArtifactLocationException {
+        if (closed) {
+            return;
+        }
+        subscribers.removeIf(subscriber -> !subscriber.isOpen());
+
+        // decide on completion before reading, so that anything written before completion is read below
+        boolean completed = jobCompleted || (ticks++ % TICKS_BETWEEN_COMPLETION_CHECKS == 0 && jobInstanceDao.isJobCompleted(jobIdentifier));
+
+        if (subscribers.isEmpty()) {
+            jobCompleted = completed;
+            close();
+            return;
+        }
+
+        if (reader == null) {
+            reader = consoleService.getStreamer(position, jobIdentifier);
+        }
+        broadcast(reader);
+
+        if (completed) {
+            // the log may have been moved to the artifact store on completion, so read from wherever it lives now
+            reader.close();
+            try (ConsoleConsumer remainder = consoleService.getStreamer(position, jobIdentifier)) {
+                broadcast(remainder);
+            }
+            LOGGER.debug("Sent {} log lines for {} to {} sockets", position, jobIdentifier, subscribers.size());
+            jobCompleted = true;
+            close();
+        }
+    }
+
+    /**
+     * Closes the tail along with every socket still subscribed to it, once each has been sent what is queued for it.
+     */
+    synchronized void close() {
+        closed = true;
+        subscribers.forEach(Subscriber::closeWhenSent);
+        subscribers.clear();
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    private void broadcast(ConsoleConsumer console) throws IOException {
+        Chunk chunk = new Chunk(position);
+        console.stream(line -> {
+            chunk.append(line.getBytes(charset));
+            if (chunk.size() >= chunkSize) {
+                send(chunk);
+                chunk.reset(position);
+            }
+        });
+        send(chunk);
+    }
+
+    private void send(Chunk chunk) {
+        position = chunk.endLine();
+        if (chunk.isEmpty()) {
+            return;
+        }
+        byte[] compressed = null;
+        for (Iterator<Subscriber> iterator = subscribers.iterator(); iterator.hasNext(); ) {
+            Subscriber subscriber = iterator.next();
+            if (subscriber.nextLine >= chunk.endLine()) {
+                continue;
+            }
+            byte[] data;
+            if (subscriber.nextLine == chunk.startLine) {
+                if (compressed == null) {
+                    compressed = compressor.apply(chunk.bytes());
+                }
+                data = compressed;
+            } else {
+                data = compressor.apply(chunk.bytesFrom(subscriber.nextLine));
+            }
+            if (subscriber.queue(ByteBuffer.wrap(data))) {
+                subscriber.nextLine = chunk.endLine();
+            } else {
+                LOGGER.debug("Closing socket {} tailing {} because it fell more than {} chunks behind", subscriber.socket.key(), jobIdentifier, maxPendingChunks);
+                subscriber.socket.close();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * A socket along with the chunks queued for it. At most one send task runs per subscriber, so chunks arrive in order.
+     */
+    private class Subscriber {
+        private final SocketEndpoint socket;
+        private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+        private long nextLine;
+        private boolean sending;
+        private boolean closeWhenSent;
+        private volatile boolean failed;
+
+        private Subscriber(SocketEndpoint socket, long nextLine) {
+            this.socket = socket;
+            this.nextLine = nextLine;
+        }
+
+        private boolean isOpen() {
+            return !failed && socket.isOpen();
+        }
+
+        /**
+         * @return {@code false} if too many chunks are already waiting to be sent
+         */
+        private synchronized boolean queue(ByteBuffer data) {
+            if (pending.size() >= maxPendingChunks) {
+                return false;
+            }
+            pending.add(data);
+            if (!sending) {
+                sending = true;
+                sendExecutor.execute(this::sendPending);
+            }
+            return true;
+        }
+
+        private synchronized void closeWhenSent() {
+            closeWhenSent = true;
+            if (!sending) {
+                socket.close();
+            }
+        }
+
+        private void sendPending() {
+            while (true) {
+                ByteBuffer data;
+                synchronized (this) {
+                    data = pending.poll();
+                    if (data == null) {
+                        sending = false;
+                        if (closeWhenSent) {
+                            socket.close();
+                        }
+                        return;
+                    }
+                }
+                try {
+                    socket.send(data);
+                } catch (IOException e) {
+                    LOGGER.debug("Dropping socket {} tailing {} because sending failed", socket.key(), jobIdentifier, e);
+                    synchronized (this) {
+                        failed = true;
+                        pending.clear();
+                        sending = false;
+                    }
+                    socket.close();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A run of consecutive log lines, each terminated by a newline, that remembers where each line ends so that a
+     * subscriber that is ahead of the tail can be sent only the part it has not seen.
+     */
+    private static class Chunk {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private int[] lineEnds = new int[64];
+        private long startLine;
+        private int lines;
+
+        private Chunk(long startLine) {
+            this.startLine = startLine;
+        }
+
+        private void append(byte[] line) {
+            buffer.write(line, 0, line.length);
+            buffer.write('\n');
+            if (lines == lineEnds.length) {
+                lineEnds = Arrays.copyOf(lineEnds, lines * 2);
+            }
+            lineEnds[lines++] = buffer.size();
+        }
+
+        private void reset(long startLine) {
+            buffer.reset();
+            this.startLine = startLine;
+            this.lines = 0;
+        }
+
+        private int size() {
+            return buffer.size();
+        }
+
+        private boolean isEmpty() {
+            return lines == 0;
+        }
+
+        private long endLine() {
+            return startLine + lines;
+        }
+
+        private byte[] bytes() {
+            return buffer.toByteArray();
+        }
+
+        private byte[] bytesFrom(long line) {
+            byte[] bytes = buffer.toByteArray();
+            int from = lineEnds[(int) (line - startLine) - 1];
+            return Arrays.copyOfRange(bytes, from, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.dashboard.DashboardPipelineRenderer;
+import com.thoughtworks.go.server.dashboard.GoDashboardCache;
+import com.thoughtworks.go.server.dashboard.GoDashboardChangeListener;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.util.json.JsonHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static com.thoughtworks.go.util.ExceptionUtils.uncaughtExceptionHandlerFor;
+
+/**
+ * Turns changes to the dashboard cache into messages for each connected {@link DashboardSocket}:
+ * <ul>
+ *     <li>{@code pipeline}, with the JSON of a pipeline that changed, as the dashboard API renders it</li>
+ *     <li>{@code pipeline_removed}, with the name of a pipeline that is no longer on the dashboard</li>
+ *     <li>{@code reload}, when all pipelines were reloaded and the whole dashboard should be fetched again</li>
+ * </ul>
+ * Messages are prepared on a thread of their own, in the order the changes happened.
+ */
+@Component
+public class DashboardDeltaSender implements GoDashboardChangeListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DashboardDeltaSender.class);
+    static final String RELOAD = "{\"type\":\"reload\"}";
+
+    private final Map<String, DashboardSocket> sockets = new ConcurrentHashMap<>();
+    private final Optional<DashboardPipelineRenderer> renderer;
+    private final Executor executor;
+
+    @Autowired
+    public DashboardDeltaSender(GoDashboardCache cache, Optional<DashboardPipelineRenderer> renderer) {
+        this(cache, renderer, Executors.newSingleThreadExecutor(Thread.ofVirtual()
+            .name("dashboard-delta-", 1)
+            .uncaughtExceptionHandler(uncaughtExceptionHandlerFor(DashboardDeltaSender.class))
+            .factory()));
+    }
+
+    DashboardDeltaSender(GoDashboardCache cache, Optional<DashboardPipelineRenderer> renderer, Executor executor) {
+        this.renderer = renderer;
+        this.executor = executor;
+        cache.addListener(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    public void register(DashboardSocket socket) {
+        sockets.put(socket.key(), socket);
+    }
+
+    public void deregister(DashboardSocket socket) {
+        sockets.remove(socket.key());
+    }
+
+    @Override
+    public void pipelineChanged(GoDashboardPipeline pipeline) {
+        if (sockets.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> forEachSocketThatCanSee(pipeline, socket -> {
+            String json = renderer.map(r -> r.render(pipeline, socket.username(), socket.rootUrl())).orElse(null);
+            socket.sendMessage(pipelineMessage("pipeline", pipeline, json));
+        }));
+    }
+
+    @Override
+    public void pipelineRemoved(GoDashboardPipeline pipeline) {
+        if (sockets.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> forEachSocketThatCanSee(pipeline, socket -> socket.sendMessage(pipelineMessage("pipeline_removed", pipeline, null))));
+    }
+
+    @Override
+    public void allPipelinesChanged() {
+        if (sockets.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> sockets.values().forEach(socket -> socket.sendMessage(RELOAD)));
+    }
+
+    private void forEachSocketThatCanSee(GoDashboardPipeline pipeline, Consumer<DashboardSocket> action) {
+        sockets.values().forEach(socket -> {
+            try {
+                if (socket.isOpen() && socket.canSee(pipeline)) {
+                    action.accept(socket);
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Could not send change of pipeline {} to {}", pipeline.name(), socket.key(), e);
+            }
+        });
+    }
+
+    private static String pipelineMessage(String type, GoDashboardPipeline pipeline, String json) {
+        StringBuilder message = new StringBuilder()
+            .append("{\"type\":").append(JsonHelper.toJson(type))
+            .append(",\"name\":").append(JsonHelper.toJson(pipeline.name().toString()))
+            .append(",\"group\":").append(JsonHelper.toJson(pipeline.groupName()));
+        if (json != null) {
+            message.append(",\"pipeline\":").append(json);
+        }
+        return message.append('}').toString();
+    }
+}
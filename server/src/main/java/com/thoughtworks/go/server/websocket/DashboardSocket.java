@@ -0,0 +1,179 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.domain.user.DashboardFilter;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes changes to the pipelines on the dashboard of a user, as they happen, so that the dashboard does not need to
+ * be polled. Only pipelines that the user can view and has selected for the dashboard are sent.
+ */
+@WebSocket
+public class DashboardSocket implements SocketEndpoint {
+    private static final String PING = "{\"type\":\"ping\"}";
+    private static final Logger LOGGER = LoggerFactory.getLogger(DashboardSocket.class);
+    static final int MAX_UNSENT_MESSAGES = 64;
+
+    private final DashboardDeltaSender sender;
+    private final SocketHealthService socketHealthService;
+    private final Username username;
+    private final DashboardFilter filter;
+    private final URI rootUrl;
+    private final String key;
+
+    private volatile Session session;
+    private final AtomicInteger unsent = new AtomicInteger();
+    private final AtomicBoolean fellBehind = new AtomicBoolean();
+
+    DashboardSocket(DashboardDeltaSender sender, SocketHealthService socketHealthService, Username username, DashboardFilter filter, URI rootUrl) {
+        this.sender = sender;
+        this.socketHealthService = socketHealthService;
+        this.username = username;
+        this.filter = filter;
+        this.rootUrl = rootUrl;
+        this.key = String.format("dashboard:%s:%d", username.getUsername(), hashCode());
+    }
+
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        this.session = session;
+        socketHealthService.register(this);
+        sender.register(this);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Session[{}:{}] connected", session.getRemoteAddress(), key);
+        }
+    }
+
+    @OnWebSocketError
+    public void onError(Throwable error) {
+        LOGGER.error("Session[{}] closing because an error was thrown", key, error);
+        try {
+            close(StatusCode.SERVER_ERROR, error.getMessage());
+        } finally {
+            deregister();
+        }
+    }
+
+    @OnWebSocketClose
+    public void onClose(int status, String reason) {
+        deregister();
+    }
+
+    private void deregister() {
+        sender.deregister(this);
+        socketHealthService.deregister(this);
+    }
+
+    boolean canSee(GoDashboardPipeline pipeline) {
+        return pipeline.canBeViewedBy(username.getUsername().toString()) && filter.isPipelineVisible(pipeline.name());
+    }
+
+    Username username() {
+        return username;
+    }
+
+    URI rootUrl() {
+        return rootUrl;
+    }
+
+    /**
+     * Sends without waiting for the client, so that a slow client does not hold up the others. Changes for a client that
+     * has {@link #MAX_UNSENT_MESSAGES} messages it has not taken yet are dropped, and once it has caught up it is told to
+     * reload the whole dashboard instead.
+     */
+    void sendMessage(String message) {
+        if (unsent.get() < MAX_UNSENT_MESSAGES) {
+            write(message);
+            return;
+        }
+        fellBehind.set(true);
+        // everything may have been sent meanwhile, in which case no write is left to send the reload when it is done
+        if (unsent.get() == 0 && fellBehind.compareAndSet(true, false)) {
+            write(DashboardDeltaSender.RELOAD);
+        }
+    }
+
+    private void write(String message) {
+        unsent.incrementAndGet();
+        session.getRemote().sendString(message, new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable error) {
+                LOGGER.debug("Session[{}] could not be sent a dashboard change", key, error);
+                written();
+            }
+
+            @Override
+            public void writeSuccess() {
+                written();
+            }
+        });
+    }
+
+    private void written() {
+        if (unsent.decrementAndGet() == 0 && fellBehind.compareAndSet(true, false)) {
+            write(DashboardDeltaSender.RELOAD);
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer data) throws IOException {
+        session.getRemote().sendBytes(data);
+    }
+
+    @Override
+    public void ping() throws IOException {
+        session.getRemote().sendString(PING);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return session != null && session.isOpen();
+    }
+
+    @Override
+    public void close() {
+        close(StatusCode.NORMAL, null);
+    }
+
+    @Override
+    public void close(int code, String reason) {
+        if (session != null) {
+            session.close(code, reason);
+        }
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.domain.user.DashboardFilter;
+import com.thoughtworks.go.server.service.PipelineSelectionsService;
+import org.eclipse.jetty.websocket.server.JettyServerUpgradeRequest;
+import org.eclipse.jetty.websocket.server.JettyServerUpgradeResponse;
+import org.eclipse.jetty.websocket.server.JettyWebSocketCreator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+
+import static com.thoughtworks.go.server.domain.user.DashboardFilter.DEFAULT_NAME;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+@Component
+public class DashboardSocketCreator implements JettyWebSocketCreator {
+    static final String USERNAME_ATTRIBUTE = DashboardSocketCreator.class.getName() + ".username";
+    static final String USER_ID_ATTRIBUTE = DashboardSocketCreator.class.getName() + ".userId";
+    private static final String COOKIE_NAME = "selected_pipelines";
+    private static final String VIEW_NAME = "viewName";
+
+    private final DashboardDeltaSender sender;
+    private final PipelineSelectionsService pipelineSelectionsService;
+    private final SocketHealthService socketHealthService;
+
+    @Autowired
+    public DashboardSocketCreator(DashboardDeltaSender sender, PipelineSelectionsService pipelineSelectionsService, SocketHealthService socketHealthService) {
+        this.sender = sender;
+        this.pipelineSelectionsService = pipelineSelectionsService;
+        this.socketHealthService = socketHealthService;
+    }
+
+    @Override
+    public Object createWebSocket(JettyServerUpgradeRequest req, JettyServerUpgradeResponse resp) {
+        HttpServletRequest request = req.getHttpServletRequest();
+        Username username = (Username) request.getAttribute(USERNAME_ATTRIBUTE);
+        Long userId = (Long) request.getAttribute(USER_ID_ATTRIBUTE);
+
+        String viewName = request.getParameter(VIEW_NAME);
+        DashboardFilter filter = pipelineSelectionsService.load(personalizationCookie(request), userId)
+            .namedFilter(isBlank(viewName) ? DEFAULT_NAME : viewName);
+
+        return new DashboardSocket(sender, socketHealthService, username, filter, rootUrl(request));
+    }
+
+    private String personalizationCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        return Arrays.stream(cookies)
+            .filter(cookie -> COOKIE_NAME.equals(cookie.getName()))
+            .map(Cookie::getValue)
+            .findFirst()
+            .orElse(null);
+    }
+
+    private URI rootUrl(HttpServletRequest request) {
+        try {
+            return new URI(request.getScheme(), null, request.getServerName(), request.getServerPort(), request.getContextPath(), null, null);
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.newsecurity.utils.SessionUtils;
+import org.eclipse.jetty.websocket.server.JettyWebSocketServlet;
+import org.eclipse.jetty.websocket.server.JettyWebSocketServletFactory;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Handles upgrade requests for dashboard WebSocket connections. Remembers who the user is, since what is sent over the
+ * connection depends on the pipelines they can view.
+ */
+public class DashboardSocketServlet extends JettyWebSocketServlet {
+
+    private DashboardSocketCreator socketCreator;
+
+    @Override
+    public void init() throws ServletException {
+        WebApplicationContext wac = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+
+        socketCreator = wac.getBean(DashboardSocketCreator.class);
+
+        super.init();
+    }
+
+    @Override
+    public void configure(JettyWebSocketServletFactory factory) {
+        factory.setCreator(socketCreator);
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        request.setAttribute(DashboardSocketCreator.USERNAME_ATTRIBUTE, SessionUtils.currentUsername());
+        request.setAttribute(DashboardSocketCreator.USER_ID_ATTRIBUTE, SessionUtils.getUserId(request));
+        super.service(request, response);
+    }
+}
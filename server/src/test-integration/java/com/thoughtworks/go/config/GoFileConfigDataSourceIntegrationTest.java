@@ -28,8 +28,14 @@ import com.thoughtworks.go.config.remote.ConfigRepoConfig;
 import com.thoughtworks.go.config.remote.PartialConfig;
 import com.thoughtworks.go.config.remote.RepoConfigOrigin;
 import com.thoughtworks.go.config.rules.Allow;
+import com.thoughtworks.go.config.update.CreatePipelineConfigCommand;
+import com.thoughtworks.go.config.update.UpdatePipelineConfigCommand;
 import com.thoughtworks.go.helper.*;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.service.EntityHashingService;
+import com.thoughtworks.go.server.service.ExternalArtifactsService;
 import com.thoughtworks.go.server.service.GoConfigService;
+import com.thoughtworks.go.server.service.result.DefaultLocalizedOperationResult;
 import com.thoughtworks.go.util.*;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -92,6 +98,12 @@ public class GoFileConfigDataSourceIntegrationTest {
     private ConfigRepository configRepository;
     @Autowired
     private ConfigElementImplementationRegistry configElementImplementationRegistry;
+    @Autowired
+    private CachedGoConfig cachedGoConfig;
+    @Autowired
+    private ExternalArtifactsService externalArtifactsService;
+    @Autowired
+    private EntityHashingService entityHashingService;
     private final String remoteDownstream = "remote_downstream";
     private PartialConfig partialConfig;
     private PipelineConfig upstreamPipeline;
@@ -123,6 +135,7 @@ public class GoFileConfigDataSourceIntegrationTest {
         dataSource.reloadIfModified();
         configHelper.onTearDown();
         systemEnvironment.clearProperty(SystemEnvironment.CONFIG_FILE_PROPERTY);
+        systemEnvironment.clearProperty(SystemEnvironment.CONFIG_ENTITY_SCOPED_VALIDATION.propertyName());
     }
 
     @Test
@@ -459,6 +472,92 @@ public class GoFileConfigDataSourceIntegrationTest {
         assertThat(partialConfig.getOrigin()).isEqualTo(validPartialConfig.getOrigin());
     }
 
+    @Test
+    public void shouldLeaveTheCurrentConfigForEditAloneWhenAScopedEntitySaveFailsWithLastKnownPartials() throws Exception {
+        systemEnvironment.setProperty(SystemEnvironment.CONFIG_ENTITY_SCOPED_VALIDATION.propertyName(), "true");
+        cachedGoPartials.cacheAsLastKnown(repoConfig.getRepo().getFingerprint(), PartialConfigMother.invalidPartial("invalid", new RepoConfigOrigin(repoConfig, "r2")));
+        GoConfigHolder configHolder = cachedGoConfig.loadConfigHolder();
+        CruiseConfig configForEditBeforeSave = GoConfigMother.deepClone(configHolder.configForEdit);
+        String configXmlBeforeSave = dataSource.configAsXml(configHolder.configForEdit, true);
+
+        // clashes with the pipeline from the last valid partial, and the last known partial is invalid anyway
+        PipelineConfig pipelineConfig = PipelineConfigMother.createPipelineConfig(remoteDownstream, "stage", "job");
+
+        assertThatThrownBy(() -> dataSource.writeEntityWithLock(createPipelineCommand(pipelineConfig), configHolder, Username.ANONYMOUS))
+            .isInstanceOf(GoConfigInvalidException.class)
+            .hasMessageContaining("Falling back to using LAST KNOWN");
+        assertThat(configHolder.configForEdit).isEqualTo(configForEditBeforeSave);
+        assertThat(dataSource.configAsXml(configHolder.configForEdit, true)).isEqualTo(configXmlBeforeSave);
+        assertThat(configHolder.configForEdit.hasPipelineNamed(cis(remoteDownstream))).isFalse();
+    }
+
+    @Test
+    public void shouldSaveAScopedEntityChangeTheSameWayAsPreprocessingTheWholeConfig() throws Exception {
+        systemEnvironment.setProperty(SystemEnvironment.CONFIG_ENTITY_SCOPED_VALIDATION.propertyName(), "true");
+        PipelineConfig pipelineConfig = PipelineConfigMother.createPipelineConfig("new_downstream", "stage", "job");
+        pipelineConfig.materialConfigs().add(new DependencyMaterialConfig(upstreamPipeline.name(), upstreamPipeline.getFirstStageConfig().name()));
+
+        try (LogFixture log = logFixtureFor(GoFileConfigDataSource.class, Level.DEBUG)) {
+            EntityConfigSaveResult<?> result = dataSource.writeEntityWithLock(createPipelineCommand(pipelineConfig), cachedGoConfig.loadConfigHolder(), Username.ANONYMOUS);
+
+            assertThat(log.getLog()).contains("incrementally").doesNotContain("Unable to preprocess");
+            GoConfigHolder reloaded = dataSource.forceLoad(dataSource.location());
+            assertThat(result.getConfigHolder().config).isEqualTo(reloaded.config);
+            assertThat(result.getConfigHolder().configForEdit).isEqualTo(reloaded.configForEdit);
+            assertThat(result.getConfigHolder().config.hasPipelineNamed(cis("new_downstream"))).isTrue();
+            assertThat(result.getConfigHolder().config.hasPipelineNamed(cis(remoteDownstream))).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldFallBackToPreprocessingTheWholeConfigWhenAScopedEntitySaveDuplicatesAPipelineName() throws Exception {
+        systemEnvironment.setProperty(SystemEnvironment.CONFIG_ENTITY_SCOPED_VALIDATION.propertyName(), "true");
+        String configXmlBeforeSave = Files.readString(dataSource.location(), UTF_8);
+        PipelineConfig pipelineConfig = PipelineConfigMother.createPipelineConfig(upstreamPipeline.name().toString(), "stage", "job");
+
+        try (LogFixture log = logFixtureFor(GoFileConfigDataSource.class, Level.WARN)) {
+            assertThatThrownBy(() -> dataSource.writeEntityWithLock(createPipelineCommand(pipelineConfig), cachedGoConfig.loadConfigHolder(), Username.ANONYMOUS))
+                .isInstanceOf(GoConfigInvalidException.class);
+
+            assertThat(log.getLog()).contains("Unable to preprocess changes to");
+        }
+        assertThat(Files.readString(dataSource.location(), UTF_8)).isEqualTo(configXmlBeforeSave);
+    }
+
+    @Test
+    public void shouldFallBackToPreprocessingTheWholeConfigWhenAScopedEntitySaveClashesWithAConfigRepoPipeline() throws Exception {
+        systemEnvironment.setProperty(SystemEnvironment.CONFIG_ENTITY_SCOPED_VALIDATION.propertyName(), "true");
+        String configXmlBeforeSave = Files.readString(dataSource.location(), UTF_8);
+        PipelineConfig pipelineConfig = PipelineConfigMother.createPipelineConfig(remoteDownstream, "stage", "job");
+
+        try (LogFixture log = logFixtureFor(GoFileConfigDataSource.class, Level.WARN)) {
+            assertThatThrownBy(() -> dataSource.writeEntityWithLock(createPipelineCommand(pipelineConfig), cachedGoConfig.loadConfigHolder(), Username.ANONYMOUS))
+                .isInstanceOf(GoConfigInvalidException.class);
+
+            assertThat(log.getLog()).contains("Unable to preprocess changes to");
+        }
+        assertThat(pipelineConfig.errors().firstErrorOn(PipelineConfig.NAME)).contains(String.format("You have defined multiple pipelines named '%s'", remoteDownstream));
+        assertThat(Files.readString(dataSource.location(), UTF_8)).isEqualTo(configXmlBeforeSave);
+    }
+
+    @Test
+    public void shouldRejectAScopedEntitySaveWhichBreaksADownstreamPipeline() throws Exception {
+        systemEnvironment.setProperty(SystemEnvironment.CONFIG_ENTITY_SCOPED_VALIDATION.propertyName(), "true");
+        String configXmlBeforeSave = Files.readString(dataSource.location(), UTF_8);
+        PipelineConfig upstream = GoConfigMother.deepClone(upstreamPipeline);
+        upstream.getFirstStageConfig().setName(cis("upstream_stage_renamed"));
+        String groupName = goConfigService.findGroupNameByPipeline(upstream.name());
+        UpdatePipelineConfigCommand command = new UpdatePipelineConfigCommand(goConfigService, entityHashingService, upstream, groupName, Username.ANONYMOUS, "digest", new DefaultLocalizedOperationResult(), externalArtifactsService);
+
+        try (LogFixture log = logFixtureFor(GoFileConfigDataSource.class, Level.DEBUG)) {
+            assertThatThrownBy(() -> dataSource.writeEntityWithLock(command, cachedGoConfig.loadConfigHolder(), Username.ANONYMOUS))
+                .isInstanceOf(GoConfigInvalidException.class);
+
+            assertThat(log.getLog()).contains("incrementally").doesNotContain("Unable to preprocess");
+        }
+        assertThat(Files.readString(dataSource.location(), UTF_8)).isEqualTo(configXmlBeforeSave);
+    }
+
     @Test
     public void shouldValidateConfigRepoLastKnownPartialsWithMainConfigAndUpdateConfigToIncludePipelinesFromPartials() {
         String pipelineFromConfigRepo = "pipeline_from_config_repo";
@@ -569,4 +668,7 @@ public class GoFileConfigDataSourceIntegrationTest {
         new MagicalGoConfigXmlWriter(configElementImplementationRegistry).write(updatedConfig, outputStream, true);
     }
 
+    private CreatePipelineConfigCommand createPipelineCommand(PipelineConfig pipelineConfig) {
+        return new CreatePipelineConfigCommand(goConfigService, pipelineConfig, Username.ANONYMOUS, new DefaultLocalizedOperationResult(), BasicPipelineConfigs.DEFAULT_GROUP, externalArtifactsService);
+    }
 }
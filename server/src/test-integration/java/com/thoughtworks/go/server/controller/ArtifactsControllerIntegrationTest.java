@@ -390,7 +390,7 @@ public class ArtifactsControllerIntegrationTest {
         long startLineNumber = 1L;
         ModelAndView view = artifactsController.consoleOutput(pipeline.getName(), pipeline.getLabel(),
                 firstStage.getName(),
-                "build", String.valueOf(firstStage.getCounter()), startLineNumber);
+                "build", String.valueOf(firstStage.getCounter()), startLineNumber, null);
 
         assertThat(view.getView()).isInstanceOf(ConsoleOutView.class);
 
@@ -411,7 +411,7 @@ public class ArtifactsControllerIntegrationTest {
         Stage firstStage = pipeline.getFirstStage();
         ModelAndView view = artifactsController.consoleOutput(pipeline.getName(), pipeline.getLabel(),
                 firstStage.getName(),
-                "build", String.valueOf(firstStage.getCounter()), null);
+                "build", String.valueOf(firstStage.getCounter()), null, null);
 
         assertThat(view.getView()).isInstanceOf(ConsoleOutView.class);
 
@@ -429,7 +429,7 @@ public class ArtifactsControllerIntegrationTest {
         prepareConsoleOut("");
         Stage firstStage = pipeline.getFirstStage();
         long startLineNumber = 0L;
-        ModelAndView view = artifactsController.consoleOutput("snafu", "snafu", "snafu", "build", String.valueOf(firstStage.getCounter()), startLineNumber);
+        ModelAndView view = artifactsController.consoleOutput("snafu", "snafu", "snafu", "build", String.valueOf(firstStage.getCounter()), startLineNumber, null);
 
         assertThat(view.getView().getContentType()).isEqualTo(TextAction.CONTENT_TYPE);
         assertThat(view.getView()).isInstanceOf(ResponseCodeView.class);
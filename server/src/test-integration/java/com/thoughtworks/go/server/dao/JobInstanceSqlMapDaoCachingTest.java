@@ -99,8 +99,7 @@ public class JobInstanceSqlMapDaoCachingTest {
         when(mockTemplate.queryForList(eq("scheduledPlanIds"))).thenReturn(List.of(1L, 2L));
 
         final DefaultJobPlan firstJob = jobPlan(1);
-        when(mockTemplate.queryForObject("scheduledPlan", Map.of("id", 1L))).thenReturn(firstJob);
-        when(mockTemplate.queryForObject("scheduledPlan", Map.of("id", 2L))).thenReturn(null);
+        when(mockTemplate.queryForList("scheduledPlans", Map.of("ids", List.of(1L, 2L)))).thenReturn(List.of(firstJob));
 
         jobInstanceDao.setSqlMapClientTemplate(mockTemplate);
 
@@ -108,7 +107,7 @@ public class JobInstanceSqlMapDaoCachingTest {
 
         assertThat(plans).isEqualTo(List.of(firstJob));
 
-        verify(mockTemplate, times(2)).queryForObject(eq("scheduledPlan"), any());
+        verify(mockTemplate, times(1)).queryForList(eq("scheduledPlans"), any());
         verify(mockTemplate, times(1)).queryForList(eq("scheduledPlanIds"));
     }
 
@@ -119,8 +118,7 @@ public class JobInstanceSqlMapDaoCachingTest {
         final DefaultJobPlan firstJob = jobPlan(1);
         final DefaultJobPlan secondJob = jobPlan(2);
 
-        when(mockTemplate.queryForObject("scheduledPlan", Map.of("id", 1L))).thenReturn(firstJob);
-        when(mockTemplate.queryForObject("scheduledPlan", Map.of("id", 2L))).thenReturn(secondJob);
+        when(mockTemplate.queryForList("scheduledPlans", Map.of("ids", List.of(1L, 2L)))).thenReturn(List.of(firstJob, secondJob));
 
         jobInstanceDao.setSqlMapClientTemplate(mockTemplate);
         jobInstanceDao.orderedScheduledBuilds();
@@ -129,7 +127,7 @@ public class JobInstanceSqlMapDaoCachingTest {
 
         assertThat(plans).isEqualTo(List.of(firstJob, secondJob));
 
-        verify(mockTemplate, times(2)).queryForObject(eq("scheduledPlan"), any());
+        verify(mockTemplate, times(1)).queryForList(eq("scheduledPlans"), any());
         verify(mockTemplate, times(2)).queryForList(eq("scheduledPlanIds"));
     }
 
@@ -138,7 +136,7 @@ public class JobInstanceSqlMapDaoCachingTest {
         when(mockTemplate.queryForList(eq("scheduledPlanIds"))).thenReturn(List.of(1L));
 
         final DefaultJobPlan firstJob = jobPlan(1);
-        when(mockTemplate.queryForObject("scheduledPlan", Map.of("id", 1L))).thenReturn(firstJob);
+        when(mockTemplate.queryForList("scheduledPlans", Map.of("ids", List.of(1L)))).thenReturn(List.of(firstJob), List.of(jobPlan(1)));
 
         jobInstanceDao.setSqlMapClientTemplate(mockTemplate);
         jobInstanceDao.orderedScheduledBuilds();//populate the cache
@@ -150,7 +148,7 @@ public class JobInstanceSqlMapDaoCachingTest {
 
         assertThat(plans).isEqualTo(List.of(firstJob));
 
-        verify(mockTemplate, times(2)).queryForObject("scheduledPlan", Map.of("id", 1L));//because the cache is cleared
+        verify(mockTemplate, times(2)).queryForList("scheduledPlans", Map.of("ids", List.of(1L)));//because the cache is cleared
         verify(mockTemplate, times(2)).queryForList(eq("scheduledPlanIds"));
     }
 
@@ -40,8 +40,8 @@ import java.io.File;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(ClearSingleton.class)
 @ExtendWith(SpringExtension.class)
@@ -82,7 +82,7 @@ public class PackageMaterialUpdaterIntegrationTest {
         addMetadata(material, "fieldX", false);
         material.getPackageDefinition().getConfiguration().addNewConfiguration("fieldX", true);
         final List<Modification> modifications = ModificationsMother.multipleModificationList();
-        doNothing().when(scmMaterialUpdater).insertLatestOrNewModifications(material, materialInstance, new File(""), new Modifications(modifications));
+        when(scmMaterialUpdater.insertLatestOrNewModifications(material, materialInstance, new File(""), new Modifications(modifications))).thenReturn(true);
         transactionTemplate.execute(transactionStatus -> {
             packageMaterialUpdater.insertLatestOrNewModifications(material, materialInstance, new File(""), new Modifications(modifications));
             return null;
@@ -144,6 +144,7 @@ public class ScheduleHelper {
             Materials materials = new MaterialConfigConverter().toMaterials(goConfigService.getCurrentConfig().pipelineConfigByName(cis(pipeline)).materialConfigs());
             for (Material material : materials) {
                 materialDatabaseUpdater.updateMaterial(material);
+                pipelineScheduler.requestCheckForPipelinesWithMaterial(material.config().getFingerprint());
             }
         }
     }
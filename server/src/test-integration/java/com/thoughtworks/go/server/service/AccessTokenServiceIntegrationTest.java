@@ -21,12 +21,18 @@ import com.thoughtworks.go.config.exceptions.EntityType;
 import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
 import com.thoughtworks.go.domain.AccessToken;
 import com.thoughtworks.go.helper.ConfigFileFixture;
+import com.thoughtworks.go.server.dao.AccessTokenSqlMapDao;
 import com.thoughtworks.go.server.dao.DatabaseAccessHelper;
 import com.thoughtworks.go.server.exceptions.InvalidAccessTokenException;
 import com.thoughtworks.go.server.exceptions.RevokedAccessTokenException;
+import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
+import com.thoughtworks.go.server.transaction.TransactionTemplate;
+import com.thoughtworks.go.util.Clock;
 import com.thoughtworks.go.util.GoConfigFileHelper;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.Strings;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,6 +41,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -56,6 +64,18 @@ public class AccessTokenServiceIntegrationTest {
 
     @Autowired
     private AccessTokenService accessTokenService;
+    @Autowired
+    private SecurityService securityService;
+    @Autowired
+    private SessionFactory sessionFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private TransactionSynchronizationManager transactionSynchronizationManager;
+    @Autowired
+    private Clock clock;
+
+    private final SystemEnvironment systemEnvironment = new SystemEnvironment();
 
     private String authConfigId;
     private GoConfigFileHelper configHelper;
@@ -85,6 +105,7 @@ public class AccessTokenServiceIntegrationTest {
     public void tearDown() throws Exception {
         dbHelper.onTearDown();
         configHelper.onTearDown();
+        systemEnvironment.clearProperty(SystemEnvironment.VERIFIED_ACCESS_TOKEN_CACHE_TTL_IN_MILLIS.propertyName());
     }
 
     @Test
@@ -159,6 +180,36 @@ public class AccessTokenServiceIntegrationTest {
         assertThat(exception.getMessage()).startsWith("Invalid Personal Access Token. Access token was revoked at: ");
     }
 
+    @Test
+    public void shouldNotGetACachedAccessTokenOnceItIsRevoked() {
+        VerifiedAccessTokenCache verifiedAccessTokenCache = verifiedAccessTokenCacheWithTtl();
+        AccessTokenSqlMapDao accessTokenDao = new AccessTokenSqlMapDao(sessionFactory, transactionTemplate, clock, transactionSynchronizationManager, verifiedAccessTokenCache);
+        AccessTokenService cachingAccessTokenService = new AccessTokenService(accessTokenDao, clock, securityService, verifiedAccessTokenCache);
+        AccessToken.AccessTokenWithDisplayValue createdToken = cachingAccessTokenService.create("This is my first Token", "bob", authConfigId);
+        String accessTokenInString = createdToken.getDisplayValue();
+        AccessToken verifiedToken = cachingAccessTokenService.findByAccessToken(accessTokenInString);
+        assertThat(cachingAccessTokenService.findByAccessToken(accessTokenInString)).isSameAs(verifiedToken);
+
+        cachingAccessTokenService.revokeAccessToken(createdToken.getId(), "bob", null);
+
+        assertThrows(RevokedAccessTokenException.class, () -> cachingAccessTokenService.findByAccessToken(accessTokenInString));
+    }
+
+    @Test
+    public void shouldNotGetACachedAccessTokenOnceItsUserIsDeleted() {
+        VerifiedAccessTokenCache verifiedAccessTokenCache = verifiedAccessTokenCacheWithTtl();
+        AccessTokenSqlMapDao accessTokenDao = new AccessTokenSqlMapDao(sessionFactory, transactionTemplate, clock, transactionSynchronizationManager, verifiedAccessTokenCache);
+        AccessTokenService cachingAccessTokenService = new AccessTokenService(accessTokenDao, clock, securityService, verifiedAccessTokenCache);
+        AccessToken.AccessTokenWithDisplayValue createdToken = cachingAccessTokenService.create("This is my first Token", "bob", authConfigId);
+        String accessTokenInString = createdToken.getDisplayValue();
+        AccessToken verifiedToken = cachingAccessTokenService.findByAccessToken(accessTokenInString);
+        assertThat(cachingAccessTokenService.findByAccessToken(accessTokenInString)).isSameAs(verifiedToken);
+
+        accessTokenDao.revokeTokensBecauseOfUserDelete(List.of("bob"), "admin");
+
+        assertThrows(InvalidAccessTokenException.class, () -> cachingAccessTokenService.findByAccessToken(accessTokenInString));
+    }
+
     @Test
     public void shouldRevokeAnAccessToken() {
         String tokenDescription = "This is my first Token";
@@ -228,4 +279,9 @@ public class AccessTokenServiceIntegrationTest {
 
         assertThat(accessToken.getLastUsed()).isNotNull();
     }
+
+    private VerifiedAccessTokenCache verifiedAccessTokenCacheWithTtl() {
+        systemEnvironment.setProperty(SystemEnvironment.VERIFIED_ACCESS_TOKEN_CACHE_TTL_IN_MILLIS.propertyName(), "60000");
+        return new VerifiedAccessTokenCache(systemEnvironment);
+    }
 }
@@ -108,7 +108,7 @@ public class PipelineServiceTest {
         when(pipelineDao.save(pipeline)).thenReturn(pipeline);
         when(materialRepository.findMaterialRevisionsForPipeline(9L)).thenReturn(MaterialRevisions.EMPTY);
         service.save(pipeline);
-        verify(pipelineTimeline).update();
+        verify(pipelineTimeline).update(pipeline.getId());
     }
 
     @Test
@@ -116,7 +116,7 @@ public class PipelineServiceTest {
         StageStatusListener stageStatusListener = mock(StageStatusListener.class);
         JobStatusListener jobStatusListener = mock(JobStatusListener.class);
         Pipeline pipeline = stubPipelineSaveForStatusListener(stageStatusListener, jobStatusListener);
-        doThrow(new RuntimeException()).when(pipelineTimeline).update();
+        doThrow(new RuntimeException()).when(pipelineTimeline).update(anyLong());
 
         try {
             service.save(pipeline);
@@ -45,11 +45,13 @@ public class CachedGoConfigTest {
     private GoConfigMigrator goConfigMigrator;
     @Mock
     private MaintenanceModeService maintenanceModeService;
+    @Mock
+    private ConfigFileWatcher configFileWatcher;
 
     @BeforeEach
     public void setUp() throws Exception {
         configHolder = new GoConfigHolder(new BasicCruiseConfig(), new BasicCruiseConfig());
-        cachedGoConfig = new CachedGoConfig(serverHealthService, dataSource, mock(CachedGoPartials.class), goConfigMigrator, maintenanceModeService);
+        cachedGoConfig = new CachedGoConfig(serverHealthService, dataSource, mock(CachedGoPartials.class), goConfigMigrator, maintenanceModeService, configFileWatcher);
         lenient().when(dataSource.load()).thenReturn(configHolder);
     }
 
@@ -61,6 +63,60 @@ public class CachedGoConfigTest {
         verifyNoInteractions(dataSource);
     }
 
+    @Test
+    public void shouldNotReloadConfigXMLOnTimerWhenItIsUnchanged() throws Exception {
+        when(configFileWatcher.isPollDue()).thenReturn(true);
+        when(dataSource.requiresReload()).thenReturn(false);
+
+        cachedGoConfig.onTimer();
+
+        verify(dataSource, never()).load();
+    }
+
+    @Test
+    public void shouldNotCheckConfigXMLOnTimerWhileItIsWatchedAndNoChangeWasReported() {
+        when(configFileWatcher.isPollDue()).thenReturn(false);
+
+        cachedGoConfig.onTimer();
+
+        verifyNoInteractions(dataSource);
+    }
+
+    @Test
+    public void shouldStillReloadConfigXMLOnTimerWhileItIsWatchedWhenAPollIsDue() throws Exception {
+        when(configFileWatcher.isPollDue()).thenReturn(true);
+        when(dataSource.requiresReload()).thenReturn(true);
+
+        cachedGoConfig.onTimer();
+
+        verify(dataSource).load();
+    }
+
+    @Test
+    public void shouldReloadConfigXMLAsSoonAsAChangeIsReported() throws Exception {
+        when(dataSource.requiresReload()).thenReturn(true);
+
+        cachedGoConfig.onConfigFileChanged();
+
+        verify(dataSource).load();
+        assertThat(cachedGoConfig.loadConfigHolder()).isEqualTo(configHolder);
+    }
+
+    @Test
+    public void shouldReloadConfigXMLChangedDuringMaintenanceModeOnceItIsOver() throws Exception {
+        when(configFileWatcher.isPollDue()).thenReturn(false);
+        when(maintenanceModeService.isMaintenanceMode()).thenReturn(true);
+        cachedGoConfig.onConfigFileChanged();
+        verifyNoInteractions(dataSource);
+
+        when(maintenanceModeService.isMaintenanceMode()).thenReturn(false);
+        when(dataSource.requiresReload()).thenReturn(true);
+        cachedGoConfig.onTimer();
+        cachedGoConfig.onTimer();
+
+        verify(dataSource, times(1)).load();
+    }
+
     @Test
     public void shouldDelegateWriteEntityConfigCallToDataSource() {
         EntityConfigUpdateCommand<?> saveCommand = mock(EntityConfigUpdateCommand.class);
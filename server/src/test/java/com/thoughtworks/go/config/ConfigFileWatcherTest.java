@@ -0,0 +1,129 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.thoughtworks.go.util.SystemEnvironment.CONFIG_FILE_WATCH_ENABLED;
+import static com.thoughtworks.go.util.SystemEnvironment.CONFIG_FILE_WATCH_FALLBACK_POLL_INTERVAL_IN_MILLIS;
+import static com.thoughtworks.go.util.SystemEnvironment.CONFIG_FILE_WATCH_QUIET_PERIOD_IN_MILLIS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConfigFileWatcherTest {
+    private SystemEnvironment systemEnvironment;
+    private ConfigFileWatcher watcher;
+    private Path configFile;
+
+    @BeforeEach
+    void setUp(@TempDir Path configDir) throws Exception {
+        systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(CONFIG_FILE_WATCH_ENABLED)).thenReturn(true);
+        when(systemEnvironment.get(CONFIG_FILE_WATCH_QUIET_PERIOD_IN_MILLIS)).thenReturn(200L);
+        watcher = new ConfigFileWatcher(systemEnvironment);
+        configFile = Files.writeString(configDir.resolve("cruise-config.xml"), "<cruise/>");
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    void shouldNotifyOnceForABurstOfChangesToTheFile() throws Exception {
+        AtomicInteger changes = new AtomicInteger();
+        CountDownLatch changed = new CountDownLatch(1);
+
+        assertThat(watcher.start(configFile, () -> {
+            changes.incrementAndGet();
+            changed.countDown();
+        })).isTrue();
+        assertThat(watcher.isWatching()).isTrue();
+
+        Files.writeString(configFile, "<cruise schemaVersion=\"1\"/>");
+        Files.writeString(configFile, "<cruise schemaVersion=\"2\"/>");
+        Files.writeString(configFile, "<cruise schemaVersion=\"3\"/>");
+
+        assertThat(changed.await(30, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(500);
+        assertThat(changes.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreChangesToOtherFilesInTheSameDirectory() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        watcher.start(configFile, changed::countDown);
+
+        Files.writeString(configFile.resolveSibling("cruise-config.xml.bak"), "<cruise/>");
+
+        assertThat(changed.await(1, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void shouldNotWatchWhenDisabled() {
+        when(systemEnvironment.get(CONFIG_FILE_WATCH_ENABLED)).thenReturn(false);
+
+        assertThat(watcher.start(configFile, () -> {})).isFalse();
+        assertThat(watcher.isWatching()).isFalse();
+    }
+
+    @Test
+    void shouldAlwaysBeDueForAPollWhenNotWatching() {
+        assertThat(watcher.isPollDue()).isTrue();
+        assertThat(watcher.isPollDue()).isTrue();
+    }
+
+    @Test
+    void shouldOnlyBeDueForAPollOnceEveryFallbackIntervalWhileWatching() throws Exception {
+        when(systemEnvironment.get(CONFIG_FILE_WATCH_FALLBACK_POLL_INTERVAL_IN_MILLIS)).thenReturn(200L);
+        watcher.start(configFile, () -> {});
+
+        assertThat(watcher.isPollDue()).isFalse();
+
+        Thread.sleep(300);
+        assertThat(watcher.isPollDue()).isTrue();
+        assertThat(watcher.isPollDue()).isFalse();
+    }
+
+    @Test
+    void shouldStopWatching() {
+        watcher.start(configFile, () -> {});
+
+        watcher.stop();
+
+        assertThat(watcher.isWatching()).isFalse();
+    }
+
+    @Test
+    void shouldNotStartTwice() {
+        watcher.start(configFile, () -> {});
+
+        assertThatThrownBy(() -> watcher.start(configFile, () -> {}))
+            .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.caching;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GoCacheRegionTest {
+    @Test
+    void shouldParseRegionsWithAndWithoutTimeToLive() {
+        assertThat(GoCacheRegion.parse("com.foo.Dao=500, com.foo.Repository_material=100/60"))
+            .containsExactly(
+                new GoCacheRegion("com.foo.Dao", 500, null),
+                new GoCacheRegion("com.foo.Repository_material", 100, Duration.ofSeconds(60)));
+    }
+
+    @Test
+    void shouldParseNoRegionsFromABlankDefinition() {
+        assertThat(GoCacheRegion.parse("")).isEmpty();
+        assertThat(GoCacheRegion.parse(null)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectARegionWithoutAPrefix() {
+        assertThatThrownBy(() -> GoCacheRegion.parse("=500"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("keyPrefix=maximumSize[/timeToLiveSeconds]");
+    }
+}
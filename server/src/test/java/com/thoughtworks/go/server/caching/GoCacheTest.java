@@ -21,36 +21,28 @@ import com.thoughtworks.go.domain.NullUser;
 import com.thoughtworks.go.helper.MaterialsMother;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.util.LogFixture;
-import net.sf.ehcache.Cache;
-import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.config.CacheConfiguration;
-import net.sf.ehcache.config.Configuration;
-import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
-import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.slf4j.event.Level;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.*;
 
 public class GoCacheTest {
 
-    private static CacheManager cacheManager;
     private GoCache goCache;
 
-    @BeforeAll
-    public static void beforeClass() {
-        cacheManager = CacheManager.newInstance(new Configuration().name(GoCacheTest.class.getName()));
-    }
-
     @BeforeEach
     public void setUp() {
-        Cache cache = new Cache(new CacheConfiguration(getClass().getName(), 100).memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU));
-        cacheManager.addCache(cache);
-        this.goCache = new GoCache(cache, mock(TransactionSynchronizationManager.class));
+        this.goCache = cacheWith(GoCacheRegion.defaultRegion(100, null));
     }
 
     @AfterEach
@@ -58,9 +50,8 @@ public class GoCacheTest {
         goCache.destroy();
     }
 
-    @AfterAll
-    public static void afterClass() {
-        cacheManager.shutdown();
+    private static GoCache cacheWith(GoCacheRegion... regions) {
+        return new GoCache(List.of(regions), mock(TransactionSynchronizationManager.class));
     }
 
     @Test
@@ -166,17 +157,6 @@ public class GoCacheTest {
         assertThat(goCache.<Object>get("foo")).isNull();
     }
 
-    @Test
-    public void put_shouldNotAllowAdditionOfBaseAndSubKeyPairThatUserInternalDemarkator() {
-        try {
-            goCache.put("foo!_#$", "#_!bar", "baz");
-            fail("should not have allowed use of internal key seperator");
-        } catch (Exception e) {
-            assertThat(e.getMessage()).isEqualTo("Base and sub key concatenation(key = foo!_#$, subkey = #_!bar) must not have pattern !_#$#_!");
-        }
-    }
-
-
     @Test
     public void shouldRemoveSpecifiedKeysFromCache() {
         goCache.put("foo", "1");
@@ -189,67 +169,116 @@ public class GoCacheTest {
     }
 
     @Test
-    public void shouldEvictSubkeyFromParentCacheWhenTheSubkeyEntryGetsEvicted() throws InterruptedException {
-        goCache.configuration().setMaxEntriesLocalHeap(2);
-        String parentKey = "parent";
-        goCache.put(parentKey, "child1", "value");
-        assertThat(goCache.<Object>get(parentKey)).isNotNull();
-        assertThat(goCache.<Object>get(parentKey + GoCache.SUB_KEY_DELIMITER + "child1")).isNotNull();
-        Thread.sleep(1);//so that the timestamps on the cache entries are different
-        goCache.put(parentKey, "child2", "value");
-
-        assertThat(goCache.<Object>get(parentKey)).isNotNull();
-        assertThat(goCache.<Object>get(parentKey + GoCache.SUB_KEY_DELIMITER + "child1")).isNull();
-        assertThat(goCache.<Object>get(parentKey + GoCache.SUB_KEY_DELIMITER + "child2")).isNotNull();
-        GoCache.KeyList list = goCache.get(parentKey);
-        assertThat(list.size()).isEqualTo(1);
-        assertThat(list.contains("child2")).isTrue();
+    public void shouldForgetSubKeysWhoseEntriesGotEvicted() {
+        goCache = cacheWith(GoCacheRegion.defaultRegion(1, null));
+        goCache.put("parent", "child1", "value1");
+        goCache.put("parent", "child2", "value2");
+
+        assertThat(Stream.of(goCache.get("parent", "child1"), goCache.get("parent", "child2")).filter(Objects::nonNull)).hasSize(1);
+        assertThat(goCache.statistics().get("parent").evictions()).isEqualTo(1);
+
+        goCache.put("parent", "child1", "value1");
+        goCache.put("parent", "child2", "value2");
+        goCache.remove("parent");
+        assertThat(goCache.get("parent", "child1")).isNull();
+        assertThat(goCache.get("parent", "child2")).isNull();
+        assertThat(goCache.isKeyInCache("parent")).isFalse();
     }
 
     @Test
-    public void shouldEvictSubkeyFromParentCacheWhenTheSubkeyEntryGetsExpired() throws InterruptedException {
-        goCache.configuration().setEternal(false);
-        goCache.configuration().setTimeToLiveSeconds(1);
-        String parentKey = "parent";
-        goCache.put(parentKey, "child1", "value");
-        assertThat(goCache.<Object>get(parentKey)).isNotNull();
-        assertThat(goCache.<Object>get(parentKey + GoCache.SUB_KEY_DELIMITER + "child1")).isNotNull();
+    public void shouldExpireEntriesAfterTheTimeToLiveOfTheirRegion() throws InterruptedException {
+        goCache = cacheWith(GoCacheRegion.defaultRegion(100, Duration.ofMillis(100)));
+        goCache.put("parent", "child1", "value");
+        goCache.put("key", "value");
+        assertThat(goCache.get("parent", "child1")).isNotNull();
+
         waitForCacheElementsToExpire();
 
-        goCache.put(parentKey, "child2", "value");
-        assertThat(goCache.<Object>get(parentKey)).isNotNull();
-        assertThat(goCache.<Object>get(parentKey + GoCache.SUB_KEY_DELIMITER + "child1")).isNull();
-        assertThat(goCache.<Object>get(parentKey + GoCache.SUB_KEY_DELIMITER + "child2")).isNotNull();
-        GoCache.KeyList list = goCache.get(parentKey);
-        assertThat(list.size()).isEqualTo(1);
-        assertThat(list.contains("child2")).isTrue();
+        goCache.put("parent", "child2", "value");
+        assertThat(goCache.get("parent", "child1")).isNull();
+        assertThat(goCache.<Object>get("key")).isNull();
+        assertThat(goCache.get("parent", "child2")).isNotNull();
     }
 
     @Test
-    public void shouldEvictAllSubkeyCacheEntriesWhenTheParentEntryGetsEvicted() throws InterruptedException {
-        goCache.configuration().setMaxEntriesLocalHeap(2);
-        String parentKey = "parent";
-        goCache.put(parentKey, new GoCache.KeyList());
-        assertThat(goCache.<Object>get(parentKey)).isNotNull();
-        goCache.put(parentKey, "child1", "value");
-        Thread.sleep(1); //so that the timestamps on the cache entries are different
-        goCache.get(parentKey, "child1");  //so that the parent is least recently used
-        Thread.sleep(1); //so that the timestamps on the cache entries are different
-        goCache.put("unrelatedkey", "value");
-        waitForCacheElementsToExpire();
-        assertThat(goCache.getKeys().size()).isEqualTo(1);
-        assertThat(goCache.<Object>get("unrelatedkey")).isEqualTo("value");
+    public void shouldKeepEachRegionWithinItsOwnLimit() {
+        goCache = cacheWith(GoCacheRegion.defaultRegion(100, null), new GoCacheRegion("small_", 1, null));
+        goCache.put("small_1", "value");
+        goCache.put("small_2", "value");
+        goCache.put("big_1", "value");
+        goCache.put("big_2", "value");
+
+        assertThat(goCache.getKeys()).contains("big_1", "big_2").hasSize(3);
+        assertThat(goCache.regionSizes()).containsEntry(new GoCacheRegion("small_", 1, null), 1L);
+    }
+
+    @Test
+    public void shouldNotServeASubKeyOfAFamilyRemovedAfterItWasPut() {
+        goCache.put("parent", "child", "stale");
+        goCache.remove("parent");
+        goCache.put("parent", "other", "value");
+
+        assertThat(goCache.get("parent", "child")).isNull();
+        assertThat(goCache.get("parent", "other")).isEqualTo("value");
+        assertThat(goCache.getKeys()).containsExactly("parent");
+    }
+
+    @Test
+    public void shouldCountHitsMissesAndPutsPerKeyFamily() {
+        goCache.put("com.thoughtworks.go.server.dao.StageSqlMapDao.$stageCount.$p1.$s1", 1);
+        goCache.put("com.thoughtworks.go.server.dao.StageSqlMapDao.$stageCount.$p2.$s1", 2);
+        goCache.get("com.thoughtworks.go.server.dao.StageSqlMapDao.$stageCount.$p1.$s1");
+        goCache.get("com.thoughtworks.go.server.dao.StageSqlMapDao.$stageCount.$p3.$s1");
+        goCache.get("com.thoughtworks.go.server.persistence.MaterialRepository_materialInstance_42");
+
+        assertThat(goCache.statistics())
+            .containsEntry("com.thoughtworks.go.server.dao.StageSqlMapDao.$stageCount", new GoCache.Statistics(1, 1, 2, 0))
+            .containsEntry("com.thoughtworks.go.server.persistence.MaterialRepository_materialInstance", new GoCache.Statistics(0, 1, 0, 0));
+    }
+
+    @Test
+    public void shouldCountKeysBeyondTheFirstFewHundredFamiliesTogether() {
+        for (int i = 0; i < 1000; i++) {
+            goCache.get("key" + i);
+        }
+
+        assertThat(goCache.statistics()).hasSizeLessThanOrEqualTo(257);
+        assertThat(goCache.statistics().get(GoCache.OTHER_FAMILIES).misses()).isGreaterThan(700);
+    }
+
+    @Test
+    public void shouldNameKeyFamilies() {
+        assertThat(GoCache.familyOf("com.foo.Dao.$findAll.$1.$2")).isEqualTo("com.foo.Dao.$findAll");
+        assertThat(GoCache.familyOf("com.foo.Dao.$findAll")).isEqualTo("com.foo.Dao.$findAll");
+        assertThat(GoCache.familyOf("com.foo.Repository_userIdPipelineSelection_12")).isEqualTo("com.foo.Repository_userIdPipelineSelection");
+        assertThat(GoCache.familyOf("GO_ETAG_CACHE")).isEqualTo("GO_ETAG_CACHE");
+    }
+
+    @Test
+    public void shouldTellListenersAboutPutsAndRemovals() {
+        GoCache.Listener listener = mock(GoCache.Listener.class);
+        goCache.addListener(listener);
+
+        goCache.put("foo", "bar", "baz");
+        goCache.remove("foo");
+        goCache.remove("foo");
+
+        verify(listener).keyPut("foo");
+        verify(listener, times(1)).keyRemoved("foo");
+    }
+
+    @Test
+    public void shouldRequireADefaultRegion() {
+        assertThrows(IllegalArgumentException.class, () -> cacheWith(new GoCacheRegion("foo", 1, null)));
     }
 
     @Test
-    public void shouldHandleNonSerializableValuesDuringEviction() throws InterruptedException {
-        goCache.configuration().setMaxEntriesLocalHeap(1);
+    public void shouldHandleNonSerializableValuesDuringEviction() {
+        goCache = cacheWith(GoCacheRegion.defaultRegion(1, null));
         NonSerializableClass value = new NonSerializableClass();
-        String key = "key";
-        goCache.put(key, value);
-        Thread.sleep(1);//so that the timestamps on the cache entries are different
+        goCache.put("key", value);
         goCache.put("another_entry", "value");
-        assertThat(goCache.<Object>get(key)).isNull();
+        assertThat(goCache.getKeys()).hasSize(1);
     }
 
 
@@ -257,6 +286,6 @@ public class GoCacheTest {
     }
 
     private void waitForCacheElementsToExpire() throws InterruptedException {
-        Thread.sleep(2000);
+        Thread.sleep(200);
     }
 }
@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.caching;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestFileUtil;
 import com.thoughtworks.go.util.ZipUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -44,6 +45,7 @@ public class ZipArtifactCacheTest {
     @TempDir File tempDir;
 
     private ZipArtifactCache zipArtifactCache;
+    private SystemEnvironment systemEnvironment;
 
     private File testJobArtifactStorage;
     private ArtifactFolder testDirArtifactFolder;
@@ -57,7 +59,9 @@ public class ZipArtifactCacheTest {
 
         ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
         when(artifactsDirHolder.getArtifactsDir()).thenReturn(tempDir);
-        zipArtifactCache = new ZipArtifactCache(artifactsDirHolder, new ZipUtil());
+        systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.ZIP_ARTIFACT_CACHE_MAX_SIZE_IN_BYTES)).thenReturn(0L);
+        zipArtifactCache = new ZipArtifactCache(artifactsDirHolder, new ZipUtil(), systemEnvironment);
         testDirArtifactFolder = new ArtifactFolder(JOB_IDENTIFIER, dir, "dir");
     }
 
@@ -113,6 +117,36 @@ public class ZipArtifactCacheTest {
         assertThat(new File(cacheDir, "dir/file1")).exists();
     }
 
+    @Test
+    public void shouldEvictLeastRecentlyUsedZipsWhenCacheGrowsBeyondMaxSize() throws Exception {
+        File otherDir = TestFileUtil.createTestFolder(testJobArtifactStorage, "other");
+        TestFileUtil.createTestFile(testJobArtifactStorage, "other/file2");
+        ArtifactFolder otherArtifactFolder = new ArtifactFolder(JOB_IDENTIFIER, otherDir, "other");
+
+        zipArtifactCache.createCachedFile(testDirArtifactFolder);
+        File oldZip = zipArtifactCache.cachedFile(testDirArtifactFolder);
+        oldZip.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+
+        when(systemEnvironment.get(SystemEnvironment.ZIP_ARTIFACT_CACHE_MAX_SIZE_IN_BYTES)).thenReturn(oldZip.length());
+        zipArtifactCache.createCachedFile(otherArtifactFolder);
+
+        assertThat(oldZip).doesNotExist();
+        assertThat(zipArtifactCache.cachedFile(otherArtifactFolder)).exists();
+    }
+
+    @Test
+    public void shouldNotEvictZipsWhenCacheSizeIsUnlimited() throws Exception {
+        File otherDir = TestFileUtil.createTestFolder(testJobArtifactStorage, "other");
+        TestFileUtil.createTestFile(testJobArtifactStorage, "other/file2");
+        ArtifactFolder otherArtifactFolder = new ArtifactFolder(JOB_IDENTIFIER, otherDir, "other");
+
+        zipArtifactCache.createCachedFile(testDirArtifactFolder);
+        zipArtifactCache.createCachedFile(otherArtifactFolder);
+
+        assertThat(zipArtifactCache.cachedFile(testDirArtifactFolder)).exists();
+        assertThat(zipArtifactCache.cachedFile(otherArtifactFolder)).exists();
+    }
+
     private void waitForCacheCreated() throws Exception {
         long waitUntil = System.currentTimeMillis() + SECONDS.toMillis(2);
         while (System.currentTimeMillis() <= waitUntil && !zipArtifactCache.cacheCreated(testDirArtifactFolder)) {
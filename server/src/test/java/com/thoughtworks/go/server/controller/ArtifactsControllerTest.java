@@ -20,6 +20,7 @@ import com.thoughtworks.go.server.caching.ZipArtifactCache;
 import com.thoughtworks.go.server.controller.actions.TextAction;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
 import com.thoughtworks.go.server.service.ArtifactsService;
+import com.thoughtworks.go.server.service.ChunkedArtifactUploadService;
 import com.thoughtworks.go.server.service.ConsoleActivityMonitor;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.service.RestfulService;
@@ -29,16 +30,22 @@ import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.mock.web.MockMultipartHttpServletRequest;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
-import static com.thoughtworks.go.remote.StandardHeaders.Multipart;
-import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_CONFIRM_MODIFICATION;
+import static com.thoughtworks.go.remote.StandardHeaders.*;
 import static java.net.HttpURLConnection.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -54,6 +61,7 @@ public class ArtifactsControllerTest {
     private ConsoleService consoleService;
     private SystemEnvironment systemEnvironment;
     private JobInstanceDao jobInstanceDao;
+    private ChunkedArtifactUploadService chunkedArtifactUploadService;
 
     @BeforeEach
     public void setUp() {
@@ -64,7 +72,9 @@ public class ArtifactsControllerTest {
         consoleService = mock(ConsoleService.class);
         jobInstanceDao = mock(JobInstanceDao.class);
         systemEnvironment = mock(SystemEnvironment.class);
-        artifactsController = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
+        when(systemEnvironment.get(SystemEnvironment.ARTIFACT_ZIP_DOWNLOAD_STREAMING)).thenReturn(false);
+        chunkedArtifactUploadService = mock(ChunkedArtifactUploadService.class);
+        artifactsController = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment, chunkedArtifactUploadService);
 
         request = new MockHttpServletRequest();
     }
@@ -78,11 +88,35 @@ public class ArtifactsControllerTest {
         String path = "cruise-output/console.log";
         File artifactFile = new File("junk");
         when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(artifactFile);
-        when(consoleService.appendToConsoleLogIoSafe(eq(artifactFile), any())).thenReturn(true);
+        when(consoleService.appendToConsoleLogIoSafe(eq(jobIdentifier), eq(artifactFile), any())).thenReturn(true);
         assertThat(((ResponseCodeView) artifactsController.putArtifact("pipeline", "10", "stage", "2", "build", 103L, path, "agent-id", request).getView()).getStatusCode()).isEqualTo(HttpURLConnection.HTTP_OK);
         verify(consoleActivityMonitor).consoleUpdatedFor(jobIdentifier);
     }
 
+    @Test
+    public void shouldInflateGzippedConsoleLogPut() throws Exception {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write("Testing:\n".getBytes(StandardCharsets.UTF_8));
+        }
+        request.setContent(gzipped.toByteArray());
+        request.addHeader("Content-Encoding", "gzip");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103L);
+        when(restfulService.findJob("pipeline", "10", "stage", "2", "build", 103L)).thenReturn(jobIdentifier);
+        File artifactFile = new File("junk");
+        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(artifactFile);
+        ByteArrayOutputStream appended = new ByteArrayOutputStream();
+        when(consoleService.appendToConsoleLogIoSafe(eq(jobIdentifier), eq(artifactFile), any())).thenAnswer(invocation -> {
+            invocation.<InputStream>getArgument(2).transferTo(appended);
+            return true;
+        });
+
+        ModelAndView modelAndView = artifactsController.putArtifact("pipeline", "10", "stage", "2", "build", 103L, "cruise-output/console.log", "agent-id", request);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_OK);
+        assertThat(appended.toString(StandardCharsets.UTF_8)).isEqualTo("Testing:\n");
+    }
+
     @Test
     public void testConsoleOutShouldReturnErrorWhenJobHasBeenCompletedAndLogsNotFound() {
         JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103L);
@@ -91,7 +125,7 @@ public class ArtifactsControllerTest {
         when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(false);
 
-        ModelAndView view = artifactsController.consoleOutput("pipeline", "10", "stage", "build", "2", 1L);
+        ModelAndView view = artifactsController.consoleOutput("pipeline", "10", "stage", "build", "2", 1L, null);
 
         assertThat(view.getView().getContentType()).isEqualTo(TextAction.CONTENT_TYPE);
         assertThat(view.getView()).isInstanceOf(ResponseCodeView.class);
@@ -105,6 +139,7 @@ public class ArtifactsControllerTest {
         when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
         when(artifactService.findArtifact(any(), eq("some-path"))).thenReturn(artifactFile);
         when(artifactService.saveFile(any(), any(), eq(false), eq(1))).thenReturn(true);
+        when(artifactService.deduplicate(eq(jobIdentifier), eq(artifactFile), any())).thenReturn(true);
         when(artifactService.saveOrAppendFile(any(), any())).thenReturn(false);
 
         MockMultipartHttpServletRequest request = newMultiPartRequest();
@@ -118,6 +153,142 @@ public class ArtifactsControllerTest {
         assertThat(view.getContent()).isEqualTo("Error saving checksum file for the artifact at path 'some-path'");
     }
 
+    @Test
+    public void shouldLinkTheBlobsTheAgentLeftOutOfTheUpload() throws Exception {
+        File artifactFile = new File("junk");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122L);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(), eq("some-path"))).thenReturn(artifactFile);
+        when(artifactService.deduplicate(eq(jobIdentifier), eq(artifactFile), any())).thenReturn(true);
+
+        MockMultipartHttpServletRequest request = newMultiPartRequest();
+        request.addFile(new MockMultipartFile(Multipart.BLOBS_FILENAME, "dist/lib.jar=abc".getBytes()));
+
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, request);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_CREATED);
+        verify(artifactService, never()).saveFile(any(), any(), anyBoolean(), anyInt());
+        verify(artifactService).deduplicate(eq(jobIdentifier), eq(artifactFile), argThat(blobs -> "abc".equals(blobs.getProperty("dist/lib.jar"))));
+    }
+
+    @Test
+    public void shouldFailTheUploadWhenABlobTheAgentLeftOutIsNoLongerAvailable() throws Exception {
+        File artifactFile = new File("junk");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122L);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(), eq("some-path"))).thenReturn(artifactFile);
+        when(artifactService.deduplicate(eq(jobIdentifier), eq(artifactFile), any())).thenReturn(false);
+
+        MockMultipartHttpServletRequest request = newMultiPartRequest();
+        request.addFile(new MockMultipartFile(Multipart.BLOBS_FILENAME, "dist/lib.jar=abc".getBytes()));
+
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, request);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_INTERNAL_ERROR);
+        verify(artifactService, never()).saveOrAppendFile(any(), any());
+    }
+
+    @Test
+    public void shouldAnswerWhichBlobsTheServerAlreadyHas() throws Exception {
+        when(artifactService.isContentAddressable()).thenReturn(true);
+        when(artifactService.knownContentBlobs(List.of("abc", "def"))).thenReturn(Set.of("def"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(REQUEST_CONFIRM_MODIFICATION, true);
+        request.addHeader(REQUEST_ARTIFACT_BLOB_QUERY, true);
+        request.setContent("abc\ndef\n".getBytes());
+
+        ResponseCodeView view = (ResponseCodeView) artifactsController.queryArtifactBlobs(request).getView();
+
+        assertThat(view.getStatusCode()).isEqualTo(HTTP_OK);
+        assertThat(view.getContent()).isEqualTo("def");
+    }
+
+    @Test
+    public void shouldAcceptAChunkAndReportTheAcknowledgedOffset() throws Exception {
+        File artifactFile = new File("junk");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122L);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(), eq("some-path"))).thenReturn(artifactFile);
+        when(chunkedArtifactUploadService.isValidUploadId("upload-1")).thenReturn(true);
+        when(chunkedArtifactUploadService.appendChunk(eq("upload-1"), eq(artifactFile), eq(10L), eq("md5"), any()))
+            .thenReturn(new ChunkedArtifactUploadService.Result(ChunkedArtifactUploadService.Status.ACCEPTED, 17L));
+
+        MockHttpServletRequest request = newChunkRequest();
+        request.addHeader(REQUEST_ARTIFACT_CHUNK_OFFSET, "10");
+        request.addHeader(REQUEST_ARTIFACT_CHUNK_MD5, "md5");
+        request.setContent("content".getBytes());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ModelAndView modelAndView = artifactsController.postArtifactChunk("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", request, response);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_OK);
+        assertThat(response.getHeader(RESPONSE_ARTIFACT_UPLOAD_OFFSET)).isEqualTo("17");
+    }
+
+    @Test
+    public void shouldTellTheAgentWhereToResumeWhenAChunkIsAtTheWrongOffset() throws Exception {
+        File artifactFile = new File("junk");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122L);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(), eq("some-path"))).thenReturn(artifactFile);
+        when(chunkedArtifactUploadService.isValidUploadId("upload-1")).thenReturn(true);
+        when(chunkedArtifactUploadService.appendChunk(eq("upload-1"), eq(artifactFile), eq(0L), eq("md5"), any()))
+            .thenReturn(new ChunkedArtifactUploadService.Result(ChunkedArtifactUploadService.Status.OFFSET_MISMATCH, 42L));
+
+        MockHttpServletRequest request = newChunkRequest();
+        request.addHeader(REQUEST_ARTIFACT_CHUNK_OFFSET, "0");
+        request.addHeader(REQUEST_ARTIFACT_CHUNK_MD5, "md5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ModelAndView modelAndView = artifactsController.postArtifactChunk("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", request, response);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_CONFLICT);
+        assertThat(response.getHeader(RESPONSE_ARTIFACT_UPLOAD_OFFSET)).isEqualTo("42");
+    }
+
+    @Test
+    public void shouldSaveTheChecksumsWhenAChunkedUploadIsCompleted() throws Exception {
+        File artifactFile = new File("junk");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122L);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(), eq("some-path"))).thenReturn(artifactFile);
+        when(artifactService.findArtifactRoot(jobIdentifier)).thenReturn("pipelines/pipeline-1");
+        when(artifactService.getArtifactLocation(any())).thenReturn(new File("checksums"));
+        when(artifactService.saveOrAppendFile(any(), any())).thenReturn(true);
+        when(chunkedArtifactUploadService.isValidUploadId("upload-1")).thenReturn(true);
+        when(chunkedArtifactUploadService.complete("upload-1", artifactFile, 42L))
+            .thenReturn(new ChunkedArtifactUploadService.Result(ChunkedArtifactUploadService.Status.ACCEPTED, 42L));
+
+        MockHttpServletRequest request = newChunkRequest();
+        request.addHeader(REQUEST_ARTIFACT_UPLOAD_COMPLETE_SIZE, "42");
+        request.setContent("checksum-content".getBytes());
+
+        ModelAndView modelAndView = artifactsController.postArtifactChunk("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", request, new MockHttpServletResponse());
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_CREATED);
+        verify(artifactService).saveOrAppendFile(eq(new File("checksums")), any());
+    }
+
+    @Test
+    public void shouldRejectChunksWithoutAnOffsetOrChecksum() throws Exception {
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122L);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
+        when(chunkedArtifactUploadService.isValidUploadId("upload-1")).thenReturn(true);
+
+        ModelAndView modelAndView = artifactsController.postArtifactChunk("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", newChunkRequest(), new MockHttpServletResponse());
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_BAD_REQUEST);
+        verifyNoMoreInteractions(artifactService);
+    }
+
+    private static MockHttpServletRequest newChunkRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(REQUEST_CONFIRM_MODIFICATION, true);
+        request.addHeader(REQUEST_ARTIFACT_UPLOAD_ID, "upload-1");
+        return request;
+    }
+
     private static MockMultipartHttpServletRequest newMultiPartRequest() {
         MockMultipartHttpServletRequest mockMultipartHttpServletRequest = new MockMultipartHttpServletRequest();
         mockMultipartHttpServletRequest.addHeader(REQUEST_CONFIRM_MODIFICATION, true);
@@ -143,7 +314,7 @@ public class ArtifactsControllerTest {
 
     @Test
     void shouldFailToGetConsoleOutWhenStageCounterIsNotAPositiveInteger() {
-        ModelAndView modelAndView = artifactsController.consoleOutput("pipeline-1", "1", "stage-1", "job-1", "NOT_AN_INTEGER", 122L);
+        ModelAndView modelAndView = artifactsController.consoleOutput("pipeline-1", "1", "stage-1", "job-1", "NOT_AN_INTEGER", 122L, null);
         assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_NOT_FOUND);
     }
 
@@ -156,7 +327,7 @@ public class ArtifactsControllerTest {
     @Test
     public void shouldFunnelAll_GET_calls() throws Exception {
         final ModelAndView returnVal = new ModelAndView();
-        ArtifactsController controller = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment) {
+        ArtifactsController controller = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment, chunkedArtifactUploadService) {
             @Override
             ModelAndView getArtifact(String filePath, ArtifactFolderViewFactory folderViewFactory, String pipelineName, String counterOrLabel, String stageName, String stageCounter,
                                      String buildName, String sha) {
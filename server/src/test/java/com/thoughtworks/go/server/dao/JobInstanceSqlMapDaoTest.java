@@ -16,9 +16,7 @@
 package com.thoughtworks.go.server.dao;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import com.thoughtworks.go.domain.JobIdentifier;
-import com.thoughtworks.go.domain.JobInstance;
-import com.thoughtworks.go.domain.StageIdentifier;
+import com.thoughtworks.go.domain.*;
 import com.thoughtworks.go.server.caching.GoCache;
 import com.thoughtworks.go.server.persistence.ArtifactPlanRepository;
 import com.thoughtworks.go.server.persistence.ResourceRepository;
@@ -34,7 +32,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,14 +64,14 @@ class JobInstanceSqlMapDaoTest {
     private SystemEnvironment systemEnvironment;
     @Mock
     private SqlMapClientTemplate template;
-
+    private GoCache goCache;
 
     @BeforeEach
     void setUp() {
-        GoCache goCache = new StubGoCache(new TestTransactionSynchronizationManager());
+        goCache = new StubGoCache(new TestTransactionSynchronizationManager());
         jobInstanceSqlMapDao = new JobInstanceSqlMapDao(environmentVariableDao, goCache, transactionTemplate, null,
             cache, transactionSynchronizationManager, resourceRepository,
-            artifactPlanRepository, jobAgentMetadataDao);
+            artifactPlanRepository, jobAgentMetadataDao, systemEnvironment);
         jobInstanceSqlMapDao.setSqlMapClientTemplate(template);
     }
 
@@ -151,6 +154,81 @@ class JobInstanceSqlMapDaoTest {
         }
     }
 
+    @Nested
+    class OrderedScheduledBuilds {
+        @BeforeEach
+        void setUp() {
+            when(environmentVariableDao.load(anyLong(), any())).thenReturn(new EnvironmentVariables());
+        }
+
+        @Test
+        void shouldLoadAllPlansMissingFromTheCacheInOneQueryAndKeepTheScheduledOrder() {
+            when(systemEnvironment.get(SystemEnvironment.SCHEDULED_JOB_PLANS_INCREMENTAL_RELOAD)).thenReturn(false);
+            DefaultJobPlan cached = jobPlan(2);
+            goCache.put(jobInstanceSqlMapDao.cacheKeyForJobPlan(2L), cached);
+            when(template.queryForList("scheduledPlanIds")).thenReturn(List.of(1L, 2L, 3L));
+            when(template.queryForList("scheduledPlans", Map.of("ids", List.of(1L, 3L)))).thenReturn(List.of(jobPlan(3), jobPlan(1)));
+
+            List<JobPlan> plans = jobInstanceSqlMapDao.orderedScheduledBuilds();
+
+            assertThat(plans).extracting(JobPlan::getJobId).containsExactly(1L, 2L, 3L);
+            assertThat(plans.get(1)).isSameAs(cached);
+            assertThat(plans.get(0)).isSameAs(goCache.get(jobInstanceSqlMapDao.cacheKeyForJobPlan(1L)));
+            assertThat(((DefaultJobPlan) plans.get(0)).isReadOnly()).isTrue();
+            verify(template).queryForList(eq("scheduledPlans"), any());
+        }
+
+        @Test
+        void shouldNotQueryForPlansThatAreAlreadyCached() {
+            when(systemEnvironment.get(SystemEnvironment.SCHEDULED_JOB_PLANS_INCREMENTAL_RELOAD)).thenReturn(false);
+            when(template.queryForList("scheduledPlanIds")).thenReturn(List.of(1L));
+            when(template.queryForList("scheduledPlans", Map.of("ids", List.of(1L)))).thenReturn(List.of(jobPlan(1)));
+
+            List<JobPlan> first = jobInstanceSqlMapDao.orderedScheduledBuilds();
+            List<JobPlan> second = jobInstanceSqlMapDao.orderedScheduledBuilds();
+
+            assertThat(second).isEqualTo(first);
+            assertThat(second.getFirst()).isSameAs(first.getFirst());
+            verify(template, times(2)).queryForList("scheduledPlanIds");
+            verify(template, times(1)).queryForList(eq("scheduledPlans"), any());
+        }
+
+        @Test
+        void shouldReuseTheLastPlansInIncrementalModeUntilAJobChangesState() {
+            when(systemEnvironment.get(SystemEnvironment.SCHEDULED_JOB_PLANS_INCREMENTAL_RELOAD)).thenReturn(true);
+            when(template.queryForList("scheduledPlanIds")).thenReturn(List.of(1L));
+            when(template.queryForList("scheduledPlans", Map.of("ids", List.of(1L)))).thenReturn(List.of(jobPlan(1)), List.of(jobPlan(1)));
+
+            List<JobPlan> first = jobInstanceSqlMapDao.orderedScheduledBuilds();
+            first.clear();
+            List<JobPlan> second = jobInstanceSqlMapDao.orderedScheduledBuilds();
+
+            assertThat(second).extracting(JobPlan::getJobId).containsExactly(1L);
+            verify(template, times(1)).queryForList("scheduledPlanIds");
+
+            doAnswer(invocation -> {
+                ((TransactionSynchronizationAdapter) invocation.getArgument(0)).afterCommit();
+                return null;
+            }).when(transactionSynchronizationManager).registerSynchronization(any());
+            when(transactionTemplate.execute(any())).then(invocation -> {
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(new SimpleTransactionStatus());
+                return null;
+            });
+            when(template.queryForObject("currentJobState", 1L)).thenReturn("Assigned");
+            JobInstance instance = new JobInstance("job");
+            instance.setId(1L);
+            jobInstanceSqlMapDao.updateStateAndResult(instance);
+
+            jobInstanceSqlMapDao.orderedScheduledBuilds();
+
+            verify(template, times(2)).queryForList("scheduledPlanIds");
+        }
+
+        private DefaultJobPlan jobPlan(long id) {
+            return new DefaultJobPlan(new Resources(), new ArrayList<>(), id, null, null, new EnvironmentVariables(), new EnvironmentVariables(), null, null);
+        }
+    }
+
     @Nested
     class CacheKeyForJobPlan {
         @Test
@@ -31,6 +31,7 @@ import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.server.service.PipelineLockService;
 import com.thoughtworks.go.server.service.PipelinePauseService;
 import com.thoughtworks.go.server.service.StageService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -67,7 +68,7 @@ public class GoDashboardActivityListenerTest {
     @Test
     public void shouldRegisterSelfForConfigChangeHandlingOnInitialization() {
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, new SystemEnvironment());
 
         listener.initialize();
 
@@ -83,7 +84,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(stageService).addStageStatusListener(captor.capture());
 
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                handler, null, null, null, null);
+                handler, null, null, null, null, new SystemEnvironment());
 
         listener.initialize();
         listener.start();
@@ -101,7 +102,7 @@ public class GoDashboardActivityListenerTest {
         CruiseConfig aConfig = GoConfigMother.defaultCruiseConfig();
         GoDashboardConfigChangeHandler handler = mock(GoDashboardConfigChangeHandler.class);
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, new SystemEnvironment());
 
         listener.initialize();
         listener.start();
@@ -122,7 +123,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
 
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, new SystemEnvironment());
         listener.initialize();
         listener.start();
 
@@ -142,7 +143,7 @@ public class GoDashboardActivityListenerTest {
         when(goConfigService.currentCruiseConfig()).thenReturn(aConfig);
 
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, new SystemEnvironment());
 
         listener.initialize();
         listener.start();
@@ -163,7 +164,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
 
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, handler);
+                null, null, null, null, handler, new SystemEnvironment());
         listener.initialize();
         listener.start();
 
@@ -185,7 +186,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
 
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, new SystemEnvironment());
         listener.initialize();
         listener.start();
 
@@ -198,7 +199,7 @@ public class GoDashboardActivityListenerTest {
     @Test
     public void shouldRegisterSelfForPipelineStatusChangeHandlingOnInitialization() {
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, new SystemEnvironment());
 
         listener.initialize();
 
@@ -209,7 +210,7 @@ public class GoDashboardActivityListenerTest {
     public void shouldInvokePipelinePauseStatusChangeHandlerWhenPipelinePauseEventOccurs() throws Exception {
         GoDashboardPipelinePauseStatusChangeHandler handler = mock(GoDashboardPipelinePauseStatusChangeHandler.class);
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, handler, null, null);
+                null, null, handler, null, null, new SystemEnvironment());
 
         PipelinePauseChangeListener.Event pauseEvent = PipelinePauseChangeListener.Event.pause("pipeline1", Username.valueOf("user1"));
 
@@ -225,7 +226,7 @@ public class GoDashboardActivityListenerTest {
     @Test
     public void shouldRegisterSelfForPipelineLockStatusChangeHandlingOnInitialization() {
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, new SystemEnvironment());
 
         listener.initialize();
 
@@ -236,7 +237,7 @@ public class GoDashboardActivityListenerTest {
     public void shouldInvokePipelineLockStatusChangeHandlerWhenPipelineLockEventOccurs() throws Exception {
         GoDashboardPipelineLockStatusChangeHandler handler = mock(GoDashboardPipelineLockStatusChangeHandler.class);
         listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, handler, null);
+                null, null, null, handler, null, new SystemEnvironment());
 
         PipelineLockStatusChangeListener.Event lockEvent = PipelineLockStatusChangeListener.Event.lock("pipeline1");
 
@@ -249,6 +250,30 @@ public class GoDashboardActivityListenerTest {
         verify(handler).call(lockEvent);
     }
 
+    @Test
+    public void shouldNotLetAnUpdateOfOneKindSupersedeAPendingUpdateOfAnotherKindForTheSamePipeline() throws Exception {
+        GoDashboardConfigChangeHandler configChangeHandler = mock(GoDashboardConfigChangeHandler.class);
+        GoDashboardPipelinePauseStatusChangeHandler pauseHandler = mock(GoDashboardPipelinePauseStatusChangeHandler.class);
+        PipelineConfig pipelineConfig = PipelineConfigMother.pipelineConfig("pipeline1");
+        PipelinePauseChangeListener.Event pauseEvent = PipelinePauseChangeListener.Event.pause("pipeline1", Username.valueOf("user1"));
+
+        ArgumentCaptor<ConfigChangedListener> captor = ArgumentCaptor.forClass(ConfigChangedListener.class);
+        doNothing().when(goConfigService).register(captor.capture());
+
+        listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
+                null, configChangeHandler, pauseHandler, null, null, new SystemEnvironment());
+        listener.initialize();
+
+        listener.pauseStatusChanged(pauseEvent);
+        ((EntityConfigChangedListener<PipelineConfig>) captor.getAllValues().get(1)).onEntityConfigChange(pipelineConfig);
+
+        listener.start();
+        waitForProcessingToHappen();
+
+        verify(pauseHandler).call(pauseEvent);
+        verify(configChangeHandler).call(pipelineConfig);
+    }
+
     private void waitForProcessingToHappen() throws InterruptedException {
         await()
             .pollDelay(10, TimeUnit.MILLISECONDS)
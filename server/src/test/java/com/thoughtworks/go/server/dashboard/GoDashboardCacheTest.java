@@ -83,4 +83,79 @@ public class GoDashboardCacheTest {
         assertThat(cache.allEntries().find(cis("pipeline4"))).isSameAs(newPipeline4);
         assertThat(cache.allEntries().find(cis("pipeline5"))).isSameAs(pipeline5);
     }
+
+    @Test
+    public void shouldRemoveAPipeline() {
+        cache.put(pipeline("pipeline1"));
+        cache.put(pipeline("pipeline2"));
+
+        cache.remove(cis("pipeline1"));
+
+        assertThat(cache.allEntries().find(cis("pipeline1"))).isNull();
+        assertThat(cache.allEntries().getPipelines()).extracting(GoDashboardPipeline::name).containsExactly(cis("pipeline2"));
+    }
+
+    @Test
+    public void shouldMoveAPipelineThatChangedGroups() {
+        GoDashboardPipeline moved = pipeline("pipeline1", "group2");
+        cache.put(pipeline("pipeline1", "group1"));
+
+        cache.put(moved);
+
+        assertThat(cache.allEntries().find(cis("pipeline1"))).isSameAs(moved);
+        assertThat(cache.allEntries().getPipelines()).containsExactly(moved);
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotsAlreadyHandedOut() {
+        GoDashboardPipeline pipeline1 = pipeline("pipeline1");
+        cache.put(pipeline1);
+        GoDashboardPipelines snapshot = cache.allEntries();
+
+        cache.put(pipeline("pipeline1"));
+        cache.put(pipeline("pipeline2"));
+        cache.remove(cis("pipeline1"));
+
+        assertThat(snapshot.find(cis("pipeline1"))).isSameAs(pipeline1);
+        assertThat(snapshot.getPipelines()).containsExactly(pipeline1);
+    }
+
+    @Test
+    public void shouldCacheFragmentsOfAPipelineUntilItChanges() {
+        GoDashboardPipeline pipeline = pipeline("pipeline1");
+        cache.put(pipeline);
+
+        assertThat(cache.pipelineFragment(pipeline, "variant", () -> "first")).isEqualTo("first");
+        assertThat(cache.pipelineFragment(pipeline, "variant", () -> "second")).isEqualTo("first");
+        assertThat(cache.pipelineFragment(pipeline, "other-variant", () -> "third")).isEqualTo("third");
+
+        GoDashboardPipeline changedPipeline = pipeline("pipeline1");
+        cache.put(changedPipeline);
+
+        assertThat(cache.pipelineFragment(changedPipeline, "variant", () -> "fourth")).isEqualTo("fourth");
+    }
+
+    @Test
+    public void shouldNotCacheFragmentsOfAPipelineWhichIsNoLongerInTheCache() {
+        GoDashboardPipeline pipeline = pipeline("pipeline1");
+        cache.put(pipeline);
+        cache.put(pipeline("pipeline1"));
+
+        assertThat(cache.pipelineFragment(pipeline, "variant", () -> "first")).isEqualTo("first");
+        assertThat(cache.pipelineFragment(pipeline, "variant", () -> "second")).isEqualTo("second");
+    }
+
+    @Test
+    public void shouldDropFragmentsWhenPipelinesAreRemovedOrReplaced() {
+        GoDashboardPipeline pipeline = pipeline("pipeline1");
+        cache.put(pipeline);
+        cache.pipelineFragment(pipeline, "variant", () -> "first");
+
+        cache.remove(cis("pipeline1"));
+        cache.put(pipeline);
+        assertThat(cache.pipelineFragment(pipeline, "variant", () -> "second")).isEqualTo("second");
+
+        cache.replaceAllEntriesInCacheWith(List.of(pipeline));
+        assertThat(cache.pipelineFragment(pipeline, "variant", () -> "third")).isEqualTo("third");
+    }
 }
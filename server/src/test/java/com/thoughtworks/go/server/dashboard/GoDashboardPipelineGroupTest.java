@@ -19,12 +19,16 @@ import com.thoughtworks.go.config.security.Permissions;
 import com.thoughtworks.go.config.security.permissions.PipelinePermission;
 import com.thoughtworks.go.config.security.users.AllowedUsers;
 import com.thoughtworks.go.config.security.users.Users;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import com.thoughtworks.go.presentation.pipelinehistory.PipelineModel;
 import com.thoughtworks.go.server.domain.Username;
 import org.junit.jupiter.api.Test;
 
 import java.util.Collections;
 import java.util.Set;
 
+import static com.thoughtworks.go.domain.PipelinePauseInfo.notPaused;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -42,4 +46,32 @@ public class GoDashboardPipelineGroupTest {
         assertTrue(pipelineGroup.canAdminister(new Username("admin1")));
         assertFalse(pipelineGroup.canAdminister(new Username("viewer1")));
     }
+
+    @Test
+    public void shouldChangeEtagOnlyWhenItsPipelinesChange() {
+        Permissions permissions = new Permissions(Users.EVERYONE, Users.EVERYONE, Users.EVERYONE, PipelinePermission.EVERYONE);
+        GoDashboardPipeline pipeline1 = pipeline("pipeline1", permissions, 1);
+        GoDashboardPipeline pipeline2 = pipeline("pipeline2", permissions, 2);
+
+        GoDashboardPipelineGroup group = new GoDashboardPipelineGroup("group1", permissions, true);
+        group.addPipeline(pipeline1);
+        group.addPipeline(pipeline2);
+        GoDashboardPipelineGroup sameGroup = new GoDashboardPipelineGroup("group1", permissions, true);
+        sameGroup.addPipeline(pipeline2);
+        sameGroup.addPipeline(pipeline("pipeline1", permissions, 3));
+        sameGroup.addPipeline(pipeline1);
+        GoDashboardPipelineGroup updatedGroup = new GoDashboardPipelineGroup("group1", permissions, true);
+        updatedGroup.addPipeline(pipeline1);
+        updatedGroup.addPipeline(pipeline("pipeline2", permissions, 4));
+        GoDashboardPipelineGroup smallerGroup = new GoDashboardPipelineGroup("group1", permissions, true);
+        smallerGroup.addPipeline(pipeline1);
+
+        assertThat(sameGroup.etag()).isEqualTo(group.etag());
+        assertThat(updatedGroup.etag()).isNotEqualTo(group.etag());
+        assertThat(smallerGroup.etag()).isNotEqualTo(group.etag());
+    }
+
+    private static GoDashboardPipeline pipeline(String name, Permissions permissions, long timestamp) {
+        return new GoDashboardPipeline(new PipelineModel(name, false, false, notPaused()), permissions, "group1", () -> timestamp, PipelineConfigMother.pipelineConfig(name));
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.helper.PipelineTimelineEntryMother;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactPipelineTimelineTest {
+    private final ZonedDateTime now = ZonedDateTime.now();
+    private final List<String> materials = List.of("first", "second");
+    private PipelineTimelineEntry first;
+    private PipelineTimelineEntry second;
+    private PipelineTimelineEntry third;
+    private CompactPipelineTimeline timeline;
+
+    @BeforeEach
+    void setUp() {
+        first = PipelineTimelineEntryMother.timelineEntry(1, materials, List.of(now, now.plusMinutes(1)), 1, "111");
+        second = PipelineTimelineEntryMother.timelineEntry(2, materials, List.of(now, now.plusMinutes(2)), 2, "222");
+        third = PipelineTimelineEntryMother.timelineEntry(3, materials, List.of(now, now.plusMinutes(3)), 3, "333");
+        timeline = new CompactPipelineTimeline(new CompactPipelineTimeline.Revisions());
+    }
+
+    @Test
+    void shouldHandOutEntriesEqualToTheOnesAdded() {
+        timeline.add(first);
+        timeline.add(third);
+        timeline.add(second);
+
+        PipelineTimelineEntry entry = timeline.entry(timeline.indexOf(second.getId()));
+
+        assertThat(entry).isEqualTo(second);
+        assertThat(entry.getPipelineName()).isEqualTo("pipeline");
+        assertThat(entry.getCounter()).isEqualTo(2);
+        assertThat(entry.naturalOrder()).isEqualTo(second.naturalOrder());
+        assertThat(entry.revisions()).isEqualTo(second.revisions());
+        assertThat(entry.revisions().get("first").get(0).id()).isEqualTo(second.revisions().get("first").get(0).id());
+        assertThat(timeline.inNaturalOrder()).containsExactly(first, second, third);
+    }
+
+    @Test
+    void shouldNotAddARunTwice() {
+        assertThat(timeline.add(first)).isTrue();
+        assertThat(timeline.add(first)).isFalse();
+        assertThat(timeline.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldUnlinkARemovedRunFromTheRunsAddedBeforeIt() {
+        timeline.add(first);
+        timeline.add(third);
+        timeline.add(second);
+
+        timeline.remove(third.getId());
+
+        assertThat(timeline.size()).isEqualTo(2);
+        assertThat(timeline.inNaturalOrder()).containsExactly(first, second);
+        assertThat(timeline.indexOf(third.getId())).isEqualTo(CompactPipelineTimeline.NONE);
+        int indexOfSecond = timeline.indexOf(second.getId());
+        assertThat(indexOfSecond).isEqualTo(1);
+        assertThat(timeline.insertedAfter(indexOfSecond)).isEqualTo(first);
+        assertThat(timeline.insertedBefore(indexOfSecond)).isNull();
+        assertThat(timeline.entry(indexOfSecond).revisions()).isEqualTo(second.revisions());
+    }
+}
@@ -156,17 +156,43 @@ public class PipelineTimelineTest {
     @Test
     public void updateOnInitShouldBeDoneOutsideTransaction() {
         PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager);
-        PipelineTimelineEntry[] entries = {first, second};
-        stubPipelineRepository(timeline, true, entries);
+        when(pipelineRepository.maximumPipelineId()).thenReturn(2L);
 
         timeline.updateTimelineOnInit();
 
-        verify(pipelineRepository).updatePipelineTimeline(timeline, List.of(entries));
+        verify(pipelineRepository).maximumPipelineId();
+        verifyNoMoreInteractions(pipelineRepository);
         verifyNoMoreInteractions(transactionSynchronizationManager);
         verifyNoMoreInteractions(transactionTemplate);
         assertThat(timeline.maximumId()).isEqualTo(2L);
     }
 
+    @Test
+    public void shouldLoadRunsOfAPipelineFromTheDatabaseTheFirstTimeItIsAskedForAfterInit() {
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager);
+        when(pipelineRepository.maximumPipelineId()).thenReturn(3L);
+        when(pipelineRepository.loadPipelineTimeline("pipeline", 3L)).thenReturn(List.of(first, third, second));
+        when(pipelineRepository.loadPipelineTimeline("another", 3L)).thenReturn(List.of());
+
+        timeline.updateTimelineOnInit();
+        verify(pipelineRepository, never()).loadPipelineTimeline(anyString(), anyLong());
+
+        assertThat(timeline.instanceCount(cis("pipeline"))).isEqualTo(3);
+        assertThat(timeline.instanceFor(cis("pipeline"), 1)).isEqualTo(third);
+        assertThat(timeline.runBefore(second.getId(), cis("pipeline"))).isEqualTo(first);
+        assertThat(timeline.runAfter(second.getId(), cis("pipeline"))).isEqualTo(third);
+        assertThat(timeline.getEntryFor(cis("pipeline"), 2)).isEqualTo(second);
+        assertThat(timeline.instanceCount(cis("another"))).isEqualTo(0);
+
+        timeline.add(fourth);
+        assertThat(timeline.getEntriesFor("pipeline")).containsExactly(first, second, third, fourth);
+        assertThat(timeline.maximumId()).isEqualTo(4L);
+
+        verify(pipelineRepository).loadPipelineTimeline("pipeline", 3L);
+        verify(pipelineRepository).loadPipelineTimeline("another", 3L);
+        verify(pipelineRepository).updateNaturalOrdering(List.of(first, third, second));
+    }
+
     @Test
     public void updateShouldLoadNewInstancesFromTheDatabase() {
         stubTransactionSynchronization();
@@ -221,6 +247,24 @@ public class PipelineTimelineTest {
         assertThat(timeline.instanceFor(cis("pipeline"), 1)).isEqualTo(second);
     }
 
+    @Test
+    public void shouldOnlyUndoItsOwnEntriesWhenRolledBackAfterOtherRunsWereAdded() {
+        stubTransactionSynchronization();
+        when(transactionTemplate.execute(any())).thenAnswer(invocationOnMock -> {
+            TransactionCallback<?> callback = invocationOnMock.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+        final PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager);
+        stubPipelineRepository(timeline, true, first, second);
+
+        timeline.update();
+        timeline.add(third);
+        transactionSynchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(timeline.maximumId()).isEqualTo(3L);
+        assertThat(timeline.getEntriesFor("pipeline")).containsExactly(third);
+    }
+
     @SuppressWarnings("unchecked")
     private void stubPipelineRepository(final PipelineTimeline timeline, boolean restub, final PipelineTimelineEntry... entries) {
         repositoryEntries = entries;
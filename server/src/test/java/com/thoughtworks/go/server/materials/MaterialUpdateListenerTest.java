@@ -24,7 +24,9 @@ import com.thoughtworks.go.server.transaction.TransactionCallback;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 public class MaterialUpdateListenerTest {
@@ -91,6 +93,19 @@ public class MaterialUpdateListenerTest {
         verify(topic).post(new MaterialUpdateSuccessfulMessage(MATERIAL, 20));
     }
 
+    @Test
+    public void shouldTellWhetherTheUpdateFoundNewModifications() {
+        when(updater.updateMaterial(MATERIAL)).thenReturn(true, false);
+
+        materialUpdateListener.onMessage(new MaterialUpdateMessage(MATERIAL, 20));
+        materialUpdateListener.onMessage(new MaterialUpdateMessage(MATERIAL, 21));
+
+        ArgumentCaptor<MaterialUpdateCompletedMessage> captor = ArgumentCaptor.forClass(MaterialUpdateCompletedMessage.class);
+        verify(topic, times(2)).post(captor.capture());
+        assertThat(((MaterialUpdateSuccessfulMessage) captor.getAllValues().get(0)).foundNewModifications()).isTrue();
+        assertThat(((MaterialUpdateSuccessfulMessage) captor.getAllValues().get(1)).foundNewModifications()).isFalse();
+    }
+
     @Test
     public void shouldPostUpdateFailedMessageOnException() {
         setupTransactionTemplateStub();
@@ -22,6 +22,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InOrder;
 import org.slf4j.event.Level;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
@@ -128,6 +132,121 @@ public class MultiplexingQueueProcessorTest {
         queueProcessor.stop();
     }
 
+    @Test
+    public void shouldProcessActionsWithDifferentKeysInParallel() throws Exception {
+        queueProcessor = new MultiplexingQueueProcessor("queue1", 2);
+        CountDownLatch slowActionStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlowAction = new CountDownLatch(1);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        // keys 0 and 1 land on different workers
+        queueProcessor.add(new KeyedAction(0, "slow", calls) {
+            @Override
+            public void call() {
+                super.call();
+                slowActionStarted.countDown();
+                await().until(() -> releaseSlowAction.getCount() == 0);
+            }
+        });
+        queueProcessor.add(new KeyedAction(1, "fast", calls));
+        queueProcessor.start();
+
+        assertThat(slowActionStarted.await(2, TimeUnit.SECONDS)).isTrue();
+        await().timeout(2, TimeUnit.SECONDS).until(() -> calls.contains("fast"));
+        releaseSlowAction.countDown();
+        waitForProcessingToHappen();
+
+        assertThat(calls).containsExactlyInAnyOrder("slow", "fast");
+    }
+
+    @Test
+    public void shouldProcessActionsWithTheSameKeyInOrderOfThemBeingAdded() throws Exception {
+        queueProcessor = new MultiplexingQueueProcessor("queue1", 4);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 100; i++) {
+            queueProcessor.add(new KeyedAction(i % 2, "action-" + i, calls));
+        }
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        assertThat(calls).hasSize(100);
+        assertThat(calls.stream().filter(call -> Integer.parseInt(call.substring(7)) % 2 == 0))
+            .isSortedAccordingTo((a, b) -> Integer.compare(Integer.parseInt(a.substring(7)), Integer.parseInt(b.substring(7))));
+        assertThat(calls.stream().filter(call -> Integer.parseInt(call.substring(7)) % 2 == 1))
+            .isSortedAccordingTo((a, b) -> Integer.compare(Integer.parseInt(a.substring(7)), Integer.parseInt(b.substring(7))));
+    }
+
+    @Test
+    public void shouldProcessActionsWithoutAKeyAfterEverythingAddedBeforeThemAndBeforeEverythingAddedAfterThem() throws Exception {
+        queueProcessor = new MultiplexingQueueProcessor("queue1", 3);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        queueProcessor.add(new KeyedAction(0, "before-0", calls));
+        queueProcessor.add(new KeyedAction(1, "before-1", calls));
+        queueProcessor.add(new KeyedAction(2, "before-2", calls));
+        queueProcessor.add(new KeyedAction(null, "unkeyed", calls));
+        queueProcessor.add(new KeyedAction(0, "after-0", calls));
+        queueProcessor.add(new KeyedAction(2, "after-2", calls));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        assertThat(calls.subList(0, 3)).containsExactlyInAnyOrder("before-0", "before-1", "before-2");
+        assertThat(calls.get(3)).isEqualTo("unkeyed");
+        assertThat(calls.subList(4, 6)).containsExactlyInAnyOrder("after-0", "after-2");
+    }
+
+    @Test
+    public void shouldReplaceThePendingActionForAKeyWithALaterActionThatSupersedesIt() throws Exception {
+        queueProcessor = new MultiplexingQueueProcessor("queue1", 2);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        queueProcessor.add(new SupersedingAction(0, "first-0", calls));
+        queueProcessor.add(new KeyedAction(1, "only-1", calls));
+        queueProcessor.add(new SupersedingAction(0, "second-0", calls));
+        queueProcessor.add(new KeyedAction(0, "plain-0", calls));
+        queueProcessor.add(new SupersedingAction(0, "third-0", calls));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        assertThat(calls).containsExactlyInAnyOrder("second-0", "only-1", "plain-0", "third-0");
+        assertThat(calls.indexOf("second-0")).isLessThan(calls.indexOf("plain-0"));
+        assertThat(calls.indexOf("plain-0")).isLessThan(calls.indexOf("third-0"));
+        assertThat(queueProcessor.statistics().coalesced()).isEqualTo(1);
+        assertThat(queueProcessor.statistics().processed()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldNotLetAnActionOvertakeAnActionWithoutAKeyByReplacingAPendingOne() throws Exception {
+        queueProcessor = new MultiplexingQueueProcessor("queue1", 2);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        queueProcessor.add(new SupersedingAction(0, "first-0", calls));
+        queueProcessor.add(new KeyedAction(null, "unkeyed", calls));
+        queueProcessor.add(new SupersedingAction(0, "second-0", calls));
+        queueProcessor.add(new SupersedingAction(null, "first-unkeyed-reload", calls));
+        queueProcessor.add(new SupersedingAction(null, "second-unkeyed-reload", calls));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        assertThat(calls).containsExactly("first-0", "unkeyed", "second-0", "second-unkeyed-reload");
+    }
+
+    @Test
+    public void shouldKeepTrackOfPendingActions() {
+        queueProcessor = new MultiplexingQueueProcessor("queue1", 2);
+        queueProcessor.add(new KeyedAction(0, "one", new ArrayList<>()));
+        queueProcessor.add(new KeyedAction(null, "two", new ArrayList<>()));
+
+        MultiplexingQueueProcessor.Statistics statistics = queueProcessor.statistics();
+
+        assertThat(statistics.queueName()).isEqualTo("queue1");
+        assertThat(statistics.workers()).isEqualTo(2);
+        assertThat(statistics.pending()).isEqualTo(2);
+        assertThat(statistics.processed()).isZero();
+        assertThat(queueProcessor.isEmpty()).isFalse();
+    }
+
     private Thread setupNewThreadToAddActionIn(final ThreadNameAccumulator threadNameAccumulator) {
         return new Thread(() -> {
             threadNameAccumulator.threadOfQueueAdd = Thread.currentThread().getName();
@@ -158,4 +277,42 @@ public class MultiplexingQueueProcessorTest {
         String threadOfCall;
         String threadOfQueueAdd;
     }
+
+    private static class KeyedAction implements Action {
+        private final Integer key;
+        private final String name;
+        private final List<String> calls;
+
+        private KeyedAction(Integer key, String name, List<String> calls) {
+            this.key = key;
+            this.name = name;
+            this.calls = calls;
+        }
+
+        @Override
+        public void call() {
+            calls.add(name);
+        }
+
+        @Override
+        public String description() {
+            return name;
+        }
+
+        @Override
+        public Object partitionKey() {
+            return key;
+        }
+    }
+
+    private static class SupersedingAction extends KeyedAction {
+        private SupersedingAction(Integer key, String name, List<String> calls) {
+            super(key, name, calls);
+        }
+
+        @Override
+        public boolean supersedes(Action pending) {
+            return pending instanceof SupersedingAction;
+        }
+    }
 }
@@ -0,0 +1,240 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.*;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InMemoryMessagingServiceTest {
+    private InMemoryMessagingService messaging;
+
+    @BeforeEach
+    public void setUp() {
+        messaging = messaging(100, 30_000L);
+    }
+
+    private static InMemoryMessagingService messaging(int capacity, long sendTimeoutMillis) {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.IN_MEMORY_MESSAGING_CAPACITY)).thenReturn(capacity);
+        when(systemEnvironment.get(SystemEnvironment.IN_MEMORY_MESSAGING_SEND_TIMEOUT_IN_MILLIS)).thenReturn(sendTimeoutMillis);
+        return new InMemoryMessagingService(new DaemonThreadStatsCollector(), systemEnvironment);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        messaging.stop();
+    }
+
+    @Test
+    public void shouldDeliverEveryTopicMessageToEveryListener() {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        FastListener listener1 = new FastListener();
+        FastListener listener2 = new FastListener();
+        topic.addListener(listener1);
+        topic.addListener(listener2);
+
+        topic.post(new GoTextMessage("Hello"));
+        topic.post(new GoTextMessage("World"));
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            assertThat(listener1.receivedMessages).extracting(GoTextMessage::getText).containsExactly("Hello", "World");
+            assertThat(listener2.receivedMessages).extracting(GoTextMessage::getText).containsExactly("Hello", "World");
+        });
+    }
+
+    @Test
+    public void shouldSupportCompetingConsumers() {
+        HangingListener hanging = new HangingListener();
+        FastListener fast = new FastListener();
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.addListener(hanging);
+        queue.addListener(fast);
+
+        try {
+            for (int i = 1; i <= 5; i++) {
+                queue.post(new GoTextMessage("Hello World" + i));
+            }
+
+            await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(fast.receivedMessages).hasSize(4));
+        } finally {
+            hanging.finish();
+        }
+    }
+
+    @Test
+    public void shouldStillReceiveMessagesIfAnExceptionIsThrown() {
+        ExceptionListener listener = new ExceptionListener();
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.addListener(listener);
+
+        for (int i = 1; i <= 5; i++) {
+            queue.post(new GoTextMessage("Hello World" + i));
+        }
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(listener.receivedMessages).hasSize(5));
+    }
+
+    @Test
+    public void shouldDropMessagesThatExpireBeforeTheyAreTaken() throws Exception {
+        HangingListener hanging = new HangingListener();
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.addListener(hanging);
+        FastListener fast = new FastListener();
+
+        try {
+            queue.post(new GoTextMessage("keeps the listener busy"));
+            hanging.started.await(2, TimeUnit.SECONDS);
+            queue.post(new GoTextMessage("expires"), 1);
+            queue.post(new GoTextMessage("lives"));
+            Thread.sleep(10);
+            queue.addListener(fast);
+
+            await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(fast.receivedMessages).extracting(GoTextMessage::getText).containsExactly("lives"));
+        } finally {
+            hanging.finish();
+        }
+    }
+
+    @Test
+    public void shouldStopListenersAndDropMessagesOfARemovedQueue() throws Exception {
+        HangingListener hanging = new HangingListener();
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.addListener(hanging);
+        queue.post(new GoTextMessage("keeps the listener busy"));
+        hanging.started.await(2, TimeUnit.SECONDS);
+        queue.post(new GoTextMessage("dropped"));
+
+        queue.stop();
+        hanging.finish();
+        FastListener fast = new FastListener();
+        queue.addListener(fast);
+        queue.post(new GoTextMessage("after removal"));
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(fast.receivedMessages).extracting(GoTextMessage::getText).containsExactly("after removal"));
+        assertThat(hanging.receivedMessages).hasSize(1);
+    }
+
+    @Test
+    public void shouldStopDeliveringToAStoppedTopicListener() throws Exception {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        FastListener stopped = new FastListener();
+        FastListener running = new FastListener();
+        GoMessageConsumer consumer = topic.addListener(stopped);
+        topic.addListener(running);
+
+        consumer.stop();
+        topic.post(new GoTextMessage("Hello"));
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(running.receivedMessages).hasSize(1));
+        assertThat(stopped.receivedMessages).isEmpty();
+        assertThat(consumer.listenerThreadName()).startsWith("FastListener-");
+    }
+
+    @Test
+    public void shouldGiveUpOnAListenerThatDoesNotCatchUpInTime() throws Exception {
+        messaging.stop();
+        messaging = messaging(1, 50L);
+        HangingListener hanging = new HangingListener();
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        topic.addListener(hanging);
+
+        try {
+            topic.post(new GoTextMessage("keeps the listener busy"));
+            hanging.started.await(2, TimeUnit.SECONDS);
+            topic.post(new GoTextMessage("fills the queue"));
+
+            assertThatThrownBy(() -> topic.post(new GoTextMessage("one too many")))
+                .hasMessageContaining("Could not deliver");
+        } finally {
+            hanging.finish();
+        }
+    }
+
+    @Test
+    public void shouldNotLetAListenerWaitForItselfWhenPostingToItsOwnFullQueue() {
+        messaging.stop();
+        messaging = messaging(1, 30_000L);
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        queue.addListener(message -> {
+            if (message.getText().equals("first")) {
+                queue.post(new GoTextMessage("fills the queue"));
+                try {
+                    queue.post(new GoTextMessage("one too many"));
+                } catch (RuntimeException e) {
+                    failure.set(e);
+                }
+            }
+        });
+
+        queue.post(new GoTextMessage("first"));
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(failure.get()).hasMessageContaining("Could not deliver"));
+    }
+
+    private static class FastListener implements GoMessageListener<GoTextMessage> {
+        final Queue<GoTextMessage> receivedMessages = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            receivedMessages.add(message);
+        }
+    }
+
+    private static class ExceptionListener extends FastListener {
+        @Override
+        public void onMessage(GoTextMessage message) {
+            super.onMessage(message);
+            throw new RuntimeException(message.getText());
+        }
+    }
+
+    private static class HangingListener extends FastListener {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch finish = new CountDownLatch(1);
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            super.onMessage(message);
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void finish() {
+            finish.countDown();
+        }
+    }
+}
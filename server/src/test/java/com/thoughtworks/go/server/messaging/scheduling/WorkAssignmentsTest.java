@@ -20,9 +20,15 @@ import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.NoWork;
 import com.thoughtworks.go.remote.work.Work;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.server.service.BuildAssignmentService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,12 +44,16 @@ public class WorkAssignmentsTest {
     private IdleAgentTopic idleAgentsTopic;
     private AgentIdentifier agentIdentifier;
     private WorkAssignedTopic assignedWorkTopic;
+    private BuildAssignmentService buildAssignmentService;
 
     @BeforeEach
     public void setup() {
         idleAgentsTopic = mock(IdleAgentTopic.class, "idle_topic");
         assignedWorkTopic = mock(WorkAssignedTopic.class, "assigned_work_topic");
-        assignments = new WorkAssignments(idleAgentsTopic, assignedWorkTopic);
+        buildAssignmentService = mock(BuildAssignmentService.class);
+        SystemEnvironment systemEnvironment = new SystemEnvironment();
+        systemEnvironment.set(SystemEnvironment.AGENT_WORK_LONG_POLL_MAX_WAITING_AGENTS, 1);
+        assignments = new WorkAssignments(idleAgentsTopic, assignedWorkTopic, buildAssignmentService, systemEnvironment);
         agentIdentifier = new AgentIdentifier("localhost", "127.0.0.1", "uuid");
         agent = new AgentRuntimeInfo(agentIdentifier, AgentRuntimeStatus.Idle, currentWorkingDirectory(), "cookie");
     }
@@ -51,6 +61,7 @@ public class WorkAssignmentsTest {
     @AfterEach
     public void tearDown() {
         verify(assignedWorkTopic).addListener(any());
+        new SystemEnvironment().reset(SystemEnvironment.AGENT_WORK_LONG_POLL_MAX_WAITING_AGENTS);
     }
 
     @Test
@@ -99,4 +110,48 @@ public class WorkAssignmentsTest {
         assertThat(assignments.getWork(agent)).isEqualTo(NO_WORK);
         verify(idleAgentsTopic, times(2)).post(new IdleAgentMessage(agent));
     }
+
+    @Test
+    public void shouldHandOutWorkToAWaitingAgentAsSoonAsItIsAssigned() throws Exception {
+        CompletableFuture<Work> work = CompletableFuture.supplyAsync(() -> assignments.awaitWork(agent, TimeUnit.SECONDS.toMillis(10)));
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+
+        assertThat(work.get(5, TimeUnit.SECONDS)).isEqualTo(REAL_WORK);
+    }
+
+    @Test
+    public void shouldReturnNoWorkWhenNothingIsAssignedBeforeTheWaitIsOver() {
+        assertThat(assignments.awaitWork(agent, 10)).isEqualTo(NO_WORK);
+        verify(idleAgentsTopic).post(new IdleAgentMessage(agent));
+    }
+
+    @Test
+    public void shouldOfferNewWorkToWaitingAgentsWhichWereAlreadyToldThereWasNone() throws Exception {
+        ArgumentCaptor<Runnable> newJobPlansListener = ArgumentCaptor.forClass(Runnable.class);
+        verify(buildAssignmentService).registerNewJobPlansListener(newJobPlansListener.capture());
+
+        CompletableFuture<Work> work = CompletableFuture.supplyAsync(() -> assignments.awaitWork(agent, TimeUnit.SECONDS.toMillis(10)));
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, NO_WORK));
+
+        newJobPlansListener.getValue().run();
+        verify(idleAgentsTopic, times(2)).post(new IdleAgentMessage(agent));
+
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+        assertThat(work.get(5, TimeUnit.SECONDS)).isEqualTo(REAL_WORK);
+    }
+
+    @Test
+    public void shouldNotHoldOnToRequestsOnceTooManyAgentsAreWaiting() throws Exception {
+        AgentRuntimeInfo anotherAgent = new AgentRuntimeInfo(new AgentIdentifier("remote", "127.0.0.2", "uuid-2"), AgentRuntimeStatus.Idle, currentWorkingDirectory(), "cookie");
+        CompletableFuture<Work> work = CompletableFuture.supplyAsync(() -> assignments.awaitWork(agent, TimeUnit.SECONDS.toMillis(10)));
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+
+        assertThat(assignments.awaitWork(anotherAgent, TimeUnit.SECONDS.toMillis(10))).isNull();
+
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+        assertThat(work.get(5, TimeUnit.SECONDS)).isEqualTo(REAL_WORK);
+    }
 }
@@ -20,8 +20,10 @@ import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
 import com.thoughtworks.go.domain.AccessToken;
 import com.thoughtworks.go.server.dao.AccessTokenDao;
 import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.exceptions.InvalidAccessTokenException;
 import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
 import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestingClock;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +36,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.sql.Timestamp;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.thoughtworks.go.helper.AccessTokenMother.randomAccessTokenForUser;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -46,6 +49,10 @@ class AccessTokenServiceTest {
     private AccessTokenDao accessTokenDao;
     @Mock
     private SecurityService securityService;
+    @Mock
+    private SystemEnvironment systemEnvironment;
+    private final AuthorizationExtensionCacheServiceTest.FakeTicker ticker = new AuthorizationExtensionCacheServiceTest.FakeTicker();
+    private VerifiedAccessTokenCache verifiedAccessTokenCache;
     private AccessTokenService accessTokenService;
     private HttpLocalizedOperationResult result;
     private String username;
@@ -54,7 +61,10 @@ class AccessTokenServiceTest {
 
     @BeforeEach
     void setUp() {
-        accessTokenService = new AccessTokenService(accessTokenDao, clock, securityService);
+        when(systemEnvironment.get(SystemEnvironment.VERIFIED_ACCESS_TOKEN_CACHE_TTL_IN_MILLIS)).thenReturn(60_000L);
+        when(systemEnvironment.get(SystemEnvironment.VERIFIED_ACCESS_TOKEN_CACHE_MAX_ENTRIES)).thenReturn(1000);
+        verifiedAccessTokenCache = new VerifiedAccessTokenCache(systemEnvironment, ticker);
+        accessTokenService = new AccessTokenService(accessTokenDao, clock, securityService, verifiedAccessTokenCache);
         result = new HttpLocalizedOperationResult();
 
         username = "Bob";
@@ -123,6 +133,86 @@ class AccessTokenServiceTest {
         verifyNoMoreInteractions(accessTokenDao);
     }
 
+    @Nested
+    class FindByAccessToken {
+        private AccessToken.AccessTokenWithDisplayValue accessToken;
+
+        @BeforeEach
+        void setUp() {
+            accessToken = randomAccessTokenForUser(username);
+            accessToken.setId(100L);
+        }
+
+        @Test
+        void shouldServeARepeatedlyPresentedTokenFromCache() {
+            when(accessTokenDao.findAccessTokenBySaltId(accessToken.getSaltId())).thenReturn(accessToken);
+
+            assertThat(accessTokenService.findByAccessToken(accessToken.getDisplayValue())).isSameAs(accessToken);
+            assertThat(accessTokenService.findByAccessToken(accessToken.getDisplayValue())).isSameAs(accessToken);
+
+            verify(accessTokenDao, times(1)).findAccessTokenBySaltId(accessToken.getSaltId());
+        }
+
+        @Test
+        void shouldNotServeACachedTokenForADifferentPresentedValueWithTheSameSalt() {
+            when(accessTokenDao.findAccessTokenBySaltId(accessToken.getSaltId())).thenReturn(accessToken);
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+
+            String forged = accessToken.getSaltId() + "x".repeat(32);
+            assertThatCode(() -> accessTokenService.findByAccessToken(forged))
+                .isInstanceOf(InvalidAccessTokenException.class);
+
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(accessToken.getSaltId());
+        }
+
+        @Test
+        void shouldVerifyAgainOnceTheCachedTokenExpires() {
+            when(accessTokenDao.findAccessTokenBySaltId(accessToken.getSaltId())).thenReturn(accessToken);
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+
+            ticker.advance(61, TimeUnit.SECONDS);
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(accessToken.getSaltId());
+        }
+
+        @Test
+        void shouldVerifyAgainOnceTheCachedTokenIsInvalidated() {
+            when(accessTokenDao.findAccessTokenBySaltId(accessToken.getSaltId())).thenReturn(accessToken);
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+
+            verifiedAccessTokenCache.invalidate(accessToken.getId());
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(accessToken.getSaltId());
+        }
+
+        @Test
+        void shouldNotCacheATokenThatWasInvalidatedWhileBeingLoaded() {
+            when(accessTokenDao.findAccessTokenBySaltId(accessToken.getSaltId())).then(invocation -> {
+                verifiedAccessTokenCache.invalidateAll();
+                return accessToken;
+            });
+
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(accessToken.getSaltId());
+        }
+
+        @Test
+        void shouldAlwaysVerifyWhenTheCacheIsDisabled() {
+            when(systemEnvironment.get(SystemEnvironment.VERIFIED_ACCESS_TOKEN_CACHE_TTL_IN_MILLIS)).thenReturn(0L);
+            accessTokenService = new AccessTokenService(accessTokenDao, clock, securityService, new VerifiedAccessTokenCache(systemEnvironment, ticker));
+            when(accessTokenDao.findAccessTokenBySaltId(accessToken.getSaltId())).thenReturn(accessToken);
+
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+            accessTokenService.findByAccessToken(accessToken.getDisplayValue());
+
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(accessToken.getSaltId());
+        }
+    }
+
     @Nested
     class OnTimer {
 
@@ -66,6 +66,7 @@ public class ArtifactsServiceTest {
     private File fakeRoot;
     private JobResolverService resolverService;
     private StageDao stageService;
+    private ContentAddressableArtifactStore contentStore;
 
     @BeforeEach
     void setUp() throws IOException {
@@ -73,6 +74,7 @@ public class ArtifactsServiceTest {
         zipUtil = mock(ZipUtil.class);
         resolverService = mock(JobResolverService.class);
         stageService = mock(StageDao.class);
+        contentStore = mock(ContentAddressableArtifactStore.class);
 
         fakeRoot = TempDirUtils.createTempDirectoryIn(tempDir, "ArtifactsServiceTest").toFile();
     }
@@ -92,7 +94,7 @@ public class ArtifactsServiceTest {
         final File destFile = new File(logsDir, buildInstanceId + File.separator + TEST_ARTIFACT_FILE);
 
         assumeArtifactsRoot(logsDir);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         artifactsService.saveFile(destFile.getParentFile(), stream, true, 1);
 
         verify(zipUtil).unzip(any(ZipInputStream.class), eq(destFile.getParentFile()));
@@ -106,7 +108,7 @@ public class ArtifactsServiceTest {
             String buildInstanceId = "1";
             final File destFile = new File(logsDir, buildInstanceId + File.separator + TEST_ARTIFACT_FILE);
             assumeArtifactsRoot(logsDir);
-            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil());
+            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, new ZipUtil(), contentStore);
             boolean saved = artifactsService.saveFile(destFile, stream, true, 1);
             assertThat(saved).isFalse();
         }
@@ -124,7 +126,7 @@ public class ArtifactsServiceTest {
         doThrow(ioException).when(zipUtil).unzip(any(ZipInputStream.class), any(File.class));
 
         try (LogFixture logFixture = logFixtureFor(ArtifactsService.class, Level.DEBUG)) {
-            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
             artifactsService.saveFile(destFile, stream, true, 1);
             assertThat(logFixture.getLog()).contains("Failed to save the file to:");
         }
@@ -141,7 +143,7 @@ public class ArtifactsServiceTest {
         doThrow(ioException).when(zipUtil).unzip(any(ZipInputStream.class), any(File.class));
 
         try (LogFixture logFixture = logFixtureFor(ArtifactsService.class, Level.DEBUG)) {
-            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+            ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
             artifactsService.saveFile(destFile, stream, true, PUBLISH_MAX_RETRIES);
             assertThat(logFixture.getLog()).contains("Failed to save the file to:");
         }
@@ -151,7 +153,7 @@ public class ArtifactsServiceTest {
     void shouldConvertArtifactPathToFileSystemLocation() throws Exception {
         File artifactsRoot = TempDirUtils.createRandomDirectoryIn(tempDir).toFile();
         assumeArtifactsRoot(artifactsRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         File location = artifactsService.getArtifactLocation("foo/bar/baz");
         assertThat(location).isEqualTo(new File(artifactsRoot + "/foo/bar/baz"));
     }
@@ -161,7 +163,7 @@ public class ArtifactsServiceTest {
         File artifactsRoot = TempDirUtils.createRandomDirectoryIn(tempDir).toFile();
         assumeArtifactsRoot(artifactsRoot);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         JobIdentifier identifier = JobIdentifierMother.jobIdentifier("p", 1, "s", "2", "j");
         when(resolverService.actualJobIdentifier(identifier)).thenReturn(identifier);
 
@@ -174,7 +176,7 @@ public class ArtifactsServiceTest {
         File artifactsRoot = TempDirUtils.createRandomDirectoryIn(tempDir).toFile();
         assumeArtifactsRoot(artifactsRoot);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         JobIdentifier identifier = JobIdentifierMother.jobIdentifier("p", 1, "s", "2", "j");
         when(resolverService.actualJobIdentifier(identifier)).thenReturn(identifier);
 
@@ -187,7 +189,7 @@ public class ArtifactsServiceTest {
         File artifactsRoot = TempDirUtils.createRandomDirectoryIn(tempDir).toFile();
         assumeArtifactsRoot(artifactsRoot);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         artifactsService.initialize();
         File artifact = artifactsService.findArtifact(
                 new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox", 0), "pkg.zip");
@@ -198,7 +200,7 @@ public class ArtifactsServiceTest {
     @DisabledOnOs(OS.WINDOWS)
     void shouldProvideArtifactRootForAJobOnLinux() throws Exception {
         assumeArtifactsRoot(fakeRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         artifactsService.initialize();
         JobIdentifier oldId = new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox", 0);
         when(resolverService.actualJobIdentifier(oldId)).thenReturn(new JobIdentifier("cruise", 2, "2.2", "functional", "3", "mac-safari"));
@@ -210,7 +212,7 @@ public class ArtifactsServiceTest {
     @EnabledOnOs(OS.WINDOWS)
     void shouldProvideArtifactRootForAJobOnWindows() throws Exception {
         assumeArtifactsRoot(fakeRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         artifactsService.initialize();
         JobIdentifier oldId = new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox", 0);
         when(resolverService.actualJobIdentifier(oldId)).thenReturn(new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox", 0));
@@ -221,7 +223,7 @@ public class ArtifactsServiceTest {
     @Test
     void shouldProvideArtifactUrlForAJob() {
         assumeArtifactsRoot(fakeRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         JobIdentifier oldId = new JobIdentifier("cruise", 1, "1.1", "dev", "2", "linux-firefox");
         when(resolverService.actualJobIdentifier(oldId)).thenReturn(new JobIdentifier("cruise", 2, "2.2", "functional", "3", "windows-ie"));
         String artifactUrl = artifactsService.findArtifactUrl(oldId);
@@ -233,7 +235,7 @@ public class ArtifactsServiceTest {
         File artifactsRoot = TempDirUtils.createRandomDirectoryIn(tempDir).toFile();
         assumeArtifactsRoot(artifactsRoot);
         willCleanUp(artifactsRoot);
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         artifactsService.initialize();
         File artifact = artifactsService.findArtifact(new JobIdentifier("cruise", -2, "1.1", "dev", "2", "linux-firefox", 0), "pkg.zip");
         assertThat(artifact).isEqualTo(new File(artifactsRoot, "pipelines/cruise/1.1/dev/2/linux-firefox/pkg.zip"));
@@ -261,7 +263,7 @@ public class ArtifactsServiceTest {
         Files.writeString(checksumFile.toPath(), "foo:25463254625346", UTF_8);
 
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         artifactsService.initialize();
         Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job", Instant.now());
         artifactsService.purgeArtifactsForStage(stage);
@@ -296,7 +298,7 @@ public class ArtifactsServiceTest {
         File metadataJson = new File(pluggableArtifactMetadataDir, "cd.go.artifact.docker.json");
         Files.writeString(metadataJson.toPath(), "{\"image\": \"alpine:foo\", \"digest\": \"sha\"}", UTF_8);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         artifactsService.initialize();
         Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job", Instant.now());
         artifactsService.purgeArtifactsForStage(stage);
@@ -317,7 +319,7 @@ public class ArtifactsServiceTest {
         assumeArtifactsRoot(artifactsRoot);
         willCleanUp(artifactsRoot);
 
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         artifactsService.initialize();
         Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job1", Instant.now());
         File job1Dir = createJobArtifactFolder(artifactsRoot + "/pipelines/pipeline/10/stage/20/job1");
@@ -340,6 +342,25 @@ public class ArtifactsServiceTest {
         assertThat(job1CacheDirFromADifferentStageRun).exists();
     }
 
+    @Test
+    void shouldReleaseContentStoreBlobsOfEachJobWhilePurgingArtifactsForAStage() throws IOException {
+        File artifactsRoot = TempDirUtils.createRandomDirectoryIn(tempDir).toFile();
+        assumeArtifactsRoot(artifactsRoot);
+        willCleanUp(artifactsRoot);
+        when(contentStore.isEnabled()).thenReturn(true);
+
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
+        artifactsService.initialize();
+        Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job1", Instant.now());
+        File job1Dir = createJobArtifactFolder(artifactsRoot + "/pipelines/pipeline/10/stage/20/job1");
+        File job2Dir = createJobArtifactFolder(artifactsRoot + "/pipelines/pipeline/10/stage/20/job2");
+
+        artifactsService.purgeArtifactsForStage(stage);
+
+        verify(contentStore).release(job1Dir);
+        verify(contentStore).release(job2Dir);
+    }
+
     private File createJobArtifactFolder(final String path) throws IOException {
         File jobDir = new File(path);
         jobDir.mkdirs();
@@ -350,7 +371,7 @@ public class ArtifactsServiceTest {
 
     @Test
     void shouldLogAndIgnoreExceptionsWhenDeletingStageArtifacts() throws IllegalArtifactLocationException {
-        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, contentStore);
         Stage stage = StageMother.createPassedStage("pipeline", 10, "stage", 20, "job", Instant.now());
 
         ArtifactDirectoryChooser chooser = mock(ArtifactDirectoryChooser.class);
@@ -43,7 +43,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentMatchers;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -121,7 +120,6 @@ class BuildAssignmentServiceTest {
         profiles.put(elasticProfile2.getId(), elasticProfile2);
         schedulingContext = new DefaultSchedulingContext("me", new Agents(elasticAgent), profiles);
         lenient().when(jobInstanceService.orderedScheduledBuilds()).thenReturn(jobPlans);
-        lenient().when(environmentConfigService.filterJobsByAgent(ArgumentMatchers.eq(jobPlans), any(String.class))).thenReturn(jobPlans);
         lenient().when(environmentConfigService.envForPipeline(any(String.class))).thenReturn("");
         lenient().when(maintenanceModeService.isMaintenanceMode()).thenReturn(false);
     }
@@ -291,7 +289,6 @@ class BuildAssignmentServiceTest {
             when(agentInstance.getAgent()).thenReturn(agent);
             when(agentInstance.firstMatching(anyList())).thenReturn(jobPlan1);
             when(pipeline.getBuildCause()).thenReturn(BuildCause.createNeverRun());
-            when(environmentConfigService.filterJobsByAgent(any(), any())).thenReturn(List.of(jobPlan1));
             when(scheduledPipelineLoader.pipelineWithPasswordAwareBuildCauseByBuildId(anyLong())).thenReturn(pipeline);
             lenient().when(scheduleService.updateAssignedInfo(anyString(), any())).thenReturn(false);
             when(goConfigService.artifactStores()).thenReturn(new ArtifactStores());
@@ -331,7 +328,6 @@ class BuildAssignmentServiceTest {
             when(agentInstance.getAgent()).thenReturn(mock(Agent.class));
             when(agentInstance.firstMatching(anyList())).thenReturn(jobPlan1);
             when(pipeline.getBuildCause()).thenReturn(BuildCause.createWithModifications(materialRevisions, "bob"));
-            when(environmentConfigService.filterJobsByAgent(any(), any())).thenReturn(List.of(jobPlan1));
             when(scheduledPipelineLoader.pipelineWithPasswordAwareBuildCauseByBuildId(anyLong())).thenReturn(pipeline);
             lenient().when(scheduleService.updateAssignedInfo(anyString(), any())).thenReturn(false);
             when(goConfigService.artifactStores()).thenReturn(new ArtifactStores());
@@ -396,7 +392,6 @@ class BuildAssignmentServiceTest {
             when(agentInstance.isRegistered()).thenReturn(true);
             when(agentInstance.getUuid()).thenReturn("agent_uuid");
             when(agentInstance.firstMatching(anyList())).thenReturn(jobPlan1);
-            when(environmentConfigService.filterJobsByAgent(any(), any())).thenReturn(List.of(jobPlan1));
             when(scheduledPipelineLoader.pipelineWithPasswordAwareBuildCauseByBuildId(anyLong())).thenReturn(pipeline);
             when(scheduleService.updateAssignedInfo(anyString(), any())).thenReturn(false);
             when(environmentConfigService.environmentForPipeline(anyString())).thenReturn(new BasicEnvironmentConfig());
@@ -439,7 +434,6 @@ class BuildAssignmentServiceTest {
             when(agentInstance.getAgent()).thenReturn(mock(Agent.class));
             when(agentInstance.firstMatching(anyList())).thenReturn(jobPlan1);
             when(pipeline.getBuildCause()).thenReturn(BuildCause.createWithModifications(materialRevisions, "bob"));
-            when(environmentConfigService.filterJobsByAgent(any(), any())).thenReturn(List.of(jobPlan1));
             when(scheduledPipelineLoader.pipelineWithPasswordAwareBuildCauseByBuildId(anyLong())).thenReturn(pipeline);
             lenient().when(scheduleService.updateAssignedInfo(anyString(), any())).thenReturn(false);
             when(goConfigService.artifactStores()).thenReturn(new ArtifactStores());
@@ -0,0 +1,142 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.ZipUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.Deflater;
+import java.util.zip.ZipInputStream;
+
+import static com.thoughtworks.go.server.service.ChunkedArtifactUploadService.Status.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ChunkedArtifactUploadServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private ArtifactsService artifactsService;
+    private SystemEnvironment systemEnvironment;
+    private File destination;
+    private byte[] zip;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        artifactsService = mock(ArtifactsService.class);
+        systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.CHUNKED_ARTIFACT_UPLOAD_IDLE_TIMEOUT_IN_MILLIS)).thenReturn(10_000L);
+        when(artifactsService.getArtifactLocation(anyString())).thenAnswer(invocation -> tempDir.resolve("artifacts").resolve(invocation.getArgument(0, String.class)).toFile());
+        when(artifactsService.saveFile(any(), any(), eq(true), anyInt())).thenAnswer(invocation -> {
+            new ZipUtil().unzip(new ZipInputStream(invocation.getArgument(1, InputStream.class)), invocation.getArgument(0, File.class));
+            return true;
+        });
+
+        destination = tempDir.resolve("destination").toFile();
+        File source = Files.createDirectories(tempDir.resolve("source")).toFile();
+        Files.writeString(source.toPath().resolve("file.txt"), "some content ".repeat(1000), UTF_8);
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        new ZipUtil().zip(source, zipped, Deflater.NO_COMPRESSION);
+        zip = zipped.toByteArray();
+    }
+
+    @Test
+    void shouldUnzipAnArtifactUploadedInChunks() throws Exception {
+        ChunkedArtifactUploadService service = new ChunkedArtifactUploadService(artifactsService, systemEnvironment);
+        int half = zip.length / 2;
+
+        assertThat(service.appendChunk("upload-1", destination, 0, md5(0, half), chunk(0, half))).isEqualTo(new ChunkedArtifactUploadService.Result(ACCEPTED, half));
+        assertThat(service.appendChunk("upload-1", destination, half, md5(half, zip.length), chunk(half, zip.length))).isEqualTo(new ChunkedArtifactUploadService.Result(ACCEPTED, zip.length));
+        assertThat(service.complete("upload-1", destination, zip.length).status()).isEqualTo(ACCEPTED);
+
+        assertThat(Files.readString(destination.toPath().resolve("source/file.txt"), UTF_8)).isEqualTo("some content ".repeat(1000));
+        assertThat(tempDir.resolve("artifacts/chunked-uploads").toFile().list()).isEmpty();
+    }
+
+    @Test
+    void shouldNotAcknowledgeAChunkThatDoesNotMatchItsChecksum() throws Exception {
+        ChunkedArtifactUploadService service = new ChunkedArtifactUploadService(artifactsService, systemEnvironment);
+
+        assertThat(service.appendChunk("upload-1", destination, 0, md5(0, 10), chunk(1, 11))).isEqualTo(new ChunkedArtifactUploadService.Result(CHECKSUM_MISMATCH, 0));
+        assertThat(service.appendChunk("upload-1", destination, 0, md5(0, 10), chunk(0, 10))).isEqualTo(new ChunkedArtifactUploadService.Result(ACCEPTED, 10));
+    }
+
+    @Test
+    void shouldTellWhereToResumeWhenAChunkIsSentAgain() throws Exception {
+        ChunkedArtifactUploadService service = new ChunkedArtifactUploadService(artifactsService, systemEnvironment);
+
+        service.appendChunk("upload-1", destination, 0, md5(0, 10), chunk(0, 10));
+
+        assertThat(service.appendChunk("upload-1", destination, 0, md5(0, 10), chunk(0, 10))).isEqualTo(new ChunkedArtifactUploadService.Result(OFFSET_MISMATCH, 10));
+        assertThat(service.complete("upload-1", destination, zip.length)).isEqualTo(new ChunkedArtifactUploadService.Result(OFFSET_MISMATCH, 10));
+    }
+
+    @Test
+    void shouldResumeFromTheLastAcknowledgedChunkAfterARestart() throws Exception {
+        int half = zip.length / 2;
+        new ChunkedArtifactUploadService(artifactsService, systemEnvironment).appendChunk("upload-1", destination, 0, md5(0, half), chunk(0, half));
+
+        ChunkedArtifactUploadService restarted = new ChunkedArtifactUploadService(artifactsService, systemEnvironment);
+
+        assertThat(restarted.appendChunk("upload-1", destination, 0, md5(0, half), chunk(0, half))).isEqualTo(new ChunkedArtifactUploadService.Result(OFFSET_MISMATCH, half));
+        assertThat(restarted.appendChunk("upload-1", destination, half, md5(half, zip.length), chunk(half, zip.length)).status()).isEqualTo(ACCEPTED);
+        assertThat(restarted.complete("upload-1", destination, zip.length).status()).isEqualTo(ACCEPTED);
+        assertThat(Files.readString(destination.toPath().resolve("source/file.txt"), UTF_8)).isEqualTo("some content ".repeat(1000));
+    }
+
+    @Test
+    void shouldNotMixUpUploadsWithTheSameIdForDifferentDestinations() throws Exception {
+        ChunkedArtifactUploadService service = new ChunkedArtifactUploadService(artifactsService, systemEnvironment);
+        File otherDestination = tempDir.resolve("other-job").toFile();
+
+        service.appendChunk("upload-1", destination, 0, md5(0, 10), chunk(0, 10));
+
+        assertThat(service.appendChunk("upload-1", otherDestination, 10, md5(10, 20), chunk(10, 20))).isEqualTo(new ChunkedArtifactUploadService.Result(OFFSET_MISMATCH, 0));
+        assertThat(service.appendChunk("upload-1", otherDestination, 0, md5(0, 10), chunk(0, 10))).isEqualTo(new ChunkedArtifactUploadService.Result(ACCEPTED, 10));
+        assertThat(service.appendChunk("upload-1", destination, 10, md5(10, 20), chunk(10, 20))).isEqualTo(new ChunkedArtifactUploadService.Result(ACCEPTED, 20));
+    }
+
+    @Test
+    void shouldOnlyAcceptUploadIdsThatAreSafeToUseAsFileNames() {
+        ChunkedArtifactUploadService service = new ChunkedArtifactUploadService(artifactsService, systemEnvironment);
+
+        assertThat(service.isValidUploadId("0f8fad5b-d9cb-469f-a165-70867728950e")).isTrue();
+        assertThat(service.isValidUploadId("../../etc")).isFalse();
+        assertThat(service.isValidUploadId("")).isFalse();
+        assertThat(service.isValidUploadId(null)).isFalse();
+    }
+
+    private InputStream chunk(int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(zip, from, to));
+    }
+
+    private String md5(int from, int to) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(Arrays.copyOfRange(zip, from, to)));
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.domain.ConsoleLogLineIndex;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.helper.JobIdentifierMother;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
@@ -22,6 +23,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -116,6 +118,27 @@ public class ConsoleServiceTest {
         assertThat(finalConsoleLog.exists()).isTrue();
     }
 
+    @Test
+    public void shouldIndexConsoleLogAsItIsAppendedAndDeleteTheIndexOnceTheLogMovesIntoTheArtifacts(@TempDir Path testFolder) throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+
+        File temporaryConsoleLog = testFolder.resolve("temporary_console.log").toFile();
+        File finalConsoleLog = testFolder.resolve("final_console.log").toFile();
+
+        when(chooser.temporaryConsoleFile(jobIdentifier)).thenReturn(temporaryConsoleLog);
+        when(chooser.findArtifact(jobIdentifier, CONSOLE_LOG_FILE_RELATIVE_PATH)).thenReturn(finalConsoleLog);
+
+        service.appendToConsoleLogIoSafe(jobIdentifier, temporaryConsoleLog, new ByteArrayInputStream("some output\n".repeat(10_000).getBytes()));
+        assertThat(service.lineIndexOf(jobIdentifier)).isEqualTo(ConsoleLogLineIndex.indexFor(temporaryConsoleLog.toPath()).toFile());
+        assertThat(service.lineIndexOf(jobIdentifier)).exists();
+
+        service.moveConsoleArtifacts(jobIdentifier);
+
+        assertThat(temporaryConsoleLog).doesNotExist();
+        assertThat(service.lineIndexOf(jobIdentifier)).doesNotExist();
+        assertThat(ConsoleLogLineIndex.indexFor(finalConsoleLog.toPath())).doesNotExist();
+    }
+
     @Test
     public void shouldCreateTemporaryConsoleFileAndMoveIfItDoesNotExist(@TempDir Path testFolder) throws Exception {
         JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
@@ -130,6 +153,7 @@ public class ConsoleServiceTest {
 
         assertThat(temporaryConsoleLog.exists()).isFalse();
         assertThat(finalConsoleLog.exists()).isTrue();
+        assertThat(service.lineIndexOf(jobIdentifier)).doesNotExist();
     }
 
     @Test
@@ -0,0 +1,153 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisabledOnOs(OS.WINDOWS)
+public class ContentAddressableArtifactStoreTest {
+    private static final String CONTENT = "the same dependency bundle";
+    private static final String HASH = DigestUtils.sha256Hex(CONTENT);
+
+    @TempDir
+    Path artifactsDir;
+
+    private ContentAddressableArtifactStore store;
+    private File job1;
+    private File job2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsDir.toFile());
+        when(systemEnvironment.get(SystemEnvironment.ARTIFACTS_CONTENT_ADDRESSABLE)).thenReturn(true);
+        store = new ContentAddressableArtifactStore(artifactsDirHolder, systemEnvironment);
+
+        job1 = Files.createDirectories(artifactsDir.resolve("pipelines/p/1/s/1/job")).toFile();
+        job2 = Files.createDirectories(artifactsDir.resolve("pipelines/p/2/s/1/job")).toFile();
+    }
+
+    @Test
+    void shouldKeepOneCopyOfFilesWithTheSameContent() throws Exception {
+        assertThat(store.isEnabled()).isTrue();
+        Path file1 = write(job1, "dist/lib.jar", CONTENT);
+        Path file2 = write(job2, "dist/lib.jar", CONTENT);
+
+        store.deduplicate(job1, job1);
+        store.deduplicate(job2, job2);
+
+        assertThat(Files.isSameFile(file1, file2)).isTrue();
+        assertThat(Files.readString(file2, UTF_8)).isEqualTo(CONTENT);
+        assertThat(linkCount(file1)).isEqualTo(3);
+        assertThat(store.knownBlobs(List.of(HASH, DigestUtils.sha256Hex("other")))).containsExactly(HASH);
+    }
+
+    @Test
+    void shouldLeaveTheFoldersManagedByTheServerAlone() throws Exception {
+        Path consoleLog = write(job1, "cruise-output/console.log", CONTENT);
+
+        store.deduplicate(job1, job1);
+
+        assertThat(linkCount(consoleLog)).isEqualTo(1);
+        assertThat(store.knownBlobs(List.of(HASH))).isEmpty();
+    }
+
+    @Test
+    void shouldLinkBlobsThatTheAgentDidNotUpload() throws Exception {
+        write(job1, "dist/lib.jar", CONTENT);
+        store.deduplicate(job1, job1);
+        Properties blobs = new Properties();
+        blobs.setProperty("dist/lib.jar", HASH);
+
+        assertThat(store.linkBlobs(job2, job2, blobs)).isTrue();
+
+        assertThat(Files.readString(job2.toPath().resolve("dist/lib.jar"), UTF_8)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void shouldRefuseToLinkBlobsItDoesNotHaveOrOutsideTheArtifact() throws Exception {
+        write(job1, "dist/lib.jar", CONTENT);
+        store.deduplicate(job1, job1);
+
+        Properties missing = new Properties();
+        missing.setProperty("dist/lib.jar", DigestUtils.sha256Hex("other"));
+        Properties outside = new Properties();
+        outside.setProperty("../../../../../../outside.jar", HASH);
+
+        assertThat(store.linkBlobs(job2, job2, missing)).isFalse();
+        assertThat(store.linkBlobs(job2, job2, outside)).isFalse();
+        assertThat(artifactsDir.resolve("outside.jar")).doesNotExist();
+    }
+
+    @Test
+    void shouldDeleteABlobOnlyOnceNoJobReferencesIt() throws Exception {
+        write(job1, "dist/lib.jar", CONTENT);
+        write(job2, "dist/lib.jar", CONTENT);
+        store.deduplicate(job1, job1);
+        store.deduplicate(job2, job2);
+
+        FileUtils.deleteDirectory(new File(job1, "dist"));
+        store.release(job1);
+        assertThat(store.knownBlobs(List.of(HASH))).containsExactly(HASH);
+
+        FileUtils.deleteDirectory(new File(job2, "dist"));
+        store.release(job2);
+        assertThat(store.knownBlobs(List.of(HASH))).isEmpty();
+    }
+
+    @Test
+    void shouldGiveALinkedFileItsOwnCopyBeforeItIsWrittenTo() throws Exception {
+        Path file1 = write(job1, "dist/lib.jar", CONTENT);
+        Path file2 = write(job2, "dist/lib.jar", CONTENT);
+        store.deduplicate(job1, job1);
+        store.deduplicate(job2, job2);
+
+        store.detach(job2);
+        Files.writeString(file2, "changed", UTF_8);
+
+        assertThat(Files.readString(file1, UTF_8)).isEqualTo(CONTENT);
+        assertThat(linkCount(file2)).isEqualTo(1);
+    }
+
+    private static Path write(File jobRoot, String path, String content) throws Exception {
+        Path file = jobRoot.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content, UTF_8);
+    }
+
+    private static int linkCount(Path file) throws Exception {
+        return (Integer) Files.getAttribute(file, "unix:nlink");
+    }
+}
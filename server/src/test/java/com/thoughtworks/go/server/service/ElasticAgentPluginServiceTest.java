@@ -30,6 +30,8 @@ import com.thoughtworks.go.domain.packagerepository.ConfigurationPropertyMother;
 import com.thoughtworks.go.helper.AgentInstanceMother;
 import com.thoughtworks.go.helper.GoConfigMother;
 import com.thoughtworks.go.helper.JobInstanceMother;
+import com.thoughtworks.go.listener.ConfigChangedListener;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
 import com.thoughtworks.go.plugin.access.elastic.ElasticAgentMetadataStore;
 import com.thoughtworks.go.plugin.access.elastic.ElasticAgentPluginRegistry;
 import com.thoughtworks.go.plugin.api.info.PluginDescriptor;
@@ -49,6 +51,7 @@ import com.thoughtworks.go.serverhealth.HealthStateLevel;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TimeProvider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -102,6 +105,8 @@ class ElasticAgentPluginServiceTest {
     private SecretParamResolver secretParamResolver;
     @Mock
     private JobStatusTopic jobStatusTopic;
+    @Mock(strictness = Mock.Strictness.LENIENT)
+    private SystemEnvironment systemEnvironment;
 
     private ElasticAgentPluginService service;
     private ElasticAgentMetadataStore elasticAgentMetadataStore;
@@ -123,9 +128,11 @@ class ElasticAgentPluginServiceTest {
         elasticAgentMetadataStore = ElasticAgentMetadataStore.instance();
 
         jobInstanceSqlMapDao = mock(JobInstanceSqlMapDao.class);
+        when(systemEnvironment.get(SystemEnvironment.ELASTIC_AGENT_ASSIGNMENT_DECISION_CACHE_TTL_IN_MILLIS)).thenReturn(0L);
         service = new ElasticAgentPluginService(pluginManager, registry, agentService, environmentConfigService,
                 createAgentQueue, serverPingQueue, goConfigService, new TimeProvider(), serverHealthService, elasticAgentMetadataStore,
-                clusterProfilesService, jobInstanceSqlMapDao, scheduleService, consoleService, ephemeralAutoRegisterKeyService, secretParamResolver, jobStatusTopic);
+                clusterProfilesService, jobInstanceSqlMapDao, scheduleService, consoleService, ephemeralAutoRegisterKeyService, secretParamResolver, jobStatusTopic,
+                systemEnvironment);
         String autoRegisterKey = "key";
         when(goConfigService.serverConfig()).thenReturn(GoConfigMother.configWithAutoRegisterKey(autoRegisterKey).server());
     }
@@ -307,6 +314,77 @@ class ElasticAgentPluginServiceTest {
         assertThat(service.shouldAssignWork(agentMetadata, null, elasticProfile, new ClusterProfile("clusterProfileId", elasticPluginId), null)).isFalse();
     }
 
+    @Test
+    void shouldAskThePluginForEveryJobWhenTheDecisionCacheIsDisabled() {
+        String uuid = randomUUID().toString();
+        ElasticAgentMetadata agentMetadata = new ElasticAgentMetadata(uuid, uuid, "plugin-1", AgentRuntimeStatus.Idle, AgentConfigStatus.Enabled);
+        ElasticProfile elasticProfile = new ElasticProfile("1", "clusterProfileId");
+        ClusterProfile clusterProfile = new ClusterProfile("clusterProfileId", "plugin-1");
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), any())).thenReturn(false);
+
+        service.shouldAssignWork(agentMetadata, "env", elasticProfile, clusterProfile, null);
+        service.shouldAssignWork(agentMetadata, "env", elasticProfile, clusterProfile, null);
+
+        verify(registry, times(2)).shouldAssignWork(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldRememberRefusedAssignmentsOfTheSameJobToTheSameAgentProfilesAndEnvironment() {
+        when(systemEnvironment.get(SystemEnvironment.ELASTIC_AGENT_ASSIGNMENT_DECISION_CACHE_TTL_IN_MILLIS)).thenReturn(60_000L);
+        String uuid = randomUUID().toString();
+        ElasticAgentMetadata agentMetadata = new ElasticAgentMetadata(uuid, uuid, "plugin-1", AgentRuntimeStatus.Idle, AgentConfigStatus.Enabled);
+        ElasticProfile elasticProfile = new ElasticProfile("1", "clusterProfileId");
+        ClusterProfile clusterProfile = new ClusterProfile("clusterProfileId", "plugin-1");
+        JobIdentifier job = new JobIdentifier("p", 1, "1", "s", "1", "job1");
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), any())).thenReturn(false);
+
+        assertThat(service.shouldAssignWork(agentMetadata, "env", elasticProfile, clusterProfile, job)).isFalse();
+        assertThat(service.shouldAssignWork(agentMetadata, "env", elasticProfile, clusterProfile, job)).isFalse();
+        verify(registry, times(1)).shouldAssignWork(any(), any(), eq("env"), any(), any(), any());
+
+        assertThat(service.shouldAssignWork(agentMetadata, "other-env", elasticProfile, clusterProfile, job)).isFalse();
+        verify(registry, times(1)).shouldAssignWork(any(), any(), eq("other-env"), any(), any(), any());
+    }
+
+    @Test
+    void shouldAskThePluginAboutEveryQueuedJobEvenIfItRefusedAnotherOneWithTheSameProfiles() {
+        when(systemEnvironment.get(SystemEnvironment.ELASTIC_AGENT_ASSIGNMENT_DECISION_CACHE_TTL_IN_MILLIS)).thenReturn(60_000L);
+        String uuid = randomUUID().toString();
+        ElasticAgentMetadata agentMetadata = new ElasticAgentMetadata(uuid, uuid, "plugin-1", AgentRuntimeStatus.Idle, AgentConfigStatus.Enabled);
+        ElasticProfile elasticProfile = new ElasticProfile("1", "clusterProfileId");
+        ClusterProfile clusterProfile = new ClusterProfile("clusterProfileId", "plugin-1");
+        JobIdentifier refused = new JobIdentifier("p", 1, "1", "s", "1", "job1");
+        JobIdentifier accepted = new JobIdentifier("p", 1, "1", "s", "1", "job2");
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), eq(refused))).thenReturn(false);
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), eq(accepted))).thenReturn(true);
+
+        assertThat(service.shouldAssignWork(agentMetadata, "env", elasticProfile, clusterProfile, refused)).isFalse();
+        assertThat(service.shouldAssignWork(agentMetadata, "env", elasticProfile, clusterProfile, accepted)).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldAskThePluginAgainOnceTheElasticProfileChanges() {
+        when(systemEnvironment.get(SystemEnvironment.ELASTIC_AGENT_ASSIGNMENT_DECISION_CACHE_TTL_IN_MILLIS)).thenReturn(60_000L);
+        String uuid = randomUUID().toString();
+        ElasticAgentMetadata agentMetadata = new ElasticAgentMetadata(uuid, uuid, "plugin-1", AgentRuntimeStatus.Idle, AgentConfigStatus.Enabled);
+        ElasticProfile elasticProfile = new ElasticProfile("1", "clusterProfileId");
+        ClusterProfile clusterProfile = new ClusterProfile("clusterProfileId", "plugin-1");
+        when(registry.shouldAssignWork(any(), any(), any(), any(), any(), any())).thenReturn(false);
+
+        service.shouldAssignWork(agentMetadata, "env", elasticProfile, clusterProfile, null);
+
+        ArgumentCaptor<ConfigChangedListener> listeners = ArgumentCaptor.forClass(ConfigChangedListener.class);
+        verify(goConfigService, atLeastOnce()).register(listeners.capture());
+        listeners.getAllValues().stream()
+                .filter(listener -> listener instanceof EntityConfigChangedListener<?> entityListener && entityListener.shouldCareAbout(elasticProfile))
+                .forEach(listener -> ((EntityConfigChangedListener<ElasticProfile>) listener).onEntityConfigChange(elasticProfile));
+
+        service.shouldAssignWork(agentMetadata, "env", elasticProfile, clusterProfile, null);
+
+        verify(registry, times(2)).shouldAssignWork(any(), any(), any(), any(), any(), any());
+    }
+
     @Test
     void shouldNotAssignJobToAnAgentBroughtUpByADifferentElasticPlugin() {
         String uuid = randomUUID().toString();
@@ -158,46 +158,6 @@ class EnvironmentConfigServiceTest {
         assertThat(result.isSuccessful()).isTrue();
     }
 
-    @Test
-    void shouldFilterWhenAgentIsNotInAnEnvironment() {
-        environmentConfigService.syncEnvironments(environments("uat", "prod"));
-
-        List<JobPlan> filtered = environmentConfigService.filterJobsByAgent(jobs("no-env", "uat", "prod"), "no-env-uuid");
-
-        assertThat(filtered.size()).isEqualTo(1);
-        assertThat(filtered.getFirst().getPipelineName()).isEqualTo("no-env-pipeline");
-    }
-
-    @Test
-    void shouldFilterWhenAgentIsInTheSameEnvironment() {
-        environmentConfigService.syncEnvironments(environments("uat", "prod"));
-
-        List<JobPlan> filtered = environmentConfigService.filterJobsByAgent(jobs("no-env", "uat", "prod"), "uat-agent");
-
-        assertThat(filtered.size()).isEqualTo(1);
-        assertThat(filtered.getFirst().getPipelineName()).isEqualTo("uat-pipeline");
-    }
-
-    @Test
-    void shouldFilterWhenAgentIsInMultipleEnvironments() {
-        environmentConfigService.syncEnvironments(environments("uat", "prod"));
-
-        List<JobPlan> filtered = environmentConfigService.filterJobsByAgent(jobs("no-env", "uat", "prod"), OMNIPRESENT_AGENT);
-
-        assertThat(filtered.size()).isEqualTo(2);
-        assertThat(filtered.getFirst().getPipelineName()).isEqualTo("uat-pipeline");
-        assertThat(filtered.getLast().getPipelineName()).isEqualTo("prod-pipeline");
-    }
-
-    @Test
-    void shouldFilterWhenAgentIsInAnotherEnvironment() {
-        environmentConfigService.syncEnvironments(environments("uat", "prod"));
-
-        List<JobPlan> filtered = environmentConfigService.filterJobsByAgent(jobs("no-env", "prod"), "uat-agent");
-
-        assertThat(filtered.size()).isEqualTo(0);
-    }
-
     @Test
     void shouldFindAgentsForPipelineUnderEnvironment() {
         environmentConfigService.syncEnvironments(environments("uat", "prod"));
@@ -854,19 +814,6 @@ class EnvironmentConfigServiceTest {
         assertThat(environmentConfigService.getEnvironmentNames()).contains("uat", "prod");
     }
 
-    private List<JobPlan> jobs(String... envNames) {
-        List<JobPlan> plans = new ArrayList<>();
-        for (String envName : envNames) {
-            plans.add(jobForPipeline(envName + "-pipeline"));
-        }
-        return plans;
-    }
-
-    private DefaultJobPlan jobForPipeline(String pipelineName) {
-        JobIdentifier jobIdentifier = new JobIdentifier(pipelineName, 1, "1", "defaultStage", "1", "job1", 100L);
-        return new DefaultJobPlan(new Resources(), new ArrayList<>(), 1L, jobIdentifier, null, new EnvironmentVariables(), new EnvironmentVariables(), null, null);
-    }
-
     private static BasicEnvironmentConfig env(String name, List<String> selectedPipelines, List<Map<String, String>> environmentVariables, List<String> selectedAgents) {
         BasicEnvironmentConfig config = new BasicEnvironmentConfig(cis(name));
 
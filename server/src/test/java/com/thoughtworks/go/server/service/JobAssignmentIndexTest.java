@@ -0,0 +1,124 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.Agent;
+import com.thoughtworks.go.config.EnvironmentPipelinesConfig;
+import com.thoughtworks.go.config.elastic.ClusterProfile;
+import com.thoughtworks.go.config.elastic.ElasticProfile;
+import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.helper.AgentMother;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobAssignmentIndexTest {
+    private JobAssignmentIndex index;
+    private EnvironmentPipelineMatchers matchers;
+
+    @BeforeEach
+    void setUp() {
+        index = new JobAssignmentIndex();
+        matchers = new EnvironmentPipelineMatchers(List.of(
+                new EnvironmentPipelineMatcher(cis("uat"), List.of("uat-agent"), new EnvironmentPipelinesConfig(cis("uat-pipeline")))
+        ));
+    }
+
+    @Test
+    void shouldOnlyOfferPlansFromTheEnvironmentsOfTheAgent() {
+        JobPlan noEnv = job("no-env-pipeline", 1, "");
+        JobPlan uat = job("uat-pipeline", 2, "");
+        index.rebuild(List.of(noEnv, uat), matchers);
+
+        assertThat(index.candidatesFor(agent("uat-agent"))).containsExactly(uat);
+        assertThat(index.candidatesFor(agent("no-env-agent"))).containsExactly(noEnv);
+    }
+
+    @Test
+    void shouldOfferTheOldestPlanOfEachResourceSetTheAgentSatisfies() {
+        JobPlan firefox = job("p1", 1, "firefox");
+        JobPlan anything = job("p2", 2, "");
+        JobPlan anotherFirefox = job("p3", 3, "FireFox");
+        JobPlan windows = job("p4", 4, "windows");
+        index.rebuild(List.of(firefox, anything, anotherFirefox, windows), matchers);
+
+        assertThat(index.candidatesFor(agent("agent", "firefox"))).containsExactly(firefox, anything);
+
+        index.remove(firefox);
+
+        assertThat(index.candidatesFor(agent("agent", "firefox"))).containsExactly(anything, anotherFirefox);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldOfferPlansAssignedToASpecificAgentOnlyToThatAgent() {
+        JobPlan assigned = new DefaultJobPlan(new Resources(), new ArrayList<>(), 1, identifier("p1"), "agent-1", new EnvironmentVariables(), new EnvironmentVariables(), null, null);
+        index.rebuild(List.of(assigned), matchers);
+
+        assertThat(index.candidatesFor(agent("agent-1"))).containsExactly(assigned);
+        assertThat(index.candidatesFor(agent("agent-2"))).isEmpty();
+    }
+
+    @Test
+    void shouldOfferAllElasticPlansInQueueOrderOnlyToElasticAgents() {
+        JobPlan elastic1 = elasticJob("p1", 1);
+        JobPlan regular = job("p2", 2, "");
+        JobPlan elastic2 = elasticJob("p3", 3);
+        index.rebuild(List.of(elastic1, regular, elastic2), matchers);
+
+        AgentInstance elasticAgent = AgentInstance.createFromAgent(AgentMother.elasticAgent(), new SystemEnvironment(), null);
+        assertThat(index.candidatesFor(elasticAgent)).containsExactly(elastic1, elastic2);
+        assertThat(index.candidatesFor(agent("agent"))).containsExactly(regular);
+    }
+
+    @Test
+    void shouldBeStaleWhenEitherTheQueueOrTheEnvironmentsChange() {
+        List<JobPlan> jobPlans = new ArrayList<>(List.of(job("p1", 1, "")));
+        index.rebuild(jobPlans, matchers);
+
+        assertThat(index.isStale(jobPlans, matchers)).isFalse();
+        assertThat(index.isStale(new ArrayList<>(jobPlans), matchers)).isTrue();
+        assertThat(index.isStale(jobPlans, new EnvironmentPipelineMatchers())).isTrue();
+
+        jobPlans.add(job("p2", 2, ""));
+        assertThat(index.isStale(jobPlans, matchers)).isTrue();
+    }
+
+    private static AgentInstance agent(String uuid, String... resources) {
+        Agent agent = new Agent(uuid, uuid, "127.0.0.1", "cookie");
+        agent.setResourcesFrom(List.of(resources));
+        return AgentInstance.createFromAgent(agent, new SystemEnvironment(), null);
+    }
+
+    private static JobPlan job(String pipelineName, long jobId, String resources) {
+        Resources required = resources.isEmpty() ? new Resources() : new Resources(resources);
+        return new DefaultJobPlan(required, new ArrayList<>(), jobId, identifier(pipelineName), null, new EnvironmentVariables(), new EnvironmentVariables(), null, null);
+    }
+
+    private static JobPlan elasticJob(String pipelineName, long jobId) {
+        return new DefaultJobPlan(new Resources(), new ArrayList<>(), jobId, identifier(pipelineName), null, new EnvironmentVariables(), new EnvironmentVariables(), new ElasticProfile("docker", "cluster"), new ClusterProfile("cluster", "plugin-id"));
+    }
+
+    private static JobIdentifier identifier(String pipelineName) {
+        return new JobIdentifier(pipelineName, 1, "1", "stage", "1", "job", 100L);
+    }
+}
@@ -17,17 +17,26 @@ package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.config.BasicCruiseConfig;
 import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.MaterialConfigs;
 import com.thoughtworks.go.config.remote.ConfigRepoConfig;
 import com.thoughtworks.go.config.remote.ConfigReposConfig;
 import com.thoughtworks.go.config.remote.PartialConfig;
 import com.thoughtworks.go.config.remote.RepoConfigOrigin;
+import com.thoughtworks.go.domain.Stage;
+import com.thoughtworks.go.domain.StageIdentifier;
+import com.thoughtworks.go.domain.materials.Material;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.helper.MaterialConfigsMother;
 import com.thoughtworks.go.helper.PartialConfigMother;
 import com.thoughtworks.go.helper.ScheduleCheckMessageMatcher;
 import com.thoughtworks.go.listener.ConfigChangedListener;
 import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.server.domain.PipelineLockStatusChangeListener;
+import com.thoughtworks.go.server.domain.PipelinePauseChangeListener;
 import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.materials.MaterialUpdateCompletedTopic;
+import com.thoughtworks.go.server.materials.MaterialUpdateFailedMessage;
+import com.thoughtworks.go.server.materials.MaterialUpdateSuccessfulMessage;
 import com.thoughtworks.go.server.perf.SchedulingPerformanceLogger;
 import com.thoughtworks.go.server.scheduling.*;
 import com.thoughtworks.go.server.service.result.HttpOperationResult;
@@ -35,6 +44,8 @@ import com.thoughtworks.go.server.service.result.OperationResult;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -46,6 +57,7 @@ import java.util.Map;
 
 import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
 import static com.thoughtworks.go.helper.GoConfigMother.configWithPipelines;
+import static com.thoughtworks.go.util.SystemEnvironment.SCHEDULE_CHECK_SWEEP_INTERVAL_IN_MILLIS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -54,18 +66,24 @@ public class PipelineSchedulerTest {
     private PipelineScheduler scheduler;
     private GoConfigService configService;
     private BuildCauseProducerService buildCauseProducerService;
+    private SchedulingCheckerService schedulingCheckerService;
+    private Clock clock;
 
     @BeforeEach
     public void setUp() {
         queue = mock(ScheduleCheckQueue.class);
         configService = mock(GoConfigService.class);
         ServerHealthService serverHealthService = mock(ServerHealthService.class);
-        SchedulingCheckerService schedulingCheckerService = mock(SchedulingCheckerService.class);
+        schedulingCheckerService = mock(SchedulingCheckerService.class);
         buildCauseProducerService = mock(BuildCauseProducerService.class);
         ScheduleCheckCompletedTopic topic = mock(ScheduleCheckCompletedTopic.class);
         SchedulingPerformanceLogger schedulingPerformanceLogger = mock(SchedulingPerformanceLogger.class);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SCHEDULE_CHECK_SWEEP_INTERVAL_IN_MILLIS)).thenReturn(300_000L);
+        clock = mock(Clock.class);
         scheduler = new PipelineScheduler(configService, serverHealthService, schedulingCheckerService,
-                buildCauseProducerService, queue, topic, schedulingPerformanceLogger);
+                buildCauseProducerService, queue, topic, schedulingPerformanceLogger, mock(MaterialUpdateCompletedTopic.class),
+                mock(StageService.class), mock(PipelinePauseService.class), mock(PipelineLockService.class), systemEnvironment, clock);
     }
 
     @Test
@@ -95,14 +113,124 @@ public class PipelineSchedulerTest {
     }
 
     @Test
-    public void shouldCheckPipelineWhenItBecomesIdle() {
+    public void shouldCheckPipelineAgainWhenItBecomesIdleIfAChangeCameInWhileChecking() {
+        BasicCruiseConfig config = configWithPipelines("cruise");
+        scheduler.onConfigChange(config);
+        scheduler.checkPipelines();
+        scheduler.materialUpdateCompletedListener().onMessage(new MaterialUpdateSuccessfulMessage(materialOf(config, "cruise"), 1));
+        scheduler.checkPipelines();
+        scheduler.onMessage(new ScheduleCheckCompletedMessage("cruise", 1234));
+        scheduler.checkPipelines();
+        verify(queue, times(2)).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("cruise"));
+    }
+
+    @Test
+    public void shouldNotCheckPipelineAgainWhenNothingChanged() {
         scheduler.onConfigChange(configWithPipelines("cruise"));
         scheduler.checkPipelines();
         scheduler.onMessage(new ScheduleCheckCompletedMessage("cruise", 1234));
         scheduler.checkPipelines();
+        verify(queue, times(1)).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("cruise"));
+    }
+
+    @Test
+    public void shouldCheckOnlyPipelinesUsingAMaterialWithNewModifications() {
+        BasicCruiseConfig config = configWithPipelines("cruise", "mingle");
+        config.pipelineConfigByName(cis("mingle")).setMaterialConfigs(new MaterialConfigs(MaterialConfigsMother.gitMaterialConfig("https://example.com/mingle.git")));
+        checkAllOnce(config, "cruise", "mingle");
+
+        scheduler.materialUpdateCompletedListener().onMessage(new MaterialUpdateSuccessfulMessage(materialOf(config, "cruise"), 1));
+        scheduler.checkPipelines();
+
+        verify(queue).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("cruise"));
+        verifyNoMoreInteractions(queue);
+    }
+
+    @Test
+    public void shouldNotCheckPipelinesWhenTheirMaterialFailedToUpdate() {
+        BasicCruiseConfig config = configWithPipelines("cruise");
+        checkAllOnce(config, "cruise");
+
+        scheduler.materialUpdateCompletedListener().onMessage(new MaterialUpdateFailedMessage(materialOf(config, "cruise"), 1, new RuntimeException("failed")));
+        scheduler.checkPipelines();
+
+        verifyNoInteractions(queue);
+    }
+
+    @Test
+    public void shouldNotCheckPipelinesWhenTheirMaterialUpdatedWithoutNewModifications() {
+        BasicCruiseConfig config = configWithPipelines("cruise");
+        checkAllOnce(config, "cruise");
+
+        scheduler.materialUpdateCompletedListener().onMessage(new MaterialUpdateSuccessfulMessage(materialOf(config, "cruise"), 1, false));
+        scheduler.checkPipelines();
+
+        verifyNoInteractions(queue);
+    }
+
+    @Test
+    public void shouldCheckPipelineWhenOneOfItsStagesCompletes() {
+        checkAllOnce(configWithPipelines("cruise"), "cruise");
+        Stage stage = mock(Stage.class);
+        when(stage.getIdentifier()).thenReturn(new StageIdentifier("cruise", 1, "dev", "1"));
+
+        when(stage.isCompleted()).thenReturn(false);
+        scheduler.stageStatusChangedListener().stageStatusChanged(stage);
+        scheduler.checkPipelines();
+        verifyNoInteractions(queue);
+
+        when(stage.isCompleted()).thenReturn(true);
+        scheduler.stageStatusChangedListener().stageStatusChanged(stage);
+        scheduler.checkPipelines();
+        verify(queue).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("cruise"));
+    }
+
+    @Test
+    public void shouldCheckPipelineWhenItIsUnpausedOrUnlocked() {
+        checkAllOnce(configWithPipelines("cruise"), "cruise");
+
+        scheduler.pipelinePauseChangeListener().pauseStatusChanged(PipelinePauseChangeListener.Event.unPause("cruise", Username.ANONYMOUS));
+        scheduler.checkPipelines();
+        scheduler.onMessage(new ScheduleCheckCompletedMessage("cruise", 1));
+        scheduler.pipelineLockStatusChangeListener().lockStatusChanged(PipelineLockStatusChangeListener.Event.unLock("cruise"));
+        scheduler.checkPipelines();
+
         verify(queue, times(2)).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("cruise"));
     }
 
+    @Test
+    public void shouldCheckAllPipelinesOnTheSafetySweep() {
+        when(schedulingCheckerService.canSchedule(any())).thenReturn(true);
+        when(clock.currentTimeMillis()).thenReturn(1_000L);
+        scheduler.onConfigChange(configWithPipelines("cruise"));
+        scheduler.onTimer();
+        scheduler.onMessage(new ScheduleCheckCompletedMessage("cruise", 1));
+
+        when(clock.currentTimeMillis()).thenReturn(1_000L + 299_999L);
+        scheduler.onTimer();
+        verify(queue, times(1)).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("cruise"));
+
+        when(clock.currentTimeMillis()).thenReturn(1_000L + 300_000L);
+        scheduler.onTimer();
+        verify(queue, times(2)).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage("cruise"));
+    }
+
+    private void checkAllOnce(BasicCruiseConfig config, String... pipelineNames) {
+        scheduler.onConfigChange(config);
+        scheduler.checkPipelines();
+        for (String pipelineName : pipelineNames) {
+            scheduler.onMessage(new ScheduleCheckCompletedMessage(pipelineName, 0));
+        }
+        reset(queue);
+    }
+
+    private Material materialOf(BasicCruiseConfig config, String pipelineName) {
+        Material material = mock(Material.class);
+        MaterialConfig materialConfig = config.pipelineConfigByName(cis(pipelineName)).materialConfigs().first();
+        when(material.config()).thenReturn(materialConfig);
+        return material;
+    }
+
     @Test
     public void shouldAddErrorIfPipelineIsNotFound() {
         when(configService.hasPipelineNamed(cis("invalid"))).thenReturn(false);
@@ -181,6 +309,7 @@ public class PipelineSchedulerTest {
 
 
         when(newPipeline.name()).thenReturn(cis(pipelineName));
+        when(newPipeline.materialConfigs()).thenReturn(new MaterialConfigs());
         entityConfigChangedListener.onEntityConfigChange(newPipeline);
         scheduler.checkPipelines();
         verify(queue, times(1)).post(ScheduleCheckMessageMatcher.matchScheduleCheckMessage(pipelineName));
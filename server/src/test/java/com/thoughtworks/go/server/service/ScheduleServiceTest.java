@@ -33,7 +33,9 @@ import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TimeProvider;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -76,6 +78,11 @@ public class ScheduleServiceTest {
         createMocks();
     }
 
+    @AfterEach
+    public void tearDown() {
+        service.stop();
+    }
+
     @Test
     public void shouldCancelStage() throws Exception {
         HttpLocalizedOperationResult result = new HttpLocalizedOperationResult();
@@ -229,6 +236,41 @@ public class ScheduleServiceTest {
         verify(serverHealthService).update(ServerHealthState.success(HealthStateType.general(HealthStateScope.forStage("pipeline-quux", "mingle"))));
     }
 
+    @Test
+    public void shouldCreateEveryPipelineInTheRequestBufferAndLogHowLongItTookToDrain() {
+        final PipelineConfig created = PipelineConfigMother.pipelineConfig("pipeline-foo");
+        final PipelineConfig failed = PipelineConfigMother.pipelineConfig("pipeline-bar");
+        when(goConfigService.pipelineConfigNamed(cis("pipeline-foo"))).thenReturn(created);
+        when(goConfigService.pipelineConfigNamed(cis("pipeline-bar"))).thenReturn(failed);
+        CruiseConfig cruiseConfig = mock(BasicCruiseConfig.class);
+        when(cruiseConfig.getMd5()).thenReturn("md5-test");
+        when(goConfigService.getCurrentConfig()).thenReturn(cruiseConfig);
+        when(schedulingChecker.canAutoTriggerConsumer(any())).thenReturn(true);
+        when(pipelineScheduleQueue.createPipeline(any(), eq(created), any(), eq("md5-test"), eq(timeProvider))).thenReturn(mock(Pipeline.class));
+        when(pipelineScheduleQueue.createPipeline(any(), eq(failed), any(), eq("md5-test"), eq(timeProvider))).thenThrow(new CannotScheduleException("foo", "stage-baz"));
+        final Map<CaseInsensitiveString, BuildCause> map = new HashMap<>();
+        map.put(cis("pipeline-foo"), BuildCause.createManualForced());
+        map.put(cis("pipeline-bar"), BuildCause.createManualForced());
+        when(pipelineScheduleQueue.toBeScheduled()).thenReturn(map);
+
+        service.autoSchedulePipelinesFromRequestBuffer();
+
+        verify(pipelineScheduleQueue).createPipeline(any(), eq(created), any(), eq("md5-test"), eq(timeProvider));
+        verify(pipelineScheduleQueue).createPipeline(any(), eq(failed), any(), eq("md5-test"), eq(timeProvider));
+        verify(pipelineScheduleQueue).clearPipeline(cis("pipeline-bar"));
+        verify(schedulingPerformanceLogger).scheduledPipeline(eq(cis("pipeline-foo")), anyInt(), anyLong(), anyLong());
+        verify(schedulingPerformanceLogger).drainedToBeScheduledQueue(eq(2), eq(1), anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldNotLogADrainWhenTheRequestBufferIsEmpty() {
+        when(pipelineScheduleQueue.toBeScheduled()).thenReturn(new HashMap<>());
+
+        service.autoSchedulePipelinesFromRequestBuffer();
+
+        verify(schedulingPerformanceLogger, never()).drainedToBeScheduledQueue(anyInt(), anyInt(), anyLong(), anyLong());
+    }
+
     @Test
     public void shouldCancelUnresponsiveJobs() {
         service.cancelHungJobs();
@@ -299,6 +341,6 @@ public class ScheduleServiceTest {
         service = new ScheduleService(goConfigService, pipelineService, stageService, schedulingChecker, mock(PipelineDao.class), mock(StageDao.class), stageOrderService, securityService, pipelineScheduleQueue,
                 jobInstanceService, mock(JobInstanceDao.class), mock(AgentAssignment.class), environmentConfigService, pipelineLockService, serverHealthService,
                 new TestTransactionTemplate(synchronizationManager),
-                mock(AgentService.class), synchronizationManager, timeProvider, consoleActivityMonitor, pipelinePauseService, instanceFactory, schedulingPerformanceLogger, elasticProfileService, clusterProfileService);
+                mock(AgentService.class), synchronizationManager, timeProvider, consoleActivityMonitor, pipelinePauseService, instanceFactory, schedulingPerformanceLogger, elasticProfileService, clusterProfileService, new SystemEnvironment());
     }
 }
@@ -16,23 +16,20 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.server.caching.GoCache;
+import com.thoughtworks.go.server.caching.GoCacheRegion;
 import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
-import net.sf.ehcache.Ehcache;
-import org.mockito.Answers;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static org.mockito.Mockito.mock;
-
 public class StubGoCache extends GoCache {
 
     private final Map<String, Object> map;
 
     public StubGoCache(final TestTransactionSynchronizationManager transactionSynchronizationManager) {
-        super(mock(Ehcache.class, Answers.RETURNS_DEEP_STUBS), transactionSynchronizationManager);
+        super(List.of(GoCacheRegion.defaultRegion(1000, null)), transactionSynchronizationManager);
         map = new HashMap<>();
     }
 
@@ -50,12 +47,14 @@ public class StubGoCache extends GoCache {
     @Override
     public boolean remove(String key) {
         map.remove(key);
+        super.remove(key);
         return true;
     }
 
     @Override
     public void clear() {
         map.clear();
+        super.clear();
     }
 
     @Override
@@ -18,14 +18,22 @@ package com.thoughtworks.go.server.web;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.caching.ZipArtifactCache;
 import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.server.view.artifacts.ZippedArtifactFolderView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -60,8 +68,56 @@ public class ZipArtifactFolderViewFactoryTest {
         assertThat(targetFile).isEqualTo(cacheZipFile);
     }
 
+    @Test
+    public void shouldStreamZipWhenStreamingAndNotCached() throws Exception {
+        Files.writeString(folder.resolve("dir/file1"), "some content");
+        folderViewFactory = new ZipArtifactFolderViewFactory(cacheMissing(), true);
+
+        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, new ArtifactFolder(JOB_IDENTIFIER, folder.resolve("dir").toFile(), "dir"));
+        assertThat(modelAndView.getView()).isInstanceOf(ZippedArtifactFolderView.class);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        modelAndView.getView().render(Map.of(), new MockHttpServletRequest(), response);
+
+        assertThat(response.getContentType()).isEqualTo("application/zip");
+        assertThat(response.getHeader("Content-Disposition")).isEqualTo("attachment; filename=\"dir.zip\"");
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            ZipEntry entry;
+            boolean found = false;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().endsWith("file1")) {
+                    assertThat(new String(zip.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("some content");
+                    found = true;
+                }
+            }
+            assertThat(found).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldViewCachedZipArtifactWhenStreamingAndAlreadyCached() throws Exception {
+        folderViewFactory = new ZipArtifactFolderViewFactory(cacheAlreadyCreated(), true);
+
+        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, new ArtifactFolder(JOB_IDENTIFIER, folder.toFile(), "dir"));
+        assertThat(modelAndView.getViewName()).isEqualTo(FileModelAndView.VIEW_NAME);
+    }
+
+    private ZipArtifactCache cacheMissing() {
+        return new ZipArtifactCache(null, null, null) {
+            @Override
+            public boolean cacheCreated(ArtifactFolder artifactFolder) {
+                throw new RuntimeException("Should not build a cached zip when streaming");
+            }
+
+            @Override
+            public File cachedFile(ArtifactFolder artifactFolder) {
+                return new File(cacheZipFile.getParentFile(), "missing.zip");
+            }
+        };
+    }
+
     private ZipArtifactCache cacheAlreadyCreated() {
-        return new ZipArtifactCache(null, null) {
+        return new ZipArtifactCache(null, null, null) {
             @Override
             public boolean cacheCreated(ArtifactFolder artifactFolder) {
                 return true;
@@ -75,7 +131,7 @@ public class ZipArtifactFolderViewFactoryTest {
     }
 
     private ZipArtifactCache cacheNotCreated() {
-        return new ZipArtifactCache(null, null) {
+        return new ZipArtifactCache(null, null, null) {
             @Override
             public boolean cacheCreated(ArtifactFolder artifactFolder) {
                 return false;
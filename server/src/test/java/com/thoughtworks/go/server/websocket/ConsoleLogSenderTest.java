@@ -18,8 +18,11 @@ package com.thoughtworks.go.server.websocket;
 import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.JobState;
 import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.messaging.JobStatusMessage;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -32,6 +35,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 
@@ -56,7 +62,7 @@ public class ConsoleLogSenderTest {
         when(socket.isOpen()).thenReturn(true);
         systemEnvironment = mock(SystemEnvironment.class);
         when(systemEnvironment.consoleLogCharset()).thenReturn(UTF_8);
-        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, systemEnvironment);
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, mock(JobStatusTopic.class), systemEnvironment, Runnable::run);
         jobIdentifier = mock(JobIdentifier.class);
     }
 
@@ -98,16 +104,18 @@ public class ConsoleLogSenderTest {
         File fakeFile = mock(File.class);
         when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(fakeFile);
 
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
 
         when(consoleService.getStreamer(anyLong(), eq(jobIdentifier)))
             .thenReturn(new FakeConsoleStreamer("First Output", "Second Output"));
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.onTimer();
 
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
+        verify(socket, never()).close();
     }
 
     @Test
@@ -115,36 +123,144 @@ public class ConsoleLogSenderTest {
         File fakeFile = mock(File.class);
         when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(fakeFile);
 
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
 
         when(consoleService.getStreamer(0L, jobIdentifier))
-            .thenReturn(new FakeConsoleStreamer("First Output", "Second Output"));
+            .thenReturn(new FakeConsoleStreamer("First Output"));
         when(consoleService.getStreamer(1L, jobIdentifier))
+            .thenReturn(new FakeConsoleStreamer("Second Output"));
+        when(consoleService.getStreamer(2L, jobIdentifier))
             .thenReturn(new FakeConsoleStreamer("More Output"));
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.onMessage(new JobStatusMessage(jobIdentifier, JobState.Completed, "agent-uuid"));
+        consoleLogSender.onTimer();
 
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
         verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("More Output\n".getBytes(UTF_8))));
+        verify(socket).close();
     }
 
     @Test
     public void shouldNotSendMessagesWhenOutputHasNotAdvanced() throws Exception {
         File console = makeConsoleFile("First Output");
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
 
         when(consoleService.getStreamer(anyLong(), eq(jobIdentifier)))
-            .thenReturn(new ConsoleStreamer(console.toPath(), 0L));
+            .thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.onTimer();
+        consoleLogSender.onTimer();
 
-        verify(jobInstanceDao, times(3)).isJobCompleted(jobIdentifier);
         verify(socket, times(1)).send(any());
     }
 
+    @Test
+    public void shouldShareOneReaderAmongAllViewersOfARunningBuild() throws Exception {
+        File console = makeConsoleFile("First Output\n");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier)))
+            .thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+
+        SocketEndpoint anotherSocket = mock(SocketEndpoint.class);
+        when(anotherSocket.isOpen()).thenReturn(true);
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.process(anotherSocket, jobIdentifier, 0L);
+
+        Files.write(console.toPath(), "Second Output\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        consoleLogSender.onTimer();
+        consoleLogSender.onTimer();
+
+        ByteBuffer secondOutput = ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8)));
+        verify(socket).send(secondOutput);
+        verify(anotherSocket).send(secondOutput);
+        verify(consoleService, times(1)).getStreamer(1L, jobIdentifier);
+        verify(jobInstanceDao, times(3)).isJobCompleted(jobIdentifier);
+    }
+
+    @Test
+    public void shouldSendViewersThatAreAheadOfTheSharedReaderOnlyWhatTheyHaveNotSeen() throws Exception {
+        File console = makeConsoleFile("First Output\n");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier)))
+            .thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+
+        SocketEndpoint aheadSocket = mock(SocketEndpoint.class);
+        when(aheadSocket.isOpen()).thenReturn(true);
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        Files.write(console.toPath(), "Second Output\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        consoleLogSender.process(aheadSocket, jobIdentifier, 2L);
+        Files.write(console.toPath(), "Third Output\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        consoleLogSender.onTimer();
+
+        verify(socket).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\nThird Output\n".getBytes(UTF_8))));
+        verify(aheadSocket, times(1)).send(any());
+        verify(aheadSocket).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Third Output\n".getBytes(UTF_8))));
+    }
+
+    @Test
+    public void shouldNotHoldUpOtherViewersWhileASlowViewerIsBeingSentTo() throws Exception {
+        File console = makeConsoleFile("First Output\n");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier)))
+            .thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, mock(JobStatusTopic.class), systemEnvironment, Executors.newVirtualThreadPerTaskExecutor());
+
+        ByteBuffer secondOutput = ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8)));
+        CountDownLatch slowSocketReleased = new CountDownLatch(1);
+        SocketEndpoint slowSocket = mock(SocketEndpoint.class);
+        when(slowSocket.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            slowSocketReleased.await();
+            return null;
+        }).when(slowSocket).send(secondOutput);
+
+        try {
+            consoleLogSender.process(slowSocket, jobIdentifier, 0L);
+            consoleLogSender.process(socket, jobIdentifier, 0L);
+            Files.write(console.toPath(), "Second Output\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+            consoleLogSender.onTimer();
+
+            verify(socket, timeout(5000)).send(secondOutput);
+        } finally {
+            slowSocketReleased.countDown();
+            consoleLogSender.destroy();
+        }
+    }
+
+    @Test
+    public void shouldCloseAViewerThatFallsTooFarBehind() throws Exception {
+        File console = makeConsoleFile("First Output\n");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier)))
+            .thenAnswer(invocation -> new ConsoleStreamer(console.toPath(), invocation.getArgument(0)));
+        // a send executor that never gets around to sending, as if the socket were stuck
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, mock(JobStatusTopic.class), systemEnvironment, task -> {
+        });
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        for (int i = 0; i < ConsoleLogSender.MAX_PENDING_CHUNKS; i++) {
+            Files.write(console.toPath(), ("Output " + i + "\n").getBytes(UTF_8), StandardOpenOption.APPEND);
+            consoleLogSender.onTimer();
+        }
+        verify(socket, never()).close();
+
+        Files.write(console.toPath(), "One too many\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        consoleLogSender.onTimer();
+
+        verify(socket).close();
+    }
+
     @Test
     public void shouldCloseSocketAfterProcessingMessage() throws Exception {
         File console = makeConsoleFile("foo");
@@ -0,0 +1,142 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.config.security.Permissions;
+import com.thoughtworks.go.config.security.permissions.PipelinePermission;
+import com.thoughtworks.go.config.security.users.AllowedUsers;
+import com.thoughtworks.go.config.security.users.Users;
+import com.thoughtworks.go.server.dashboard.DashboardPipelineRenderer;
+import com.thoughtworks.go.server.dashboard.GoDashboardCache;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.server.dashboard.TimeStampBasedCounter;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.domain.user.DashboardFilter;
+import com.thoughtworks.go.server.domain.user.ExcludesFilter;
+import com.thoughtworks.go.server.domain.user.Filters;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.thoughtworks.go.config.CaseInsensitiveString.cis;
+import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class DashboardDeltaSenderTest {
+    private static final URI ROOT_URL = URI.create("https://gocd.example.com/go");
+
+    private GoDashboardCache cache;
+    private DashboardPipelineRenderer renderer;
+    private DashboardDeltaSender sender;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new GoDashboardCache(mock(TimeStampBasedCounter.class));
+        renderer = mock(DashboardPipelineRenderer.class);
+        sender = new DashboardDeltaSender(cache, Optional.of(renderer), Runnable::run);
+    }
+
+    @Test
+    public void shouldSendChangedPipelinesToUsersWhoCanSeeThem() {
+        RemoteEndpoint bob = connect("bob", Filters.WILDCARD_FILTER);
+        RemoteEndpoint alice = connect("alice", Filters.WILDCARD_FILTER);
+        GoDashboardPipeline pipeline = pipeline("pipeline1", "group1", viewableBy("bob"));
+        when(renderer.render(pipeline, new Username("bob"), ROOT_URL)).thenReturn("{\"name\":\"pipeline1\"}");
+
+        cache.put(pipeline);
+
+        verify(bob).sendString(eq("{\"type\":\"pipeline\",\"name\":\"pipeline1\",\"group\":\"group1\",\"pipeline\":{\"name\":\"pipeline1\"}}"), any(WriteCallback.class));
+        verify(alice, never()).sendString(any(String.class), any(WriteCallback.class));
+    }
+
+    @Test
+    public void shouldNotSendPipelinesWhichAreNotOnTheSelectedDashboard() {
+        DashboardFilter filter = new ExcludesFilter("Default", List.of(cis("pipeline1")), Set.of());
+        RemoteEndpoint bob = connect("bob", filter);
+
+        cache.put(pipeline("pipeline1"));
+
+        verify(bob, never()).sendString(any(String.class), any(WriteCallback.class));
+    }
+
+    @Test
+    public void shouldSendRemovedPipelinesAndReloads() {
+        cache.put(pipeline("pipeline1"));
+        RemoteEndpoint bob = connect("bob", Filters.WILDCARD_FILTER);
+
+        cache.remove(cis("pipeline1"));
+        cache.replaceAllEntriesInCacheWith(List.of());
+
+        verify(bob).sendString(eq("{\"type\":\"pipeline_removed\",\"name\":\"pipeline1\",\"group\":\"group1\"}"), any(WriteCallback.class));
+        verify(bob).sendString(eq("{\"type\":\"reload\"}"), any(WriteCallback.class));
+    }
+
+    @Test
+    public void shouldStopSendingOnceSocketIsClosed() {
+        DashboardSocket socket = new DashboardSocket(sender, new SocketHealthService(), new Username("bob"), Filters.WILDCARD_FILTER, ROOT_URL);
+        RemoteEndpoint bob = connect(socket);
+
+        socket.onClose(1000, null);
+        cache.put(pipeline("pipeline1"));
+
+        verify(bob, never()).sendString(any(String.class), any(WriteCallback.class));
+    }
+
+    @Test
+    public void shouldTellAClientThatFellTooFarBehindToReloadOnceItCatchesUp() {
+        RemoteEndpoint bob = connect("bob", Filters.WILDCARD_FILTER);
+
+        for (int i = 0; i <= DashboardSocket.MAX_UNSENT_MESSAGES; i++) {
+            cache.put(pipeline("pipeline" + i));
+        }
+
+        ArgumentCaptor<WriteCallback> callbacks = ArgumentCaptor.forClass(WriteCallback.class);
+        verify(bob, times(DashboardSocket.MAX_UNSENT_MESSAGES)).sendString(any(String.class), callbacks.capture());
+        verify(bob, never()).sendString(eq("{\"type\":\"reload\"}"), any(WriteCallback.class));
+
+        callbacks.getAllValues().forEach(WriteCallback::writeSuccess);
+
+        verify(bob).sendString(eq("{\"type\":\"reload\"}"), any(WriteCallback.class));
+    }
+
+    private RemoteEndpoint connect(String username, DashboardFilter filter) {
+        return connect(new DashboardSocket(sender, new SocketHealthService(), new Username(username), filter, ROOT_URL));
+    }
+
+    private RemoteEndpoint connect(DashboardSocket socket) {
+        Session session = mock(Session.class);
+        RemoteEndpoint remote = mock(RemoteEndpoint.class);
+        when(session.getRemote()).thenReturn(remote);
+        when(session.isOpen()).thenReturn(true);
+        socket.onConnect(session);
+        return remote;
+    }
+
+    private static Permissions viewableBy(String username) {
+        Users users = new AllowedUsers(Set.of(username), Set.of());
+        return new Permissions(users, users, users, PipelinePermission.EVERYONE);
+    }
+}
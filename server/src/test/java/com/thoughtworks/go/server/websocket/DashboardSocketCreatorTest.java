@@ -0,0 +1,56 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.domain.user.PipelineSelections;
+import com.thoughtworks.go.server.service.PipelineSelectionsService;
+import org.eclipse.jetty.websocket.server.JettyServerUpgradeRequest;
+import org.eclipse.jetty.websocket.server.JettyServerUpgradeResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.servlet.http.Cookie;
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class DashboardSocketCreatorTest {
+    @Test
+    public void createWebSocketForTheUserAndTheirSelectedPipelines() {
+        PipelineSelectionsService pipelineSelectionsService = mock(PipelineSelectionsService.class);
+        when(pipelineSelectionsService.load("selections-id", 42L)).thenReturn(PipelineSelections.ALL);
+        DashboardSocketCreator creator = new DashboardSocketCreator(mock(DashboardDeltaSender.class), pipelineSelectionsService, new SocketHealthService());
+
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/go/dashboard-websocket");
+        servletRequest.setScheme("https");
+        servletRequest.setServerName("gocd.example.com");
+        servletRequest.setServerPort(8154);
+        servletRequest.setContextPath("/go");
+        servletRequest.setCookies(new Cookie("selected_pipelines", "selections-id"));
+        servletRequest.setAttribute(DashboardSocketCreator.USERNAME_ATTRIBUTE, new Username("bob"));
+        servletRequest.setAttribute(DashboardSocketCreator.USER_ID_ATTRIBUTE, 42L);
+        JettyServerUpgradeRequest request = mock(JettyServerUpgradeRequest.class);
+        when(request.getHttpServletRequest()).thenReturn(servletRequest);
+
+        DashboardSocket socket = (DashboardSocket) creator.createWebSocket(request, mock(JettyServerUpgradeResponse.class));
+
+        assertThat(socket.username()).isEqualTo(new Username("bob"));
+        assertThat(socket.rootUrl()).isEqualTo(URI.create("https://gocd.example.com:8154/go"));
+        verify(pipelineSelectionsService).load("selections-id", 42L);
+    }
+}
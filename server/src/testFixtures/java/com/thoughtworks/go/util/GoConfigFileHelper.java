@@ -136,7 +136,7 @@ public class GoConfigFileHelper {
             GoConfigMigrator goConfigMigrator = new GoConfigMigrator(goConfigMigration, new SystemEnvironment(), configElementImplementationRegistry, normalFlow, configRepository, serverHealthService);
             Files.writeString(dataSource.location(), ConfigFileFixture.configWithSecurity(""), UTF_8);
             goConfigMigrator.migrate();
-            CachedGoConfig cachedConfigService = new CachedGoConfig(serverHealthService, dataSource, cachedGoPartials, null, maintenanceModeService);
+            CachedGoConfig cachedConfigService = new CachedGoConfig(serverHealthService, dataSource, cachedGoPartials, null, maintenanceModeService, new ConfigFileWatcher(new SystemEnvironment()));
             cachedConfigService.loadConfigIfNull();
             return new GoConfigDao(cachedConfigService);
         } catch (IOException e) {
@@ -43,15 +43,21 @@ public class JsonOutputWriter {
 
     protected final Writer writer;
     private final RequestContext requestContext;
+    private final boolean prettyPrint;
 
     public JsonOutputWriter(Writer writer, RequestContext requestContext) {
+        this(writer, requestContext, true);
+    }
+
+    public JsonOutputWriter(Writer writer, RequestContext requestContext, boolean prettyPrint) {
         this.writer = writer;
         this.requestContext = requestContext;
+        this.prettyPrint = prettyPrint;
     }
 
     public JsonOutputWriter forTopLevelObject(Consumer<OutputWriter> consumer) {
         bufferWriterAndFlushWhenDone(writer, bufferedWriter -> {
-            try (JsonOutputWriterUsingJackson jacksonOutputWriter = new JsonOutputWriterUsingJackson(bufferedWriter, requestContext)) {
+            try (JsonOutputWriterUsingJackson jacksonOutputWriter = new JsonOutputWriterUsingJackson(bufferedWriter, requestContext, prettyPrint)) {
                 jacksonOutputWriter.forTopLevelObject(consumer);
             }
         });
@@ -61,7 +67,7 @@ public class JsonOutputWriter {
 
     public JsonOutputWriter forTopLevelArray(Consumer<OutputListWriter> consumer) {
         bufferWriterAndFlushWhenDone(writer, bufferedWriter -> {
-            try (JsonOutputWriterUsingJackson jacksonOutputWriter = new JsonOutputWriterUsingJackson(bufferedWriter, requestContext)) {
+            try (JsonOutputWriterUsingJackson jacksonOutputWriter = new JsonOutputWriterUsingJackson(bufferedWriter, requestContext, prettyPrint)) {
                 jacksonOutputWriter.forTopLevelArray(consumer);
             }
         });
@@ -89,11 +95,13 @@ public class JsonOutputWriter {
         private final RequestContext requestContext;
         private final JsonGenerator jacksonWriter;
 
-        private JsonOutputWriterUsingJackson(Writer writer, RequestContext requestContext) {
+        private JsonOutputWriterUsingJackson(Writer writer, RequestContext requestContext, boolean prettyPrint) {
             this.requestContext = requestContext;
             try {
                 jacksonWriter = JSON_FACTORY.createGenerator(writer);
-                jacksonWriter.useDefaultPrettyPrinter();
+                if (prettyPrint) {
+                    jacksonWriter.useDefaultPrettyPrinter();
+                }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -395,6 +403,12 @@ public class JsonOutputWriter {
                 });
                 return this;
             }
+
+            @Override
+            public JsonOutputListWriter addRaw(String json) {
+                parentWriter.withExceptionHandling(jacksonWriter -> jacksonWriter.writeRawValue(json));
+                return this;
+            }
         }
 
 
@@ -21,4 +21,9 @@ public interface OutputListWriter {
     OutputListWriter value(String value);
 
     OutputListWriter addChild(Consumer<OutputWriter> consumer);
+
+    /**
+     * Adds a value that has been serialized already, as is, e.g. one that was cached from an earlier response.
+     */
+    OutputListWriter addRaw(String json);
 }